@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+
+/**
+ * The map (populated with keyCount entries) and parameters shared by all the map benchmarks.
+ */
+@State(Scope.Benchmark)
+abstract public class AbstractMapBenchmark {
+
+    @Param({ "HashMap", "TreeMap", "RocksBigMap", "LevelBigMap", "TokyoBigMap", "TkrzwBigMap" })
+    public String engine;
+
+    @Param({ "bytes", "string", "kryo" })
+    public String codec;
+
+    @Param({ "uniform", "sequential", "skewed" })
+    public String keyDistribution;
+
+    @Param({ "100", "4096" })
+    public int valueSize;
+
+    @Param({ "100000" })
+    public int keyCount;
+
+    protected Map<Long,Object> map;
+    protected Object[] values;
+
+    @Setup(Level.Trial)
+    public void setupMap() {
+        this.map = BenchmarkMaps.build(this.engine, this.codec);
+        this.values = BenchmarkMaps.values(this.codec, this.valueSize, 16);
+
+        for (long i = 0; i < this.keyCount; i++) {
+            BenchmarkMaps.put(this.map, i, this.values[(int)(i % this.values.length)]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardownMap() {
+        BenchmarkMaps.close(this.map);
+    }
+
+    protected Object nextValue(long key) {
+        return this.values[(int)(key % this.values.length)];
+    }
+
+    @State(Scope.Thread)
+    static public class Keys {
+
+        private KeyDistribution keys;
+
+        @Setup(Level.Trial)
+        public void setup(AbstractMapBenchmark benchmark) {
+            this.keys = KeyDistribution.of(benchmark.keyDistribution, benchmark.keyCount);
+        }
+
+        public long next() {
+            return this.keys.next();
+        }
+
+    }
+
+}
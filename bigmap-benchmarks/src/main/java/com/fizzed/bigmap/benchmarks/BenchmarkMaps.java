@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.benchmarks;
+
+import com.fizzed.bigmap.BigMap;
+import com.fizzed.bigmap.ByteCodec;
+import com.fizzed.bigmap.ByteCodecs;
+import com.fizzed.bigmap.kryo.KryoByteCodec;
+import com.fizzed.bigmap.leveldb.LevelBigMapBuilder;
+import com.fizzed.bigmap.rocksdb.RocksBigMapBuilder;
+import com.fizzed.bigmap.tkrzw.TkrzwBigMapBuilder;
+import com.fizzed.bigmap.tokyocabinet.TokyoBigMapBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Builds the maps and values the benchmarks are parameterized over, by name, so they can be passed to JMH as params
+ * on the command line (e.g. -p engine=RocksBigMap,TokyoBigMap).
+ */
+public class BenchmarkMaps {
+
+    static public final Path SCRATCH_DIRECTORY = Paths.get("target", "benchmarks");
+
+    static public Map<Long,Object> build(String engine, String codec) {
+        final ByteCodec<Object> valueCodec = valueCodec(codec);
+
+        switch (engine) {
+            case "HashMap":
+                return new HashMap<>();
+            case "TreeMap":
+                return new TreeMap<>();
+            case "RocksBigMap":
+                return new RocksBigMapBuilder<Long,Object>()
+                    .setScratchDirectory(SCRATCH_DIRECTORY)
+                    .setKeyType(Long.class)
+                    .setValueType(Object.class, valueCodec)
+                    .build();
+            case "LevelBigMap":
+                return new LevelBigMapBuilder<Long,Object>()
+                    .setScratchDirectory(SCRATCH_DIRECTORY)
+                    .setKeyType(Long.class)
+                    .setValueType(Object.class, valueCodec)
+                    .build();
+            case "TokyoBigMap":
+                return new TokyoBigMapBuilder<Long,Object>()
+                    .setScratchDirectory(SCRATCH_DIRECTORY)
+                    .setKeyType(Long.class)
+                    .setValueType(Object.class, valueCodec)
+                    .build();
+            case "TkrzwBigMap":
+                return new TkrzwBigMapBuilder<Long,Object>()
+                    .setScratchDirectory(SCRATCH_DIRECTORY)
+                    .setKeyType(Long.class)
+                    .setValueType(Object.class, valueCodec)
+                    .build();
+            default:
+                throw new IllegalArgumentException("Unsupported engine " + engine);
+        }
+    }
+
+    static public ByteCodec<Object> valueCodec(String codec) {
+        switch (codec) {
+            case "bytes":
+                return (ByteCodec)ByteCodecs.byteArrayCodec();
+            case "string":
+                return (ByteCodec)ByteCodecs.utf8StringCodec();
+            case "kryo":
+                return (ByteCodec)new KryoByteCodec<>(Item.class);
+            default:
+                throw new IllegalArgumentException("Unsupported codec " + codec);
+        }
+    }
+
+    /**
+     * Builds a few distinct values of roughly valueSize bytes once serialized, so creating values is not measured.
+     */
+    static public Object[] values(String codec, int valueSize, int count) {
+        final Random random = new Random(1L);
+        final Object[] values = new Object[count];
+
+        for (int i = 0; i < count; i++) {
+            final byte[] bytes = new byte[valueSize];
+            switch (codec) {
+                case "bytes":
+                    random.nextBytes(bytes);
+                    values[i] = bytes;
+                    break;
+                case "string":
+                    for (int j = 0; j < bytes.length; j++) {
+                        bytes[j] = (byte)('a' + random.nextInt(26));
+                    }
+                    values[i] = new String(bytes);
+                    break;
+                case "kryo":
+                    random.nextBytes(bytes);
+                    values[i] = new Item(i, "item-" + i, bytes);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported codec " + codec);
+            }
+        }
+
+        return values;
+    }
+
+    static public void put(Map<Long,Object> map, Long key, Object value) {
+        if (map instanceof BigMap) {
+            // the return value is never used, so use the cheaper set
+            ((BigMap<Long,Object>)map).set(key, value);
+        } else {
+            map.put(key, value);
+        }
+    }
+
+    static public void close(Map<Long,Object> map) {
+        if (map instanceof BigMap) {
+            try {
+                ((BigMap<Long,Object>)map).close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+}
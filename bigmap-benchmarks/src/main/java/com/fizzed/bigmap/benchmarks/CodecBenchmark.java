@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.benchmarks;
+
+import com.fizzed.bigmap.ByteBufferCodec;
+import com.fizzed.bigmap.ByteCodec;
+import com.fizzed.bigmap.ByteCodecs;
+import com.fizzed.bigmap.CompressingByteCodec;
+import com.fizzed.bigmap.kryo.KryoByteCodec;
+import com.fizzed.bigmap.kryo.PooledKryoByteCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of serializing and deserializing a value with each codec, both as byte arrays and with ByteBuffers (which
+ * is how values are passed to engines that support direct buffers).
+ *
+ *   java -jar bigmap-benchmarks/target/benchmarks.jar CodecBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+
+    @Param({ "integer", "long", "sortableLong", "sortableUuid", "utf8String", "byteArray", "kryo", "pooledKryo",
+        "compressedUtf8String" })
+    public String codec;
+
+    private ByteCodec<Object> byteCodec;
+    private ByteBufferCodec<Object> bufferCodec;
+    private Object value;
+    private byte[] bytes;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(1L);
+        final byte[] payload = new byte[256];
+        random.nextBytes(payload);
+
+        switch (this.codec) {
+            case "integer":
+                this.byteCodec = (ByteCodec)ByteCodecs.integerCodec();
+                this.value = 123456789;
+                break;
+            case "long":
+                this.byteCodec = (ByteCodec)ByteCodecs.longCodec();
+                this.value = 1234567890123L;
+                break;
+            case "sortableLong":
+                this.byteCodec = (ByteCodec)ByteCodecs.sortableLongCodec();
+                this.value = -1234567890123L;
+                break;
+            case "sortableUuid":
+                this.byteCodec = (ByteCodec)ByteCodecs.sortableUuidCodec();
+                this.value = UUID.randomUUID();
+                break;
+            case "utf8String":
+                this.byteCodec = (ByteCodec)ByteCodecs.utf8StringCodec();
+                this.value = "This is a fairly typical string value of around sixty-four chars";
+                break;
+            case "byteArray":
+                this.byteCodec = (ByteCodec)ByteCodecs.byteArrayCodec();
+                this.value = payload;
+                break;
+            case "kryo":
+                this.byteCodec = (ByteCodec)new KryoByteCodec<>(Item.class);
+                this.value = new Item(1L, "item-1", payload);
+                break;
+            case "pooledKryo":
+                this.byteCodec = (ByteCodec)new PooledKryoByteCodec<>(Item.class,
+                    () -> PooledKryoByteCodec.registeredKryo(Item.class, byte[].class));
+                this.value = new Item(1L, "item-1", payload);
+                break;
+            case "compressedUtf8String":
+                this.byteCodec = (ByteCodec)new CompressingByteCodec<>(ByteCodecs.utf8StringCodec());
+                this.value = "{\"id\":1,\"name\":\"item-1\",\"description\":\"a fairly typical json value with the"
+                    + " same text repeated, the same text repeated, the same text repeated\",\"status\":\"ACTIVE\"}";
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported codec " + this.codec);
+        }
+
+        this.bufferCodec = ByteCodecs.toByteBufferCodec(this.byteCodec);
+        this.bytes = this.byteCodec.serialize(this.value);
+        this.buffer = ByteBuffer.allocateDirect(4096);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return this.byteCodec.serialize(this.value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return this.byteCodec.deserialize(this.bytes);
+    }
+
+    @Benchmark
+    public ByteBuffer serializeToBuffer() {
+        this.buffer.clear();
+        this.bufferCodec.serialize(this.value, this.buffer);
+        this.buffer.flip();
+        return this.buffer;
+    }
+
+    @Benchmark
+    public Object deserializeFromBuffer() {
+        this.buffer.clear();
+        this.bufferCodec.serialize(this.value, this.buffer);
+        this.buffer.flip();
+        return this.bufferCodec.deserialize(this.buffer);
+    }
+
+}
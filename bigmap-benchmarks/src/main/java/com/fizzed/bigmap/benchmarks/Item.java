@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.benchmarks;
+
+/**
+ * A simple object for benchmarking codecs of complex values (e.g. kryo).
+ */
+public class Item {
+
+    public long id;
+    public String name;
+    public byte[] payload;
+
+    public Item() {
+        // for kryo
+    }
+
+    public Item(long id, String name, byte[] payload) {
+        this.id = id;
+        this.name = name;
+        this.payload = payload;
+    }
+
+}
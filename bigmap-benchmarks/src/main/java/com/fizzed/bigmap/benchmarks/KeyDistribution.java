@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the keys (in the range [0, keyCount)) the benchmarks operate on.
+ */
+abstract public class KeyDistribution {
+
+    abstract public long next();
+
+    static public KeyDistribution of(String name, long keyCount) {
+        switch (name) {
+            // every key, in order, over and over (best case for caches and engines)
+            case "sequential":
+                return new KeyDistribution() {
+                    private long counter;
+
+                    @Override
+                    public long next() {
+                        final long key = this.counter;
+                        this.counter = (this.counter + 1) % keyCount;
+                        return key;
+                    }
+                };
+            // every key is equally likely
+            case "uniform":
+                return new KeyDistribution() {
+                    @Override
+                    public long next() {
+                        return ThreadLocalRandom.current().nextLong(keyCount);
+                    }
+                };
+            // a power law where a few hot keys get most of the traffic (~50% of lookups hit the lowest 12.5% of keys)
+            case "skewed":
+                return new KeyDistribution() {
+                    @Override
+                    public long next() {
+                        final double u = ThreadLocalRandom.current().nextDouble();
+                        return (long)(keyCount * u * u * u);
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unsupported key distribution " + name);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput of each single map operation, across every engine, codec, key distribution and value size.
+ *
+ *   java -jar bigmap-benchmarks/target/benchmarks.jar MapBenchmark -prof gc -p engine=RocksBigMap,TokyoBigMap
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+public class MapBenchmark extends AbstractMapBenchmark {
+
+    @Benchmark
+    public Object get(Keys keys) {
+        return this.map.get(keys.next());
+    }
+
+    @Benchmark
+    public Object getMissing(Keys keys) {
+        // all keys >= keyCount do not exist
+        return this.map.get(this.keyCount + keys.next());
+    }
+
+    @Benchmark
+    public boolean containsKey(Keys keys) {
+        return this.map.containsKey(keys.next());
+    }
+
+    @Benchmark
+    public void set(Keys keys) {
+        final long key = keys.next();
+        BenchmarkMaps.put(this.map, key, this.nextValue(key + 1));
+    }
+
+    @Benchmark
+    public Object put(Keys keys) {
+        final long key = keys.next();
+        return this.map.put(key, this.nextValue(key + 1));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void iterate(Blackhole blackhole) {
+        final Iterator<Map.Entry<Long,Object>> iterator = this.map.entrySet().iterator();
+        for (int i = 0; i < 1000 && iterator.hasNext(); i++) {
+            final Map.Entry<Long,Object> entry = iterator.next();
+            blackhole.consume(entry.getKey());
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+}
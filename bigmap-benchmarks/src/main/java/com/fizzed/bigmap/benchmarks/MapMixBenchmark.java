@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput of a mix of reads and writes (e.g. readPercent=95 is 95% gets and 5% sets).
+ *
+ *   java -jar bigmap-benchmarks/target/benchmarks.jar MapMixBenchmark -prof gc -p readPercent=95
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+public class MapMixBenchmark extends AbstractMapBenchmark {
+
+    @Param({ "100", "95", "50", "0" })
+    public int readPercent;
+
+    @Benchmark
+    public Object mix(Keys keys) {
+        final long key = keys.next();
+
+        if (ThreadLocalRandom.current().nextInt(100) < this.readPercent) {
+            return this.map.get(key);
+        }
+
+        BenchmarkMaps.put(this.map, key, this.nextValue(key + 1));
+        return null;
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import java.util.function.LongConsumer;
+
+/**
+ * A map with long keys, where the key of a primitive method is written straight into a reusable buffer (in the
+ * very same bytes the key codec would serialize it to), so the hot paths neither box the key nor allocate an array
+ * for it.  The key codec must be {@link ByteCodecs#longCodec()} or {@link ByteCodecs#sortableLongCodec()} for
+ * that, otherwise the primitive methods still work, but box the key.
+ */
+public interface BigLongMap<V> extends BigMap<Long,V> {
+
+    V get(long key);
+
+    /**
+     * Typically, this is more efficient than {@link #put(Object, Object)} since the old value is not returned.
+     */
+    void set(long key, V value);
+
+    boolean containsKey(long key);
+
+    void delete(long key);
+
+    /**
+     * Calls the consumer with every key of the map (in the order the map iterates them) without boxing.
+     */
+    void forEachKey(LongConsumer consumer);
+
+}
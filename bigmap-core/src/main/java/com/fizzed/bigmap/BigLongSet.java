@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import java.util.function.LongConsumer;
+
+/**
+ * A set of long values, which are written straight into a reusable buffer by the primitive methods, just like the keys
+ * of a {@link BigLongMap}.
+ */
+public interface BigLongSet extends BigSet<Long> {
+
+    boolean contains(long value);
+
+    boolean add(long value);
+
+    /**
+     * Typically, this is more efficient than {@link #remove(Object)} since no check is performed if it exists first.
+     */
+    void delete(long value);
+
+    /**
+     * Calls the consumer with every value of the set (in the order the set iterates them) without boxing.
+     */
+    void forEachValue(LongConsumer consumer);
+
+}
@@ -19,12 +19,15 @@ import com.fizzed.bigmap.impl.BigMapEntrySet;
 import com.fizzed.bigmap.impl.BigMapKeySet;
 import com.fizzed.bigmap.impl.BigMapValueCollection;
 import com.fizzed.bigmap.impl.MapMutableValue;
+import com.fizzed.bigmap.impl.MapWriteBatch;
 
 import java.io.Closeable;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 public interface BigMap<K,V> extends Map<K,V>, BigObject {
 
@@ -150,16 +153,85 @@ public interface BigMap<K,V> extends Map<K,V>, BigObject {
         return new MapMutableValue<>(this, key, value);
     }
 
+    /**
+     * Creates a new batch for applying many sets/deletes at once. Implementations backed by a native engine will
+     * commit the entire batch with as few native operations as possible.  The batch is not thread safe.
+     *
+     * @return A new, empty write batch for this map
+     */
+    default WriteBatch<K,V> batch() {
+        this.checkIfClosed();
+
+        return new MapWriteBatch<>(this);
+    }
+
     @Override
     default void putAll(Map<? extends K, ? extends V> m) {
-        if (m != null) {
-            m.forEach((k, v) -> {
-                this.set(k, v);
-            });
+        if (m != null && !m.isEmpty()) {
+            try (WriteBatch<K,V> batch = this.batch()) {
+                m.forEach(batch::set);
+                batch.commit();
+            }
         }
     }
 
-    Iterator<Entry<K,V>> forwardIterator();
+    /**
+     * Iterates the entries of the map.  The iterator is closed once it's read to the end, but close it yourself (e.g.
+     * with a try-with-resources block) if you may stop part way, so the native resources of the engine are released
+     * right away rather than once it's garbage collected.
+     */
+    CloseableIterator<Entry<K,V>> forwardIterator();
+
+    /**
+     * The number of entries if it's known without reading the engine, otherwise Long.MAX_VALUE (e.g. if the size is
+     * not tracked, in which case {@link #size()} counts every entry).  Used as the size estimate of spliterators.
+     */
+    default long estimatedSize() {
+        return this.size();
+    }
+
+    /**
+     * A spliterator of the entries, for streams.  Sorted engines split it by ranges of keys, each iterated with its own
+     * iterator of the engine, so a parallel stream scales across cores.  Other maps split the way the JDK does for any
+     * iterator.  Closing it closes the iterators of every split.
+     */
+    default CloseableSpliterator<Entry<K,V>> spliterator() {
+        this.checkIfClosed();
+
+        return CloseableSpliterator.of(this.forwardIterator(), this.estimatedSize(),
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * A sequential stream of the entries, which must be closed (e.g. with a try-with-resources block) unless it's
+     * read to the end, so the underlying iterator is released right away.
+     */
+    default Stream<Entry<K,V>> stream() {
+        return this.spliterator().stream(false);
+    }
+
+    /**
+     * A parallel stream of the entries, which must be closed (e.g. with a try-with-resources block) just like
+     * {@link #stream()}.
+     */
+    default Stream<Entry<K,V>> parallelStream() {
+        return this.spliterator().stream(true);
+    }
+
+    /**
+     * Same as a standard Map, except the underlying iterator is always closed, even if the action throws.
+     */
+    @Override
+    default void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action, "action was null");
+
+        try (CloseableIterator<Entry<K,V>> iterator = this.forwardIterator()) {
+            while (iterator.hasNext()) {
+                final Entry<K,V> entry = iterator.next();
+                action.accept(entry.getKey(), entry.getValue());
+            }
+        }
+    }
 
     @Override
     default Collection<V> values() {
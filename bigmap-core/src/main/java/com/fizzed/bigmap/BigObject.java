@@ -43,4 +43,19 @@ public interface BigObject extends Closeable {
 
     boolean isPersistent();
 
+    /**
+     * The metrics recorded for this object, or null if metrics are not enabled.
+     */
+    default BigObjectMetrics getMetrics() {
+        return null;
+    }
+
+    /**
+     * The stats reported by the underlying engine (e.g. cache hits or the number of keys it estimates it holds), which
+     * are specific to each engine.  Only safe to call while the object is open.
+     */
+    default Map<String,Object> getEngineStats() {
+        return Collections.emptyMap();
+    }
+
 }
\ No newline at end of file
@@ -15,6 +15,8 @@
  */
 package com.fizzed.bigmap;
 
+import com.fizzed.bigmap.impl.ResourceCleaner;
+
 import java.io.Closeable;
 import java.nio.file.Path;
 import java.util.UUID;
@@ -29,4 +31,14 @@ public interface BigObjectCloser extends Closeable {
 
     boolean isClosed();
 
+    /**
+     * Registers a native resource of the object (e.g. an iterator) that is released once the owner is garbage
+     * collected, or when the returned Cleanable is cleaned, whichever comes first.  Closers of native engines also
+     * release every outstanding resource before the engine itself is closed, since most engines crash on a resource
+     * that outlives them.  The release action must NOT hold a reference to the owner.
+     */
+    default ResourceCleaner.Cleanable registerResource(Object owner, Runnable release) {
+        return ResourceCleaner.getDefault().register(owner, release);
+    }
+
 }
\ No newline at end of file
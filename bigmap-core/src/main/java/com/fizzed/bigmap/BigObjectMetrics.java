@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import java.util.Map;
+
+/**
+ * Records the operations performed on a BigObject.  Recording happens on the hot path of every operation, so an
+ * implementation must be cheap and safe to call from many threads at once.  An object without metrics never calls
+ * System.nanoTime() at all.
+ */
+public interface BigObjectMetrics {
+
+    enum Operation {
+        GET,
+        PUT,
+        SET,
+        CONTAINS_KEY,
+        REMOVE,
+        DELETE,
+        BATCH
+    }
+
+    /**
+     * Records a completed operation.
+     * @param operation the operation
+     * @param nanos the total time of the operation
+     * @param codecNanos the part of the total time spent serializing and deserializing keys and values (the rest was
+     *                   spent in the underlying engine)
+     * @param bytesWritten the number of serialized bytes handed to the underlying engine
+     * @param bytesRead the number of serialized bytes returned by the underlying engine
+     */
+    void record(Operation operation, long nanos, long codecNanos, long bytesWritten, long bytesRead);
+
+    /**
+     * A point-in-time copy of the metrics of every operation recorded so far.
+     */
+    Map<Operation,OperationMetrics> getOperations();
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A point-in-time copy of the metrics of a live BigObject, including the stats reported by its underlying engine.
+ */
+public class BigObjectMetricsSnapshot {
+
+    private final UUID id;
+    private final String type;
+    private final Path path;
+    private final long diskBytes;
+    private final Map<BigObjectMetrics.Operation,OperationMetrics> operations;
+    private final Map<String,Object> engineStats;
+
+    public BigObjectMetricsSnapshot(
+            UUID id,
+            String type,
+            Path path,
+            long diskBytes,
+            Map<BigObjectMetrics.Operation,OperationMetrics> operations,
+            Map<String,Object> engineStats) {
+
+        this.id = id;
+        this.type = type;
+        this.path = path;
+        this.diskBytes = diskBytes;
+        this.operations = Collections.unmodifiableMap(operations);
+        this.engineStats = Collections.unmodifiableMap(engineStats);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * The metrics of each operation, which is empty if metrics were not enabled on the object.
+     */
+    public Map<BigObjectMetrics.Operation,OperationMetrics> getOperations() {
+        return operations;
+    }
+
+    public Map<String,Object> getEngineStats() {
+        return engineStats;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + id + " (" + diskBytes + " bytes on disk): " + operations;
+    }
+
+}
@@ -1,21 +1,33 @@
 package com.fizzed.bigmap;
 
+import com.fizzed.bigmap.impl.BigMapHelper;
 import com.fizzed.bigmap.impl.BigObjectWeakReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class BigObjectRegistry implements BigObjectListener {
+public class BigObjectRegistry implements BigObjectListener, BigObjectRegistryMXBean {
     static private final Logger log = LoggerFactory.getLogger(BigObjectRegistry.class);
 
+    static public final String MBEAN_NAME = "com.fizzed.bigmap:type=BigObjectRegistry";
+
     static private BigObjectRegistry defaultRegistry;
 
     static public BigObjectRegistry getDefault() {
@@ -64,6 +76,95 @@ public class BigObjectRegistry implements BigObjectListener {
         return this.closers.containsKey(id);
     }
 
+    /**
+     * A point-in-time copy of the metrics of every live object in this registry.  Objects that are closed (or collected)
+     * while the snapshot is taken are skipped.
+     */
+    public List<BigObjectMetricsSnapshot> snapshot() {
+        final List<BigObjectMetricsSnapshot> snapshots = new ArrayList<>();
+
+        for (BigObjectWeakReference ref : this.weakReferenceMap.values()) {
+            final BigObject bigObject = ref.get();
+            if (bigObject == null || bigObject.isClosed()) {
+                continue;
+            }
+            try {
+                final BigObjectMetrics metrics = bigObject.getMetrics();
+                snapshots.add(new BigObjectMetricsSnapshot(
+                    bigObject.getId(),
+                    bigObject.getClass().getSimpleName(),
+                    bigObject.getPath(),
+                    BigMapHelper.diskSizeOf(bigObject.getPath()),
+                    metrics != null ? metrics.getOperations() : Collections.emptyMap(),
+                    bigObject.getEngineStats()));
+            } catch (IllegalStateException e) {
+                // closed by another thread in the middle of the snapshot
+            }
+        }
+
+        return snapshots;
+    }
+
+    /**
+     * Exposes the metrics of this registry to JMX (as the MXBean named by MBEAN_NAME) on the platform MBean server.
+     */
+    public void registerMBean() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to register " + MBEAN_NAME, e);
+        }
+    }
+
+    public void unregisterMBean() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(new ObjectName(MBEAN_NAME));
+        } catch (InstanceNotFoundException e) {
+            // not registered, nothing to do
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to unregister " + MBEAN_NAME, e);
+        }
+    }
+
+    @Override
+    public int getLiveObjectCount() {
+        return this.closers.size();
+    }
+
+    @Override
+    public long getTotalDiskBytes() {
+        long total = 0;
+        for (BigObjectMetricsSnapshot snapshot : this.snapshot()) {
+            total += snapshot.getDiskBytes();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String,Long> getOperationCounts() {
+        final Map<String,Long> counts = new TreeMap<>();
+        for (BigObjectMetricsSnapshot snapshot : this.snapshot()) {
+            for (Map.Entry<BigObjectMetrics.Operation,OperationMetrics> entry : snapshot.getOperations().entrySet()) {
+                counts.merge(entry.getKey().name(), entry.getValue().getCount(), Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public List<String> getObjectSummaries() {
+        final List<String> summaries = new ArrayList<>();
+        for (BigObjectMetricsSnapshot snapshot : this.snapshot()) {
+            summaries.add(snapshot.toString());
+        }
+        return summaries;
+    }
+
     @Override
     public void onOpened(BigObject bigObject) {
         this.register(bigObject);
@@ -0,0 +1,22 @@
+package com.fizzed.bigmap;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The view of a BigObjectRegistry exposed to JMX.
+ */
+public interface BigObjectRegistryMXBean {
+
+    int getLiveObjectCount();
+
+    long getTotalDiskBytes();
+
+    /**
+     * The number of times each operation was performed, summed across every live object with metrics enabled.
+     */
+    Map<String,Long> getOperationCounts();
+
+    List<String> getObjectSummaries();
+
+}
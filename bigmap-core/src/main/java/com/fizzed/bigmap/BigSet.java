@@ -19,7 +19,11 @@ import java.io.Closeable;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface BigSet<V> extends Set<V>, BigObject {
 
@@ -27,6 +31,53 @@ public interface BigSet<V> extends Set<V>, BigObject {
 
     Comparator<V> getValueComparator();
 
+    /**
+     * Iterates the values of the set.  The iterator is closed once it's read to the end, but close it yourself (e.g.
+     * with a try-with-resources block) if you may stop part way.
+     */
+    @Override
+    CloseableIterator<V> iterator();
+
+    /**
+     * A sequential stream of the values, which must be closed (e.g. with a try-with-resources block) unless it's read
+     * to the end, so the underlying iterator is released right away.
+     */
+    @Override
+    default Stream<V> stream() {
+        return this.spliterator().stream(false);
+    }
+
+    /**
+     * A parallel stream of the values, which must be closed just like {@link #stream()}.
+     */
+    @Override
+    default Stream<V> parallelStream() {
+        return this.spliterator().stream(true);
+    }
+
+    /**
+     * A spliterator of the values, which closes the iterators of every split once it's closed.
+     */
+    @Override
+    default CloseableSpliterator<V> spliterator() {
+        return CloseableSpliterator.of(this.iterator(), this.size(),
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * Same as a standard Set, except the underlying iterator is always closed, even if the action throws.
+     */
+    @Override
+    default void forEach(Consumer<? super V> action) {
+        Objects.requireNonNull(action, "action was null");
+
+        try (CloseableIterator<V> iterator = this.iterator()) {
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+            }
+        }
+    }
+
     /**
      * IF YOU DO NOT NEED TO KNOW IF IT WAS REMOVED, PLEASE USE {@link #delete(Object)}
      *
@@ -39,29 +39,23 @@ public interface BigSortedMap<K,V> extends BigMap<K,V>, SortedMap<K,V> {
         return BigMap.super.values();
     }
 
-    @Override
-    default SortedMap<K,V> subMap(K fromKey, K toKey) {
-        throw new UnsupportedOperationException();
-    }
-
-    @Override
-    default SortedMap<K,V> headMap(K toKey) {
-        throw new UnsupportedOperationException();
-    }
-
-    @Override
-    default SortedMap<K,V> tailMap(K fromKey) {
-        throw new UnsupportedOperationException();
-    }
+    /**
+     * Iterates the entries in descending key order (the reverse of {@link #forwardIterator()}).
+     */
+    CloseableIterator<Entry<K,V>> reverseIterator();
 
     @Override
     default K firstKey() {
-        return this.keySet().iterator().next();
+        try (CloseableIterator<Entry<K,V>> iterator = this.forwardIterator()) {
+            return iterator.next().getKey();
+        }
     }
 
     @Override
     default K lastKey() {
-        throw new UnsupportedOperationException();
+        try (CloseableIterator<Entry<K,V>> iterator = this.reverseIterator()) {
+            return iterator.next().getKey();
+        }
     }
 
 }
\ No newline at end of file
@@ -24,6 +24,11 @@ public interface BigSortedSet<V> extends BigSet<V>, SortedSet<V> {
         return this.getValueComparator();
     }
 
+    @Override
+    default CloseableSpliterator<V> spliterator() {
+        return BigSet.super.spliterator();
+    }
+
     @Override
     default SortedSet<V> subSet(V fromElement, V toElement) {
         throw new UnsupportedOperationException();
@@ -41,7 +46,9 @@ public interface BigSortedSet<V> extends BigSet<V>, SortedSet<V> {
 
     @Override
     default V first() {
-        return this.iterator().next();
+        try (CloseableIterator<V> iterator = this.iterator()) {
+            return iterator.next();
+        }
     }
 
     @Override
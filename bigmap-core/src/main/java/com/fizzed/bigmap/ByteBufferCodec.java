@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import com.fizzed.bigmap.impl.ScratchBuffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A codec that reads and writes directly to a ByteBuffer, so that engines with ByteBuffer support (e.g. RocksDB) can
+ * read and write keys and values with reusable scratch buffers rather than allocating new byte arrays on every call.
+ * Any existing {@link ByteCodec} can be used as a ByteBufferCodec with {@link ByteCodecs#toByteBufferCodec(ByteCodec)}.
+ */
+public interface ByteBufferCodec<V> extends ByteCodec<V> {
+
+    /**
+     * Serializes the value into the buffer, starting at its position and advancing the position past the bytes that
+     * were written. A null value writes zero bytes.
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough room remaining, in which case the
+     *      caller will retry with a larger buffer
+     */
+    void serialize(V value, ByteBuffer buffer);
+
+    /**
+     * Deserializes the value from the bytes between the buffer's position and its limit. The buffer is often a
+     * scratch buffer that will be reused, so implementations must NOT keep a reference to it.
+     */
+    V deserialize(ByteBuffer buffer);
+
+    @Override
+    default byte[] serialize(V value) {
+        if (value == null) {
+            return ByteCodecs.ZERO_BYTES;
+        }
+        final ByteBuffer buffer = ScratchBuffer.CODEC.serialize(this, value);
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    default V deserialize(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        return this.deserialize(ByteBuffer.wrap(bytes));
+    }
+
+}
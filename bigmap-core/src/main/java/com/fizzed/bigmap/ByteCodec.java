@@ -20,5 +20,14 @@ public interface ByteCodec<V> {
     byte[] serialize(V value);
     
     V deserialize(byte[] bytes);
+
+    /**
+     * Whether the serialized bytes of this codec sort (unsigned, lexicographically) in the same order as the values
+     * themselves. All the sorted maps order their keys by these bytes, so only an order preserving key codec will
+     * iterate in the same order as the key comparator.
+     */
+    default boolean isOrderPreserving() {
+        return false;
+    }
     
 }
\ No newline at end of file
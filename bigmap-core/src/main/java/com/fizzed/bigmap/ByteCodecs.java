@@ -15,9 +15,22 @@
  */
 package com.fizzed.bigmap;
 
+import com.fizzed.bigmap.impl.ByteBufferCodecAdapter;
 import com.fizzed.bigmap.impl.None;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
 import java.util.function.Supplier;
 
 public class ByteCodecs {
@@ -55,9 +68,75 @@ public class ByteCodecs {
         }
         return null;
     }
+
+    /**
+     * Resolves a codec where the serialized bytes sort in the same order as the values (e.g. negative numbers before
+     * positive numbers). Use this for the keys of sorted maps. Types without an order preserving codec fall back to
+     * the same codec as {@link #resolveCodec(Class)}.
+     */
+    static public <T> ByteCodec<T> resolveOrderPreservingCodec(Class<T> type) {
+        if (Integer.class.isAssignableFrom(type)) {
+            return (ByteCodec<T>)sortableIntegerCodec();
+        }
+        else if (Long.class.isAssignableFrom(type)) {
+            return (ByteCodec<T>)sortableLongCodec();
+        }
+        else if (Short.class.isAssignableFrom(type)) {
+            return (ByteCodec<T>)sortableShortCodec();
+        }
+        else if (Byte.class.isAssignableFrom(type)) {
+            return (ByteCodec<T>)sortableByteCodec();
+        }
+        else if (Float.class.isAssignableFrom(type)) {
+            return (ByteCodec<T>)sortableFloatCodec();
+        }
+        else if (Double.class.isAssignableFrom(type)) {
+            return (ByteCodec<T>)sortableDoubleCodec();
+        }
+        else if (UUID.class.isAssignableFrom(type)) {
+            return (ByteCodec<T>)sortableUuidCodec();
+        }
+        else if (Instant.class.isAssignableFrom(type)) {
+            return (ByteCodec<T>)sortableInstantCodec();
+        }
+        else if (String.class.isAssignableFrom(type)) {
+            return (ByteCodec<T>)sortableStringCodec();
+        }
+        return resolveCodec(type);
+    }
+
+    /**
+     * Returns the codec as-is if it already supports ByteBuffers, otherwise adapts it to one.
+     */
+    static public <T> ByteBufferCodec<T> toByteBufferCodec(ByteCodec<T> codec) {
+        if (codec == null) {
+            return null;
+        }
+        if (codec instanceof ByteBufferCodec) {
+            return (ByteBufferCodec<T>)codec;
+        }
+        return new ByteBufferCodecAdapter<>(codec);
+    }
+
+    static private final ThreadLocal<CharsetEncoder> UTF8_ENCODERS = ThreadLocal.withInitial(() ->
+        StandardCharsets.UTF_8.newEncoder()
+            // same behavior as String.getBytes
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    static private byte[] remainingBytes(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
     
+    /**
+     * Strings as UTF-8, whose bytes sort in code point order.  That is NOT quite the order of String.compareTo (a
+     * surrogate pair sorts after a character in the range U+E000 to U+FFFF), so this is not order preserving, see
+     * {@link #sortableStringCodec()}.
+     */
     static public ByteCodec<String> utf8StringCodec() {
-        return new ByteCodec<String>() {
+        return new ByteBufferCodec<String>() {
             @Override
             public byte[] serialize(String value) {
                 if (value == null) {
@@ -73,6 +152,34 @@ public class ByteCodecs {
                 }
                 return new String(bytes, StandardCharsets.UTF_8);
             }
+
+            @Override
+            public void serialize(String value, ByteBuffer buffer) {
+                if (value == null) {
+                    return;
+                }
+                final CharsetEncoder encoder = UTF8_ENCODERS.get().reset();
+                final CharBuffer chars = CharBuffer.wrap(value);
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (!result.isOverflow()) {
+                    result = encoder.flush(buffer);
+                }
+                if (result.isOverflow()) {
+                    throw new BufferOverflowException();
+                }
+            }
+
+            @Override
+            public String deserialize(ByteBuffer buffer) {
+                if (buffer.hasArray()) {
+                    final String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                        buffer.remaining(), StandardCharsets.UTF_8);
+                    buffer.position(buffer.limit());
+                    return value;
+                }
+                return new String(remainingBytes(buffer), StandardCharsets.UTF_8);
+            }
+
         };
     }
     
@@ -121,7 +228,7 @@ public class ByteCodecs {
     }
     
     static public ByteCodec<Integer> integerCodec() {
-        return new ByteCodec<Integer>() {
+        return new ByteBufferCodec<Integer>() {
             @Override
             public byte[] serialize(Integer value) {
                 if (value == null) {
@@ -140,16 +247,34 @@ public class ByteCodecs {
                 if (bytes == null) {
                     return null;
                 }
+                if (bytes.length != 4) {
+                    throw new IllegalArgumentException("Byte array did not contain 4 bytes (NOT an int)");
+                }
                 return ((int)bytes[3] & 0xff)
                      | ((int)bytes[2] & 0xff) << 8
                      | ((int)bytes[1] & 0xff) << 16
                      | ((int)bytes[0] & 0xff) << 24;
             }
+
+            @Override
+            public void serialize(Integer value, ByteBuffer buffer) {
+                if (value != null) {
+                    buffer.putInt(value);
+                }
+            }
+
+            @Override
+            public Integer deserialize(ByteBuffer buffer) {
+                if (buffer.remaining() != 4) {
+                    throw new IllegalArgumentException("Byte buffer did not contain 4 bytes (NOT an int)");
+                }
+                return buffer.getInt();
+            }
         };
     }
     
     static public ByteCodec<Long> longCodec() {
-        return new ByteCodec<Long>() {
+        return new ByteBufferCodec<Long>() {
             @Override
             public byte[] serialize(Long value) {
                 if (value == null) {
@@ -184,6 +309,21 @@ public class ByteCodecs {
                      | ((long)bytes[1] & 0xff) << 48
                      | ((long)bytes[0] & 0xff) << 56;
             }
+
+            @Override
+            public void serialize(Long value, ByteBuffer buffer) {
+                if (value != null) {
+                    buffer.putLong(value);
+                }
+            }
+
+            @Override
+            public Long deserialize(ByteBuffer buffer) {
+                if (buffer.remaining() != 8) {
+                    throw new IllegalArgumentException("Byte buffer did not contain 8 bytes (NOT a long)");
+                }
+                return buffer.getLong();
+            }
         };
     }
 
@@ -212,7 +352,7 @@ public class ByteCodecs {
     }
     
     static public ByteCodec<byte[]> byteArrayCodec() {
-        return new ByteCodec<byte[]>() {
+        return new ByteBufferCodec<byte[]>() {
             @Override
             public byte[] serialize(byte[] value) {
                 return value;
@@ -222,11 +362,28 @@ public class ByteCodecs {
             public byte[] deserialize(byte[] bytes) {
                 return bytes;
             }
+
+            @Override
+            public void serialize(byte[] value, ByteBuffer buffer) {
+                if (value != null) {
+                    buffer.put(value);
+                }
+            }
+
+            @Override
+            public byte[] deserialize(ByteBuffer buffer) {
+                return remainingBytes(buffer);
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
         };
     }
 
     static public ByteCodec<None> noneCodec() {
-        return new ByteCodec<None>() {
+        return new ByteBufferCodec<None>() {
             @Override
             public byte[] serialize(None value) {
                 return ZERO_BYTES;
@@ -236,7 +393,526 @@ public class ByteCodecs {
             public None deserialize(byte[] bytes) {
                 return None.NONE;
             }
+
+            @Override
+            public void serialize(None value, ByteBuffer buffer) {
+                // nothing to write
+            }
+
+            @Override
+            public None deserialize(ByteBuffer buffer) {
+                return None.NONE;
+            }
         };
     }
 
+    //
+    // order preserving codecs (the serialized bytes sort in the same order as the values)
+    //
+
+    /**
+     * Strings with each of their chars encoded the same way UTF-8 encodes a character of up to 3 bytes (like CESU-8,
+     * so a surrogate pair is 6 bytes rather than 4), which means the bytes sort exactly like String.compareTo.  Any
+     * string without surrogate pairs is encoded to the same bytes as UTF-8.
+     */
+    static public ByteCodec<String> sortableStringCodec() {
+        return new ByteBufferCodec<String>() {
+            @Override
+            public byte[] serialize(String value) {
+                if (value == null) {
+                    return ZERO_BYTES;
+                }
+                final byte[] bytes = new byte[sortableStringLength(value)];
+                writeSortableString(value, ByteBuffer.wrap(bytes));
+                return bytes;
+            }
+
+            @Override
+            public String deserialize(byte[] bytes) {
+                if (bytes == null) {
+                    return null;
+                }
+                return readSortableString(ByteBuffer.wrap(bytes));
+            }
+
+            @Override
+            public void serialize(String value, ByteBuffer buffer) {
+                if (value == null) {
+                    return;
+                }
+                if (sortableStringLength(value) > buffer.remaining()) {
+                    throw new BufferOverflowException();
+                }
+                writeSortableString(value, buffer);
+            }
+
+            @Override
+            public String deserialize(ByteBuffer buffer) {
+                return readSortableString(buffer);
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Strings encoded like {@link #sortableStringCodec()}, but terminated so they can be followed by other values (e.g.
+     * in a tuple) while still sorting before any longer string they are a prefix of.
+     */
+    static public ByteCodec<String> terminatedSortableStringCodec() {
+        final ByteCodec<String> codec = sortableStringCodec();
+        return new ByteCodec<String>() {
+            @Override
+            public byte[] serialize(String value) {
+                if (value == null) {
+                    return ZERO_BYTES;
+                }
+                final byte[] bytes = codec.serialize(value);
+                final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length + 2);
+                writeTerminated(bytes, out);
+                return out.toByteArray();
+            }
+
+            @Override
+            public String deserialize(byte[] bytes) {
+                if (bytes == null) {
+                    return null;
+                }
+                final int[] offset = new int[] { 0 };
+                return codec.deserialize(readTerminated(bytes, offset));
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    static public ByteCodec<Byte> sortableByteCodec() {
+        return new ByteCodec<Byte>() {
+            @Override
+            public byte[] serialize(Byte value) {
+                if (value == null) {
+                    return ZERO_BYTES;
+                }
+                // flip the sign bit so negative values sort before positive values
+                return new byte[] {(byte)(value ^ 0x80)};
+            }
+
+            @Override
+            public Byte deserialize(byte[] bytes) {
+                if (bytes == null) {
+                    return null;
+                }
+                if (bytes.length != 1) {
+                    throw new IllegalArgumentException("Byte array did not contain 1 byte");
+                }
+                return (byte)(bytes[0] ^ 0x80);
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    static public ByteCodec<Short> sortableShortCodec() {
+        final ByteCodec<Short> codec = shortCodec();
+        return new ByteCodec<Short>() {
+            @Override
+            public byte[] serialize(Short value) {
+                if (value == null) {
+                    return ZERO_BYTES;
+                }
+                // flip the sign bit so negative values sort before positive values
+                return codec.serialize((short)(value ^ Short.MIN_VALUE));
+            }
+
+            @Override
+            public Short deserialize(byte[] bytes) {
+                if (bytes == null) {
+                    return null;
+                }
+                if (bytes.length != 2) {
+                    throw new IllegalArgumentException("Byte array did not contain 2 bytes (NOT a short)");
+                }
+                return (short)(codec.deserialize(bytes) ^ Short.MIN_VALUE);
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    static public ByteCodec<Integer> sortableIntegerCodec() {
+        final ByteCodec<Integer> codec = integerCodec();
+        return new ByteBufferCodec<Integer>() {
+            @Override
+            public byte[] serialize(Integer value) {
+                if (value == null) {
+                    return ZERO_BYTES;
+                }
+                // flip the sign bit so negative values sort before positive values
+                return codec.serialize(value ^ Integer.MIN_VALUE);
+            }
+
+            @Override
+            public Integer deserialize(byte[] bytes) {
+                if (bytes == null) {
+                    return null;
+                }
+                if (bytes.length != 4) {
+                    throw new IllegalArgumentException("Byte array did not contain 4 bytes (NOT an int)");
+                }
+                return codec.deserialize(bytes) ^ Integer.MIN_VALUE;
+            }
+
+            @Override
+            public void serialize(Integer value, ByteBuffer buffer) {
+                if (value != null) {
+                    buffer.putInt(value ^ Integer.MIN_VALUE);
+                }
+            }
+
+            @Override
+            public Integer deserialize(ByteBuffer buffer) {
+                if (buffer.remaining() != 4) {
+                    throw new IllegalArgumentException("Byte buffer did not contain 4 bytes (NOT an int)");
+                }
+                return buffer.getInt() ^ Integer.MIN_VALUE;
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    static public ByteCodec<Long> sortableLongCodec() {
+        final ByteCodec<Long> codec = longCodec();
+        return new ByteBufferCodec<Long>() {
+            @Override
+            public byte[] serialize(Long value) {
+                if (value == null) {
+                    return ZERO_BYTES;
+                }
+                // flip the sign bit so negative values sort before positive values
+                return codec.serialize(value ^ Long.MIN_VALUE);
+            }
+
+            @Override
+            public Long deserialize(byte[] bytes) {
+                if (bytes == null) {
+                    return null;
+                }
+                return codec.deserialize(bytes) ^ Long.MIN_VALUE;
+            }
+
+            @Override
+            public void serialize(Long value, ByteBuffer buffer) {
+                if (value != null) {
+                    buffer.putLong(value ^ Long.MIN_VALUE);
+                }
+            }
+
+            @Override
+            public Long deserialize(ByteBuffer buffer) {
+                if (buffer.remaining() != 8) {
+                    throw new IllegalArgumentException("Byte buffer did not contain 8 bytes (NOT a long)");
+                }
+                return buffer.getLong() ^ Long.MIN_VALUE;
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    static public ByteCodec<Float> sortableFloatCodec() {
+        final ByteCodec<Integer> codec = integerCodec();
+        return new ByteCodec<Float>() {
+            @Override
+            public byte[] serialize(Float value) {
+                if (value == null) {
+                    return ZERO_BYTES;
+                }
+                // positive values only need the sign bit flipped, while negative values need all their bits flipped
+                // so larger magnitudes sort first (this matches Float.compare, including -0.0 before 0.0)
+                final int bits = Float.floatToIntBits(value);
+                return codec.serialize(bits ^ ((bits >> 31) | Integer.MIN_VALUE));
+            }
+
+            @Override
+            public Float deserialize(byte[] bytes) {
+                if (bytes == null) {
+                    return null;
+                }
+                if (bytes.length != 4) {
+                    throw new IllegalArgumentException("Byte array did not contain 4 bytes (NOT a float)");
+                }
+                final int flipped = codec.deserialize(bytes);
+                return Float.intBitsToFloat(flipped ^ ((~flipped >> 31) | Integer.MIN_VALUE));
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    static public ByteCodec<Double> sortableDoubleCodec() {
+        final ByteCodec<Long> codec = longCodec();
+        return new ByteCodec<Double>() {
+            @Override
+            public byte[] serialize(Double value) {
+                if (value == null) {
+                    return ZERO_BYTES;
+                }
+                // positive values only need the sign bit flipped, while negative values need all their bits flipped
+                // so larger magnitudes sort first (this matches Double.compare, including -0.0 before 0.0)
+                final long bits = Double.doubleToLongBits(value);
+                return codec.serialize(bits ^ ((bits >> 63) | Long.MIN_VALUE));
+            }
+
+            @Override
+            public Double deserialize(byte[] bytes) {
+                if (bytes == null) {
+                    return null;
+                }
+                final long flipped = codec.deserialize(bytes);
+                return Double.longBitsToDouble(flipped ^ ((~flipped >> 63) | Long.MIN_VALUE));
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    static public ByteCodec<UUID> sortableUuidCodec() {
+        final ByteCodec<Long> codec = sortableLongCodec();
+        return new ByteCodec<UUID>() {
+            @Override
+            public byte[] serialize(UUID value) {
+                if (value == null) {
+                    return ZERO_BYTES;
+                }
+                // UUID.compareTo compares the most, then least significant bits as signed longs
+                final byte[] bytes = new byte[16];
+                System.arraycopy(codec.serialize(value.getMostSignificantBits()), 0, bytes, 0, 8);
+                System.arraycopy(codec.serialize(value.getLeastSignificantBits()), 0, bytes, 8, 8);
+                return bytes;
+            }
+
+            @Override
+            public UUID deserialize(byte[] bytes) {
+                if (bytes == null) {
+                    return null;
+                }
+                if (bytes.length != 16) {
+                    throw new IllegalArgumentException("Byte array did not contain 16 bytes (NOT a uuid)");
+                }
+                return new UUID(
+                    codec.deserialize(Arrays.copyOfRange(bytes, 0, 8)),
+                    codec.deserialize(Arrays.copyOfRange(bytes, 8, 16)));
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    static public ByteCodec<Instant> sortableInstantCodec() {
+        final ByteCodec<Long> secondsCodec = sortableLongCodec();
+        final ByteCodec<Integer> nanosCodec = integerCodec();
+        return new ByteCodec<Instant>() {
+            @Override
+            public byte[] serialize(Instant value) {
+                if (value == null) {
+                    return ZERO_BYTES;
+                }
+                // epoch seconds (signed) followed by the nanos (always positive)
+                final byte[] bytes = new byte[12];
+                System.arraycopy(secondsCodec.serialize(value.getEpochSecond()), 0, bytes, 0, 8);
+                System.arraycopy(nanosCodec.serialize(value.getNano()), 0, bytes, 8, 4);
+                return bytes;
+            }
+
+            @Override
+            public Instant deserialize(byte[] bytes) {
+                if (bytes == null) {
+                    return null;
+                }
+                if (bytes.length != 12) {
+                    throw new IllegalArgumentException("Byte array did not contain 12 bytes (NOT an instant)");
+                }
+                return Instant.ofEpochSecond(
+                    secondsCodec.deserialize(Arrays.copyOfRange(bytes, 0, 8)),
+                    nanosCodec.deserialize(Arrays.copyOfRange(bytes, 8, 12)));
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * A codec for composite keys, where each element of the tuple is serialized by its own codec. Tuples sort by their
+     * first element, then their second, and so on. Each element is escaped and terminated so that variable length
+     * elements (e.g. strings) still sort correctly against the elements that follow them. The tuple is only order
+     * preserving if every element codec is.
+     */
+    static public ByteCodec<List<Object>> tupleCodec(ByteCodec<?>... elementCodecs) {
+        final ByteCodec<Object>[] codecs = (ByteCodec<Object>[])elementCodecs;
+        final boolean orderPreserving = Arrays.stream(codecs).allMatch(ByteCodec::isOrderPreserving);
+        return new ByteCodec<List<Object>>() {
+            @Override
+            public byte[] serialize(List<Object> value) {
+                if (value == null) {
+                    return ZERO_BYTES;
+                }
+                if (value.size() != codecs.length) {
+                    throw new IllegalArgumentException("Tuple had " + value.size() + " elements, but "
+                        + codecs.length + " were expected");
+                }
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                for (int i = 0; i < codecs.length; i++) {
+                    writeTerminated(codecs[i].serialize(value.get(i)), out);
+                }
+                return out.toByteArray();
+            }
+
+            @Override
+            public List<Object> deserialize(byte[] bytes) {
+                if (bytes == null) {
+                    return null;
+                }
+                final List<Object> value = new ArrayList<>(codecs.length);
+                final int[] offset = new int[] { 0 };
+                for (ByteCodec<Object> codec : codecs) {
+                    value.add(codec.deserialize(readTerminated(bytes, offset)));
+                }
+                return value;
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return orderPreserving;
+            }
+        };
+    }
+
+    // any 0x00 is escaped as 0x00 0xFF and the end is marked with 0x00 0x01, so a shorter value always sorts before a
+    // longer value it is a prefix of, no matter what bytes follow it
+    static private final int ESCAPE_BYTE = 0x00;
+    static private final int ESCAPED_BYTE = 0xFF;
+    static private final int TERMINATOR_BYTE = 0x01;
+
+    static private int sortableStringLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            length += c < 0x80 ? 1 : (c < 0x800 ? 2 : 3);
+        }
+        return length;
+    }
+
+    static private void writeSortableString(String value, ByteBuffer buffer) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte)c);
+            } else if (c < 0x800) {
+                buffer.put((byte)(0xC0 | (c >> 6)));
+                buffer.put((byte)(0x80 | (c & 0x3F)));
+            } else {
+                // surrogates are encoded on their own, so they sort between U+D7FF and U+E000 just like their chars
+                buffer.put((byte)(0xE0 | (c >> 12)));
+                buffer.put((byte)(0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte)(0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    static private String readSortableString(ByteBuffer buffer) {
+        final char[] chars = new char[buffer.remaining()];
+        int length = 0;
+        while (buffer.hasRemaining()) {
+            final int b = buffer.get() & 0xFF;
+            if (b < 0x80) {
+                chars[length++] = (char)b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[length++] = (char)(((b & 0x1F) << 6) | (continuationByte(buffer)));
+            } else if ((b & 0xF0) == 0xE0) {
+                final int b2 = continuationByte(buffer);
+                chars[length++] = (char)(((b & 0x0F) << 12) | (b2 << 6) | continuationByte(buffer));
+            } else {
+                throw new IllegalArgumentException("Byte buffer contained an invalid lead byte 0x" + Integer.toHexString(b));
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    static private int continuationByte(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Byte buffer ended in the middle of a char");
+        }
+        final int b = buffer.get() & 0xFF;
+        if ((b & 0xC0) != 0x80) {
+            throw new IllegalArgumentException("Byte buffer contained an invalid continuation byte 0x" + Integer.toHexString(b));
+        }
+        return b & 0x3F;
+    }
+
+    static private void writeTerminated(byte[] bytes, ByteArrayOutputStream out) {
+        for (byte b : bytes) {
+            out.write(b);
+            if (b == ESCAPE_BYTE) {
+                out.write(ESCAPED_BYTE);
+            }
+        }
+        out.write(ESCAPE_BYTE);
+        out.write(TERMINATOR_BYTE);
+    }
+
+    static private byte[] readTerminated(byte[] bytes, int[] offset) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int i = offset[0];
+        while (i < bytes.length) {
+            final byte b = bytes[i];
+            if (b == ESCAPE_BYTE) {
+                if (i + 1 >= bytes.length) {
+                    break;
+                }
+                if ((bytes[i+1] & 0xFF) == TERMINATOR_BYTE) {
+                    offset[0] = i + 2;
+                    return out.toByteArray();
+                }
+                // an escaped 0x00
+                out.write(ESCAPE_BYTE);
+                i += 2;
+            } else {
+                out.write(b);
+                i++;
+            }
+        }
+        throw new IllegalArgumentException("Byte array was missing a terminator at offset " + offset[0]);
+    }
+
 }
\ No newline at end of file
@@ -16,7 +16,61 @@
 package com.fizzed.bigmap;
 
 public class Bytes {
- 
+
+    /**
+     * Compares two byte arrays lexicographically, treating each byte as unsigned. This is the same ordering used by
+     * the bytewise comparators of the underlying engines (e.g. RocksDB, LevelDB, TokyoCabinet, Tkrzw).
+     * @param a
+     * @param b
+     * @return negative, zero, or positive if a is less than, equal to, or greater than b
+     */
+    static public int compare(
+            byte[] a,
+            byte[] b) {
+
+        final int len = Math.min(a.length, b.length);
+        for (int i = 0; i < len; i++) {
+            final int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Bisects two byte arrays, treating each as an unsigned fraction (so a shorter array is padded with zeros), e.g.
+     * to split a range of keys in two.  The midpoint is always one byte longer than the longest array.
+     * @param a
+     * @param b
+     * @return the bytes halfway between a and b (in the same bytewise ordering as {@link #compare(byte[], byte[])})
+     */
+    static public byte[] midpoint(
+            byte[] a,
+            byte[] b) {
+
+        final int len = Math.max(a.length, b.length) + 1;
+
+        // add them from the least significant byte up
+        final int[] sum = new int[len];
+        int carry = 0;
+        for (int i = len - 1; i >= 0; i--) {
+            final int s = (i < a.length ? a[i] & 0xFF : 0) + (i < b.length ? b[i] & 0xFF : 0) + carry;
+            sum[i] = s & 0xFF;
+            carry = s >>> 8;
+        }
+
+        // then halve from the most significant byte down, where the carry out of the sum is the top bit
+        final byte[] midpoint = new byte[len];
+        int remainder = carry;
+        for (int i = 0; i < len; i++) {
+            final int v = (remainder << 8) | sum[i];
+            midpoint[i] = (byte)(v >>> 1);
+            remainder = v & 1;
+        }
+        return midpoint;
+    }
+
     static public boolean startsWith(
             byte[] bytes,
             byte[] prefix) {
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An iterator that may hold onto native resources of the engine (e.g. a RocksDB iterator pins its memtables and SST
+ * files), which are released as soon as it's read to the end or closed.  Iterators that are abandoned part way are
+ * only released once garbage collected, so either close them, or use them in a try-with-resources block:
+ * <code>
+ * try (CloseableIterator&lt;Entry&lt;K,V&gt;&gt; iterator = map.forwardIterator()) {
+ *     ...
+ * }
+ * </code>
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Releases the resources of this iterator, after which it has no more elements.  Closing more than once is a no-op.
+     */
+    @Override
+    void close();
+
+    /**
+     * A sequential stream of the remaining elements, which closes this iterator once the stream is closed (so use it in
+     * a try-with-resources block) or once all the elements have been read.
+     */
+    default Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+            .onClose(this::close);
+    }
+
+    /**
+     * An iterator of each element transformed by the mapper, which closes this iterator when it's closed.
+     */
+    default <R> CloseableIterator<R> map(Function<? super T, ? extends R> mapper) {
+        Objects.requireNonNull(mapper, "mapper was null");
+
+        final CloseableIterator<T> iterator = this;
+
+        return new CloseableIterator<R>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public R next() {
+                return mapper.apply(iterator.next());
+            }
+
+            @Override
+            public void close() {
+                iterator.close();
+            }
+        };
+    }
+
+    /**
+     * Returns the iterator as-is if it's already a CloseableIterator, otherwise adapts it to one (closing the iterator
+     * if it's Closeable, otherwise a no-op).
+     */
+    static <T> CloseableIterator<T> of(Iterator<T> iterator) {
+        Objects.requireNonNull(iterator, "iterator was null");
+
+        if (iterator instanceof CloseableIterator) {
+            return (CloseableIterator<T>)iterator;
+        }
+
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+            }
+
+            @Override
+            public void close() {
+                if (iterator instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable)iterator).close();
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new BigMapDataException(e);
+                    }
+                }
+            }
+        };
+    }
+
+}
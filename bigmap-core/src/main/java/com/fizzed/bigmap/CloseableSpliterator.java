@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A spliterator that may hold onto native resources of the engine, just like a {@link CloseableIterator}.  Closing it
+ * closes the iterators of every spliterator split from it as well, so a stream of it is closed the same way whether
+ * it's sequential or parallel.
+ */
+public interface CloseableSpliterator<T> extends Spliterator<T>, Closeable {
+
+    /**
+     * Releases the resources of this spliterator (and every spliterator split from it).  Closing more than once is a
+     * no-op.
+     */
+    @Override
+    void close();
+
+    /**
+     * A stream of the elements, which closes this spliterator once the stream is closed (so use it in a
+     * try-with-resources block).
+     */
+    default Stream<T> stream(boolean parallel) {
+        return StreamSupport.stream(this, parallel)
+            .onClose(this::close);
+    }
+
+    /**
+     * A spliterator of each element transformed by the mapper, which splits and closes along with this one.  The
+     * elements are no longer assumed to be distinct or sorted.
+     */
+    default <R> CloseableSpliterator<R> map(Function<? super T, ? extends R> mapper) {
+        Objects.requireNonNull(mapper, "mapper was null");
+
+        final CloseableSpliterator<T> spliterator = this;
+
+        return new CloseableSpliterator<R>() {
+            @Override
+            public boolean tryAdvance(Consumer<? super R> action) {
+                return spliterator.tryAdvance(v -> action.accept(mapper.apply(v)));
+            }
+
+            @Override
+            public void forEachRemaining(Consumer<? super R> action) {
+                spliterator.forEachRemaining(v -> action.accept(mapper.apply(v)));
+            }
+
+            @Override
+            public CloseableSpliterator<R> trySplit() {
+                final CloseableSpliterator<T> split = spliterator.trySplit();
+                return split != null ? split.map(mapper) : null;
+            }
+
+            @Override
+            public long estimateSize() {
+                return spliterator.estimateSize();
+            }
+
+            @Override
+            public int characteristics() {
+                return spliterator.characteristics() & ~(Spliterator.DISTINCT | Spliterator.SORTED);
+            }
+
+            @Override
+            public void close() {
+                spliterator.close();
+            }
+        };
+    }
+
+    @Override
+    CloseableSpliterator<T> trySplit();
+
+    /**
+     * Adapts an iterator to a spliterator that splits the way the JDK does for any iterator (by buffering batches of
+     * elements into arrays), and closes the iterator when it's closed.  The size is Long.MAX_VALUE if it's unknown.
+     */
+    static <T> CloseableSpliterator<T> of(CloseableIterator<T> iterator, long size, int characteristics) {
+        Objects.requireNonNull(iterator, "iterator was null");
+
+        // an unknown size (Long.MAX_VALUE) must not be reported as SIZED, or e.g. toArray() would trust it
+        final Spliterator<T> spliterator = size == Long.MAX_VALUE
+            ? Spliterators.spliteratorUnknownSize(iterator, characteristics)
+            : Spliterators.spliterator(iterator, size, characteristics);
+
+        return new CloseableSpliterator<T>() {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                return spliterator.tryAdvance(action);
+            }
+
+            @Override
+            public void forEachRemaining(Consumer<? super T> action) {
+                spliterator.forEachRemaining(action);
+            }
+
+            @Override
+            public CloseableSpliterator<T> trySplit() {
+                // the batch is already buffered on-heap, so there's nothing to close
+                final Spliterator<T> split = spliterator.trySplit();
+                return split != null ? CloseableSpliterator.of(split) : null;
+            }
+
+            @Override
+            public long estimateSize() {
+                return spliterator.estimateSize();
+            }
+
+            @Override
+            public int characteristics() {
+                return spliterator.characteristics();
+            }
+
+            @Override
+            public void close() {
+                iterator.close();
+            }
+        };
+    }
+
+    /**
+     * Adapts a spliterator that holds no resources, so closing it is a no-op.
+     */
+    static <T> CloseableSpliterator<T> of(Spliterator<T> spliterator) {
+        Objects.requireNonNull(spliterator, "spliterator was null");
+
+        if (spliterator instanceof CloseableSpliterator) {
+            return (CloseableSpliterator<T>)spliterator;
+        }
+
+        return new CloseableSpliterator<T>() {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                return spliterator.tryAdvance(action);
+            }
+
+            @Override
+            public void forEachRemaining(Consumer<? super T> action) {
+                spliterator.forEachRemaining(action);
+            }
+
+            @Override
+            public CloseableSpliterator<T> trySplit() {
+                final Spliterator<T> split = spliterator.trySplit();
+                return split != null ? CloseableSpliterator.of(split) : null;
+            }
+
+            @Override
+            public long estimateSize() {
+                return spliterator.estimateSize();
+            }
+
+            @Override
+            public int characteristics() {
+                return spliterator.characteristics();
+            }
+
+            @Override
+            public void close() {
+                // nothing to release
+            }
+        };
+    }
+
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import java.util.*;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static com.fizzed.bigmap.ByteCodecs.ZERO_BYTES;
+
+/**
+ * Compresses the values of another codec, which is worthwhile for larger values with a lot of repeated text (e.g.
+ * JSON or objects with many string fields), since every byte not written is a byte the engine does not need to write,
+ * cache or read back.  Every value starts with a 1 byte header of how it was stored: values smaller than the threshold
+ * (or that would not get any smaller) are stored raw, all others are deflated (zlib).
+ *
+ * Small values compress poorly on their own, since there's little within a single value to repeat.  A dictionary of
+ * the content common across values (e.g. field names) fixes that, see {@link #trainDictionary(ByteCodec, Iterable, int, int)}.
+ * Values are read with the same dictionary they were written with, so it must never change once values are stored.
+ */
+public class CompressingByteCodec<V> implements ByteCodec<V> {
+
+    static public final byte METHOD_RAW = 0;
+    static public final byte METHOD_DEFLATE = 1;
+
+    static public final int DEFAULT_THRESHOLD = 64;
+    static public final int MAX_DICTIONARY_SIZE = 32 * 1024;        // the size of the deflate window
+
+    static private final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+    static private final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[4096]);
+
+    private final ByteCodec<V> codec;
+    private final int threshold;
+    private final int level;
+    private final byte[] dictionary;
+    private final int dictionaryAdler;
+    private final ThreadLocal<Deflater> deflaters;
+
+    public CompressingByteCodec(ByteCodec<V> codec) {
+        this(codec, DEFAULT_THRESHOLD, Deflater.BEST_SPEED, null);
+    }
+
+    public CompressingByteCodec(ByteCodec<V> codec, byte[] dictionary) {
+        this(codec, DEFAULT_THRESHOLD, Deflater.BEST_SPEED, dictionary);
+    }
+
+    /**
+     * @param codec the codec of the values to compress
+     * @param threshold the serialized size of a value below which it's stored raw
+     * @param level the deflate level from 1 (fastest) to 9 (smallest)
+     * @param dictionary the dictionary to compress with (or null for none)
+     */
+    public CompressingByteCodec(ByteCodec<V> codec, int threshold, int level, byte[] dictionary) {
+        Objects.requireNonNull(codec, "codec was null");
+
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must be >= 0");
+        }
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level must be >= 1 and <= 9");
+        }
+        if (dictionary != null && dictionary.length > MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("dictionary must be <= " + MAX_DICTIONARY_SIZE + " bytes");
+        }
+
+        this.codec = codec;
+        this.threshold = threshold;
+        this.level = level;
+        this.dictionary = dictionary != null && dictionary.length > 0 ? dictionary.clone() : null;
+        if (this.dictionary != null) {
+            final Adler32 adler = new Adler32();
+            adler.update(this.dictionary);
+            this.dictionaryAdler = (int)adler.getValue();
+        } else {
+            this.dictionaryAdler = 0;
+        }
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level));
+    }
+
+    public ByteCodec<V> getCodec() {
+        return this.codec;
+    }
+
+    public int getThreshold() {
+        return this.threshold;
+    }
+
+    public int getLevel() {
+        return this.level;
+    }
+
+    public boolean hasDictionary() {
+        return this.dictionary != null;
+    }
+
+    @Override
+    public byte[] serialize(V value) {
+        final byte[] bytes = this.codec.serialize(value);
+
+        // zero bytes (typically a null) stay zero bytes, so they deserialize exactly like they would have
+        if (bytes == null || bytes.length == 0) {
+            return bytes;
+        }
+
+        if (bytes.length < this.threshold) {
+            return raw(bytes);
+        }
+
+        // only worth deflating if the header and deflated bytes are smaller than the raw bytes
+        final int headerLength = 1 + varIntLength(bytes.length);
+        final int maxDeflatedLength = bytes.length - headerLength;
+        if (maxDeflatedLength <= 0) {
+            return raw(bytes);
+        }
+
+        final Deflater deflater = this.deflaters.get();
+        deflater.reset();
+        if (this.dictionary != null) {
+            deflater.setDictionary(this.dictionary);
+        }
+        deflater.setInput(bytes);
+        deflater.finish();
+
+        byte[] buffer = BUFFERS.get();
+        if (buffer.length < maxDeflatedLength) {
+            buffer = new byte[Math.max(maxDeflatedLength, buffer.length * 2)];
+            BUFFERS.set(buffer);
+        }
+
+        int deflatedLength = 0;
+        while (!deflater.finished() && deflatedLength < maxDeflatedLength) {
+            deflatedLength += deflater.deflate(buffer, deflatedLength, maxDeflatedLength - deflatedLength);
+        }
+
+        if (!deflater.finished()) {
+            return raw(bytes);
+        }
+
+        final byte[] compressed = new byte[headerLength + deflatedLength];
+        compressed[0] = METHOD_DEFLATE;
+        writeVarInt(compressed, 1, bytes.length);
+        System.arraycopy(buffer, 0, compressed, headerLength, deflatedLength);
+        return compressed;
+    }
+
+    @Override
+    public V deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return this.codec.deserialize(bytes);
+        }
+
+        switch (bytes[0]) {
+            case METHOD_RAW:
+                return this.codec.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+            case METHOD_DEFLATE:
+                return this.codec.deserialize(this.inflate(bytes));
+            default:
+                throw new BigMapDataException("Unsupported compression method " + bytes[0]
+                    + " (was the value written by a CompressingByteCodec?)");
+        }
+    }
+
+    private byte[] inflate(byte[] bytes) {
+        // the length of the raw bytes follows the method
+        int length = 0;
+        int offset = 1;
+        for (int shift = 0; ; shift += 7) {
+            if (offset >= bytes.length || shift > 28) {
+                throw new BigMapDataException("Compressed value has a corrupt header");
+            }
+            final byte b = bytes[offset++];
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+
+        final Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(bytes, offset, bytes.length - offset);
+
+        final byte[] inflated = new byte[length];
+        int inflatedLength = 0;
+        try {
+            while (inflatedLength < length) {
+                final int n = inflater.inflate(inflated, inflatedLength, length - inflatedLength);
+                inflatedLength += n;
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        if (this.dictionary == null) {
+                            throw new BigMapDataException("Compressed value requires a dictionary, but this codec does not have one");
+                        }
+                        if (inflater.getAdler() != this.dictionaryAdler) {
+                            throw new BigMapDataException("Compressed value was written with a different dictionary than this codec has");
+                        }
+                        inflater.setDictionary(this.dictionary);
+                    } else if (inflater.finished() || inflater.needsInput()) {
+                        break;
+                    }
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new BigMapDataException("Compressed value is corrupt", e);
+        }
+
+        if (inflatedLength != length) {
+            throw new BigMapDataException("Compressed value inflated to " + inflatedLength + " bytes (expected " + length + ")");
+        }
+
+        return inflated;
+    }
+
+    static private byte[] raw(byte[] bytes) {
+        final byte[] raw = new byte[bytes.length + 1];
+        raw[0] = METHOD_RAW;
+        System.arraycopy(bytes, 0, raw, 1, bytes.length);
+        return raw;
+    }
+
+    static private int varIntLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    static private void writeVarInt(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset] = (byte)value;
+    }
+
+    //
+    // dictionary training
+    //
+
+    static private final int DMER_LENGTH = 8;
+    static private final int SEGMENT_LENGTH = 32;
+
+    /**
+     * Trains a dictionary from a sample of the values (e.g. the first few thousand values of an existing map).
+     */
+    static public <V> byte[] trainDictionary(ByteCodec<V> codec, Iterable<? extends V> values, int maxSamples, int maxSize) {
+        Objects.requireNonNull(codec, "codec was null");
+        Objects.requireNonNull(values, "values was null");
+
+        final List<byte[]> samples = new ArrayList<>();
+        for (V value : values) {
+            if (samples.size() >= maxSamples) {
+                break;
+            }
+            samples.add(codec.serialize(value));
+        }
+        return trainDictionary(samples, maxSize);
+    }
+
+    /**
+     * Trains a dictionary of the content that is most common across the samples of serialized values.  Each sample is
+     * split into segments, which are scored by how many other samples share the 8 byte sequences in them.  The best
+     * segments are picked one at a time (a sequence only counts towards the first segment picked with it), until the
+     * dictionary is full.  The best segments end up at the end of the dictionary, where they're the cheapest for
+     * deflate to refer back to.  Returns zero bytes if there's nothing in common across the samples.
+     */
+    static public byte[] trainDictionary(List<byte[]> samples, int maxSize) {
+        Objects.requireNonNull(samples, "samples was null");
+
+        if (maxSize <= 0 || maxSize > MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("maxSize must be > 0 and <= " + MAX_DICTIONARY_SIZE);
+        }
+
+        // how many samples each sequence occurs in
+        final Map<Long,int[]> frequencies = new HashMap<>();
+        for (byte[] sample : samples) {
+            final Set<Long> dmers = new HashSet<>();
+            for (int i = 0; i + DMER_LENGTH <= sample.length; i++) {
+                dmers.add(dmer(sample, i));
+            }
+            for (Long dmer : dmers) {
+                frequencies.computeIfAbsent(dmer, k -> new int[1])[0]++;
+            }
+        }
+
+        // candidate segments overlap by half, so a common run of bytes is not always split across two segments
+        final PriorityQueue<long[]> candidates = new PriorityQueue<>((a, b) -> Long.compare(b[0], a[0]));
+        for (int s = 0; s < samples.size(); s++) {
+            final byte[] sample = samples.get(s);
+            for (int offset = 0; offset + DMER_LENGTH <= sample.length; offset += SEGMENT_LENGTH / 2) {
+                final int length = Math.min(SEGMENT_LENGTH, sample.length - offset);
+                final long score = score(frequencies, sample, offset, length);
+                if (score > 0) {
+                    candidates.add(new long[] { score, s, offset, length });
+                }
+            }
+        }
+
+        final Deque<byte[]> segments = new ArrayDeque<>();
+        int size = 0;
+        while (size < maxSize && !candidates.isEmpty()) {
+            final long[] candidate = candidates.poll();
+            final byte[] sample = samples.get((int)candidate[1]);
+            final int offset = (int)candidate[2];
+            final int length = (int)candidate[3];
+
+            // scores only ever drop as segments are picked, so a candidate whose score is still current is the best
+            final long score = score(frequencies, sample, offset, length);
+            if (score <= 0) {
+                continue;
+            }
+            if (score < candidate[0]) {
+                candidate[0] = score;
+                candidates.add(candidate);
+                continue;
+            }
+
+            segments.addFirst(Arrays.copyOfRange(sample, offset, offset + length));
+            size += length;
+            for (int i = offset; i + DMER_LENGTH <= offset + length; i++) {
+                frequencies.remove(dmer(sample, i));
+            }
+        }
+
+        // the least valuable segments are first, so they're the ones trimmed if the dictionary is too large
+        final byte[] dictionary = new byte[Math.min(size, maxSize)];
+        int position = dictionary.length;
+        for (Iterator<byte[]> it = segments.descendingIterator(); it.hasNext() && position > 0; ) {
+            final byte[] segment = it.next();
+            final int length = Math.min(segment.length, position);
+            position -= length;
+            System.arraycopy(segment, segment.length - length, dictionary, position, length);
+        }
+        return dictionary;
+    }
+
+    static private long score(Map<Long,int[]> frequencies, byte[] sample, int offset, int length) {
+        long score = 0;
+        for (int i = offset; i + DMER_LENGTH <= offset + length; i++) {
+            final int[] frequency = frequencies.get(dmer(sample, i));
+            // a sequence in only one sample is not worth anything to the others
+            if (frequency != null && frequency[0] > 1) {
+                score += frequency[0];
+            }
+        }
+        return score;
+    }
+
+    static private long dmer(byte[] bytes, int offset) {
+        long dmer = 0;
+        for (int i = offset; i < offset + DMER_LENGTH; i++) {
+            dmer = (dmer << 8) | (bytes[i] & 0xFF);
+        }
+        return dmer;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A BigMap that is safe to share across threads.  Every single-key operation (including the check-then-act ones such
+ * as putIfAbsent, compute and merge) is atomic for that key.  Operations across many keys (e.g. putAll, a committed
+ * batch, or clear) are applied atomically with respect to any writers, but iterators are weakly consistent and
+ * reflect some state of the map at or since their creation.
+ */
+public interface ConcurrentBigMap<K,V> extends BigMap<K,V>, ConcurrentMap<K,V> {
+
+    @Override
+    V putIfAbsent(K key, V value);
+
+    @Override
+    boolean remove(Object key, Object value);
+
+    @Override
+    boolean replace(K key, V oldValue, V newValue);
+
+    @Override
+    V replace(K key, V value);
+
+    @Override
+    V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction);
+
+    @Override
+    V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction);
+
+    @Override
+    V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction);
+
+    @Override
+    default void forEach(BiConsumer<? super K, ? super V> action) {
+        BigMap.super.forEach(action);
+    }
+
+    @Override
+    V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction);
+
+}
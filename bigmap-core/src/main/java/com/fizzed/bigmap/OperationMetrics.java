@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+/**
+ * A point-in-time copy of the metrics of one operation of a BigObject.  Percentiles are approximate, since latencies
+ * are recorded in buckets that are powers of two.
+ */
+public class OperationMetrics {
+
+    private final long count;
+    private final long totalNanos;
+    private final long codecNanos;
+    private final long bytesWritten;
+    private final long bytesRead;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+
+    public OperationMetrics(
+            long count,
+            long totalNanos,
+            long codecNanos,
+            long bytesWritten,
+            long bytesRead,
+            long p50Nanos,
+            long p90Nanos,
+            long p99Nanos,
+            long maxNanos) {
+
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.codecNanos = codecNanos;
+        this.bytesWritten = bytesWritten;
+        this.bytesRead = bytesRead;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getCodecNanos() {
+        return codecNanos;
+    }
+
+    public long getEngineNanos() {
+        return totalNanos - codecNanos;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getMeanNanos() {
+        return count > 0 ? totalNanos / count : 0L;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP90Nanos() {
+        return p90Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + this.getMeanNanos() + "ns, p50=" + p50Nanos + "ns, p90=" + p90Nanos
+            + "ns, p99=" + p99Nanos + "ns, max=" + maxNanos + "ns, codec=" + codecNanos + "ns, engine="
+            + this.getEngineNanos() + "ns, written=" + bytesWritten + "b, read=" + bytesRead + "b";
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+/**
+ * Collects many sets/deletes against a {@link BigMap} so they can be applied in as few native operations as possible
+ * (e.g. a single RocksDB or LevelDB WriteBatch, a single TokyoCabinet transaction, etc.)
+ * <code>
+ * try (WriteBatch<String,String> batch = map.batch()) {
+ *
+ *     batch.set("a", "1");
+ *     batch.delete("b");
+ *
+ *     batch.commit();
+ *
+ * } // any operations not yet committed are discarded once closed
+ * </code>
+ *
+ * If the same key is set or deleted more than once in a batch, only the last operation will be applied.
+ */
+public interface WriteBatch<K,V> extends AutoCloseable {
+
+    void set(K key, V value);
+
+    void delete(K key);
+
+    /**
+     * The number of operations (sets + deletes) currently pending in this batch.
+     */
+    int size();
+
+    default boolean isEmpty() {
+        return this.size() <= 0;
+    }
+
+    /**
+     * Applies all pending operations to the map and resets this batch so it can be used again.
+     */
+    void commit();
+
+    /**
+     * Discards any pending operations that were not committed.
+     */
+    @Override
+    void close() throws RuntimeException;
+
+}
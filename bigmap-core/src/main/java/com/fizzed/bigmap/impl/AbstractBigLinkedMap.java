@@ -16,21 +16,57 @@
 package com.fizzed.bigmap.impl;
 
 import com.fizzed.bigmap.*;
+import com.fizzed.bigmap.BigObjectMetrics.Operation;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * A map that iterates in the order its keys were first inserted, kept entirely within a single sorted store by
+ * splitting the keys of the store into two regions:
+ *
+ *   entry region: [0x01][insert order as 8 bytes, big-endian] => [key length as 4 bytes][key bytes][value bytes]
+ *   index region: [0x02][key bytes] => [insert order as 8 bytes, big-endian]
+ *
+ * Since the value lives inside the entry record, iterating the map is a single ordered scan of the entry region,
+ * while a lookup by key is a read of its index record followed by a read of its entry record.  New keys and deletes
+ * write both records in one atomic batch of the store.
+ *
+ * A persistent map keeps its insert counter in its metadata, along with its size.  If the metadata is missing (e.g. the
+ * map was not cleanly closed) the counter is recovered from the insert order of the last entry record instead.  Once
+ * more than half of the insert orders handed out belong to deleted keys, the entry region is renumbered so a long
+ * churn of deletes does not leave a sparse, scan-heavy keyspace behind.  That is done a batch of entries at a time by
+ * the deletes that follow, so no single delete blocks the map for long.
+ */
 abstract public class AbstractBigLinkedMap<K,V> implements BigMap<K,V> {
 
+    static private final byte ENTRY_PREFIX = 0x01;
+    static private final byte INDEX_PREFIX = 0x02;
+    static private final byte[] ENTRY_REGION_START = new byte[] { ENTRY_PREFIX };
+    static private final byte[] ENTRY_REGION_END = new byte[] { INDEX_PREFIX };
+    static private final long RENUMBER_MIN_GAP = 65536L;
+    static private final int RENUMBER_BATCH_SIZE = 1024;
+
     protected final UUID id;
     protected final Path directory;
     protected final boolean persistent;
-    protected final BigMap<K,V> dataMap;
-    protected final BigSortedMap<Integer,K> insertOrderToKeyMap;  // for iterating in the order inserted
-    protected final BigMap<K,Integer> keyToInsertOrderMap;        // for deleting from insertOrder map?   should we care?
-    protected final AtomicInteger insertCounter = new AtomicInteger(0);
+    protected final ByteArrayBigSortedMap<byte[],byte[]> store;
+    protected final ByteCodec<K> keyCodec;
+    protected final Comparator<K> keyComparator;
+    protected final ByteCodec<V> valueCodec;
+    protected final AtomicLong insertCounter = new AtomicLong(0);
+    protected final LongAdder size = new LongAdder();
+    // writes share the read lock, while renumbering takes the write lock since it moves entry records
+    private final ReentrantReadWriteLock renumberLock = new ReentrantReadWriteLock();
+    // where a renumbering in progress resumes (null if none is), and the last insert order it assigned
+    private volatile byte[] renumberFromEntryKey;
+    private long renumberInsertOrder;
+    protected BigObjectMetrics metrics;          // null if disabled, only records the total time of each operation
     protected BigObjectListener listener;
     protected BigObjectCloser closer;
 
@@ -38,16 +74,22 @@ abstract public class AbstractBigLinkedMap<K,V> implements BigMap<K,V> {
             UUID id,
             Path directory,
             boolean persistent,
-            BigMap<K,V> dataMap,
-            BigSortedMap<Integer,K> insertOrderToKeyMap,
-            BigMap<K,Integer> keyToInsertOrderMap) {
+            ByteArrayBigSortedMap<byte[],byte[]> store,
+            ByteCodec<K> keyCodec,
+            Comparator<K> keyComparator,
+            ByteCodec<V> valueCodec) {
+
+        Objects.requireNonNull(store, "store was null");
+        Objects.requireNonNull(keyCodec, "keyCodec was null");
+        Objects.requireNonNull(valueCodec, "valueCodec was null");
 
         this.id = id;
         this.directory = directory;
         this.persistent = persistent;
-        this.dataMap = dataMap;
-        this.insertOrderToKeyMap = insertOrderToKeyMap;
-        this.keyToInsertOrderMap = keyToInsertOrderMap;
+        this.store = store;
+        this.keyCodec = keyCodec;
+        this.keyComparator = keyComparator;
+        this.valueCodec = valueCodec;
     }
 
     @Override
@@ -60,6 +102,30 @@ abstract public class AbstractBigLinkedMap<K,V> implements BigMap<K,V> {
         this.listener = listener;
     }
 
+    @Override
+    public BigObjectMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public void setMetrics(BigObjectMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        return this.store.getEngineStats();
+    }
+
+    private long startTime() {
+        return this.metrics != null ? System.nanoTime() : 0L;
+    }
+
+    private void record(Operation operation, long start) {
+        if (this.metrics != null) {
+            this.metrics.record(operation, System.nanoTime() - start, 0L, 0L, 0L);
+        }
+    }
+
     @Override
     public UUID getId() {
         return this.id;
@@ -77,10 +143,29 @@ abstract public class AbstractBigLinkedMap<K,V> implements BigMap<K,V> {
 
     @Override
     public void open() {
-        this.dataMap.open();
-        this.insertOrderToKeyMap.open();
-        this.keyToInsertOrderMap.open();
-        this.closer = new BigLinkedMapCloser(this.id, this.persistent, this.directory, this.dataMap, this.insertOrderToKeyMap, this.keyToInsertOrderMap);
+        this.store.open();
+        this.size.reset();
+        this.renumberFromEntryKey = null;
+        this.closer = new BigLinkedMapCloser(this.id, this.persistent, this.directory, this.store);
+
+        // an existing persistent map recovers its size and insert counter from its metadata, or by scanning its entry
+        // records if it has none (a new map has no entry records, so finding the last one is cheap)
+        final Path metadataPath = BigObjectMetadata.resolvePath(this.directory, ".linked.meta");
+        final BigObjectMetadata metadata = this.persistent ? BigObjectMetadata.consume(metadataPath) : null;
+
+        if (metadata != null && metadata.getInsertCounter() >= 0L) {
+            this.insertCounter.set(metadata.getInsertCounter());
+        } else {
+            this.insertCounter.set(this.lastInsertOrder());
+        }
+
+        if (this.persistent) {
+            this.size.add(metadata != null ? metadata.getSize() : this.countEntries());
+            final LongAdder size = this.size;
+            final AtomicLong insertCounter = this.insertCounter;
+            this.closer = new PersistentBigObjectCloser(this.closer, metadataPath,
+                () -> new BigObjectMetadata(size.sum(), null, insertCounter.get()));
+        }
 
         if (this.listener != null) {
             this.listener.onOpened(this);
@@ -110,125 +195,416 @@ abstract public class AbstractBigLinkedMap<K,V> implements BigMap<K,V> {
 
     @Override
     public ByteCodec<K> getKeyCodec() {
-        return this.dataMap.getKeyCodec();
+        return this.keyCodec;
     }
 
     @Override
     public Comparator<K> getKeyComparator() {
-        return this.dataMap.getKeyComparator();
+        return this.keyComparator;
     }
 
     @Override
     public ByteCodec<V> getValueCodec() {
-        return this.dataMap.getValueCodec();
+        return this.valueCodec;
+    }
+
+    //
+    // layout of the records within the store
+    //
+
+    static private byte[] entryKey(long insertOrder) {
+        return ByteBuffer.allocate(9)
+            .put(ENTRY_PREFIX)
+            .putLong(insertOrder)
+            .array();
+    }
+
+    static private byte[] indexKey(byte[] keyBytes) {
+        final byte[] indexKey = new byte[keyBytes.length + 1];
+        indexKey[0] = INDEX_PREFIX;
+        System.arraycopy(keyBytes, 0, indexKey, 1, keyBytes.length);
+        return indexKey;
     }
 
+    static private byte[] indexValue(long insertOrder) {
+        return ByteBuffer.allocate(8)
+            .putLong(insertOrder)
+            .array();
+    }
+
+    static private byte[] entryValue(byte[] keyBytes, byte[] valueBytes) {
+        return ByteBuffer.allocate(4 + keyBytes.length + valueBytes.length)
+            .putInt(keyBytes.length)
+            .put(keyBytes)
+            .put(valueBytes)
+            .array();
+    }
+
+    static private byte[] keyBytesOfEntry(byte[] entryValue) {
+        final int keyLength = ByteBuffer.wrap(entryValue).getInt();
+        return Arrays.copyOfRange(entryValue, 4, 4 + keyLength);
+    }
+
+    static private byte[] valueBytesOfEntry(byte[] entryValue) {
+        final int keyLength = ByteBuffer.wrap(entryValue).getInt();
+        return Arrays.copyOfRange(entryValue, 4 + keyLength, entryValue.length);
+    }
+
+    /**
+     * The insert order of the key, or null if the key does not exist.
+     */
+    private byte[] insertOrderOf(byte[] indexKey) {
+        if (!this.store._mightContainKey(indexKey)) {
+            return null;
+        }
+        return this.store._get(indexKey);
+    }
+
+    static private long insertOrderOfEntryKey(byte[] entryKey) {
+        return ByteBuffer.wrap(entryKey, 1, 8).getLong();
+    }
+
+    /**
+     * The insert order of the last entry record, or 0 if there are none.
+     */
+    private long lastInsertOrder() {
+        final byte[] lastEntryKey = this.store._lastKey(ENTRY_REGION_START, ENTRY_REGION_END);
+        return lastEntryKey != null ? insertOrderOfEntryKey(lastEntryKey) : 0L;
+    }
+
+    private long countEntries() {
+        long count = 0;
+        try (CloseableIterator<KeyValueBytes> iterator = this.store._forwardIterator(ENTRY_REGION_START, ENTRY_REGION_END)) {
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The insert order that was most recently assigned to a new key.
+     */
+    public long getInsertCounter() {
+        return this.insertCounter.get();
+    }
+
+    //
+    // Map
+    //
+
     @Override
     public int size() {
-        return this.dataMap.size();
+        this.checkIfClosed();
+
+        return this.size.intValue();
     }
 
     @Override
     public boolean isEmpty() {
-        return this.dataMap.isEmpty();
+        return this.size() <= 0;
     }
 
     @Override
     public boolean containsKey(Object key) {
-        return this.dataMap.containsKey(key);
-    }
+        this.checkIfClosed();
 
-    @Override
-    public boolean containsValue(Object value) {
-        return this.dataMap.containsValue(value);
+        final long start = this.startTime();
+        final byte[] indexKey = indexKey(this.keyCodec.serialize((K)key));
+        final boolean exists = this.store._mightContainKey(indexKey) && this.store._containsKey(indexKey);
+        this.record(Operation.CONTAINS_KEY, start);
+        return exists;
     }
 
     @Override
     public V get(Object key) {
-        return this.dataMap.get(key);
+        this.checkIfClosed();
+
+        Objects.requireNonNull(key, "key was null");
+
+        final long start = this.startTime();
+        final byte[] indexKey = indexKey(this.keyCodec.serialize((K)key));
+        byte[] entryValue = null;
+        this.renumberLock.readLock().lock();
+        try {
+            final byte[] insertOrder = this.insertOrderOf(indexKey);
+            if (insertOrder != null) {
+                entryValue = this.store._get(entryKey(ByteBuffer.wrap(insertOrder).getLong()));
+            }
+        } finally {
+            this.renumberLock.readLock().unlock();
+        }
+        final V value = entryValue != null ? this.valueCodec.deserialize(valueBytesOfEntry(entryValue)) : null;
+        this.record(Operation.GET, start);
+        return value;
+    }
+
+    /**
+     * Writes the key and value, keeping the original insert order if the key already exists.
+     * @return the entry record that was replaced, or null if the key is new
+     */
+    private byte[] write(K key, V value) {
+        this.checkIfClosed();
+
+        Objects.requireNonNull(key, "key was null");
+        Objects.requireNonNull(value, "value was null");
+
+        final byte[] keyBytes = this.keyCodec.serialize(key);
+        final byte[] valueBytes = this.valueCodec.serialize(value);
+        final byte[] indexKey = indexKey(keyBytes);
+
+        this.renumberLock.readLock().lock();
+        try {
+            final byte[] insertOrder = this.insertOrderOf(indexKey);
+
+            // existing key: only its entry record changes, so it keeps its place in the order
+            if (insertOrder != null) {
+                final byte[] entryKey = entryKey(ByteBuffer.wrap(insertOrder).getLong());
+                this.store._keyAdded(entryKey);
+                return this.store._put(entryKey, entryValue(keyBytes, valueBytes));
+            }
+
+            // new key: its index and entry records are written together
+            final long newInsertOrder = this.insertCounter.incrementAndGet();
+            final List<KeyValueBytes> sets = new ArrayList<>(2);
+            sets.add(new KeyValueBytes(entryKey(newInsertOrder), entryValue(keyBytes, valueBytes)));
+            sets.add(new KeyValueBytes(indexKey, indexValue(newInsertOrder)));
+            this.store._write(sets, Collections.emptyList());
+            this.size.increment();
+            return null;
+        } finally {
+            this.renumberLock.readLock().unlock();
+        }
     }
 
     @Override
     public V put(K key, V value) {
-        // if the map is missing this key, then we want to track its insertion order
-        if (!this.dataMap.containsKey(key)) {
-            Integer insertOrder = this.insertCounter.incrementAndGet();
-            this.insertOrderToKeyMap.set(insertOrder, key);
-            this.keyToInsertOrderMap.set(key, insertOrder);
-        }
-        return this.dataMap.put(key, value);
+        final long start = this.startTime();
+        final byte[] oldEntryValue = this.write(key, value);
+        final V oldValue = oldEntryValue != null ? this.valueCodec.deserialize(valueBytesOfEntry(oldEntryValue)) : null;
+        this.record(Operation.PUT, start);
+        return oldValue;
     }
 
     @Override
     public void set(K key, V value) {
-        // if the map is missing this key, then we want to track its insertion order
-        if (!this.dataMap.containsKey(key)) {
-            Integer insertOrder = this.insertCounter.incrementAndGet();
-            this.insertOrderToKeyMap.set(insertOrder, key);
-            this.keyToInsertOrderMap.set(key, insertOrder);
+        final long start = this.startTime();
+        this.write(key, value);
+        this.record(Operation.SET, start);
+    }
+
+    /**
+     * Deletes the key and its entry record.
+     * @return the entry record that was deleted, or null if the key did not exist
+     */
+    private byte[] erase(Object key) {
+        this.checkIfClosed();
+
+        Objects.requireNonNull(key, "key was null");
+
+        final byte[] indexKey = indexKey(this.keyCodec.serialize((K)key));
+        final byte[] entryValue;
+
+        this.renumberLock.readLock().lock();
+        try {
+            final byte[] insertOrder = this.insertOrderOf(indexKey);
+
+            if (insertOrder == null) {
+                return null;
+            }
+
+            final byte[] entryKey = entryKey(ByteBuffer.wrap(insertOrder).getLong());
+            entryValue = this.store._get(entryKey);
+            this.store._write(Collections.emptyList(), Arrays.asList(entryKey, indexKey));
+            this.size.decrement();
+        } finally {
+            this.renumberLock.readLock().unlock();
+        }
+
+        // the lock cannot be upgraded, so renumbering happens once the read lock is released
+        if (this.renumberFromEntryKey != null || this.isRenumberNeeded()) {
+            this.renumberIncrementally();
+        }
+
+        return entryValue;
+    }
+
+    private boolean isRenumberNeeded() {
+        final long gap = this.insertCounter.get() - this.size.sum();
+        return gap >= RENUMBER_MIN_GAP && gap > this.size.sum();
+    }
+
+    /**
+     * Renumbers the entry records so their insert orders are 1 through size() again, while keeping their order.  This
+     * is done automatically (a batch at a time) once more than half of the insert orders handed out belong to deleted
+     * keys, but can also be called directly (e.g. after a large bulk delete), in which case it finishes any renumbering
+     * in progress.  Blocks all other reads and writes of the map while it runs.
+     */
+    public void renumber() {
+        this.checkIfClosed();
+
+        this.renumberLock.writeLock().lock();
+        try {
+            if (this.renumberFromEntryKey == null) {
+                this.startRenumber();
+            }
+            while (!this.renumberBatch()) {
+                // keep going
+            }
+        } finally {
+            this.renumberLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Renumbers the next batch of entry records, starting a renumbering if one is needed and none is in progress.
+     */
+    private void renumberIncrementally() {
+        this.renumberLock.writeLock().lock();
+        try {
+            if (this.renumberFromEntryKey == null) {
+                if (!this.isRenumberNeeded()) {
+                    return;
+                }
+                this.startRenumber();
+            }
+            this.renumberBatch();
+        } finally {
+            this.renumberLock.writeLock().unlock();
         }
-        this.dataMap.set(key, value);
+    }
+
+    private void startRenumber() {
+        this.renumberFromEntryKey = ENTRY_REGION_START;
+        this.renumberInsertOrder = 0L;
+    }
+
+    /**
+     * Moves the next batch of entry records down to the next insert orders.  Must hold the write lock.
+     *
+     * Entries only ever move to a lower insert order (no entry has a lower order than the count of entries before it),
+     * so the writes never land on an entry that's still to be renumbered.  Between batches, new keys are appended past
+     * every existing entry and deletes only leave holes, so the resume point stays valid until the end of the region.
+     *
+     * @return true if the renumbering is done
+     */
+    private boolean renumberBatch() {
+        long newInsertOrder = this.renumberInsertOrder;
+        final List<KeyValueBytes> sets = new ArrayList<>();
+        final List<byte[]> oldEntryKeys = new ArrayList<>();
+        final Set<Long> newInsertOrders = new HashSet<>();
+        byte[] lastEntryKey = null;
+        int count = 0;
+
+        try (CloseableIterator<KeyValueBytes> iterator = this.store._forwardIterator(this.renumberFromEntryKey, ENTRY_REGION_END)) {
+            while (iterator.hasNext() && count < RENUMBER_BATCH_SIZE) {
+                final KeyValueBytes kvb = iterator.next();
+                lastEntryKey = kvb.getKey();
+                newInsertOrder++;
+                count++;
+                if (insertOrderOfEntryKey(lastEntryKey) != newInsertOrder) {
+                    sets.add(new KeyValueBytes(entryKey(newInsertOrder), kvb.getValue()));
+                    sets.add(new KeyValueBytes(indexKey(keyBytesOfEntry(kvb.getValue())), indexValue(newInsertOrder)));
+                    oldEntryKeys.add(lastEntryKey);
+                    newInsertOrders.add(newInsertOrder);
+                }
+            }
+        }
+
+        if (lastEntryKey == null) {
+            // nothing can be inserted while the write lock is held, so the last order assigned is the new counter
+            this.insertCounter.set(newInsertOrder);
+            this.renumberFromEntryKey = null;
+            return true;
+        }
+
+        // an old entry key that was just re-used by a moved entry must not also be deleted
+        final List<byte[]> deletes = new ArrayList<>(oldEntryKeys.size());
+        for (byte[] oldEntryKey : oldEntryKeys) {
+            if (!newInsertOrders.contains(insertOrderOfEntryKey(oldEntryKey))) {
+                deletes.add(oldEntryKey);
+            }
+        }
+
+        if (!sets.isEmpty()) {
+            this.store._write(sets, deletes);
+        }
+
+        // resume just after the last entry key that was read (at its new insert order, since it may have moved)
+        this.renumberFromEntryKey = entryKey(newInsertOrder + 1);
+        this.renumberInsertOrder = newInsertOrder;
+        return false;
     }
 
     @Override
     public V remove(Object key) {
-        final Integer insertOrder = this.keyToInsertOrderMap.remove(key);
-        if (insertOrder != null) {
-            this.insertOrderToKeyMap.delete(insertOrder);
-            return this.dataMap.remove(key);
-        }
-        return null;
+        final long start = this.startTime();
+        final byte[] entryValue = this.erase(key);
+        final V value = entryValue != null ? this.valueCodec.deserialize(valueBytesOfEntry(entryValue)) : null;
+        this.record(Operation.REMOVE, start);
+        return value;
     }
 
     @Override
     public void delete(K key) {
-        final Integer insertOrder = this.keyToInsertOrderMap.remove(key);
-        if (insertOrder != null) {
-            this.insertOrderToKeyMap.delete(insertOrder);
-            this.dataMap.delete(key);
-        }
+        final long start = this.startTime();
+        this.erase(key);
+        this.record(Operation.DELETE, start);
     }
 
     @Override
     public void clear() {
-        this.dataMap.clear();
-        this.keyToInsertOrderMap.clear();
-        this.insertOrderToKeyMap.clear();
-        this.insertCounter.set(0);
+        this.checkIfClosed();
+
+        this.renumberLock.writeLock().lock();
+        try {
+            this.store.clear();
+            this.size.reset();
+            this.insertCounter.set(0);
+            this.renumberFromEntryKey = null;
+        } finally {
+            this.renumberLock.writeLock().unlock();
+        }
     }
 
     @Override
-    public Iterator<Entry<K,V>> forwardIterator() {
-        final Iterator<Entry<Integer,K>> iterator = this.insertOrderToKeyMap.entrySet().iterator();
-        return new Iterator<Entry<K,V>>() {
+    public CloseableIterator<Entry<K,V>> forwardIterator() {
+        this.checkIfClosed();
+
+        // one ordered scan of the entry region, since every entry record carries both its key and value
+        final CloseableIterator<KeyValueBytes> iterator = this.store._forwardIterator(ENTRY_REGION_START, ENTRY_REGION_END);
+        return new CloseableIterator<Entry<K,V>>() {
             @Override
             public boolean hasNext() {
                 return iterator.hasNext();
             }
 
+            @Override
+            public void close() {
+                iterator.close();
+            }
+
             @Override
             public Entry<K,V> next() {
-                Entry<Integer,K> entry = iterator.next();
-                if (entry != null) {
-                    return new Entry<K,V>() {
-                        @Override
-                        public K getKey() {
-                            return entry.getValue();
-                        }
-
-                        @Override
-                        public V getValue() {
-                            return dataMap.get(entry.getValue());
-                        }
-
-                        @Override
-                        public V setValue(V value) {
-                            return AbstractBigLinkedMap.this.put(entry.getValue(), value);
-                        }
-                    };
-                }
-                return null;
+                final byte[] entryValue = iterator.next().getValue();
+                return new Entry<K,V>() {
+                    @Override
+                    public K getKey() {
+                        return keyCodec.deserialize(keyBytesOfEntry(entryValue));
+                    }
+
+                    @Override
+                    public V getValue() {
+                        return valueCodec.deserialize(valueBytesOfEntry(entryValue));
+                    }
+
+                    @Override
+                    public V setValue(V value) {
+                        return AbstractBigLinkedMap.this.put(this.getKey(), value);
+                    }
+                };
             }
         };
     }
-}
\ No newline at end of file
+}
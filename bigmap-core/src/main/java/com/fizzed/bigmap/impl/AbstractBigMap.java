@@ -16,6 +16,8 @@
 package com.fizzed.bigmap.impl;
 
 import com.fizzed.bigmap.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -23,9 +25,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Comparator;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 abstract public class AbstractBigMap<K,V> implements BigMap<K,V> {
+    static private final Logger log = LoggerFactory.getLogger(AbstractBigMap.class);
+
+    static private final Set<Class<?>> WARNED_KEY_CODECS = ConcurrentHashMap.newKeySet();
 
     protected final UUID id;
     protected final Path path;
@@ -33,7 +41,14 @@ abstract public class AbstractBigMap<K,V> implements BigMap<K,V> {
     protected final ByteCodec<K> keyCodec;
     protected final Comparator<K> keyComparator;
     protected final ByteCodec<V> valueCodec;
-    protected int size;
+    protected final ByteBufferCodec<K> keyBufferCodec;
+    protected final ByteBufferCodec<V> valueBufferCodec;
+    protected final LongAdder size = new LongAdder();        // safe to update from many threads
+    protected boolean sizeTracked = true;
+    protected long bloomFilterExpectedKeys;             // zero if disabled
+    protected double bloomFilterFalsePositiveRate;
+    protected BloomFilter bloomFilter;                  // the on-heap filter (null if disabled or native)
+    protected BigObjectMetrics metrics;                 // null if disabled
     protected BigObjectListener listener;
     protected BigObjectCloser closer;
 
@@ -56,6 +71,15 @@ abstract public class AbstractBigMap<K,V> implements BigMap<K,V> {
         this.keyCodec = keyCodec;
         this.keyComparator = keyComparator;
         this.valueCodec = valueCodec;
+        this.keyBufferCodec = ByteCodecs.toByteBufferCodec(keyCodec);
+        this.valueBufferCodec = ByteCodecs.toByteBufferCodec(valueCodec);
+
+        // a sorted engine orders keys by their bytes, so they only match the comparator with an order preserving codec
+        if (this instanceof BigSortedMap && keyComparator != null && !keyCodec.isOrderPreserving()
+                && WARNED_KEY_CODECS.add(keyCodec.getClass())) {
+            log.warn("Sorted map key codec {} is not order preserving, so its keys (and ranges of them) will not be in"
+                + " the order of its key comparator", keyCodec.getClass().getName());
+        }
     }
 
     @Override
@@ -101,9 +125,109 @@ abstract public class AbstractBigMap<K,V> implements BigMap<K,V> {
         return this.valueCodec;
     }
 
+    public ByteBufferCodec<K> getKeyBufferCodec() {
+        return this.keyBufferCodec;
+    }
+
+    public ByteBufferCodec<V> getValueBufferCodec() {
+        return this.valueBufferCodec;
+    }
+
+    public boolean isSizeTracked() {
+        return this.sizeTracked;
+    }
+
+    /**
+     * If the size is not tracked, then set and delete are blind writes (the engine is not first read to check if the
+     * key already exists), and instead size() is computed on-demand by {@link #_count()}.  Must be set before the map
+     * is opened.
+     */
+    public void setSizeTracked(boolean sizeTracked) {
+        this.sizeTracked = sizeTracked;
+    }
+
+    /**
+     * Enables a Bloom filter of the keys, so that looking up a key that does not exist rarely touches the engine. If
+     * the engine supports a native filter (e.g. RocksDB) it'll be used, otherwise the filter is kept on-heap (about
+     * 10 bits per expected key for a 1% false positive rate).  Must be set before the map is opened.
+     */
+    public void setBloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("expectedKeys must be > 0");
+        }
+        if (falsePositiveRate <= 0.0d || falsePositiveRate >= 1.0d) {
+            throw new IllegalArgumentException("falsePositiveRate must be > 0 and < 1");
+        }
+        this.bloomFilterExpectedKeys = expectedKeys;
+        this.bloomFilterFalsePositiveRate = falsePositiveRate;
+    }
+
+    public boolean isBloomFilterEnabled() {
+        return this.bloomFilterExpectedKeys > 0;
+    }
+
+    /**
+     * Whether the engine applies the Bloom filter natively, in which case no on-heap filter is kept.
+     */
+    protected boolean isBloomFilterNative() {
+        return false;
+    }
+
+    @Override
+    public BigObjectMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public void setMetrics(BigObjectMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public BloomFilter _bloomFilter() {
+        return this.bloomFilter;
+    }
+
     @Override
     public int size() {
-        return this.size;
+        if (!this.sizeTracked) {
+            this.checkIfClosed();
+
+            return (int)Math.min(this._count(), Integer.MAX_VALUE);
+        }
+
+        return this.size.intValue();
+    }
+
+    @Override
+    public long estimatedSize() {
+        return this.sizeTracked ? this.size.sum() : Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (!this.sizeTracked) {
+            this.checkIfClosed();
+
+            try (CloseableIterator<Entry<K,V>> iterator = this.forwardIterator()) {
+                return !iterator.hasNext();
+            }
+        }
+
+        return this.size.intValue() <= 0;
+    }
+
+    /**
+     * Counts the entries in the underlying engine. Implementations should override this if the engine keeps its own
+     * count, since this default iterates every entry.
+     */
+    public long _count() {
+        try (CloseableIterator<Entry<K,V>> iterator = this.forwardIterator()) {
+            long count = 0;
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            return count;
+        }
     }
 
     @Override
@@ -117,7 +241,30 @@ abstract public class AbstractBigMap<K,V> implements BigMap<K,V> {
         try {
             this._open();
 
-            this.size = 0;
+            this.size.reset();
+
+            // an existing persistent map recovers its size and filter from its metadata, or a full scan if it has none
+            final BigObjectMetadata metadata = this.persistent ? BigObjectMetadata.consume(this.getMetadataPath()) : null;
+
+            if (this.isBloomFilterEnabled() && !this.isBloomFilterNative()) {
+                this.bloomFilter = new BloomFilter(this.bloomFilterExpectedKeys, this.bloomFilterFalsePositiveRate);
+                if (metadata != null && this.bloomFilter.isCompatible(metadata.getBloomFilter())) {
+                    this.bloomFilter = metadata.getBloomFilter();
+                } else if (this.persistent) {
+                    this._populateBloomFilter();
+                }
+            }
+
+            if (this.persistent) {
+                if (this.sizeTracked) {
+                    this.size.add(metadata != null ? metadata.getSize() : this._count());
+                }
+                final LongAdder size = this.size;
+                final BloomFilter bloomFilter = this.bloomFilter;
+                final boolean sizeTracked = this.sizeTracked;
+                this.closer = new PersistentBigObjectCloser(this.closer, this.getMetadataPath(),
+                    () -> new BigObjectMetadata(sizeTracked ? size.sum() : 0L, bloomFilter));
+            }
         } catch (Exception e) {
             throw new BigMapDataException(e);
         }
@@ -128,6 +275,23 @@ abstract public class AbstractBigMap<K,V> implements BigMap<K,V> {
     }
 
     abstract protected void _open();
+
+    /**
+     * Where the metadata of a persistent map is kept, which is next to its file or directory.
+     */
+    protected Path getMetadataPath() {
+        return BigObjectMetadata.resolvePath(this.path, ".meta");
+    }
+
+    private void _populateBloomFilter() {
+        if (this instanceof ByteArrayBigMap) {
+            try (CloseableIterator<KeyValueBytes> iterator = ((ByteArrayBigMap<?,?>)this)._forwardIterator()) {
+                while (iterator.hasNext()) {
+                    this.bloomFilter.put(iterator.next().getKey());
+                }
+            }
+        }
+    }
     
 //    protected void loadCounts() throws IOException {
 //        try (DBIterator it = this.db.iterator()) {
@@ -162,6 +326,11 @@ abstract public class AbstractBigMap<K,V> implements BigMap<K,V> {
     public void clear() {
         try {
             this.close();
+            // a persistent map is not deleted when closed, so it needs to be deleted here
+            if (this.persistent) {
+                BigMapHelper.recursivelyDelete(this.path);
+                BigMapHelper.recursivelyDelete(this.getMetadataPath());
+            }
             this.open();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -169,11 +338,19 @@ abstract public class AbstractBigMap<K,V> implements BigMap<K,V> {
     }
 
     public void _entryAdded() {
-        this.size++;
+        this.size.increment();
     }
 
     public void _entryRemoved() {
-        this.size--;
+        this.size.decrement();
+    }
+
+    public void _entriesAdded(long count) {
+        this.size.add(count);
+    }
+
+    public void _entriesRemoved(long count) {
+        this.size.add(-count);
     }
 
 }
\ No newline at end of file
@@ -15,31 +15,57 @@
  */
 package com.fizzed.bigmap.impl;
 
+import com.fizzed.bigmap.BigIntMap;
+import com.fizzed.bigmap.BigLongMap;
+import com.fizzed.bigmap.BigMap;
 import com.fizzed.bigmap.BigObjectRegistry;
+import com.fizzed.bigmap.BigSortedMap;
 import com.fizzed.bigmap.ByteCodec;
+import com.fizzed.bigmap.ConcurrentBigMap;
 
 import java.nio.file.Path;
 import java.util.Comparator;
 import java.util.Objects;
 
 import static com.fizzed.bigmap.ByteCodecs.resolveCodec;
+import static com.fizzed.bigmap.ByteCodecs.resolveOrderPreservingCodec;
 import static com.fizzed.bigmap.Comparators.autoComparator;
 
-abstract public class AbstractBigMapBuilder<K,V,T> extends AbstractBigObjectBuilder<T> {
+abstract public class AbstractBigMapBuilder<K,V,T> extends AbstractBigObjectBuilder<T> implements Cloneable {
 
     protected Class<K> keyClass;
     protected Class<V> valueClass;
     protected ByteCodec<K> keyCodec;
     protected Comparator<K> keyComparator;
     protected ByteCodec<V> valueCodec;
+    protected boolean sizeTracked = true;
+    protected int concurrencyLevel = StripedConcurrentBigMap.DEFAULT_CONCURRENCY_LEVEL;
+    protected long cacheMaximumSize;            // zero if not bounded by entries
+    protected long cacheMaximumBytes;           // zero if not bounded by bytes
+    protected boolean cacheWriteBack;
+    protected long spillMaximumSize;            // zero if not bounded by entries
+    protected long spillMaximumBytes;           // zero if not bounded by bytes
 
+    /**
+     * Sets the key type with its default codec, which for a sorted engine (see {@link #isSortedEngine()}) is one whose
+     * bytes sort in the same order as the keys.
+     */
     public T setKeyType(Class<K> keyType) {
-        this.setKeyType(keyType, resolveCodec(keyType));
+        this.setKeyType(keyType, this.resolveKeyCodec(keyType));
+        return (T)this;
+    }
+
+    /**
+     * Sets the key type with a codec whose bytes sort in the same order as the keys (e.g. negative numbers before
+     * positive numbers), so that sorted maps iterate in the same order as the key comparator.
+     */
+    public T setOrderPreservingKeyType(Class<K> keyType) {
+        this.setKeyType(keyType, resolveOrderPreservingCodec(keyType));
         return (T)this;
     }
 
     public T setKeyType(Class<K> keyType, Comparator<K> keyComparator) {
-        this.setKeyType(keyType, resolveCodec(keyType), keyComparator);
+        this.setKeyType(keyType, this.resolveKeyCodec(keyType), keyComparator);
         return (T)this;
     }
 
@@ -69,4 +95,202 @@ abstract public class AbstractBigMapBuilder<K,V,T> extends AbstractBigObjectBuil
         return (T)this;
     }
 
-}
\ No newline at end of file
+    /**
+     * Whether the size of the map is kept up-to-date on every write (the default).  Disabling it makes set and delete
+     * blind writes (no read to check if the key already exists), which is much faster for write-heavy workloads, but
+     * then size() must be computed on-demand by the engine (which may require iterating every entry).
+     */
+    public T setSizeTracked(boolean sizeTracked) {
+        this.sizeTracked = sizeTracked;
+        return (T)this;
+    }
+
+    /**
+     * The number of lock stripes a map built with {@link #buildConcurrent()} will use, which is roughly how many
+     * threads can write to it at the same time without contention.
+     */
+    public T setConcurrencyLevel(int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be > 0");
+        }
+        this.concurrencyLevel = concurrencyLevel;
+        return (T)this;
+    }
+
+    /**
+     * The maximum number of entries a map built with {@link #buildCached()} will keep on-heap.
+     */
+    public T setCacheMaximumSize(long cacheMaximumSize) {
+        if (cacheMaximumSize <= 0) {
+            throw new IllegalArgumentException("cacheMaximumSize must be > 0");
+        }
+        this.cacheMaximumSize = cacheMaximumSize;
+        this.cacheMaximumBytes = 0L;
+        return (T)this;
+    }
+
+    /**
+     * The maximum number of bytes (estimated from the serialized size of each entry) a map built with
+     * {@link #buildCached()} will keep on-heap.
+     */
+    public T setCacheMaximumBytes(long cacheMaximumBytes) {
+        if (cacheMaximumBytes <= 0) {
+            throw new IllegalArgumentException("cacheMaximumBytes must be > 0");
+        }
+        this.cacheMaximumBytes = cacheMaximumBytes;
+        this.cacheMaximumSize = 0L;
+        return (T)this;
+    }
+
+    /**
+     * Whether a map built with {@link #buildCached()} only writes sets to the underlying map once they are evicted
+     * from the cache (or flushed), rather than on every set (the default).
+     */
+    public T setCacheWriteBack(boolean cacheWriteBack) {
+        this.cacheWriteBack = cacheWriteBack;
+        return (T)this;
+    }
+
+    /**
+     * The maximum number of entries a map built with {@link #buildSpilling()} will keep on-heap before it spills them
+     * to the engine.
+     */
+    public T setSpillMaximumSize(long spillMaximumSize) {
+        if (spillMaximumSize <= 0) {
+            throw new IllegalArgumentException("spillMaximumSize must be > 0");
+        }
+        this.spillMaximumSize = spillMaximumSize;
+        return (T)this;
+    }
+
+    /**
+     * The maximum number of bytes (estimated from the serialized size of each entry) a map built with
+     * {@link #buildSpilling()} will keep on-heap before it spills them to the engine.  Can be combined with
+     * {@link #setSpillMaximumSize(long)}, in which case the map spills once either one is exceeded.
+     */
+    public T setSpillMaximumBytes(long spillMaximumBytes) {
+        if (spillMaximumBytes <= 0) {
+            throw new IllegalArgumentException("spillMaximumBytes must be > 0");
+        }
+        this.spillMaximumBytes = spillMaximumBytes;
+        return (T)this;
+    }
+
+    /**
+     * Whether {@link #build()} returns a map that orders its entries by the bytes of their keys (a BigSortedMap), in
+     * which case keys default to an order preserving codec.  Builders of sorted engines must override this.
+     */
+    protected boolean isSortedEngine() {
+        return false;
+    }
+
+    /**
+     * Whether {@link #build()} returns a map that iterates its entries in the order they were inserted (an
+     * AbstractBigLinkedMap).  Builders of linked engines must override this.
+     */
+    protected boolean isLinkedEngine() {
+        return false;
+    }
+
+    protected ByteCodec<K> resolveKeyCodec(Class<K> keyType) {
+        return this.isSortedEngine() ? resolveOrderPreservingCodec(keyType) : resolveCodec(keyType);
+    }
+
+    abstract public BigMap<K,V> build();
+
+    /**
+     * Builds the map exactly like {@link #build()}, but wrapped so it can safely be shared across threads.
+     */
+    public ConcurrentBigMap<K,V> buildConcurrent() {
+        return new StripedConcurrentBigMap<>(this.build(), this.concurrencyLevel);
+    }
+
+    /**
+     * Builds the map exactly like {@link #build()}, but with its most frequently read values cached on-heap.  If the
+     * map is sorted, the returned map will be a {@link CachedBigSortedMap}.
+     */
+    public CachedBigMap<K,V> buildCached() {
+        if (this.cacheMaximumSize <= 0 && this.cacheMaximumBytes <= 0) {
+            throw new IllegalStateException("Either cacheMaximumSize or cacheMaximumBytes must be set");
+        }
+
+        final BigMap<K,V> map = this.build();
+
+        if (map instanceof BigSortedMap) {
+            final BigSortedMap<K,V> sortedMap = (BigSortedMap<K,V>)map;
+            if (this.cacheMaximumBytes > 0) {
+                return new CachedBigSortedMap<>(sortedMap, this.cacheMaximumBytes,
+                    CachedBigMap.serializedSizeWeigher(sortedMap), this.cacheWriteBack);
+            }
+            return new CachedBigSortedMap<>(sortedMap, this.cacheMaximumSize, this.cacheWriteBack);
+        }
+
+        if (this.cacheMaximumBytes > 0) {
+            return new CachedBigMap<>(map, this.cacheMaximumBytes, CachedBigMap.serializedSizeWeigher(map),
+                this.cacheWriteBack);
+        }
+        return new CachedBigMap<>(map, this.cacheMaximumSize, this.cacheWriteBack);
+    }
+
+    /**
+     * Builds the map exactly like {@link #build()}, but with methods that take primitive long keys.  The key type must
+     * be Long.
+     */
+    public BigLongMap<V> buildLongMap() {
+        if (this.keyClass != Long.class) {
+            throw new IllegalStateException("Key type must be Long (e.g. setKeyType(Long.class))");
+        }
+
+        return new LongKeyBigMap<>((BigMap<Long,V>)this.build());
+    }
+
+    /**
+     * Builds the map exactly like {@link #build()}, but with methods that take primitive int keys.  The key type must
+     * be Integer.
+     */
+    public BigIntMap<V> buildIntMap() {
+        if (this.keyClass != Integer.class) {
+            throw new IllegalStateException("Key type must be Integer (e.g. setKeyType(Integer.class))");
+        }
+
+        return new IntKeyBigMap<>((BigMap<Integer,V>)this.build());
+    }
+
+    /**
+     * Builds a map that is kept on-heap until it outgrows the spill maximums, and only then calls {@link #build()} (with
+     * the settings of this builder when this was called) to move its entries to the engine.  If the engine is sorted,
+     * the returned map will be a {@link SpillingBigSortedMap}.
+     */
+    public SpillingBigMap<K,V> buildSpilling() {
+        if (this.spillMaximumSize <= 0 && this.spillMaximumBytes <= 0) {
+            throw new IllegalStateException("Either spillMaximumSize or spillMaximumBytes must be set");
+        }
+        if (this.persistent) {
+            throw new IllegalStateException("A spilling map cannot be persistent");
+        }
+
+        // the engine is not built until the map spills, so it's built from the settings as they are now, not as they
+        // are whenever that happens
+        final AbstractBigMapBuilder<K,V,T> snapshot = this.snapshot();
+
+        if (this.isSortedEngine()) {
+            return new SpillingBigSortedMap<>(() -> (BigSortedMap<K,V>)snapshot.build(), this.keyCodec,
+                this.keyComparator, this.valueCodec, this.spillMaximumSize, this.spillMaximumBytes);
+        }
+
+        return new SpillingBigMap<>(snapshot::build, this.keyCodec, this.keyComparator, this.valueCodec,
+            this.spillMaximumSize, this.spillMaximumBytes, this.isLinkedEngine());
+    }
+
+    /**
+     * A shallow copy of this builder, which later changes to this builder do not affect.
+     */
+    protected AbstractBigMapBuilder<K,V,T> snapshot() {
+        try {
+            return (AbstractBigMapBuilder<K,V,T>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
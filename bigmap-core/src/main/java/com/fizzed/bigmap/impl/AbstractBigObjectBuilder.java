@@ -15,9 +15,13 @@
  */
 package com.fizzed.bigmap.impl;
 
+import com.fizzed.bigmap.BigObjectMetrics;
 import com.fizzed.bigmap.BigObjectRegistry;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 import static com.fizzed.bigmap.ByteCodecs.resolveCodec;
 
@@ -25,7 +29,11 @@ abstract public class AbstractBigObjectBuilder<T> {
 
     protected Path scratchDirectory;
     protected String name;
+    protected boolean persistent;
     protected BigObjectRegistry registry;
+    protected long bloomFilterExpectedKeys;             // zero if disabled
+    protected double bloomFilterFalsePositiveRate;
+    protected Supplier<? extends BigObjectMetrics> metricsSupplier;     // null if disabled
 
     public AbstractBigObjectBuilder() {
         this.scratchDirectory = BigMapHelper.resolveTempDirectory().resolve("bigobjects");
@@ -51,4 +59,90 @@ abstract public class AbstractBigObjectBuilder<T> {
         return (T)this;
     }
 
+    /**
+     * Keeps the object on disk once it is closed, and reopens what's already on disk when built again with the same
+     * scratch directory and name (which is required).  Its size is recovered from a small metadata record written on
+     * close, so reopening does not need to scan every key unless the object was never cleanly closed.
+     */
+    public T setPersistent(boolean persistent) {
+        this.persistent = persistent;
+        return (T)this;
+    }
+
+    /**
+     * Enables a Bloom filter of the keys, so that looking up keys that do not exist rarely touches the underlying
+     * engine. RocksDB uses its native filter (and ignores expectedKeys), while the other engines keep one on-heap.
+     */
+    public T setBloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("expectedKeys must be > 0");
+        }
+        if (falsePositiveRate <= 0.0d || falsePositiveRate >= 1.0d) {
+            throw new IllegalArgumentException("falsePositiveRate must be > 0 and < 1");
+        }
+        this.bloomFilterExpectedKeys = expectedKeys;
+        this.bloomFilterFalsePositiveRate = falsePositiveRate;
+        return (T)this;
+    }
+
+    /**
+     * Records metrics of every operation in memory (see BigObject.getMetrics()).  RocksDB will also collect its own
+     * native statistics, which are reported by BigObject.getEngineStats().
+     */
+    public T enableMetrics() {
+        this.metricsSupplier = DefaultBigObjectMetrics::new;
+        return (T)this;
+    }
+
+    /**
+     * Records metrics of every operation to your own implementation, which will be shared by every object built.
+     */
+    public T setMetrics(BigObjectMetrics metrics) {
+        this.metricsSupplier = metrics != null ? () -> metrics : null;
+        return (T)this;
+    }
+
+    /**
+     * A persistent object is identified by its name, so it gets the same id each time it is opened.
+     */
+    protected UUID resolveId() {
+        if (this.persistent) {
+            if (this.name == null) {
+                throw new IllegalStateException("A name is required for a persistent object");
+            }
+            return UUID.nameUUIDFromBytes(this.name.getBytes(StandardCharsets.UTF_8));
+        }
+        return UUID.randomUUID();
+    }
+
+    /**
+     * The directory of an object, which is named after it if persistent, or a unique temporary name if not.
+     */
+    protected Path resolvePath(UUID id, String nonPersistentPrefixName) {
+        if (this.persistent) {
+            return this.scratchDirectory.resolve(this.name);
+        }
+        return BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, nonPersistentPrefixName);
+    }
+
+    /**
+     * The file of an object (for engines that keep it in a single file) with the extension the engine needs.
+     */
+    protected Path resolveFile(UUID id, String nonPersistentPrefixName, String extension) {
+        if (this.persistent) {
+            return BigMapHelper.appendFileName(this.resolvePath(id, nonPersistentPrefixName), extension);
+        }
+        return BigMapHelper.appendFileName(this.resolvePath(id, nonPersistentPrefixName), this.name, extension);
+    }
+
+    protected BigObjectMetrics buildMetrics() {
+        return this.metricsSupplier != null ? this.metricsSupplier.get() : null;
+    }
+
+    protected void applyBloomFilter(AbstractBigMap<?,?> map) {
+        if (this.bloomFilterExpectedKeys > 0) {
+            map.setBloomFilter(this.bloomFilterExpectedKeys, this.bloomFilterFalsePositiveRate);
+        }
+    }
+
 }
\ No newline at end of file
@@ -4,7 +4,11 @@ import com.fizzed.bigmap.BigObjectCloser;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 abstract public class AbstractBigObjectCloser implements BigObjectCloser {
 
@@ -12,11 +16,13 @@ abstract public class AbstractBigObjectCloser implements BigObjectCloser {
     private final boolean persistent;
     private final Path directory;
     private boolean closed;
+    private final Set<TrackedResource> resources;
 
     public AbstractBigObjectCloser(UUID id, boolean persistent, Path directory) {
         this.id = id;
         this.persistent = persistent;
         this.directory = directory;
+        this.resources = ConcurrentHashMap.newKeySet();
     }
 
     @Override
@@ -39,6 +45,20 @@ abstract public class AbstractBigObjectCloser implements BigObjectCloser {
         return this.closed;
     }
 
+    @Override
+    public ResourceCleaner.Cleanable registerResource(Object owner, Runnable release) {
+        final TrackedResource resource = new TrackedResource(release);
+        this.resources.add(resource);
+        return ResourceCleaner.getDefault().register(owner, resource);
+    }
+
+    /**
+     * The number of resources (e.g. native iterators) registered that are not yet released.
+     */
+    public int getOpenResourceCount() {
+        return this.resources.size();
+    }
+
     @Override
     synchronized public void close() throws IOException {
         // do nothing on multiple closes
@@ -46,6 +66,11 @@ abstract public class AbstractBigObjectCloser implements BigObjectCloser {
             return;
         }
 
+        // outstanding resources (e.g. iterators never read to the end) must be released before the engine is closed
+        for (TrackedResource resource : new ArrayList<>(this.resources)) {
+            resource.run();
+        }
+
         this.doClose();
 
         if (!this.persistent) {
@@ -58,4 +83,29 @@ abstract public class AbstractBigObjectCloser implements BigObjectCloser {
 
     abstract public void doClose() throws IOException;
 
-}
\ No newline at end of file
+    private class TrackedResource implements Runnable {
+
+        private final Runnable release;
+        private final AtomicBoolean released;
+
+        public TrackedResource(Runnable release) {
+            this.release = release;
+            this.released = new AtomicBoolean();
+        }
+
+        @Override
+        public void run() {
+            if (this.released.compareAndSet(false, true)) {
+                // the closer is locked, so a resource is never released while (or after) the engine is closed
+                synchronized (AbstractBigObjectCloser.this) {
+                    AbstractBigObjectCloser.this.resources.remove(this);
+                    if (!AbstractBigObjectCloser.this.closed) {
+                        this.release.run();
+                    }
+                }
+            }
+        }
+
+    }
+
+}
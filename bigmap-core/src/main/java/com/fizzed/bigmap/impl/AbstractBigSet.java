@@ -19,8 +19,9 @@ import com.fizzed.bigmap.*;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.Map;
 import java.util.UUID;
 
 abstract public class AbstractBigSet<V> implements BigSet<V> {
@@ -34,6 +35,13 @@ abstract public class AbstractBigSet<V> implements BigSet<V> {
         this.map = map;
     }
 
+    /**
+     * The map the values of this set are stored in as keys.
+     */
+    public BigMap<V,None> getMap() {
+        return this.map;
+    }
+
     @Override
     public BigObjectListener getListener() {
         return this.listener;
@@ -58,6 +66,16 @@ abstract public class AbstractBigSet<V> implements BigSet<V> {
         return this.map.isPersistent();
     }
 
+    @Override
+    public BigObjectMetrics getMetrics() {
+        return this.map.getMetrics();
+    }
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        return this.map.getEngineStats();
+    }
+
     @Override
     final public BigObjectCloser getCloser() {
         return this.map.getCloser();
@@ -112,13 +130,12 @@ abstract public class AbstractBigSet<V> implements BigSet<V> {
     }
 
     @Override
-    public Iterator<V> iterator() {
-//        return this.map.keySet().iterator();
-        final Iterator<V> it = this.map.keySet().iterator();
+    public CloseableIterator<V> iterator() {
+        final CloseableIterator<Map.Entry<V,None>> it = this.map.forwardIterator();
         // NOTE: for auto closing of objects, its critical we maintain an iterator to have a reference back to the
         // original set, so that the set doesn't qualify for garbage collection in the case where the set is actually
         // no longer referenced, but someone is still iterating over its iterator!
-        return new Iterator<V>() {
+        return new CloseableIterator<V>() {
             @Override
             public boolean hasNext() {
                 return it.hasNext();
@@ -126,11 +143,26 @@ abstract public class AbstractBigSet<V> implements BigSet<V> {
 
             @Override
             public V next() {
-                return it.next();
+                return it.next().getKey();
+            }
+
+            @Override
+            public void close() {
+                it.close();
             }
         };
     }
 
+    @Override
+    public CloseableSpliterator<V> spliterator() {
+        // NOTE: same as the iterator, the mapper is a method of this set so it keeps a reference back to it
+        return this.map.spliterator().map(this::valueOf);
+    }
+
+    private V valueOf(Map.Entry<V,None> entry) {
+        return entry.getKey();
+    }
+
     @Override
     public Object[] toArray() {
         return this.map.keySet().toArray();
@@ -164,6 +196,42 @@ abstract public class AbstractBigSet<V> implements BigSet<V> {
         this.map.delete((V)o);
     }
 
+    @Override
+    public boolean addAll(Collection<? extends V> c) {
+        if (c == null || c.isEmpty()) {
+            return false;
+        }
+
+        final int sizeBefore = this.map.size();
+
+        try (WriteBatch<V,None> batch = this.map.batch()) {
+            for (V v : c) {
+                batch.set(v, None.NONE);
+            }
+            batch.commit();
+        }
+
+        return this.map.size() != sizeBefore;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (c == null || c.isEmpty()) {
+            return false;
+        }
+
+        final int sizeBefore = this.map.size();
+
+        try (WriteBatch<V,None> batch = this.map.batch()) {
+            for (Object v : c) {
+                batch.delete((V)v);
+            }
+            batch.commit();
+        }
+
+        return this.map.size() != sizeBefore;
+    }
+
     @Override
     public void clear() {
         this.map.clear();
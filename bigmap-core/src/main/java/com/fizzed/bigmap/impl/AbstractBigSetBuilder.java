@@ -15,12 +15,16 @@
  */
 package com.fizzed.bigmap.impl;
 
+import com.fizzed.bigmap.BigIntSet;
+import com.fizzed.bigmap.BigLongSet;
+import com.fizzed.bigmap.BigSet;
 import com.fizzed.bigmap.ByteCodec;
 
 import java.util.Comparator;
 import java.util.Objects;
 
 import static com.fizzed.bigmap.ByteCodecs.resolveCodec;
+import static com.fizzed.bigmap.ByteCodecs.resolveOrderPreservingCodec;
 import static com.fizzed.bigmap.Comparators.autoComparator;
 
 abstract public class AbstractBigSetBuilder<V,T> extends AbstractBigObjectBuilder<T> {
@@ -29,13 +33,26 @@ abstract public class AbstractBigSetBuilder<V,T> extends AbstractBigObjectBuilde
     protected ByteCodec<V> valueCodec;
     protected Comparator<V> valueComparator;
 
+    /**
+     * Sets the value type with its default codec, which for a sorted engine (see {@link #isSortedEngine()}) is one
+     * whose bytes sort in the same order as the values.
+     */
     public T setValueType(Class<V> valueType) {
-        this.setValueType(valueType, resolveCodec(valueType));
+        this.setValueType(valueType, this.resolveValueCodec(valueType));
+        return (T)this;
+    }
+
+    /**
+     * Sets the value type with a codec whose bytes sort in the same order as the values (e.g. negative numbers before
+     * positive numbers), so that sorted sets iterate in the same order as the value comparator.
+     */
+    public T setOrderPreservingValueType(Class<V> valueType) {
+        this.setValueType(valueType, resolveOrderPreservingCodec(valueType));
         return (T)this;
     }
 
     public T setValueType(Class<V> valueType, Comparator<V> valueComparator) {
-        this.setValueType(valueType, resolveCodec(valueType), valueComparator);
+        this.setValueType(valueType, this.resolveValueCodec(valueType), valueComparator);
         return (T)this;
     }
 
@@ -54,4 +71,42 @@ abstract public class AbstractBigSetBuilder<V,T> extends AbstractBigObjectBuilde
         return (T)this;
     }
 
+    /**
+     * Whether {@link #build()} returns a set that orders its values by their bytes (a BigSortedSet), in which case
+     * values default to an order preserving codec.  Builders of sorted engines must override this.
+     */
+    protected boolean isSortedEngine() {
+        return false;
+    }
+
+    protected ByteCodec<V> resolveValueCodec(Class<V> valueType) {
+        return this.isSortedEngine() ? resolveOrderPreservingCodec(valueType) : resolveCodec(valueType);
+    }
+
+    abstract public BigSet<V> build();
+
+    /**
+     * Builds the set exactly like {@link #build()}, but with methods that take primitive long values.  The value type
+     * must be Long.
+     */
+    public BigLongSet buildLongSet() {
+        if (this.valueClass != Long.class) {
+            throw new IllegalStateException("Value type must be Long (e.g. setValueType(Long.class))");
+        }
+
+        return new LongValueBigSet((BigSet<Long>)this.build());
+    }
+
+    /**
+     * Builds the set exactly like {@link #build()}, but with methods that take primitive int values.  The value type
+     * must be Integer.
+     */
+    public BigIntSet buildIntSet() {
+        if (this.valueClass != Integer.class) {
+            throw new IllegalStateException("Value type must be Integer (e.g. setValueType(Integer.class))");
+        }
+
+        return new IntValueBigSet((BigSet<Integer>)this.build());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Wraps the map built by an engine so that a subclass can add primitive methods for its keys.  Every other method is
+ * passed straight thru to the map.  The primitive methods only skip boxing if the map has byte array primitives (see
+ * {@link #getByteArrayMap()}), otherwise they fall back to the methods of the map.
+ */
+abstract public class AbstractPrimitiveKeyBigMap<K,V> implements BigMap<K,V> {
+
+    protected final BigMap<K,V> map;
+    protected final ByteArrayBigMap<K,V> byteArrayMap;
+
+    /**
+     * @param map the map to wrap
+     * @param keyCodecSupported whether the key codec serializes keys in the bytes the subclass writes primitive keys in
+     */
+    public AbstractPrimitiveKeyBigMap(BigMap<K,V> map, boolean keyCodecSupported) {
+        Objects.requireNonNull(map, "map was null");
+
+        this.map = map;
+        this.byteArrayMap = keyCodecSupported && map instanceof ByteArrayBigMap ? (ByteArrayBigMap<K,V>)map : null;
+    }
+
+    public BigMap<K,V> getMap() {
+        return this.map;
+    }
+
+    /**
+     * The map as a byte array map, or null if the primitive methods must fall back to boxing the key.
+     */
+    public ByteArrayBigMap<K,V> getByteArrayMap() {
+        return this.byteArrayMap;
+    }
+
+    protected long startTime() {
+        return this.byteArrayMap.getMetrics() != null ? System.nanoTime() : 0L;
+    }
+
+    //
+    // BigObject
+    //
+
+    @Override
+    public UUID getId() {
+        return this.map.getId();
+    }
+
+    @Override
+    public Path getPath() {
+        return this.map.getPath();
+    }
+
+    @Override
+    public void setListener(BigObjectListener listener) {
+        this.map.setListener(listener);
+    }
+
+    @Override
+    public BigObjectListener getListener() {
+        return this.map.getListener();
+    }
+
+    @Override
+    public void open() {
+        this.map.open();
+    }
+
+    @Override
+    public BigObjectCloser getCloser() {
+        return this.map.getCloser();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.map.isClosed();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return this.map.isPersistent();
+    }
+
+    @Override
+    public BigObjectMetrics getMetrics() {
+        return this.map.getMetrics();
+    }
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        return this.map.getEngineStats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.map.close();
+    }
+
+    //
+    // BigMap
+    //
+
+    @Override
+    public ByteCodec<K> getKeyCodec() {
+        return this.map.getKeyCodec();
+    }
+
+    @Override
+    public Comparator<K> getKeyComparator() {
+        return this.map.getKeyComparator();
+    }
+
+    @Override
+    public ByteCodec<V> getValueCodec() {
+        return this.map.getValueCodec();
+    }
+
+    @Override
+    public int size() {
+        return this.map.size();
+    }
+
+    @Override
+    public long estimatedSize() {
+        return this.map.estimatedSize();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.map.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.map.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        return this.map.get(key);
+    }
+
+    @Override
+    public MutableValue<V> getMutable(K key) {
+        return this.map.getMutable(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return this.map.put(key, value);
+    }
+
+    @Override
+    public void set(K key, V value) {
+        this.map.set(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return this.map.remove(key);
+    }
+
+    @Override
+    public void delete(K key) {
+        this.map.delete(key);
+    }
+
+    @Override
+    public void clear() {
+        this.map.clear();
+    }
+
+    @Override
+    public WriteBatch<K,V> batch() {
+        return this.map.batch();
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        this.map.putAll(m);
+    }
+
+    @Override
+    public CloseableIterator<Entry<K,V>> forwardIterator() {
+        return this.map.forwardIterator();
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Wraps the set built by an engine so that a subclass can add primitive methods for its values, which are passed to
+ * a primitive key map of the map the set stores its values in.  Every other method is passed straight thru to the set.
+ */
+abstract public class AbstractPrimitiveValueBigSet<V> implements BigSet<V> {
+
+    protected final BigSet<V> set;
+
+    public AbstractPrimitiveValueBigSet(BigSet<V> set) {
+        Objects.requireNonNull(set, "set was null");
+
+        this.set = set;
+    }
+
+    public BigSet<V> getSet() {
+        return this.set;
+    }
+
+    /**
+     * The map the values of the set are stored in as keys, or null if the set is not backed by one.
+     */
+    static protected <V> BigMap<V,None> mapOf(BigSet<V> set) {
+        return set instanceof AbstractBigSet ? ((AbstractBigSet<V>)set).getMap() : null;
+    }
+
+    //
+    // BigObject
+    //
+
+    @Override
+    public UUID getId() {
+        return this.set.getId();
+    }
+
+    @Override
+    public Path getPath() {
+        return this.set.getPath();
+    }
+
+    @Override
+    public void setListener(BigObjectListener listener) {
+        this.set.setListener(listener);
+    }
+
+    @Override
+    public BigObjectListener getListener() {
+        return this.set.getListener();
+    }
+
+    @Override
+    public void open() {
+        this.set.open();
+    }
+
+    @Override
+    public BigObjectCloser getCloser() {
+        return this.set.getCloser();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.set.isClosed();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return this.set.isPersistent();
+    }
+
+    @Override
+    public BigObjectMetrics getMetrics() {
+        return this.set.getMetrics();
+    }
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        return this.set.getEngineStats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.set.close();
+    }
+
+    //
+    // BigSet
+    //
+
+    @Override
+    public ByteCodec<V> getValueCodec() {
+        return this.set.getValueCodec();
+    }
+
+    @Override
+    public Comparator<V> getValueComparator() {
+        return this.set.getValueComparator();
+    }
+
+    @Override
+    public int size() {
+        return this.set.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.set.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return this.set.contains(o);
+    }
+
+    @Override
+    public CloseableIterator<V> iterator() {
+        return this.set.iterator();
+    }
+
+    @Override
+    public CloseableSpliterator<V> spliterator() {
+        return this.set.spliterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return this.set.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return this.set.toArray(a);
+    }
+
+    @Override
+    public boolean add(V v) {
+        return this.set.add(v);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return this.set.remove(o);
+    }
+
+    @Override
+    public void delete(V v) {
+        this.set.delete(v);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends V> c) {
+        return this.set.addAll(c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return this.set.removeAll(c);
+    }
+
+    @Override
+    public void clear() {
+        this.set.clear();
+    }
+
+}
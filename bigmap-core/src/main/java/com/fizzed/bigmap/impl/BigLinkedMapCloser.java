@@ -23,29 +23,21 @@ import java.util.UUID;
 
 public class BigLinkedMapCloser extends AbstractBigObjectCloser {
 
-    private final BigMap dataMap;
-    private final BigMap insertOrderToKeyMap;
-    private final BigMap keyToInsertOrderMap;
+    private final BigMap store;
 
     public BigLinkedMapCloser(
             UUID id,
             boolean persistent,
             Path directory,
-            BigMap dataMap,
-            BigMap insertOrderToKeyMap,
-            BigMap keyToInsertOrderMap) {
+            BigMap store) {
         
         super(id, persistent, directory);
-        this.dataMap = dataMap;
-        this.insertOrderToKeyMap = insertOrderToKeyMap;
-        this.keyToInsertOrderMap = keyToInsertOrderMap;
+        this.store = store;
     }
 
     @Override
     public void doClose() throws IOException {
-        this.dataMap.close();
-        this.insertOrderToKeyMap.close();
-        this.keyToInsertOrderMap.close();
+        this.store.close();
     }
 
-}
\ No newline at end of file
+}
@@ -16,12 +16,16 @@
 package com.fizzed.bigmap.impl;
 
 import com.fizzed.bigmap.BigMap;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.CloseableSpliterator;
 
 import javax.print.attribute.UnmodifiableSetException;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Objects;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class BigMapEntrySet<K,V> implements Set<Entry<K,V>> {
 
@@ -51,20 +55,44 @@ public class BigMapEntrySet<K,V> implements Set<Entry<K,V>> {
         this.map.clear();
     }
 
-    public Iterator<Entry<K,V>> iterator() {
-        final Iterator<Entry<K,V>> iterator = this.map.forwardIterator();
+    @Override
+    public CloseableIterator<Entry<K,V>> iterator() {
+        return this.map.forwardIterator();
+    }
 
-        return new Iterator<Entry<K,V>>() {
-            @Override
-            public boolean hasNext() {
-                return iterator.hasNext();
-            }
+    /**
+     * Splits by ranges of keys if the map is sorted (see {@link BigMap#spliterator()}).
+     */
+    @Override
+    public CloseableSpliterator<Entry<K,V>> spliterator() {
+        return this.map.spliterator();
+    }
+
+    /**
+     * A stream that must be closed (e.g. with a try-with-resources block) unless it's read to the end.
+     */
+    @Override
+    public Stream<Entry<K,V>> stream() {
+        return this.spliterator().stream(false);
+    }
+
+    /**
+     * A parallel stream, which must be closed just like {@link #stream()}.
+     */
+    @Override
+    public Stream<Entry<K,V>> parallelStream() {
+        return this.spliterator().stream(true);
+    }
+
+    @Override
+    public void forEach(Consumer<? super Entry<K,V>> action) {
+        Objects.requireNonNull(action, "action was null");
 
-            @Override
-            public Entry<K,V> next() {
-                return iterator.next();
+        try (CloseableIterator<Entry<K,V>> iterator = this.iterator()) {
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
             }
-        };
+        }
     }
 
     @Override
@@ -60,6 +60,34 @@ public class BigMapHelper {
         return b != null ? b.length : 0;
     }
 
+    /**
+     * The total size of a file or of every file in a directory (recursively), or zero if it does not exist.
+     */
+    static public long diskSizeOf(Path directoryOrFile) {
+        if (directoryOrFile == null || !Files.exists(directoryOrFile)) {
+            return 0L;
+        }
+        try {
+            if (Files.isRegularFile(directoryOrFile)) {
+                return Files.size(directoryOrFile);
+            }
+            try (Stream<Path> files = Files.walk(directoryOrFile)) {
+                return files.filter(Files::isRegularFile)
+                    .mapToLong(file -> {
+                        try {
+                            return Files.size(file);
+                        } catch (IOException e) {
+                            // engines delete files as they compact, so a file that is gone takes no space
+                            return 0L;
+                        }
+                    })
+                    .sum();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            return 0L;
+        }
+    }
+
     static public void recursivelyDelete(Path directoryOrFile) {
         if (directoryOrFile == null) {
             return;
@@ -16,12 +16,16 @@
 package com.fizzed.bigmap.impl;
 
 import com.fizzed.bigmap.BigMap;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.CloseableSpliterator;
 
 import javax.print.attribute.UnmodifiableSetException;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Objects;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class BigMapKeySet<K,V> implements Set<K> {
 
@@ -56,22 +60,44 @@ public class BigMapKeySet<K,V> implements Set<K> {
         this.map.clear();
     }
 
-    public Iterator<K> iterator() {
-        final Iterator<Entry<K,V>> iterator = this.map.forwardIterator();
+    @Override
+    public CloseableIterator<K> iterator() {
+        return this.map.forwardIterator().map(Entry::getKey);
+    }
 
-        return new Iterator<K>() {
-            @Override
-            public boolean hasNext() {
-                return iterator.hasNext();
-            }
+    /**
+     * Splits by ranges of keys if the map is sorted (see {@link BigMap#spliterator()}).
+     */
+    @Override
+    public CloseableSpliterator<K> spliterator() {
+        return this.map.spliterator().map(Entry::getKey);
+    }
+
+    /**
+     * A stream that must be closed (e.g. with a try-with-resources block) unless it's read to the end.
+     */
+    @Override
+    public Stream<K> stream() {
+        return this.spliterator().stream(false);
+    }
+
+    /**
+     * A parallel stream, which must be closed just like {@link #stream()}.
+     */
+    @Override
+    public Stream<K> parallelStream() {
+        return this.spliterator().stream(true);
+    }
 
-            @Override
-            public K next() {
-                final Entry<K,V> entry = iterator.next();
+    @Override
+    public void forEach(Consumer<? super K> action) {
+        Objects.requireNonNull(action, "action was null");
 
-                return entry.getKey();
+        try (CloseableIterator<K> iterator = this.iterator()) {
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
             }
-        };
+        }
     }
 
     @Override
@@ -17,10 +17,14 @@ package com.fizzed.bigmap.impl;
 
 import com.fizzed.bigmap.BigMap;
 import com.fizzed.bigmap.BigMapNonScalableException;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.CloseableSpliterator;
 
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Objects;
 import java.util.Map.Entry;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class BigMapValueCollection<K,V> implements Collection<V> {
 
@@ -50,22 +54,44 @@ public class BigMapValueCollection<K,V> implements Collection<V> {
         this.map.clear();
     }
 
-    public Iterator<V> iterator() {
-        final Iterator<Entry<K,V>> iterator = this.map.forwardIterator();
+    @Override
+    public CloseableIterator<V> iterator() {
+        return this.map.forwardIterator().map(Entry::getValue);
+    }
 
-        return new Iterator<V>() {
-            @Override
-            public boolean hasNext() {
-                return iterator.hasNext();
-            }
+    /**
+     * Splits by ranges of keys if the map is sorted (see {@link BigMap#spliterator()}).
+     */
+    @Override
+    public CloseableSpliterator<V> spliterator() {
+        return this.map.spliterator().map(Entry::getValue);
+    }
+
+    /**
+     * A stream that must be closed (e.g. with a try-with-resources block) unless it's read to the end.
+     */
+    @Override
+    public Stream<V> stream() {
+        return this.spliterator().stream(false);
+    }
+
+    /**
+     * A parallel stream, which must be closed just like {@link #stream()}.
+     */
+    @Override
+    public Stream<V> parallelStream() {
+        return this.spliterator().stream(true);
+    }
 
-            @Override
-            public V next() {
-                final Entry<K,V> entry = iterator.next();
+    @Override
+    public void forEach(Consumer<? super V> action) {
+        Objects.requireNonNull(action, "action was null");
 
-                return entry.getValue();
+        try (CloseableIterator<V> iterator = this.iterator()) {
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
             }
-        };
+        }
     }
 
     @Override
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A small record kept next to a persistent object (e.g. "mymap.meta" next to "mymap") with what would otherwise need
+ * a full scan to rebuild on open: its size, its on-heap Bloom filter and the insert counter of a linked map.  It is
+ * written when the object is closed, and deleted as soon as it is read on open, so that if the process dies before the
+ * next close, the stale record is never trusted and the object falls back to a full scan instead.
+ */
+public class BigObjectMetadata {
+
+    static private final int MAGIC = 0x42474d44;        // "BGMD"
+    static private final int VERSION = 1;
+
+    private final long size;
+    private final BloomFilter bloomFilter;              // null if none
+    private final long insertCounter;                   // -1 if none
+
+    public BigObjectMetadata(long size, BloomFilter bloomFilter) {
+        this(size, bloomFilter, -1L);
+    }
+
+    public BigObjectMetadata(long size, BloomFilter bloomFilter, long insertCounter) {
+        this.size = size;
+        this.bloomFilter = bloomFilter;
+        this.insertCounter = insertCounter;
+    }
+
+    public long getSize() {
+        return this.size;
+    }
+
+    /**
+     * The insert counter of a linked map, or -1 if there is none (e.g. the object is not a linked map).
+     */
+    public long getInsertCounter() {
+        return this.insertCounter;
+    }
+
+    public BloomFilter getBloomFilter() {
+        return this.bloomFilter;
+    }
+
+    static public Path resolvePath(Path path, String suffix) {
+        return BigMapHelper.appendFileName(path, suffix);
+    }
+
+    /**
+     * Reads and then deletes the record.
+     * @return the record or null if it does not exist or cannot be read (e.g. the object was not cleanly closed)
+     */
+    static public BigObjectMetadata consume(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (input.readInt() != MAGIC) {
+                    return null;
+                }
+                if (input.readInt() != VERSION) {
+                    return null;
+                }
+                final long size = input.readLong();
+                final BloomFilter bloomFilter = input.readBoolean() ? BloomFilter.readFrom(input) : null;
+                final long insertCounter = input.readLong();
+                return new BigObjectMetadata(size, bloomFilter, insertCounter);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the record to a temporary file that is then moved into place, so a partially written record is never read.
+     */
+    public void write(Path file) throws IOException {
+        final Path tempFile = BigMapHelper.appendFileName(file, ".tmp");
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(this.size);
+            output.writeBoolean(this.bloomFilter != null);
+            if (this.bloomFilter != null) {
+                this.bloomFilter.writeTo(output);
+            }
+            output.writeLong(this.insertCounter);
+        }
+
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
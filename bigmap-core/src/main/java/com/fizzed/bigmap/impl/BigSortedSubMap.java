@@ -0,0 +1,256 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.Bytes;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.CloseableSpliterator;
+import com.fizzed.bigmap.WriteBatch;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * A view of a range of keys of a sorted map, backed by the map itself.  Changes to the map are reflected in the view
+ * and vice versa. Iteration seeks directly to the bounds of the range, but the size of the view is not tracked, so
+ * calling size() will iterate every key in the range.
+ */
+public class BigSortedSubMap<K,V> extends AbstractMap<K,V> implements SortedMap<K,V> {
+
+    private final ByteArrayBigSortedMap<K,V> map;
+    private final byte[] fromKeyBytes;          // inclusive, null if unbounded
+    private final byte[] toKeyBytes;            // exclusive, null if unbounded
+
+    public BigSortedSubMap(ByteArrayBigSortedMap<K,V> map, byte[] fromKeyBytes, byte[] toKeyBytes) {
+        this.map = map;
+        this.fromKeyBytes = fromKeyBytes;
+        this.toKeyBytes = toKeyBytes;
+    }
+
+    private boolean inRange(byte[] keyBytes) {
+        return (this.fromKeyBytes == null || Bytes.compare(keyBytes, this.fromKeyBytes) >= 0)
+            && (this.toKeyBytes == null || Bytes.compare(keyBytes, this.toKeyBytes) < 0);
+    }
+
+    private boolean inClosedRange(byte[] keyBytes) {
+        return (this.fromKeyBytes == null || Bytes.compare(keyBytes, this.fromKeyBytes) >= 0)
+            && (this.toKeyBytes == null || Bytes.compare(keyBytes, this.toKeyBytes) <= 0);
+    }
+
+    private boolean inRange(Object key) {
+        return this.inRange(this.map.getKeyCodec().serialize((K)key));
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return this.map.comparator();
+    }
+
+    @Override
+    public int size() {
+        this.map.checkIfClosed();
+
+        final Iterator<KeyValueBytes> iterator = this.map._forwardIterator(this.fromKeyBytes, this.toKeyBytes);
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        this.map.checkIfClosed();
+
+        return this.map._firstKey(this.fromKeyBytes, this.toKeyBytes) == null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Objects.requireNonNull(key, "key was null");
+
+        return this.inRange(key) && this.map.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        Objects.requireNonNull(key, "key was null");
+
+        return this.inRange(key) ? this.map.get(key) : null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key, "key was null");
+
+        if (!this.inRange(key)) {
+            throw new IllegalArgumentException("key out of range");
+        }
+
+        return this.map.put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        Objects.requireNonNull(key, "key was null");
+
+        return this.inRange(key) ? this.map.remove(key) : null;
+    }
+
+    @Override
+    public void clear() {
+        this.map.checkIfClosed();
+
+        // the keys are deleted together once the range has been iterated
+        try (WriteBatch<K,V> batch = this.map.batch()) {
+            final Iterator<KeyValueBytes> iterator = this.map._forwardIterator(this.fromKeyBytes, this.toKeyBytes);
+            while (iterator.hasNext()) {
+                batch.delete(this.map.getKeyCodec().deserialize(iterator.next().getKey()));
+            }
+            batch.commit();
+        }
+    }
+
+    @Override
+    public Set<Entry<K,V>> entrySet() {
+        return new AbstractSet<Entry<K,V>>() {
+            @Override
+            public CloseableIterator<Entry<K,V>> iterator() {
+                BigSortedSubMap.this.map.checkIfClosed();
+
+                return BigSortedSubMap.this.map._entryIterator(
+                    BigSortedSubMap.this.map._forwardIterator(BigSortedSubMap.this.fromKeyBytes, BigSortedSubMap.this.toKeyBytes));
+            }
+
+            @Override
+            public CloseableSpliterator<Entry<K,V>> spliterator() {
+                BigSortedSubMap.this.map.checkIfClosed();
+
+                // the size of the range is not tracked, so the size of the whole map is the estimate
+                return new KeyRangeSpliterator<>(BigSortedSubMap.this.map, BigSortedSubMap.this.fromKeyBytes,
+                    BigSortedSubMap.this.toKeyBytes, BigSortedSubMap.this.map.estimatedSize());
+            }
+
+            @Override
+            public Stream<Entry<K,V>> stream() {
+                return this.spliterator().stream(false);
+            }
+
+            @Override
+            public Stream<Entry<K,V>> parallelStream() {
+                return this.spliterator().stream(true);
+            }
+
+            @Override
+            public int size() {
+                return BigSortedSubMap.this.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return BigSortedSubMap.this.isEmpty();
+            }
+
+            @Override
+            public void clear() {
+                BigSortedSubMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Iterates the entries of this range in descending key order.
+     */
+    public CloseableIterator<Entry<K,V>> reverseIterator() {
+        this.map.checkIfClosed();
+
+        return this.map._entryIterator(this.map._reverseIterator(this.fromKeyBytes, this.toKeyBytes));
+    }
+
+    @Override
+    public K firstKey() {
+        this.map.checkIfClosed();
+
+        final byte[] keyBytes = this.map._firstKey(this.fromKeyBytes, this.toKeyBytes);
+
+        if (keyBytes == null) {
+            throw new NoSuchElementException();
+        }
+
+        return this.map.getKeyCodec().deserialize(keyBytes);
+    }
+
+    @Override
+    public K lastKey() {
+        this.map.checkIfClosed();
+
+        final byte[] keyBytes = this.map._lastKey(this.fromKeyBytes, this.toKeyBytes);
+
+        if (keyBytes == null) {
+            throw new NoSuchElementException();
+        }
+
+        return this.map.getKeyCodec().deserialize(keyBytes);
+    }
+
+    @Override
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        Objects.requireNonNull(fromKey, "fromKey was null");
+        Objects.requireNonNull(toKey, "toKey was null");
+
+        final byte[] newFromKeyBytes = this.map.getKeyCodec().serialize(fromKey);
+        final byte[] newToKeyBytes = this.map.getKeyCodec().serialize(toKey);
+
+        this.map._checkKeyRange(fromKey, newFromKeyBytes, toKey, newToKeyBytes);
+
+        if (!this.inClosedRange(newFromKeyBytes)) {
+            throw new IllegalArgumentException("fromKey out of range");
+        }
+        if (!this.inClosedRange(newToKeyBytes)) {
+            throw new IllegalArgumentException("toKey out of range");
+        }
+
+        return new BigSortedSubMap<>(this.map, newFromKeyBytes, newToKeyBytes);
+    }
+
+    @Override
+    public SortedMap<K,V> headMap(K toKey) {
+        Objects.requireNonNull(toKey, "toKey was null");
+
+        final byte[] newToKeyBytes = this.map.getKeyCodec().serialize(toKey);
+
+        if (!this.inClosedRange(newToKeyBytes)) {
+            throw new IllegalArgumentException("toKey out of range");
+        }
+
+        return new BigSortedSubMap<>(this.map, this.fromKeyBytes, newToKeyBytes);
+    }
+
+    @Override
+    public SortedMap<K,V> tailMap(K fromKey) {
+        Objects.requireNonNull(fromKey, "fromKey was null");
+
+        final byte[] newFromKeyBytes = this.map.getKeyCodec().serialize(fromKey);
+
+        if (!this.inClosedRange(newFromKeyBytes)) {
+            throw new IllegalArgumentException("fromKey out of range");
+        }
+
+        return new BigSortedSubMap<>(this.map, newFromKeyBytes, this.toKeyBytes);
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An on-heap Bloom filter of serialized keys, for engines without a native one, so that a lookup of a key that was
+ * never added is answered without touching the engine at all.  Keys cannot be removed from the filter, so deleted
+ * keys will still "maybe" exist until the filter is cleared.  If many more keys than expected are added the false
+ * positive rate will climb, but the answers are never wrong about a key that was added.  Safe to use from many threads.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("expectedKeys must be > 0");
+        }
+        if (falsePositiveRate <= 0.0d || falsePositiveRate >= 1.0d) {
+            throw new IllegalArgumentException("falsePositiveRate must be > 0 and < 1");
+        }
+
+        // the optimal number of bits and hash functions for the expected keys and false positive rate
+        final long optimalBitCount = (long)Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        final int wordCount = (int)Math.min((optimalBitCount + 63) / 64, Integer.MAX_VALUE - 8);
+
+        this.bits = new AtomicLongArray(Math.max(wordCount, 1));
+        this.bitCount = this.bits.length() * 64L;
+        this.hashCount = Math.max(1, (int)Math.round((double)this.bitCount / expectedKeys * Math.log(2)));
+    }
+
+    private BloomFilter(AtomicLongArray bits, int hashCount) {
+        this.bits = bits;
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = hashCount;
+    }
+
+    public long getBitCount() {
+        return this.bitCount;
+    }
+
+    public int getHashCount() {
+        return this.hashCount;
+    }
+
+    public void put(byte[] keyBytes) {
+        this.put(hash(keyBytes, 0, keyBytes.length));
+    }
+
+    /**
+     * Adds the key between the position and limit of the buffer, which is left unchanged.
+     */
+    public void put(ByteBuffer keyBuffer) {
+        this.put(hash(keyBuffer));
+    }
+
+    public boolean mightContain(byte[] keyBytes) {
+        return this.mightContain(hash(keyBytes, 0, keyBytes.length));
+    }
+
+    /**
+     * Checks for the key between the position and limit of the buffer, which is left unchanged.
+     */
+    public boolean mightContain(ByteBuffer keyBuffer) {
+        return this.mightContain(hash(keyBuffer));
+    }
+
+    public void clear() {
+        for (int i = 0; i < this.bits.length(); i++) {
+            this.bits.set(i, 0L);
+        }
+    }
+
+    /**
+     * Whether this filter has the same number of bits and hash functions as the other, so the keys added to one would
+     * set the very same bits in the other.
+     */
+    public boolean isCompatible(BloomFilter other) {
+        return other != null && this.bitCount == other.bitCount && this.hashCount == other.hashCount;
+    }
+
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(this.hashCount);
+        output.writeInt(this.bits.length());
+        for (int i = 0; i < this.bits.length(); i++) {
+            output.writeLong(this.bits.get(i));
+        }
+    }
+
+    static public BloomFilter readFrom(DataInput input) throws IOException {
+        final int hashCount = input.readInt();
+        final int wordCount = input.readInt();
+        final AtomicLongArray bits = new AtomicLongArray(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            bits.set(i, input.readLong());
+        }
+        return new BloomFilter(bits, hashCount);
+    }
+
+    private void put(long hash) {
+        // double hashing (Kirsch-Mitzenmacher) to derive all the bit indexes from one 64-bit hash
+        final long h2 = Long.rotateLeft(hash, 32) | 1L;
+        for (int i = 1; i <= this.hashCount; i++) {
+            final long index = this.index(hash + i * h2);
+            final int word = (int)(index >>> 6);
+            final long mask = 1L << index;
+            long current;
+            do {
+                current = this.bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!this.bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    private boolean mightContain(long hash) {
+        final long h2 = Long.rotateLeft(hash, 32) | 1L;
+        for (int i = 1; i <= this.hashCount; i++) {
+            final long index = this.index(hash + i * h2);
+            if ((this.bits.get((int)(index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long index(long combinedHash) {
+        return (combinedHash & Long.MAX_VALUE) % this.bitCount;
+    }
+
+    static private long hash(byte[] bytes, int offset, int length) {
+        long h = 0x9E3779B97F4A7C15L ^ (length * 0xC2B2AE3D27D4EB4FL);
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ (bytes[i] & 0xFF)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    static private long hash(ByteBuffer buffer) {
+        final int length = buffer.remaining();
+        long h = 0x9E3779B97F4A7C15L ^ (length * 0xC2B2AE3D27D4EB4FL);
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            h = (h ^ (buffer.get(i) & 0xFF)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    // the finalizer of murmur3, so every input bit affects every output bit
+    static private long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
@@ -16,24 +16,153 @@
 package com.fizzed.bigmap.impl;
 
 import com.fizzed.bigmap.BigMap;
+import com.fizzed.bigmap.BigObjectMetrics;
+import com.fizzed.bigmap.BigObjectMetrics.Operation;
+import com.fizzed.bigmap.ByteBufferCodec;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.WriteBatch;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import static com.fizzed.bigmap.impl.BigMapHelper.sizeOf;
 
 public interface ByteArrayBigMap<K,V> extends BigMap<K,V> {
 
+    ByteBufferCodec<K> getKeyBufferCodec();
+
+    ByteBufferCodec<V> getValueBufferCodec();
+
+    /**
+     * Whether the engine can read and write keys and values directly with ByteBuffers. If true, then get, set,
+     * containsKey, and delete will serialize into thread-local scratch buffers and use the ByteBuffer variants of the
+     * primitive operations (e.g. {@link #_get(ByteBuffer)}) instead of allocating byte arrays.
+     */
+    default boolean _isByteBufferSupported() {
+        return false;
+    }
+
+    /**
+     * Gets the value for the key, which is between the position and limit of the buffer.
+     * @return a buffer with the value between its position and limit (typically a scratch buffer only valid until the
+     *      next call on this thread) or null if the key does not exist
+     */
+    default ByteBuffer _get(ByteBuffer keyBuffer) {
+        throw new UnsupportedOperationException();
+    }
+
+    default void _set(ByteBuffer keyBuffer, ByteBuffer valueBuffer) {
+        throw new UnsupportedOperationException();
+    }
+
+    default boolean _containsKey(ByteBuffer keyBuffer) {
+        throw new UnsupportedOperationException();
+    }
+
+    default void _delete(ByteBuffer keyBuffer) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * The on-heap Bloom filter of the keys, or null if the map does not have one (or the engine filters natively).
+     */
+    BloomFilter _bloomFilter();
+
+    default boolean _mightContainKey(byte[] keyBytes) {
+        final BloomFilter bloomFilter = this._bloomFilter();
+        return bloomFilter == null || bloomFilter.mightContain(keyBytes);
+    }
+
+    default boolean _mightContainKey(ByteBuffer keyBuffer) {
+        final BloomFilter bloomFilter = this._bloomFilter();
+        return bloomFilter == null || bloomFilter.mightContain(keyBuffer);
+    }
+
+    /**
+     * Must be called before the key is written to the engine, so another thread never sees a missing key in the
+     * filter for a key that already exists.
+     */
+    default void _keyAdded(byte[] keyBytes) {
+        final BloomFilter bloomFilter = this._bloomFilter();
+        if (bloomFilter != null) {
+            bloomFilter.put(keyBytes);
+        }
+    }
+
+    default void _keyAdded(ByteBuffer keyBuffer) {
+        final BloomFilter bloomFilter = this._bloomFilter();
+        if (bloomFilter != null) {
+            bloomFilter.put(keyBuffer);
+        }
+    }
+
+    default void _keysAdded(List<KeyValueBytes> sets) {
+        final BloomFilter bloomFilter = this._bloomFilter();
+        if (bloomFilter != null) {
+            for (KeyValueBytes kvb : sets) {
+                bloomFilter.put(kvb.getKey());
+            }
+        }
+    }
+
     @Override
     default V get(Object key) {
         this.checkIfClosed();
 
         Objects.requireNonNull(key, "key was null");
 
-        final byte[] keyBytes = this.getKeyCodec().serialize((K)key);
+        final long start = this.getMetrics() != null ? System.nanoTime() : 0L;
 
-        final byte[] valueBytes = this._get(keyBytes);
+        if (this._isByteBufferSupported()) {
+            return this._getSerialized(ScratchBuffer.KEY.serialize(this.getKeyBufferCodec(), (K)key), start);
+        }
 
-        return this.getValueCodec().deserialize(valueBytes);
+        return this._getSerialized(this.getKeyCodec().serialize((K)key), start);
+    }
+
+    /**
+     * Gets the value of a key that is already serialized (e.g. a primitive key written into a reusable buffer), which
+     * is recorded in the metrics as a get that started at the start time.
+     */
+    default V _getSerialized(ByteBuffer keyBuffer, long start) {
+        final BigObjectMetrics metrics = this.getMetrics();
+        final long serialized = metrics != null ? System.nanoTime() : 0L;
+
+        ByteBuffer valueBuffer = null;
+        if (this._mightContainKey(keyBuffer)) {
+            valueBuffer = this._get(keyBuffer);
+        }
+        final long stored = metrics != null ? System.nanoTime() : 0L;
+        final int valueByteSize = valueBuffer != null ? valueBuffer.remaining() : 0;
+
+        final V value = valueBuffer != null ? this.getValueBufferCodec().deserialize(valueBuffer) : null;
+
+        if (metrics != null) {
+            final long end = System.nanoTime();
+            metrics.record(Operation.GET, end - start, (serialized - start) + (end - stored), 0L, valueByteSize);
+        }
+
+        return value;
+    }
+
+    default V _getSerialized(byte[] keyBytes, long start) {
+        final BigObjectMetrics metrics = this.getMetrics();
+        final long serialized = metrics != null ? System.nanoTime() : 0L;
+
+        byte[] valueBytes = null;
+        if (this._mightContainKey(keyBytes)) {
+            valueBytes = this._get(keyBytes);
+        }
+        final long stored = metrics != null ? System.nanoTime() : 0L;
+
+        final V value = this.getValueCodec().deserialize(valueBytes);
+
+        if (metrics != null) {
+            final long end = System.nanoTime();
+            metrics.record(Operation.GET, end - start, (serialized - start) + (end - stored), 0L, sizeOf(valueBytes));
+        }
+
+        return value;
     }
 
     byte[] _get(byte[] keyBytes);
@@ -45,20 +174,36 @@ public interface ByteArrayBigMap<K,V> extends BigMap<K,V> {
         Objects.requireNonNull(key, "key was null");
         Objects.requireNonNull(value, "value was null");
 
+        final BigObjectMetrics metrics = this.getMetrics();
+        final long start = metrics != null ? System.nanoTime() : 0L;
+
         final byte[] keyBytes = this.getKeyCodec().serialize(key);
         final byte[] valueBytes = this.getValueCodec().serialize(value);
+        final long serialized = metrics != null ? System.nanoTime() : 0L;
+
+        this._keyAdded(keyBytes);
 
         final byte[] oldValueBytes = this._put(keyBytes, valueBytes);
+        final long stored = metrics != null ? System.nanoTime() : 0L;
 
+        final V oldValue;
         // existing entry
         if (oldValueBytes != null) {
-            return this.getValueCodec().deserialize(oldValueBytes);
+            oldValue = this.getValueCodec().deserialize(oldValueBytes);
         }
         else {
             // new entry
             this._entryAdded();
-            return null;
+            oldValue = null;
+        }
+
+        if (metrics != null) {
+            final long end = System.nanoTime();
+            metrics.record(Operation.PUT, end - start, (serialized - start) + (end - stored),
+                keyBytes.length + valueBytes.length, sizeOf(oldValueBytes));
         }
+
+        return oldValue;
     }
 
     byte[] _put(byte[] keyBytes, byte[] valueBytes);
@@ -70,16 +215,58 @@ public interface ByteArrayBigMap<K,V> extends BigMap<K,V> {
         Objects.requireNonNull(key, "key was null");
         Objects.requireNonNull(value, "value was null");
 
-        final byte[] keyBytes = this.getKeyCodec().serialize(key);
+        final long start = this.getMetrics() != null ? System.nanoTime() : 0L;
+
+        if (this._isByteBufferSupported()) {
+            this._setSerialized(ScratchBuffer.KEY.serialize(this.getKeyBufferCodec(), key), value, start);
+            return;
+        }
+
+        this._setSerialized(this.getKeyCodec().serialize(key), value, start);
+    }
+
+    /**
+     * Sets the value of a key that is already serialized, which is recorded in the metrics as a set that started at
+     * the start time.
+     */
+    default void _setSerialized(ByteBuffer keyBuffer, V value, long start) {
+        final BigObjectMetrics metrics = this.getMetrics();
+
+        final ByteBuffer valueBuffer = ScratchBuffer.VALUE.serialize(this.getValueBufferCodec(), value);
+        final long serialized = metrics != null ? System.nanoTime() : 0L;
+        final int byteSize = keyBuffer.remaining() + valueBuffer.remaining();
+
+        if (this.isSizeTracked() && !(this._mightContainKey(keyBuffer) && this._containsKey(keyBuffer))) {
+            this._entryAdded();
+        }
+
+        this._keyAdded(keyBuffer);
+        this._set(keyBuffer, valueBuffer);
+
+        if (metrics != null) {
+            metrics.record(Operation.SET, System.nanoTime() - start, serialized - start, byteSize, 0L);
+        }
+    }
+
+    default void _setSerialized(byte[] keyBytes, V value, long start) {
+        final BigObjectMetrics metrics = this.getMetrics();
+
         final byte[] valueBytes = this.getValueCodec().serialize(value);
+        final long serialized = metrics != null ? System.nanoTime() : 0L;
 
         // existing entry
-        if (!this._containsKey(keyBytes)) {
+        if (this.isSizeTracked() && !(this._mightContainKey(keyBytes) && this._containsKey(keyBytes))) {
             // new entry
             this._entryAdded();
         }
 
+        this._keyAdded(keyBytes);
         this._set(keyBytes, valueBytes);
+
+        if (metrics != null) {
+            metrics.record(Operation.SET, System.nanoTime() - start, serialized - start,
+                keyBytes.length + valueBytes.length, 0L);
+        }
     }
 
     void _set(byte[] keyBytes, byte[] valueBytes);
@@ -88,9 +275,43 @@ public interface ByteArrayBigMap<K,V> extends BigMap<K,V> {
     default boolean containsKey(Object key) {
         this.checkIfClosed();
 
-        byte[] keyBytes = this.getKeyCodec().serialize((K)key);
+        final long start = this.getMetrics() != null ? System.nanoTime() : 0L;
 
-        return this._containsKey(keyBytes);
+        if (this._isByteBufferSupported()) {
+            return this._containsKeySerialized(ScratchBuffer.KEY.serialize(this.getKeyBufferCodec(), (K)key), start);
+        }
+
+        return this._containsKeySerialized(this.getKeyCodec().serialize((K)key), start);
+    }
+
+    /**
+     * Checks if a key that is already serialized exists, which is recorded in the metrics as a containsKey that
+     * started at the start time.
+     */
+    default boolean _containsKeySerialized(ByteBuffer keyBuffer, long start) {
+        final BigObjectMetrics metrics = this.getMetrics();
+        final long serialized = metrics != null ? System.nanoTime() : 0L;
+
+        final boolean exists = this._mightContainKey(keyBuffer) && this._containsKey(keyBuffer);
+
+        if (metrics != null) {
+            metrics.record(Operation.CONTAINS_KEY, System.nanoTime() - start, serialized - start, 0L, 0L);
+        }
+
+        return exists;
+    }
+
+    default boolean _containsKeySerialized(byte[] keyBytes, long start) {
+        final BigObjectMetrics metrics = this.getMetrics();
+        final long serialized = metrics != null ? System.nanoTime() : 0L;
+
+        final boolean exists = this._mightContainKey(keyBytes) && this._containsKey(keyBytes);
+
+        if (metrics != null) {
+            metrics.record(Operation.CONTAINS_KEY, System.nanoTime() - start, serialized - start, 0L, 0L);
+        }
+
+        return exists;
     }
 
     boolean _containsKey(byte[] keyBytes);
@@ -101,15 +322,30 @@ public interface ByteArrayBigMap<K,V> extends BigMap<K,V> {
 
         Objects.requireNonNull(key, "key was null");
 
+        final BigObjectMetrics metrics = this.getMetrics();
+        final long start = metrics != null ? System.nanoTime() : 0L;
+
         byte[] keyBytes = this.getKeyCodec().serialize((K)key);
+        final long serialized = metrics != null ? System.nanoTime() : 0L;
 
-        byte[] valueBytes = this._remove(keyBytes);
+        byte[] valueBytes = null;
+        if (this._mightContainKey(keyBytes)) {
+            valueBytes = this._remove(keyBytes);
+        }
+        final long stored = metrics != null ? System.nanoTime() : 0L;
 
         if (valueBytes != null) {
             this._entryRemoved();
         }
 
-        return this.getValueCodec().deserialize(valueBytes);
+        final V value = this.getValueCodec().deserialize(valueBytes);
+
+        if (metrics != null) {
+            final long end = System.nanoTime();
+            metrics.record(Operation.REMOVE, end - start, (serialized - start) + (end - stored), 0L, sizeOf(valueBytes));
+        }
+
+        return value;
     }
 
     byte[] _remove(byte[] keyBytes);
@@ -120,33 +356,160 @@ public interface ByteArrayBigMap<K,V> extends BigMap<K,V> {
 
         Objects.requireNonNull(key, "key was null");
 
-        byte[] keyBytes = this.getKeyCodec().serialize((K)key);
+        final long start = this.getMetrics() != null ? System.nanoTime() : 0L;
 
-        if (this._containsKey(keyBytes)) {
-            this._entryRemoved();
+        if (this._isByteBufferSupported()) {
+            this._deleteSerialized(ScratchBuffer.KEY.serialize(this.getKeyBufferCodec(), (K)key), start);
+            return;
         }
 
-        this._delete(keyBytes);
+        this._deleteSerialized(this.getKeyCodec().serialize((K)key), start);
+    }
+
+    /**
+     * Deletes a key that is already serialized, which is recorded in the metrics as a delete that started at the start
+     * time.
+     */
+    default void _deleteSerialized(ByteBuffer keyBuffer, long start) {
+        final BigObjectMetrics metrics = this.getMetrics();
+        final long serialized = metrics != null ? System.nanoTime() : 0L;
+
+        if (this._mightContainKey(keyBuffer)) {
+            if (this.isSizeTracked() && this._containsKey(keyBuffer)) {
+                this._entryRemoved();
+            }
+
+            this._delete(keyBuffer);
+        }
+
+        if (metrics != null) {
+            metrics.record(Operation.DELETE, System.nanoTime() - start, serialized - start, 0L, 0L);
+        }
+    }
+
+    default void _deleteSerialized(byte[] keyBytes, long start) {
+        final BigObjectMetrics metrics = this.getMetrics();
+        final long serialized = metrics != null ? System.nanoTime() : 0L;
+
+        if (this._mightContainKey(keyBytes)) {
+            if (this.isSizeTracked() && this._containsKey(keyBytes)) {
+                this._entryRemoved();
+            }
+
+            this._delete(keyBytes);
+        }
+
+        if (metrics != null) {
+            metrics.record(Operation.DELETE, System.nanoTime() - start, serialized - start, 0L, 0L);
+        }
     }
 
     void _delete(byte[] keyBytes);
 
+    @Override
+    default WriteBatch<K,V> batch() {
+        this.checkIfClosed();
+
+        return new ByteArrayWriteBatch<>(this);
+    }
+
+    /**
+     * Applies a batch of sets and deletes, while keeping the size of the map correct. The keys across the sets and
+     * deletes must be unique (e.g. already de-duped by a {@link ByteArrayWriteBatch}).
+     */
+    default void _write(List<KeyValueBytes> sets, List<byte[]> deletes) {
+        if (!this.isSizeTracked()) {
+            this._keysAdded(sets);
+            this._writeBatch(sets, deletes);
+            return;
+        }
+
+        // we need to know how many keys already exist so the size of the map is kept correct
+        int existingSetCount = 0;
+        if (!sets.isEmpty()) {
+            final List<byte[]> setKeys = new ArrayList<>(sets.size());
+            for (KeyValueBytes kvb : sets) {
+                setKeys.add(kvb.getKey());
+            }
+            existingSetCount = this._countExistingKeys(setKeys);
+        }
+
+        int existingDeleteCount = 0;
+        if (!deletes.isEmpty()) {
+            existingDeleteCount = this._countExistingKeys(deletes);
+        }
+
+        this._keysAdded(sets);
+
+        this._writeBatch(sets, deletes);
+
+        this._entriesAdded(sets.size() - existingSetCount);
+        this._entriesRemoved(existingDeleteCount);
+    }
+
+    /**
+     * Counts how many of the keys exist in the map. Implementations should override this if the underlying engine can
+     * check many keys in a single native call.
+     */
+    default int _countExistingKeys(List<byte[]> keyBytesList) {
+        int count = 0;
+        for (byte[] keyBytes : keyBytesList) {
+            if (this._mightContainKey(keyBytes) && this._containsKey(keyBytes)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes the sets and deletes to the underlying engine. Implementations should override this with a native batch
+     * or transaction, since this default simply does each set/delete one-by-one.
+     */
+    default void _writeBatch(List<KeyValueBytes> sets, List<byte[]> deletes) {
+        for (KeyValueBytes kvb : sets) {
+            this._set(kvb.getKey(), kvb.getValue());
+        }
+        for (byte[] keyBytes : deletes) {
+            this._delete(keyBytes);
+        }
+    }
+
+    /**
+     * Whether the size of the map is kept up-to-date on every write.  If false, set, delete and batches skip reading
+     * whether each key already exists.
+     */
+    boolean isSizeTracked();
+
     void _entryAdded();
 
     void _entryRemoved();
 
+    void _entriesAdded(long count);
+
+    void _entriesRemoved(long count);
+
     @Override
-    default Iterator<Entry<K,V>> forwardIterator() {
-        final Iterator<KeyValueBytes> iterator = this._forwardIterator();
+    default CloseableIterator<Entry<K,V>> forwardIterator() {
+        return this._entryIterator(this._forwardIterator());
+    }
 
+    /**
+     * Wraps an iterator of raw key/value bytes as an iterator of entries that are deserialized on demand.
+     */
+    default CloseableIterator<Entry<K,V>> _entryIterator(CloseableIterator<KeyValueBytes> iterator) {
         // NOTE: if someone is auto closing objects and only have an iterator remaining around, its critical we return
         // an inner class, which will retain a reference to the enclosing map, so the map doesn't become GC'ed
-        return new Iterator<Entry<K, V>>() {
+        return new CloseableIterator<Entry<K, V>>() {
             @Override
             public boolean hasNext() {
                 return iterator.hasNext();
             }
 
+            @Override
+            public void close() {
+                iterator.close();
+            }
+
             @Override
             public Entry<K,V> next() {
                 final KeyValueBytes kvb = iterator.next();
@@ -179,6 +542,11 @@ public interface ByteArrayBigMap<K,V> extends BigMap<K,V> {
         };
     }
 
-    Iterator<KeyValueBytes> _forwardIterator();
+    /**
+     * Iterates the raw key/value bytes of the engine.  Iterators holding native resources must register them with
+     * {@link com.fizzed.bigmap.BigObjectCloser#registerResource(Object, Runnable)} so they're released even if the
+     * iterator is never closed.
+     */
+    CloseableIterator<KeyValueBytes> _forwardIterator();
 
 }
\ No newline at end of file
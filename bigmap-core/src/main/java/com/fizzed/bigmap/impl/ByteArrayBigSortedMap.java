@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigSortedMap;
+import com.fizzed.bigmap.Bytes;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.CloseableSpliterator;
+
+import java.util.*;
+
+/**
+ * A sorted map where the keys are ordered by the bytes of the serialized key (unsigned, lexicographically), which is
+ * how all the underlying engines order their keys. Range views and reverse iteration seek directly to their bounds
+ * in the underlying engine.
+ *
+ * NOTE: the range of keys is based on the serialized bytes, so it'll only match the key comparator if the key codec
+ * preserves the ordering of the keys.
+ */
+public interface ByteArrayBigSortedMap<K,V> extends ByteArrayBigMap<K,V>, BigSortedMap<K,V> {
+
+    @Override
+    default CloseableIterator<KeyValueBytes> _forwardIterator() {
+        return this._forwardIterator(null, null);
+    }
+
+    /**
+     * Iterates keys in ascending order starting at fromKeyBytes (inclusive) and ending before toKeyBytes (exclusive).
+     * @param fromKeyBytes the lower bound (inclusive) or null if unbounded
+     * @param toKeyBytes the upper bound (exclusive) or null if unbounded
+     */
+    CloseableIterator<KeyValueBytes> _forwardIterator(byte[] fromKeyBytes, byte[] toKeyBytes);
+
+    /**
+     * Iterates keys in descending order starting before toKeyBytes (exclusive) and ending at fromKeyBytes (inclusive).
+     * @param fromKeyBytes the lower bound (inclusive) or null if unbounded
+     * @param toKeyBytes the upper bound (exclusive) or null if unbounded
+     */
+    CloseableIterator<KeyValueBytes> _reverseIterator(byte[] fromKeyBytes, byte[] toKeyBytes);
+
+    default byte[] _firstKey(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        try (CloseableIterator<KeyValueBytes> iterator = this._forwardIterator(fromKeyBytes, toKeyBytes)) {
+            return iterator.hasNext() ? iterator.next().getKey() : null;
+        }
+    }
+
+    default byte[] _lastKey(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        try (CloseableIterator<KeyValueBytes> iterator = this._reverseIterator(fromKeyBytes, toKeyBytes)) {
+            return iterator.hasNext() ? iterator.next().getKey() : null;
+        }
+    }
+
+    /**
+     * Picks a key roughly halfway thru the range, to split it into two ranges that can be iterated in parallel.  By
+     * default, the first and last keys of the range are bisected, and then the engine seeks to the first key at or
+     * after the midpoint (so both ranges have at least one key).
+     * @param fromKeyBytes the lower bound (inclusive) or null if unbounded
+     * @param toKeyBytes the upper bound (exclusive) or null if unbounded
+     * @return the lower bound (inclusive) of the second range, or null if the range is too small to split
+     */
+    default byte[] _splitKey(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        final byte[] firstKeyBytes = this._firstKey(fromKeyBytes, toKeyBytes);
+        if (firstKeyBytes == null) {
+            return null;
+        }
+
+        final byte[] lastKeyBytes = this._lastKey(fromKeyBytes, toKeyBytes);
+        if (lastKeyBytes == null || Bytes.compare(firstKeyBytes, lastKeyBytes) >= 0) {
+            return null;
+        }
+
+        return this._splitKeyAtOrAfter(Bytes.midpoint(firstKeyBytes, lastKeyBytes), firstKeyBytes, toKeyBytes);
+    }
+
+    /**
+     * The first key at or after the candidate, as long as it's still after the first key of the range (otherwise
+     * splitting there would leave the first range empty).
+     */
+    default byte[] _splitKeyAtOrAfter(byte[] candidateKeyBytes, byte[] firstKeyBytes, byte[] toKeyBytes) {
+        final byte[] splitKeyBytes = this._firstKey(candidateKeyBytes, toKeyBytes);
+        if (splitKeyBytes == null || Bytes.compare(splitKeyBytes, firstKeyBytes) <= 0) {
+            return null;
+        }
+        return splitKeyBytes;
+    }
+
+    /**
+     * Splits by ranges of keys (see {@link #_splitKey(byte[], byte[])}), with each split running its own iterator.
+     */
+    @Override
+    default CloseableSpliterator<Entry<K,V>> spliterator() {
+        this.checkIfClosed();
+
+        return new KeyRangeSpliterator<>(this, null, null, this.estimatedSize());
+    }
+
+    @Override
+    default CloseableIterator<Entry<K,V>> reverseIterator() {
+        this.checkIfClosed();
+
+        return this._entryIterator(this._reverseIterator(null, null));
+    }
+
+    @Override
+    default K firstKey() {
+        this.checkIfClosed();
+
+        final byte[] keyBytes = this._firstKey(null, null);
+
+        if (keyBytes == null) {
+            throw new NoSuchElementException();
+        }
+
+        return this.getKeyCodec().deserialize(keyBytes);
+    }
+
+    @Override
+    default K lastKey() {
+        this.checkIfClosed();
+
+        final byte[] keyBytes = this._lastKey(null, null);
+
+        if (keyBytes == null) {
+            throw new NoSuchElementException();
+        }
+
+        return this.getKeyCodec().deserialize(keyBytes);
+    }
+
+    @Override
+    default SortedMap<K,V> subMap(K fromKey, K toKey) {
+        this.checkIfClosed();
+
+        Objects.requireNonNull(fromKey, "fromKey was null");
+        Objects.requireNonNull(toKey, "toKey was null");
+
+        final byte[] fromKeyBytes = this.getKeyCodec().serialize(fromKey);
+        final byte[] toKeyBytes = this.getKeyCodec().serialize(toKey);
+
+        this._checkKeyRange(fromKey, fromKeyBytes, toKey, toKeyBytes);
+
+        return new BigSortedSubMap<>(this, fromKeyBytes, toKeyBytes);
+    }
+
+    /**
+     * Checks the range is not backwards, in the order of the key bytes (which is how ranges are iterated).  If the key
+     * comparator disagrees, the key codec is not order preserving, which is reported rather than a confusing error.
+     */
+    default void _checkKeyRange(K fromKey, byte[] fromKeyBytes, K toKey, byte[] toKeyBytes) {
+        if (Bytes.compare(fromKeyBytes, toKeyBytes) > 0) {
+            final Comparator<K> keyComparator = this.getKeyComparator();
+            if (keyComparator != null && keyComparator.compare(fromKey, toKey) <= 0) {
+                throw new IllegalArgumentException("fromKey > toKey in the byte order of the key codec, which is not"
+                    + " order preserving (use an order preserving key codec, e.g. setOrderPreservingKeyType())");
+            }
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+    }
+
+    @Override
+    default SortedMap<K,V> headMap(K toKey) {
+        this.checkIfClosed();
+
+        Objects.requireNonNull(toKey, "toKey was null");
+
+        final byte[] toKeyBytes = this.getKeyCodec().serialize(toKey);
+
+        return new BigSortedSubMap<>(this, null, toKeyBytes);
+    }
+
+    @Override
+    default SortedMap<K,V> tailMap(K fromKey) {
+        this.checkIfClosed();
+
+        Objects.requireNonNull(fromKey, "fromKey was null");
+
+        final byte[] fromKeyBytes = this.getKeyCodec().serialize(fromKey);
+
+        return new BigSortedSubMap<>(this, fromKeyBytes, null);
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigObjectMetrics;
+import com.fizzed.bigmap.WriteBatch;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A write batch that serializes keys and values as they are added, and then hands off all the bytes at once to the
+ * underlying engine on commit.
+ */
+public class ByteArrayWriteBatch<K,V> implements WriteBatch<K,V> {
+
+    private final ByteArrayBigMap<K,V> map;
+    // ByteBuffer has an equals/hashCode based on its contents, so it works as a key for de-duping operations
+    private final LinkedHashMap<ByteBuffer,byte[]> operations;      // a null value is a delete
+
+    public ByteArrayWriteBatch(ByteArrayBigMap<K,V> map) {
+        this.map = map;
+        this.operations = new LinkedHashMap<>();
+    }
+
+    @Override
+    public void set(K key, V value) {
+        Objects.requireNonNull(key, "key was null");
+        Objects.requireNonNull(value, "value was null");
+
+        final byte[] keyBytes = this.map.getKeyCodec().serialize(key);
+        final byte[] valueBytes = this.map.getValueCodec().serialize(value);
+
+        this.operations.put(ByteBuffer.wrap(keyBytes), valueBytes);
+    }
+
+    @Override
+    public void delete(K key) {
+        Objects.requireNonNull(key, "key was null");
+
+        final byte[] keyBytes = this.map.getKeyCodec().serialize(key);
+
+        this.operations.put(ByteBuffer.wrap(keyBytes), null);
+    }
+
+    @Override
+    public int size() {
+        return this.operations.size();
+    }
+
+    @Override
+    public void commit() {
+        this.map.checkIfClosed();
+
+        if (this.operations.isEmpty()) {
+            return;
+        }
+
+        // keys and values were serialized as they were added, so a batch has no codec time to record
+        final BigObjectMetrics metrics = this.map.getMetrics();
+        final long start = metrics != null ? System.nanoTime() : 0L;
+
+        final List<KeyValueBytes> sets = new ArrayList<>(this.operations.size());
+        final List<byte[]> deletes = new ArrayList<>();
+        long byteSize = 0;
+
+        for (Map.Entry<ByteBuffer,byte[]> op : this.operations.entrySet()) {
+            final byte[] keyBytes = op.getKey().array();
+            byteSize += keyBytes.length;
+            if (op.getValue() != null) {
+                sets.add(new KeyValueBytes(keyBytes, op.getValue()));
+                byteSize += op.getValue().length;
+            } else {
+                deletes.add(keyBytes);
+            }
+        }
+
+        this.map._write(sets, deletes);
+
+        if (metrics != null) {
+            metrics.record(BigObjectMetrics.Operation.BATCH, System.nanoTime() - start, 0L, byteSize, 0L);
+        }
+
+        this.operations.clear();
+    }
+
+    @Override
+    public void close() {
+        this.operations.clear();
+    }
+
+}
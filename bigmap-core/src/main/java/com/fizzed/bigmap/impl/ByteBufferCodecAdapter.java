@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.ByteBufferCodec;
+import com.fizzed.bigmap.ByteCodec;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Adapts a byte array codec so it can be used wherever a {@link ByteBufferCodec} is needed. The wrapped codec still
+ * allocates its byte arrays, which are then copied to/from the buffer.
+ */
+public class ByteBufferCodecAdapter<V> implements ByteBufferCodec<V> {
+
+    private final ByteCodec<V> codec;
+
+    public ByteBufferCodecAdapter(ByteCodec<V> codec) {
+        this.codec = codec;
+    }
+
+    public ByteCodec<V> getCodec() {
+        return this.codec;
+    }
+
+    @Override
+    public void serialize(V value, ByteBuffer buffer) {
+        final byte[] bytes = this.codec.serialize(value);
+        if (bytes.length > buffer.remaining()) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(bytes);
+    }
+
+    @Override
+    public V deserialize(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return this.codec.deserialize(bytes);
+    }
+
+    @Override
+    public byte[] serialize(V value) {
+        return this.codec.serialize(value);
+    }
+
+    @Override
+    public V deserialize(byte[] bytes) {
+        return this.codec.deserialize(bytes);
+    }
+
+    @Override
+    public boolean isOrderPreserving() {
+        return this.codec.isOrderPreserving();
+    }
+
+}
@@ -0,0 +1,551 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.*;
+import com.fizzed.bigmap.impl.WTinyLfuCache.Node;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Keeps the most frequently read values of any BigMap on-heap (see {@link WTinyLfuCache}), so a hit skips serializing
+ * the key, the lookup in the underlying engine and deserializing the value.  The cache is bounded by a maximum number
+ * of entries, or by a maximum number of (estimated) bytes.
+ *
+ * In write-through mode (the default) every write goes straight to the underlying map and invalidates the key.  In
+ * write-back mode sets are only cached (as dirty entries) and written to the underlying map once they are evicted,
+ * flushed or the map is closed, while deletes and batches are still applied immediately.  Anything that reads the
+ * underlying map directly (size, iteration, range views) flushes the dirty entries first.
+ *
+ * NOTE: a hit returns the very same value instance as the previous get, so modifying a value returned by get without
+ * putting it back will also modify the cached value (getMutable always returns a copy).  Keys must have a hashCode/equals based on their contents.
+ */
+public class CachedBigMap<K,V> implements BigMap<K,V> {
+
+    static public final long ENTRY_OVERHEAD_BYTES = 64L;
+    static private final int VERSION_STRIPES = 1024;
+
+    protected final BigMap<K,V> map;
+    protected final boolean writeBack;
+    protected final WTinyLfuCache<K,V> cache;
+    private final ToLongBiFunction<? super K,? super V> weigher;
+    // bumped after every write of a key to the underlying map, so a value loaded by a get that raced it is never cached
+    private final AtomicLongArray versions;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+
+    /**
+     * A cache bounded by the number of entries.
+     */
+    public CachedBigMap(BigMap<K,V> map, long maximumSize, boolean writeBack) {
+        this(map, maximumSize, (key, value) -> 1L, writeBack);
+    }
+
+    /**
+     * A cache bounded by the total weight of its entries (e.g. see {@link #serializedSizeWeigher(BigMap)}).
+     */
+    public CachedBigMap(BigMap<K,V> map, long maximumWeight, ToLongBiFunction<? super K,? super V> weigher, boolean writeBack) {
+        Objects.requireNonNull(map, "map was null");
+        Objects.requireNonNull(weigher, "weigher was null");
+
+        this.map = map;
+        this.writeBack = writeBack;
+        this.weigher = weigher;
+        this.cache = new WTinyLfuCache<>(maximumWeight, writeBack ? this::writeEvicted : null);
+        this.versions = new AtomicLongArray(VERSION_STRIPES);
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+    }
+
+    /**
+     * Estimates the bytes an entry takes on-heap as its serialized size plus a fixed overhead.  Only called when an
+     * entry is added to the cache.
+     */
+    static public <K,V> ToLongBiFunction<K,V> serializedSizeWeigher(BigMap<K,V> map) {
+        return (key, value) -> map.getKeyCodec().serialize(key).length + map.getValueCodec().serialize(value).length
+            + ENTRY_OVERHEAD_BYTES;
+    }
+
+    public BigMap<K,V> getMap() {
+        return this.map;
+    }
+
+    public boolean isWriteBack() {
+        return this.writeBack;
+    }
+
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    public double getHitRate() {
+        final long hits = this.hitCount.sum();
+        final long requests = hits + this.missCount.sum();
+        return requests > 0 ? (double)hits / requests : 0.0d;
+    }
+
+    public long getEvictionCount() {
+        return this.cache.getEvictionCount();
+    }
+
+    /**
+     * The number of entries currently cached.
+     */
+    public int getCachedSize() {
+        return this.cache.size();
+    }
+
+    public long getCachedWeight() {
+        return this.cache.getWeight();
+    }
+
+    /**
+     * Writes every dirty entry to the underlying map (in one batch).  Does nothing in write-through mode.
+     */
+    public void flush() {
+        if (!this.writeBack) {
+            return;
+        }
+
+        synchronized (this.cache) {
+            final List<Node<K,V>> nodes = this.cache.getDirtyNodes();
+            if (nodes.isEmpty()) {
+                return;
+            }
+
+            try (WriteBatch<K,V> batch = this.map.batch()) {
+                for (Node<K,V> node : nodes) {
+                    batch.set(node.getKey(), node.getValue());
+                }
+                batch.commit();
+            }
+
+            for (Node<K,V> node : nodes) {
+                this.cache.markClean(node);
+            }
+        }
+    }
+
+    private int stripe(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return h & (VERSION_STRIPES - 1);
+    }
+
+    // always called while synchronized on the cache
+    private void writeEvicted(Node<K,V> node) {
+        this.map.set(node.getKey(), node.getValue());
+        this.versions.incrementAndGet(this.stripe(node.getKey()));
+    }
+
+    private void invalidate(Object key) {
+        synchronized (this.cache) {
+            this.versions.incrementAndGet(this.stripe(key));
+            this.cache.remove(key);
+        }
+    }
+
+    private void invalidateAll() {
+        synchronized (this.cache) {
+            for (int i = 0; i < VERSION_STRIPES; i++) {
+                this.versions.incrementAndGet(i);
+            }
+            this.cache.clear();
+        }
+    }
+
+    /**
+     * Writes directly to the underlying map (e.g. thru one of its range views), while keeping the cache coherent.
+     */
+    <T> T writeAround(Object key, Supplier<T> write) {
+        if (this.writeBack) {
+            synchronized (this.cache) {
+                this.flush();
+                final T result = write.get();
+                this.invalidate(key);
+                return result;
+            }
+        }
+
+        final T result = write.get();
+        this.invalidate(key);
+        return result;
+    }
+
+    void writeAroundAll(Runnable write) {
+        if (this.writeBack) {
+            synchronized (this.cache) {
+                this.flush();
+                write.run();
+                this.invalidateAll();
+                return;
+            }
+        }
+
+        write.run();
+        this.invalidateAll();
+    }
+
+    CloseableIterator<Entry<K,V>> wrapIterator(Iterator<Entry<K,V>> iterator) {
+        final CloseableIterator<Entry<K,V>> closeableIterator = CloseableIterator.of(iterator);
+
+        // entries are re-wrapped so that setting a value also goes thru the cache
+        return new CloseableIterator<Entry<K,V>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public void close() {
+                closeableIterator.close();
+            }
+
+            @Override
+            public Entry<K,V> next() {
+                final Entry<K,V> entry = iterator.next();
+
+                return new Entry<K,V>() {
+                    @Override
+                    public K getKey() {
+                        return entry.getKey();
+                    }
+
+                    @Override
+                    public V getValue() {
+                        return entry.getValue();
+                    }
+
+                    @Override
+                    public V setValue(V value) {
+                        return CachedBigMap.this.put(entry.getKey(), value);
+                    }
+                };
+            }
+        };
+    }
+
+    //
+    // BigObject
+    //
+
+    @Override
+    public UUID getId() {
+        return this.map.getId();
+    }
+
+    @Override
+    public Path getPath() {
+        return this.map.getPath();
+    }
+
+    @Override
+    public void setListener(BigObjectListener listener) {
+        this.map.setListener(listener);
+    }
+
+    @Override
+    public BigObjectListener getListener() {
+        return this.map.getListener();
+    }
+
+    @Override
+    public void open() {
+        this.invalidateAll();
+        this.map.open();
+    }
+
+    @Override
+    public BigObjectCloser getCloser() {
+        return this.map.getCloser();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.map.isClosed();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return this.map.isPersistent();
+    }
+
+    @Override
+    public BigObjectMetrics getMetrics() {
+        return this.map.getMetrics();
+    }
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        return this.map.getEngineStats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this.cache) {
+            if (!this.map.isClosed()) {
+                this.flush();
+            }
+            this.invalidateAll();
+        }
+        this.map.close();
+    }
+
+    //
+    // BigMap
+    //
+
+    @Override
+    public ByteCodec<K> getKeyCodec() {
+        return this.map.getKeyCodec();
+    }
+
+    @Override
+    public Comparator<K> getKeyComparator() {
+        return this.map.getKeyComparator();
+    }
+
+    @Override
+    public ByteCodec<V> getValueCodec() {
+        return this.map.getValueCodec();
+    }
+
+    @Override
+    public int size() {
+        this.flush();
+
+        return this.map.size();
+    }
+
+    @Override
+    public long estimatedSize() {
+        // dirty entries not yet written back only make this an estimate, so they are not flushed first
+        return this.map.estimatedSize();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        this.flush();
+
+        return this.map.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.cache.containsKey(key) || this.map.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        Objects.requireNonNull(key, "key was null");
+
+        final V cachedValue = this.cache.get(key);
+        if (cachedValue != null) {
+            this.hitCount.increment();
+            return cachedValue;
+        }
+
+        this.missCount.increment();
+
+        final int stripe = this.stripe(key);
+        final long version = this.versions.get(stripe);
+
+        final V value = this.map.get(key);
+
+        if (value != null) {
+            final long weight = this.weigher.applyAsLong((K)key, value);
+            synchronized (this.cache) {
+                if (this.versions.get(stripe) == version) {
+                    this.cache.putIfAbsent((K)key, value, weight);
+                }
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Unlike get, the value is always a copy of the cached value, since it's expected to be modified before it is put
+     * back into the map.
+     */
+    @Override
+    public MutableValue<V> getMutable(K key) {
+        final V value = this.get(key);
+        final V copy = value != null ? this.getValueCodec().deserialize(this.getValueCodec().serialize(value)) : null;
+        return new MapMutableValue<>(this, key, copy);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key, "key was null");
+        Objects.requireNonNull(value, "value was null");
+
+        if (this.writeBack) {
+            final long weight = this.weigher.applyAsLong(key, value);
+            synchronized (this.cache) {
+                // a dirty value is newer than the value in the underlying map
+                V oldValue = this.cache.get(key);
+                if (oldValue != null) {
+                    this.hitCount.increment();
+                } else {
+                    this.missCount.increment();
+                    oldValue = this.map.get(key);
+                }
+                this.versions.incrementAndGet(this.stripe(key));
+                this.cache.put(key, value, weight, true);
+                return oldValue;
+            }
+        }
+
+        final V oldValue = this.map.put(key, value);
+        this.invalidate(key);
+        return oldValue;
+    }
+
+    @Override
+    public void set(K key, V value) {
+        Objects.requireNonNull(key, "key was null");
+        Objects.requireNonNull(value, "value was null");
+
+        if (this.writeBack) {
+            final long weight = this.weigher.applyAsLong(key, value);
+            synchronized (this.cache) {
+                this.versions.incrementAndGet(this.stripe(key));
+                this.cache.put(key, value, weight, true);
+            }
+            return;
+        }
+
+        this.map.set(key, value);
+        this.invalidate(key);
+    }
+
+    @Override
+    public V remove(Object key) {
+        Objects.requireNonNull(key, "key was null");
+
+        if (this.writeBack) {
+            synchronized (this.cache) {
+                // a dirty value is newer than the value in the underlying map
+                final Node<K,V> node = this.cache.remove(key);
+                final V oldValue = this.map.remove(key);
+                this.versions.incrementAndGet(this.stripe(key));
+                return node != null ? node.getValue() : oldValue;
+            }
+        }
+
+        final V oldValue = this.map.remove(key);
+        this.invalidate(key);
+        return oldValue;
+    }
+
+    @Override
+    public void delete(K key) {
+        Objects.requireNonNull(key, "key was null");
+
+        if (this.writeBack) {
+            synchronized (this.cache) {
+                this.cache.remove(key);
+                this.map.delete(key);
+                this.versions.incrementAndGet(this.stripe(key));
+            }
+            return;
+        }
+
+        this.map.delete(key);
+        this.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        synchronized (this.cache) {
+            // any dirty entries are discarded along with everything else
+            this.map.clear();
+            this.invalidateAll();
+        }
+    }
+
+    @Override
+    public WriteBatch<K,V> batch() {
+        final WriteBatch<K,V> batch = this.map.batch();
+        final List<K> keys = new ArrayList<>();
+
+        return new WriteBatch<K,V>() {
+            @Override
+            public void set(K key, V value) {
+                batch.set(key, value);
+                keys.add(key);
+            }
+
+            @Override
+            public void delete(K key) {
+                batch.delete(key);
+                keys.add(key);
+            }
+
+            @Override
+            public int size() {
+                return batch.size();
+            }
+
+            @Override
+            public void commit() {
+                if (CachedBigMap.this.writeBack) {
+                    // the batch is newer than any dirty entries of its keys, so they are dropped before it is committed
+                    synchronized (CachedBigMap.this.cache) {
+                        for (K key : keys) {
+                            CachedBigMap.this.cache.remove(key);
+                        }
+                        batch.commit();
+                        for (K key : keys) {
+                            CachedBigMap.this.invalidate(key);
+                        }
+                    }
+                } else {
+                    batch.commit();
+                    for (K key : keys) {
+                        CachedBigMap.this.invalidate(key);
+                    }
+                }
+                keys.clear();
+            }
+
+            @Override
+            public void close() {
+                batch.close();
+                keys.clear();
+            }
+        };
+    }
+
+    @Override
+    public CloseableIterator<Entry<K,V>> forwardIterator() {
+        this.flush();
+
+        return this.wrapIterator(this.map.forwardIterator());
+    }
+
+}
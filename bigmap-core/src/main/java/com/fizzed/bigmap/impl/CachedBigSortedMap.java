@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigSortedMap;
+import com.fizzed.bigmap.CloseableIterator;
+
+import java.util.SortedMap;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A {@link CachedBigMap} of a sorted map.  Range views read the underlying map directly (they are never cached), but
+ * writes thru them keep the cache coherent.
+ */
+public class CachedBigSortedMap<K,V> extends CachedBigMap<K,V> implements BigSortedMap<K,V> {
+
+    public CachedBigSortedMap(BigSortedMap<K,V> map, long maximumSize, boolean writeBack) {
+        super(map, maximumSize, writeBack);
+    }
+
+    public CachedBigSortedMap(BigSortedMap<K,V> map, long maximumWeight, ToLongBiFunction<? super K,? super V> weigher, boolean writeBack) {
+        super(map, maximumWeight, weigher, writeBack);
+    }
+
+    private BigSortedMap<K,V> sortedMap() {
+        return (BigSortedMap<K,V>)this.map;
+    }
+
+    @Override
+    public CloseableIterator<Entry<K,V>> reverseIterator() {
+        this.flush();
+
+        return this.wrapIterator(this.sortedMap().reverseIterator());
+    }
+
+    @Override
+    public K firstKey() {
+        this.flush();
+
+        return this.sortedMap().firstKey();
+    }
+
+    @Override
+    public K lastKey() {
+        this.flush();
+
+        return this.sortedMap().lastKey();
+    }
+
+    @Override
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        this.flush();
+
+        return new CachedSortedSubMap<>(this, this.sortedMap().subMap(fromKey, toKey));
+    }
+
+    @Override
+    public SortedMap<K,V> headMap(K toKey) {
+        this.flush();
+
+        return new CachedSortedSubMap<>(this, this.sortedMap().headMap(toKey));
+    }
+
+    @Override
+    public SortedMap<K,V> tailMap(K fromKey) {
+        this.flush();
+
+        return new CachedSortedSubMap<>(this, this.sortedMap().tailMap(fromKey));
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import java.util.*;
+
+/**
+ * A range view of a {@link CachedBigSortedMap}, backed by the range view of its underlying map.  Dirty entries are
+ * flushed before every read, and every write invalidates the cache.
+ */
+public class CachedSortedSubMap<K,V> extends AbstractMap<K,V> implements SortedMap<K,V> {
+
+    private final CachedBigMap<K,V> cachedMap;
+    private final SortedMap<K,V> view;
+
+    public CachedSortedSubMap(CachedBigMap<K,V> cachedMap, SortedMap<K,V> view) {
+        this.cachedMap = cachedMap;
+        this.view = view;
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return this.view.comparator();
+    }
+
+    @Override
+    public int size() {
+        this.cachedMap.flush();
+
+        return this.view.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        this.cachedMap.flush();
+
+        return this.view.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        this.cachedMap.flush();
+
+        return this.view.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        this.cachedMap.flush();
+
+        return this.view.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return this.cachedMap.writeAround(key, () -> this.view.put(key, value));
+    }
+
+    @Override
+    public V remove(Object key) {
+        return this.cachedMap.writeAround(key, () -> this.view.remove(key));
+    }
+
+    @Override
+    public void clear() {
+        this.cachedMap.writeAroundAll(this.view::clear);
+    }
+
+    @Override
+    public Set<Entry<K,V>> entrySet() {
+        return new AbstractSet<Entry<K,V>>() {
+            @Override
+            public Iterator<Entry<K,V>> iterator() {
+                CachedSortedSubMap.this.cachedMap.flush();
+
+                return CachedSortedSubMap.this.cachedMap.wrapIterator(CachedSortedSubMap.this.view.entrySet().iterator());
+            }
+
+            @Override
+            public int size() {
+                return CachedSortedSubMap.this.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return CachedSortedSubMap.this.isEmpty();
+            }
+
+            @Override
+            public void clear() {
+                CachedSortedSubMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public K firstKey() {
+        this.cachedMap.flush();
+
+        return this.view.firstKey();
+    }
+
+    @Override
+    public K lastKey() {
+        this.cachedMap.flush();
+
+        return this.view.lastKey();
+    }
+
+    @Override
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return new CachedSortedSubMap<>(this.cachedMap, this.view.subMap(fromKey, toKey));
+    }
+
+    @Override
+    public SortedMap<K,V> headMap(K toKey) {
+        return new CachedSortedSubMap<>(this.cachedMap, this.view.headMap(toKey));
+    }
+
+    @Override
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return new CachedSortedSubMap<>(this.cachedMap, this.view.tailMap(fromKey));
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigObjectMetrics;
+import com.fizzed.bigmap.OperationMetrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps counters and a latency histogram for each operation in memory.
+ */
+public class DefaultBigObjectMetrics implements BigObjectMetrics {
+
+    static private class Counters {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder codecNanos = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+    }
+
+    private final Counters[] counters;
+
+    public DefaultBigObjectMetrics() {
+        this.counters = new Counters[Operation.values().length];
+        for (int i = 0; i < this.counters.length; i++) {
+            this.counters[i] = new Counters();
+        }
+    }
+
+    @Override
+    public void record(Operation operation, long nanos, long codecNanos, long bytesWritten, long bytesRead) {
+        final Counters c = this.counters[operation.ordinal()];
+        c.count.increment();
+        c.totalNanos.add(nanos);
+        c.codecNanos.add(codecNanos);
+        if (bytesWritten > 0) {
+            c.bytesWritten.add(bytesWritten);
+        }
+        if (bytesRead > 0) {
+            c.bytesRead.add(bytesRead);
+        }
+        c.latencies.record(nanos);
+    }
+
+    @Override
+    public Map<Operation,OperationMetrics> getOperations() {
+        final Map<Operation,OperationMetrics> operations = new EnumMap<>(Operation.class);
+
+        for (Operation operation : Operation.values()) {
+            final Counters c = this.counters[operation.ordinal()];
+            final long count = c.count.sum();
+            if (count > 0) {
+                operations.put(operation, new OperationMetrics(
+                    count,
+                    c.totalNanos.sum(),
+                    c.codecNanos.sum(),
+                    c.bytesWritten.sum(),
+                    c.bytesRead.sum(),
+                    c.latencies.getPercentile(0.50d),
+                    c.latencies.getPercentile(0.90d),
+                    c.latencies.getPercentile(0.99d),
+                    c.latencies.getMax()));
+            }
+        }
+
+        return operations;
+    }
+
+}
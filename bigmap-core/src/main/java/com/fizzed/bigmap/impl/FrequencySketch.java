@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+/**
+ * A count-min sketch of how often keys were accessed recently, with four 4-bit counters per key, so it takes a few
+ * bytes per entry no matter how large the keys are.  Once enough increments have been recorded every counter is halved,
+ * so the popularity of keys ages away over time.  Not thread safe.
+ */
+public class FrequencySketch {
+
+    static private final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    static private final long RESET_MASK = 0x7777777777777777L;
+    static private final int MAXIMUM_LENGTH = 1 << 30;
+
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int additions;
+
+    public FrequencySketch(long expectedEntries) {
+        this.ensureCapacity(expectedEntries);
+    }
+
+    /**
+     * Grows the sketch (which forgets every count) if it is too small for the number of entries.
+     */
+    public void ensureCapacity(long expectedEntries) {
+        final int length = ceilingPowerOfTwo((int)Math.min(Math.max(expectedEntries, 16L), MAXIMUM_LENGTH));
+
+        if (this.table != null && length <= this.table.length) {
+            return;
+        }
+
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = length >= MAXIMUM_LENGTH / 10 ? Integer.MAX_VALUE : 10 * length;
+        this.additions = 0;
+    }
+
+    public int frequency(int hashCode) {
+        final int h = spread(hashCode);
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            final int shift = ((h >>> (i << 3)) & 15) << 2;
+            frequency = Math.min(frequency, (int)((this.table[this.indexOf(h, i)] >>> shift) & 15L));
+        }
+        return frequency;
+    }
+
+    public void increment(int hashCode) {
+        final int h = spread(hashCode);
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= this.incrementAt(this.indexOf(h, i), (h >>> (i << 3)) & 15);
+        }
+
+        if (added && ++this.additions >= this.sampleSize) {
+            this.reset();
+        }
+    }
+
+    // each long holds 16 counters, the nibble picks which one
+    private boolean incrementAt(int index, int nibble) {
+        final int shift = nibble << 2;
+        final long mask = 15L << shift;
+        if ((this.table[index] & mask) != mask) {
+            this.table[index] += 1L << shift;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < this.table.length; i++) {
+            this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+        }
+        this.additions >>>= 1;
+    }
+
+    private int indexOf(int h, int i) {
+        long hash = (h + SEEDS[i]) * SEEDS[i];
+        hash += hash >>> 32;
+        return (int)hash & this.tableMask;
+    }
+
+    // many hashCodes are poorly distributed (e.g. small integers), so mix them up first
+    static private int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+    static private int ceilingPowerOfTwo(int x) {
+        return x <= 1 ? 1 : 1 << (32 - Integer.numberOfLeadingZeros(x - 1));
+    }
+
+}
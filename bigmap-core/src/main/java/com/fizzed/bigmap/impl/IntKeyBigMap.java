@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigIntMap;
+import com.fizzed.bigmap.BigMap;
+import com.fizzed.bigmap.ByteCodec;
+import com.fizzed.bigmap.CloseableIterator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * A {@link BigIntMap} of any map with int keys.  Gets and containsKey write the key into a thread-local buffer (a direct
+ * scratch buffer if the engine supports them, otherwise a 4 byte array).  Sets and deletes on engines without
+ * ByteBuffer support still allocate the array of the key, since an engine may hold on to it (e.g. the memtable of
+ * LevelDB).
+ */
+public class IntKeyBigMap<V> extends AbstractPrimitiveKeyBigMap<Integer,V> implements BigIntMap<V> {
+
+    static private final ThreadLocal<byte[]> KEY_BYTES = ThreadLocal.withInitial(() -> new byte[4]);
+
+    private final int signMask;
+
+    public IntKeyBigMap(BigMap<Integer,V> map) {
+        this(map, signMask(Objects.requireNonNull(map, "map was null").getKeyCodec()));
+    }
+
+    private IntKeyBigMap(BigMap<Integer,V> map, Integer signMask) {
+        super(map, signMask != null);
+
+        this.signMask = signMask != null ? signMask : 0;
+    }
+
+    /**
+     * The mask to xor keys with so they are serialized exactly like the key codec does (the order preserving codec
+     * flips the sign bit), or null if the codec is not one of the int codecs.
+     */
+    static Integer signMask(ByteCodec<Integer> keyCodec) {
+        if (keyCodec == null) {
+            return null;
+        }
+        final byte[] bytes = keyCodec.serialize(-2);
+        if (Arrays.equals(bytes, writeInt(-2, new byte[4]))) {
+            return 0;
+        }
+        if (Arrays.equals(bytes, writeInt(-2 ^ Integer.MIN_VALUE, new byte[4]))) {
+            return Integer.MIN_VALUE;
+        }
+        return null;
+    }
+
+    static byte[] writeInt(int v, byte[] bytes) {
+        bytes[0] = (byte)(v >> 24);
+        bytes[1] = (byte)(v >> 16);
+        bytes[2] = (byte)(v >> 8);
+        bytes[3] = (byte)(v);
+        return bytes;
+    }
+
+    static int readInt(byte[] bytes) {
+        return ((int)bytes[3] & 0xff)
+             | ((int)bytes[2] & 0xff) << 8
+             | ((int)bytes[1] & 0xff) << 16
+             | ((int)bytes[0] & 0xff) << 24;
+    }
+
+    private ByteBuffer keyBuffer(int key) {
+        final ByteBuffer buffer = ScratchBuffer.KEY.get();
+        buffer.putInt(key ^ this.signMask);
+        buffer.flip();
+        return buffer;
+    }
+
+    private byte[] keyBytes(int key) {
+        return writeInt(key ^ this.signMask, KEY_BYTES.get());
+    }
+
+    @Override
+    public V get(int key) {
+        final ByteArrayBigMap<Integer,V> map = this.byteArrayMap;
+        if (map == null) {
+            return this.map.get(key);
+        }
+
+        map.checkIfClosed();
+
+        final long start = this.startTime();
+
+        if (map._isByteBufferSupported()) {
+            return map._getSerialized(this.keyBuffer(key), start);
+        }
+        return map._getSerialized(this.keyBytes(key), start);
+    }
+
+    @Override
+    public void set(int key, V value) {
+        final ByteArrayBigMap<Integer,V> map = this.byteArrayMap;
+        if (map == null) {
+            this.map.set(key, value);
+            return;
+        }
+
+        map.checkIfClosed();
+
+        Objects.requireNonNull(value, "value was null");
+
+        final long start = this.startTime();
+
+        if (map._isByteBufferSupported()) {
+            map._setSerialized(this.keyBuffer(key), value, start);
+        } else {
+            map._setSerialized(writeInt(key ^ this.signMask, new byte[4]), value, start);
+        }
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        final ByteArrayBigMap<Integer,V> map = this.byteArrayMap;
+        if (map == null) {
+            return this.map.containsKey(key);
+        }
+
+        map.checkIfClosed();
+
+        final long start = this.startTime();
+
+        if (map._isByteBufferSupported()) {
+            return map._containsKeySerialized(this.keyBuffer(key), start);
+        }
+        return map._containsKeySerialized(this.keyBytes(key), start);
+    }
+
+    @Override
+    public void delete(int key) {
+        final ByteArrayBigMap<Integer,V> map = this.byteArrayMap;
+        if (map == null) {
+            this.map.delete(key);
+            return;
+        }
+
+        map.checkIfClosed();
+
+        final long start = this.startTime();
+
+        if (map._isByteBufferSupported()) {
+            map._deleteSerialized(this.keyBuffer(key), start);
+        } else {
+            map._deleteSerialized(writeInt(key ^ this.signMask, new byte[4]), start);
+        }
+    }
+
+    @Override
+    public void forEachKey(IntConsumer consumer) {
+        Objects.requireNonNull(consumer, "consumer was null");
+
+        final ByteArrayBigMap<Integer,V> map = this.byteArrayMap;
+        if (map == null) {
+            this.map.keySet().forEach(consumer::accept);
+            return;
+        }
+
+        map.checkIfClosed();
+
+        try (CloseableIterator<KeyValueBytes> iterator = map._forwardIterator()) {
+            while (iterator.hasNext()) {
+                consumer.accept(readInt(iterator.next().getKey()) ^ this.signMask);
+            }
+        }
+    }
+
+}
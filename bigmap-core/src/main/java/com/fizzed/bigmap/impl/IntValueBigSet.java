@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigIntSet;
+import com.fizzed.bigmap.BigMap;
+import com.fizzed.bigmap.BigSet;
+
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * A {@link BigIntSet} of any set of int values, which passes the values of the primitive methods to a
+ * {@link IntKeyBigMap} of the map the set stores its values in.
+ */
+public class IntValueBigSet extends AbstractPrimitiveValueBigSet<Integer> implements BigIntSet {
+
+    private final IntKeyBigMap<None> keys;           // null if the set does not have a map
+
+    public IntValueBigSet(BigSet<Integer> set) {
+        super(set);
+
+        final BigMap<Integer,None> map = mapOf(set);
+        this.keys = map != null ? new IntKeyBigMap<>(map) : null;
+    }
+
+    @Override
+    public boolean contains(int value) {
+        return this.keys != null ? this.keys.containsKey(value) : this.set.contains(value);
+    }
+
+    @Override
+    public boolean add(int value) {
+        if (this.keys == null) {
+            return this.set.add(value);
+        }
+        if (this.keys.containsKey(value)) {
+            return false;
+        }
+        this.keys.set(value, None.NONE);
+        return true;
+    }
+
+    @Override
+    public void delete(int value) {
+        if (this.keys != null) {
+            this.keys.delete(value);
+        } else {
+            this.set.delete(value);
+        }
+    }
+
+    @Override
+    public void forEachValue(IntConsumer consumer) {
+        Objects.requireNonNull(consumer, "consumer was null");
+
+        if (this.keys != null) {
+            this.keys.forEachKey(consumer);
+        } else {
+            for (Integer value : this.set) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+}
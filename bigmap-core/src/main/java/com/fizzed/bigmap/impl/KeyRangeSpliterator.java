@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.CloseableSpliterator;
+
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Splits the entries of a sorted map by ranges of keys, at the keys picked by
+ * {@link ByteArrayBigSortedMap#_splitKey(byte[], byte[])}, so each split iterates its own range with its own iterator
+ * of the engine (which is only opened once the split is traversed).  Closing any of the splits closes the iterators of
+ * all of them.
+ */
+public class KeyRangeSpliterator<K,V> implements CloseableSpliterator<Entry<K,V>> {
+
+    private final ByteArrayBigSortedMap<K,V> map;
+    private final Set<CloseableIterator<?>> iterators;          // open iterators of all the splits
+    private byte[] fromKeyBytes;                                // inclusive, null if unbounded
+    private final byte[] toKeyBytes;                            // exclusive, null if unbounded
+    private long estimatedSize;
+    private CloseableIterator<Entry<K,V>> iterator;
+
+    public KeyRangeSpliterator(ByteArrayBigSortedMap<K,V> map, byte[] fromKeyBytes, byte[] toKeyBytes, long estimatedSize) {
+        this(map, ConcurrentHashMap.newKeySet(), fromKeyBytes, toKeyBytes, estimatedSize);
+    }
+
+    private KeyRangeSpliterator(ByteArrayBigSortedMap<K,V> map, Set<CloseableIterator<?>> iterators,
+                                byte[] fromKeyBytes, byte[] toKeyBytes, long estimatedSize) {
+        this.map = Objects.requireNonNull(map, "map was null");
+        this.iterators = iterators;
+        this.fromKeyBytes = fromKeyBytes;
+        this.toKeyBytes = toKeyBytes;
+        this.estimatedSize = estimatedSize;
+    }
+
+    private CloseableIterator<Entry<K,V>> iterator() {
+        if (this.iterator == null) {
+            this.map.checkIfClosed();
+            this.iterator = this.map._entryIterator(this.map._forwardIterator(this.fromKeyBytes, this.toKeyBytes));
+            this.iterators.add(this.iterator);
+        }
+        return this.iterator;
+    }
+
+    private void done() {
+        // the iterator closed itself once read to the end, so there's only the bookkeeping left
+        this.iterators.remove(this.iterator);
+        this.iterator.close();
+        this.estimatedSize = 0;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Entry<K,V>> action) {
+        Objects.requireNonNull(action, "action was null");
+
+        final CloseableIterator<Entry<K,V>> iterator = this.iterator();
+        if (!iterator.hasNext()) {
+            this.done();
+            return false;
+        }
+        action.accept(iterator.next());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Entry<K,V>> action) {
+        Objects.requireNonNull(action, "action was null");
+
+        final CloseableIterator<Entry<K,V>> iterator = this.iterator();
+        while (iterator.hasNext()) {
+            action.accept(iterator.next());
+        }
+        this.done();
+    }
+
+    @Override
+    public KeyRangeSpliterator<K,V> trySplit() {
+        // once traversal has started, the rest of the range is ours
+        if (this.iterator != null) {
+            return null;
+        }
+
+        this.map.checkIfClosed();
+
+        final byte[] splitKeyBytes = this.map._splitKey(this.fromKeyBytes, this.toKeyBytes);
+        if (splitKeyBytes == null) {
+            return null;
+        }
+
+        // the prefix of the range is split off, since the entries are ordered (an unknown size stays unknown)
+        final long prefixSize = this.estimatedSize == Long.MAX_VALUE ? Long.MAX_VALUE : this.estimatedSize / 2;
+        final KeyRangeSpliterator<K,V> prefix = new KeyRangeSpliterator<>(
+            this.map, this.iterators, this.fromKeyBytes, splitKeyBytes, prefixSize);
+        this.fromKeyBytes = splitKeyBytes;
+        if (this.estimatedSize != Long.MAX_VALUE) {
+            this.estimatedSize -= prefixSize;
+        }
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL;
+    }
+
+    @Override
+    public void close() {
+        for (CloseableIterator<?> iterator : this.iterators) {
+            iterator.close();
+        }
+        this.iterators.clear();
+    }
+
+}
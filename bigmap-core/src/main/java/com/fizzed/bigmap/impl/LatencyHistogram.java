@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies with a bucket for each power of two nanoseconds, which is coarse but costs nothing more
+ * than an increment to record and is safe to use from many threads.  A percentile is reported as the upper bound of
+ * the bucket it falls in.
+ */
+public class LatencyHistogram {
+
+    static private final int BUCKET_COUNT = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        this.buckets.incrementAndGet(bucket(nanos));
+
+        long current;
+        while (nanos > (current = this.max.get())) {
+            if (this.max.compareAndSet(current, nanos)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += this.buckets.get(i);
+        }
+        return count;
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * @param percentile between 0 and 1 (e.g. 0.99 for the 99th percentile)
+     */
+    public long getPercentile(double percentile) {
+        final long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = this.buckets.get(i);
+            total += counts[i];
+        }
+
+        if (total == 0) {
+            return 0L;
+        }
+
+        final long rank = Math.max(1L, (long)Math.ceil(total * percentile));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // never report more than the largest latency actually recorded
+                return Math.min(upperBound(i), this.max.get());
+            }
+        }
+
+        return this.max.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.buckets.set(i, 0L);
+        }
+        this.max.set(0L);
+    }
+
+    // bucket 0 holds 0ns, bucket i holds [2^(i-1), 2^i - 1]
+    static private int bucket(long nanos) {
+        return 64 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    static private long upperBound(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+}
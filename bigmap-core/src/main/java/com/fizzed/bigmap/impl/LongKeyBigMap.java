@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigLongMap;
+import com.fizzed.bigmap.BigMap;
+import com.fizzed.bigmap.ByteCodec;
+import com.fizzed.bigmap.CloseableIterator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+/**
+ * A {@link BigLongMap} of any map with long keys.  Gets and containsKey write the key into a thread-local buffer (a direct
+ * scratch buffer if the engine supports them, otherwise an 8 byte array).  Sets and deletes on engines without
+ * ByteBuffer support still allocate the array of the key, since an engine may hold on to it (e.g. the memtable of
+ * LevelDB).
+ */
+public class LongKeyBigMap<V> extends AbstractPrimitiveKeyBigMap<Long,V> implements BigLongMap<V> {
+
+    static private final ThreadLocal<byte[]> KEY_BYTES = ThreadLocal.withInitial(() -> new byte[8]);
+
+    private final long signMask;
+
+    public LongKeyBigMap(BigMap<Long,V> map) {
+        this(map, signMask(Objects.requireNonNull(map, "map was null").getKeyCodec()));
+    }
+
+    private LongKeyBigMap(BigMap<Long,V> map, Long signMask) {
+        super(map, signMask != null);
+
+        this.signMask = signMask != null ? signMask : 0L;
+    }
+
+    /**
+     * The mask to xor keys with so they are serialized exactly like the key codec does (the order preserving codec
+     * flips the sign bit), or null if the codec is not one of the long codecs.
+     */
+    static Long signMask(ByteCodec<Long> keyCodec) {
+        if (keyCodec == null) {
+            return null;
+        }
+        final byte[] bytes = keyCodec.serialize(-2L);
+        if (Arrays.equals(bytes, writeLong(-2L, new byte[8]))) {
+            return 0L;
+        }
+        if (Arrays.equals(bytes, writeLong(-2L ^ Long.MIN_VALUE, new byte[8]))) {
+            return Long.MIN_VALUE;
+        }
+        return null;
+    }
+
+    static byte[] writeLong(long v, byte[] bytes) {
+        bytes[0] = (byte)(v >> 56);
+        bytes[1] = (byte)(v >> 48);
+        bytes[2] = (byte)(v >> 40);
+        bytes[3] = (byte)(v >> 32);
+        bytes[4] = (byte)(v >> 24);
+        bytes[5] = (byte)(v >> 16);
+        bytes[6] = (byte)(v >> 8);
+        bytes[7] = (byte)(v);
+        return bytes;
+    }
+
+    static long readLong(byte[] bytes) {
+        return ((long)bytes[7] & 0xff)
+             | ((long)bytes[6] & 0xff) << 8
+             | ((long)bytes[5] & 0xff) << 16
+             | ((long)bytes[4] & 0xff) << 24
+             | ((long)bytes[3] & 0xff) << 32
+             | ((long)bytes[2] & 0xff) << 40
+             | ((long)bytes[1] & 0xff) << 48
+             | ((long)bytes[0] & 0xff) << 56;
+    }
+
+    private ByteBuffer keyBuffer(long key) {
+        final ByteBuffer buffer = ScratchBuffer.KEY.get();
+        buffer.putLong(key ^ this.signMask);
+        buffer.flip();
+        return buffer;
+    }
+
+    private byte[] keyBytes(long key) {
+        return writeLong(key ^ this.signMask, KEY_BYTES.get());
+    }
+
+    @Override
+    public V get(long key) {
+        final ByteArrayBigMap<Long,V> map = this.byteArrayMap;
+        if (map == null) {
+            return this.map.get(key);
+        }
+
+        map.checkIfClosed();
+
+        final long start = this.startTime();
+
+        if (map._isByteBufferSupported()) {
+            return map._getSerialized(this.keyBuffer(key), start);
+        }
+        return map._getSerialized(this.keyBytes(key), start);
+    }
+
+    @Override
+    public void set(long key, V value) {
+        final ByteArrayBigMap<Long,V> map = this.byteArrayMap;
+        if (map == null) {
+            this.map.set(key, value);
+            return;
+        }
+
+        map.checkIfClosed();
+
+        Objects.requireNonNull(value, "value was null");
+
+        final long start = this.startTime();
+
+        if (map._isByteBufferSupported()) {
+            map._setSerialized(this.keyBuffer(key), value, start);
+        } else {
+            map._setSerialized(writeLong(key ^ this.signMask, new byte[8]), value, start);
+        }
+    }
+
+    @Override
+    public boolean containsKey(long key) {
+        final ByteArrayBigMap<Long,V> map = this.byteArrayMap;
+        if (map == null) {
+            return this.map.containsKey(key);
+        }
+
+        map.checkIfClosed();
+
+        final long start = this.startTime();
+
+        if (map._isByteBufferSupported()) {
+            return map._containsKeySerialized(this.keyBuffer(key), start);
+        }
+        return map._containsKeySerialized(this.keyBytes(key), start);
+    }
+
+    @Override
+    public void delete(long key) {
+        final ByteArrayBigMap<Long,V> map = this.byteArrayMap;
+        if (map == null) {
+            this.map.delete(key);
+            return;
+        }
+
+        map.checkIfClosed();
+
+        final long start = this.startTime();
+
+        if (map._isByteBufferSupported()) {
+            map._deleteSerialized(this.keyBuffer(key), start);
+        } else {
+            map._deleteSerialized(writeLong(key ^ this.signMask, new byte[8]), start);
+        }
+    }
+
+    @Override
+    public void forEachKey(LongConsumer consumer) {
+        Objects.requireNonNull(consumer, "consumer was null");
+
+        final ByteArrayBigMap<Long,V> map = this.byteArrayMap;
+        if (map == null) {
+            this.map.keySet().forEach(consumer::accept);
+            return;
+        }
+
+        map.checkIfClosed();
+
+        try (CloseableIterator<KeyValueBytes> iterator = map._forwardIterator()) {
+            while (iterator.hasNext()) {
+                consumer.accept(readLong(iterator.next().getKey()) ^ this.signMask);
+            }
+        }
+    }
+
+}
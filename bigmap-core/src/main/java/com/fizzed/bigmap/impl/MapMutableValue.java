@@ -17,7 +17,6 @@ package com.fizzed.bigmap.impl;
 
 import com.fizzed.bigmap.MutableValue;
 
-import java.io.IOException;
 import java.util.Map;
 
 public class MapMutableValue<K,V> implements MutableValue<V> {
@@ -26,22 +25,31 @@ public class MapMutableValue<K,V> implements MutableValue<V> {
     private final K key;
     private V value;
     private final boolean wasInitiallyNull;
-    private boolean closed;
+    private final NotClosedWarning notClosedWarning;
+    private final ResourceCleaner.Cleanable cleanable;
 
     public MapMutableValue(Map<K,V> map, K key, V value) {
         this.map = map;
         this.key = key;
         this.value = value;
         this.wasInitiallyNull = value == null;
+        this.notClosedWarning = new NotClosedWarning();
+        this.cleanable = ResourceCleaner.getDefault().register(this, this.notClosedWarning);
     }
 
-    @Override
-    protected void finalize() {
-        if (!this.closed) {
-            System.err.println("!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!");
-            System.err.println("MutableValue was not closed! Please check your code for improper usage!");
-            System.err.println("!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!");
+    static private class NotClosedWarning implements Runnable {
+
+        private volatile boolean closed;
+
+        @Override
+        public void run() {
+            if (!this.closed) {
+                System.err.println("!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!");
+                System.err.println("MutableValue was not closed! Please check your code for improper usage!");
+                System.err.println("!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!");
+            }
         }
+
     }
 
     @Override
@@ -61,7 +69,9 @@ public class MapMutableValue<K,V> implements MutableValue<V> {
 
     @Override
     public void close() throws RuntimeException {
-        this.closed = true;
+        // unregisters the warning, since it only needs to run if this value is garbage collected without being closed
+        this.notClosedWarning.closed = true;
+        this.cleanable.clean();
 
         // now, if the value is/was null
         if (this.wasInitiallyNull && value == null) {
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigMap;
+import com.fizzed.bigmap.WriteBatch;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A write batch for any BigMap that has no native batching support. Operations are buffered and then simply applied
+ * one-by-one with set/delete on commit.
+ */
+public class MapWriteBatch<K,V> implements WriteBatch<K,V> {
+
+    private final BigMap<K,V> map;
+    private final LinkedHashMap<K,V> operations;        // a null value is a delete
+
+    public MapWriteBatch(BigMap<K,V> map) {
+        this.map = map;
+        this.operations = new LinkedHashMap<>();
+    }
+
+    @Override
+    public void set(K key, V value) {
+        Objects.requireNonNull(key, "key was null");
+        Objects.requireNonNull(value, "value was null");
+
+        // remove first so the operation is re-ordered to the end
+        this.operations.remove(key);
+        this.operations.put(key, value);
+    }
+
+    @Override
+    public void delete(K key) {
+        Objects.requireNonNull(key, "key was null");
+
+        this.operations.remove(key);
+        this.operations.put(key, null);
+    }
+
+    @Override
+    public int size() {
+        return this.operations.size();
+    }
+
+    @Override
+    public void commit() {
+        this.map.checkIfClosed();
+
+        for (Map.Entry<K,V> op : this.operations.entrySet()) {
+            if (op.getValue() != null) {
+                this.map.set(op.getKey(), op.getValue());
+            } else {
+                this.map.delete(op.getKey());
+            }
+        }
+
+        this.operations.clear();
+    }
+
+    @Override
+    public void close() {
+        this.operations.clear();
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigObjectCloser;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Wraps the closer of a persistent object, so its metadata is written once the underlying engine is closed.  Since the
+ * registry holds onto the closer, the metadata is written even if the object itself was garbage collected.
+ */
+public class PersistentBigObjectCloser implements BigObjectCloser {
+
+    private final BigObjectCloser closer;
+    private final Path metadataFile;
+    private final Supplier<BigObjectMetadata> metadataSupplier;
+
+    public PersistentBigObjectCloser(
+            BigObjectCloser closer,
+            Path metadataFile,
+            Supplier<BigObjectMetadata> metadataSupplier) {
+
+        this.closer = closer;
+        this.metadataFile = metadataFile;
+        this.metadataSupplier = metadataSupplier;
+    }
+
+    @Override
+    public UUID getId() {
+        return this.closer.getId();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return this.closer.isPersistent();
+    }
+
+    @Override
+    public Path getPath() {
+        return this.closer.getPath();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closer.isClosed();
+    }
+
+    @Override
+    public ResourceCleaner.Cleanable registerResource(Object owner, Runnable release) {
+        return this.closer.registerResource(owner, release);
+    }
+
+    @Override
+    synchronized public void close() throws IOException {
+        // do nothing on multiple closes
+        if (this.closer.isClosed()) {
+            return;
+        }
+
+        this.closer.close();
+
+        this.metadataSupplier.get().write(this.metadataFile);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigObjectCloser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs a cleanup action once an object becomes phantom reachable, or as soon as it's explicitly cleaned, whichever
+ * comes first (and only ever once).  The same idea as java.lang.ref.Cleaner (which requires Java 9+), without relying
+ * on finalizers.  The action must NOT hold a reference to the object, otherwise it never becomes unreachable.
+ */
+public class ResourceCleaner {
+    static private final Logger log = LoggerFactory.getLogger(ResourceCleaner.class);
+
+    static private final ResourceCleaner DEFAULT = new ResourceCleaner("BigMapResourceCleaner");
+
+    static public ResourceCleaner getDefault() {
+        return DEFAULT;
+    }
+
+    public interface Cleanable {
+
+        /**
+         * Runs the cleanup action now (if it hasn't already run) and unregisters it.
+         */
+        void clean();
+
+    }
+
+    private final ReferenceQueue<Object> referenceQueue;
+    private final Set<PhantomCleanable> cleanables;          // keeps the phantom references reachable until cleaned
+
+    public ResourceCleaner(String threadName) {
+        this.referenceQueue = new ReferenceQueue<>();
+        this.cleanables = ConcurrentHashMap.newKeySet();
+
+        final Thread thread = new Thread(this::run, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Cleanable register(Object object, Runnable action) {
+        Objects.requireNonNull(object, "object was null");
+        Objects.requireNonNull(action, "action was null");
+
+        final PhantomCleanable cleanable = new PhantomCleanable(object, action);
+        this.cleanables.add(cleanable);
+        return cleanable;
+    }
+
+    /**
+     * Registers the resource with the closer of the object it belongs to (so it's also released before the object is
+     * closed), or with the default cleaner if there is no closer.
+     */
+    static public Cleanable register(BigObjectCloser closer, Object owner, Runnable release) {
+        if (closer != null) {
+            return closer.registerResource(owner, release);
+        }
+        return DEFAULT.register(owner, release);
+    }
+
+    public int getRegisteredCount() {
+        return this.cleanables.size();
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                ((PhantomCleanable)this.referenceQueue.remove()).clean();
+            } catch (InterruptedException e) {
+                // keep going, the cleaner lives as long as the jvm
+            } catch (Throwable t) {
+                log.error("Unable to clean resource", t);
+            }
+        }
+    }
+
+    private class PhantomCleanable extends PhantomReference<Object> implements Cleanable {
+
+        private final Runnable action;
+
+        public PhantomCleanable(Object object, Runnable action) {
+            super(object, ResourceCleaner.this.referenceQueue);
+            this.action = action;
+        }
+
+        @Override
+        public void clean() {
+            if (ResourceCleaner.this.cleanables.remove(this)) {
+                this.clear();
+                this.action.run();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.ByteBufferCodec;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A thread-local, direct ByteBuffer that is reused to serialize keys and values, growing as needed. Since the buffer
+ * is reused by the next call on the same thread, its contents are only valid until then. A buffer grown past the
+ * maximum retained capacity is only used for that one call, so a single large value does not pin a large buffer to
+ * the thread forever.
+ */
+public class ScratchBuffer {
+
+    static public final int DEFAULT_MAXIMUM_RETAINED_CAPACITY = 1024 * 1024;
+
+    static public final ScratchBuffer KEY = new ScratchBuffer(256, 64 * 1024);
+    static public final ScratchBuffer VALUE = new ScratchBuffer(4096);
+    static public final ScratchBuffer CODEC = new ScratchBuffer(4096);
+
+    private final int maximumRetainedCapacity;
+    private final ThreadLocal<ByteBuffer> buffers;
+
+    public ScratchBuffer(int initialCapacity) {
+        this(initialCapacity, DEFAULT_MAXIMUM_RETAINED_CAPACITY);
+    }
+
+    public ScratchBuffer(int initialCapacity, int maximumRetainedCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("initialCapacity must be > 0");
+        }
+        if (maximumRetainedCapacity < initialCapacity) {
+            throw new IllegalArgumentException("maximumRetainedCapacity must be >= initialCapacity");
+        }
+        this.maximumRetainedCapacity = maximumRetainedCapacity;
+        this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(initialCapacity));
+    }
+
+    public int getMaximumRetainedCapacity() {
+        return this.maximumRetainedCapacity;
+    }
+
+    /**
+     * Gets this thread's buffer, cleared and ready to be written to.
+     */
+    public ByteBuffer get() {
+        final ByteBuffer buffer = this.buffers.get();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Gets a buffer that has at least the minimum capacity, cleared and ready to be written to, which replaces this
+     * thread's buffer unless it's larger than the maximum retained capacity. The contents of the previous buffer are
+     * not copied.
+     */
+    public ByteBuffer grow(int minCapacity) {
+        final ByteBuffer buffer = this.buffers.get();
+        if (buffer.capacity() >= minCapacity) {
+            buffer.clear();
+            return buffer;
+        }
+        return this.allocate(buffer.capacity(), minCapacity);
+    }
+
+    private ByteBuffer allocate(int capacity, int minCapacity) {
+        while (capacity < minCapacity) {
+            capacity = capacity > Integer.MAX_VALUE/2 ? Integer.MAX_VALUE : capacity * 2;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+        if (capacity <= this.maximumRetainedCapacity) {
+            this.buffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Copies the already serialized bytes into a buffer, sized so they fit the first time.
+     * @return the buffer, flipped so the bytes are between its position and limit
+     */
+    public ByteBuffer serialize(byte[] bytes) {
+        final ByteBuffer buffer = this.grow(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Serializes the value into a buffer, growing it until the value fits. A codec that only serializes to byte
+     * arrays (a ByteBufferCodecAdapter) serializes the value once, and the buffer is sized from its bytes.
+     * @return the buffer, flipped so the serialized bytes are between its position and limit
+     */
+    public <T> ByteBuffer serialize(ByteBufferCodec<T> codec, T value) {
+        if (codec instanceof ByteBufferCodecAdapter) {
+            return this.serialize(((ByteBufferCodecAdapter<T>)codec).getCodec().serialize(value));
+        }
+
+        ByteBuffer buffer = this.get();
+        while (true) {
+            try {
+                codec.serialize(value, buffer);
+                buffer.flip();
+                return buffer;
+            }
+            catch (BufferOverflowException e) {
+                if (buffer.capacity() == Integer.MAX_VALUE) {
+                    throw e;
+                }
+                buffer.clear();
+                buffer = this.allocate(buffer.capacity(), buffer.capacity() + 1);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,502 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Starts out as an on-heap map, and only once it grows past a maximum number of entries (or of estimated bytes)
+ * builds a map of the underlying engine and moves every entry to it in one batch.  Most small maps then never pay for
+ * a scratch directory, opening the engine or serializing their values, while the few that grow large still end up
+ * in the engine.  Clearing the map closes the engine and starts over on-heap.
+ *
+ * On-heap the keys are still serialized, so they are equal (and ordered) by their bytes just like in the engine, but
+ * the values are kept as is.  The entries iterate in the same order the engine would: a linked engine keeps the
+ * insertion order, and a sorted engine the order of the serialized keys (see {@link SpillingBigSortedMap}).
+ *
+ * The id of the map is its own, while its path, closer, metrics and engine stats are those of the engine (or null and
+ * empty until it has spilled).  Just like the engines, reads are safe from many threads, but writes are not (see
+ * {@link AbstractBigMapBuilder#buildConcurrent()}).
+ *
+ * NOTE: until the map has spilled, a get returns the very same value instance that was put (getMutable always returns
+ * a copy).
+ */
+public class SpillingBigMap<K,V> implements BigMap<K,V> {
+
+    static public final long ENTRY_OVERHEAD_BYTES = 64L;
+
+    /**
+     * A key on-heap, which is equal to (and ordered against) other keys by its serialized bytes.
+     */
+    static final class HeapKey implements Comparable<HeapKey> {
+
+        final byte[] bytes;
+        final Object key;
+        private final int hash;
+
+        HeapKey(byte[] bytes, Object key) {
+            this.bytes = bytes;
+            this.key = key;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof HeapKey && Arrays.equals(this.bytes, ((HeapKey)o).bytes);
+        }
+
+        @Override
+        public int compareTo(HeapKey o) {
+            return Bytes.compare(this.bytes, o.bytes);
+        }
+
+    }
+
+    private final UUID id;
+    private final Supplier<? extends BigMap<K,V>> engineSupplier;
+    private final ByteCodec<K> keyCodec;
+    private final Comparator<K> keyComparator;
+    private final ByteCodec<V> valueCodec;
+    private final long maximumSize;             // zero if not bounded by entries
+    private final long maximumBytes;            // zero if not bounded by bytes
+    private final boolean insertionOrdered;
+    private BigObjectListener listener;
+    private volatile Map<HeapKey,V> heapMap;    // null once spilled (or closed)
+    private long heapBytes;
+    private volatile BigMap<K,V> spilledMap;    // null until spilled
+    private volatile boolean closed;
+
+    public SpillingBigMap(
+            Supplier<? extends BigMap<K,V>> engineSupplier,
+            ByteCodec<K> keyCodec,
+            Comparator<K> keyComparator,
+            ByteCodec<V> valueCodec,
+            long maximumSize,
+            long maximumBytes,
+            boolean insertionOrdered) {
+
+        Objects.requireNonNull(engineSupplier, "engineSupplier was null");
+        Objects.requireNonNull(keyCodec, "keyCodec was null");
+        Objects.requireNonNull(valueCodec, "valueCodec was null");
+
+        if (maximumSize <= 0 && maximumBytes <= 0) {
+            throw new IllegalArgumentException("Either maximumSize or maximumBytes must be > 0");
+        }
+
+        this.id = UUID.randomUUID();
+        this.engineSupplier = engineSupplier;
+        this.keyCodec = keyCodec;
+        this.keyComparator = keyComparator;
+        this.valueCodec = valueCodec;
+        this.maximumSize = maximumSize;
+        this.maximumBytes = maximumBytes;
+        this.insertionOrdered = insertionOrdered;
+        this.heapMap = this.newHeapMap();
+    }
+
+    protected Map<HeapKey,V> newHeapMap() {
+        return this.insertionOrdered ? new LinkedHashMap<>() : new HashMap<>();
+    }
+
+    public long getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    public long getMaximumBytes() {
+        return this.maximumBytes;
+    }
+
+    public boolean isSpilled() {
+        return this.spilledMap != null;
+    }
+
+    /**
+     * The map of the engine the entries were moved to, or null if the map has not spilled (yet).
+     */
+    public BigMap<K,V> getSpilledMap() {
+        return this.spilledMap;
+    }
+
+    /**
+     * The estimated bytes of the entries on-heap, which is only tracked if the map is bounded by bytes.
+     */
+    public long getHeapBytes() {
+        return this.heapBytes;
+    }
+
+    /**
+     * Moves every entry to a new map of the engine right away, rather than waiting for the map to outgrow its maximum.
+     */
+    public void spill() {
+        this.checkIfClosed();
+
+        final Map<HeapKey,V> heapMap = this.heapMap;
+        if (heapMap == null) {
+            return;
+        }
+
+        final BigMap<K,V> map = this.engineSupplier.get();
+        try {
+            try (WriteBatch<K,V> batch = map.batch()) {
+                for (Entry<HeapKey,V> entry : heapMap.entrySet()) {
+                    batch.set((K)entry.getKey().key, entry.getValue());
+                }
+                batch.commit();
+            }
+        } catch (RuntimeException e) {
+            try {
+                map.close();
+            } catch (IOException | RuntimeException ignored) {
+                // the original exception is more useful
+            }
+            throw e;
+        }
+        if (this.listener != null) {
+            map.setListener(this.listener);
+        }
+
+        // readers switch over as soon as the engine is set
+        this.spilledMap = map;
+        this.heapMap = null;
+        this.heapBytes = 0L;
+    }
+
+    /**
+     * The on-heap map, or null if the map has spilled (in which case the spilled map is not null).
+     */
+    Map<HeapKey,V> heapMap() {
+        this.checkIfClosed();
+
+        return this.heapMap;
+    }
+
+    HeapKey heapKey(Object key) {
+        return new HeapKey(this.keyCodec.serialize((K)key), key);
+    }
+
+    private long weigh(HeapKey key, V value) {
+        if (this.maximumBytes <= 0 || value == null) {
+            return 0L;
+        }
+        return key.bytes.length + this.valueCodec.serialize(value).length + ENTRY_OVERHEAD_BYTES;
+    }
+
+    private V heapPut(Map<HeapKey,V> heapMap, HeapKey key, V value) {
+        final V oldValue = heapMap.put(key, value);
+        this.heapBytes += this.weigh(key, value) - this.weigh(key, oldValue);
+        if ((this.maximumSize > 0 && heapMap.size() > this.maximumSize)
+                || (this.maximumBytes > 0 && this.heapBytes > this.maximumBytes)) {
+            this.spill();
+        }
+        return oldValue;
+    }
+
+    private V heapRemove(Map<HeapKey,V> heapMap, HeapKey key) {
+        final V oldValue = heapMap.remove(key);
+        this.heapBytes -= this.weigh(key, oldValue);
+        return oldValue;
+    }
+
+    /**
+     * Iterates on-heap entries as entries of the map, so that setting a value goes thru the map (and may spill it).
+     */
+    CloseableIterator<Entry<K,V>> heapIterator(Iterator<Entry<HeapKey,V>> iterator) {
+        return new CloseableIterator<Entry<K,V>>() {
+            // nothing to release on-heap, but a closed iterator is done just like any other
+            private boolean closed;
+
+            @Override
+            public boolean hasNext() {
+                return !this.closed && iterator.hasNext();
+            }
+
+            @Override
+            public void close() {
+                this.closed = true;
+            }
+
+            @Override
+            public Entry<K,V> next() {
+                if (this.closed) {
+                    throw new NoSuchElementException();
+                }
+
+                final Entry<HeapKey,V> entry = iterator.next();
+
+                return new Entry<K,V>() {
+                    @Override
+                    public K getKey() {
+                        return (K)entry.getKey().key;
+                    }
+
+                    @Override
+                    public V getValue() {
+                        return entry.getValue();
+                    }
+
+                    @Override
+                    public V setValue(V value) {
+                        return SpillingBigMap.this.put((K)entry.getKey().key, value);
+                    }
+                };
+            }
+        };
+    }
+
+    //
+    // BigObject
+    //
+
+    @Override
+    public UUID getId() {
+        return this.id;
+    }
+
+    @Override
+    public Path getPath() {
+        final BigMap<K,V> spilledMap = this.spilledMap;
+        return spilledMap != null ? spilledMap.getPath() : null;
+    }
+
+    @Override
+    public void setListener(BigObjectListener listener) {
+        this.listener = listener;
+        final BigMap<K,V> spilledMap = this.spilledMap;
+        if (spilledMap != null) {
+            spilledMap.setListener(listener);
+        }
+    }
+
+    @Override
+    public BigObjectListener getListener() {
+        return this.listener;
+    }
+
+    @Override
+    public void open() {
+        if (this.closed) {
+            this.heapMap = this.newHeapMap();
+            this.heapBytes = 0L;
+            this.closed = false;
+        }
+    }
+
+    @Override
+    public BigObjectCloser getCloser() {
+        final BigMap<K,V> spilledMap = this.spilledMap;
+        return spilledMap != null ? spilledMap.getCloser() : null;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    @Override
+    public BigObjectMetrics getMetrics() {
+        final BigMap<K,V> spilledMap = this.spilledMap;
+        return spilledMap != null ? spilledMap.getMetrics() : null;
+    }
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        final BigMap<K,V> spilledMap = this.spilledMap;
+        return spilledMap != null ? spilledMap.getEngineStats() : Collections.emptyMap();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.heapMap = null;
+        this.heapBytes = 0L;
+        final BigMap<K,V> spilledMap = this.spilledMap;
+        this.spilledMap = null;
+        if (spilledMap != null) {
+            spilledMap.close();
+        }
+    }
+
+    //
+    // BigMap
+    //
+
+    @Override
+    public ByteCodec<K> getKeyCodec() {
+        return this.keyCodec;
+    }
+
+    @Override
+    public Comparator<K> getKeyComparator() {
+        return this.keyComparator;
+    }
+
+    @Override
+    public ByteCodec<V> getValueCodec() {
+        return this.valueCodec;
+    }
+
+    @Override
+    public int size() {
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        return heapMap != null ? heapMap.size() : this.spilledMap.size();
+    }
+
+    @Override
+    public long estimatedSize() {
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        return heapMap != null ? heapMap.size() : this.spilledMap.estimatedSize();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        return heapMap != null ? heapMap.isEmpty() : this.spilledMap.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        if (heapMap == null) {
+            return this.spilledMap.containsKey(key);
+        }
+        return key != null && heapMap.containsKey(this.heapKey(key));
+    }
+
+    @Override
+    public V get(Object key) {
+        Objects.requireNonNull(key, "key was null");
+
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        return heapMap != null ? heapMap.get(this.heapKey(key)) : this.spilledMap.get(key);
+    }
+
+    /**
+     * Unlike get, the value is always a copy, since it's expected to be modified before it is put back into the map.
+     */
+    @Override
+    public MutableValue<V> getMutable(K key) {
+        final V value = this.get(key);
+        final V copy = value != null && this.heapMap != null
+            ? this.valueCodec.deserialize(this.valueCodec.serialize(value)) : value;
+        return new MapMutableValue<>(this, key, copy);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key, "key was null");
+        Objects.requireNonNull(value, "value was null");
+
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        return heapMap != null ? this.heapPut(heapMap, this.heapKey(key), value) : this.spilledMap.put(key, value);
+    }
+
+    @Override
+    public void set(K key, V value) {
+        Objects.requireNonNull(key, "key was null");
+        Objects.requireNonNull(value, "value was null");
+
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        if (heapMap != null) {
+            this.heapPut(heapMap, this.heapKey(key), value);
+        } else {
+            this.spilledMap.set(key, value);
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        Objects.requireNonNull(key, "key was null");
+
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        return heapMap != null ? this.heapRemove(heapMap, this.heapKey(key)) : this.spilledMap.remove(key);
+    }
+
+    @Override
+    public void delete(K key) {
+        Objects.requireNonNull(key, "key was null");
+
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        if (heapMap != null) {
+            this.heapRemove(heapMap, this.heapKey(key));
+        } else {
+            this.spilledMap.delete(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.checkIfClosed();
+
+        // the engine (and its scratch directory) is no longer needed
+        final BigMap<K,V> spilledMap = this.spilledMap;
+        this.heapMap = this.newHeapMap();
+        this.heapBytes = 0L;
+        this.spilledMap = null;
+        if (spilledMap != null) {
+            try {
+                spilledMap.close();
+            } catch (IOException e) {
+                throw new BigMapDataException(e);
+            }
+        }
+    }
+
+    @Override
+    public WriteBatch<K,V> batch() {
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        return heapMap != null ? new MapWriteBatch<>(this) : this.spilledMap.batch();
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        if (m == null || m.isEmpty()) {
+            return;
+        }
+
+        // spill first if the entries will not fit anyway, so they are all written to the engine in one batch
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        if (heapMap != null && this.maximumSize > 0 && heapMap.size() + m.size() > this.maximumSize) {
+            this.spill();
+        }
+
+        BigMap.super.putAll(m);
+    }
+
+    @Override
+    public CloseableIterator<Entry<K,V>> forwardIterator() {
+        final Map<HeapKey,V> heapMap = this.heapMap();
+        return heapMap != null ? this.heapIterator(heapMap.entrySet().iterator()) : this.spilledMap.forwardIterator();
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigSortedMap;
+import com.fizzed.bigmap.ByteCodec;
+import com.fizzed.bigmap.Bytes;
+import com.fizzed.bigmap.CloseableIterator;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * A {@link SpillingBigMap} of a sorted engine.  On-heap the entries are kept in a TreeMap ordered by the bytes of their
+ * serialized keys (just like the engine orders them), so iteration and range views are the same before and after the
+ * map spills.  Range views are not tied to either one, so a view taken before the map spills still works once it has.
+ */
+public class SpillingBigSortedMap<K,V> extends SpillingBigMap<K,V> implements BigSortedMap<K,V> {
+
+    public SpillingBigSortedMap(
+            Supplier<? extends BigSortedMap<K,V>> engineSupplier,
+            ByteCodec<K> keyCodec,
+            Comparator<K> keyComparator,
+            ByteCodec<V> valueCodec,
+            long maximumSize,
+            long maximumBytes) {
+
+        super(engineSupplier, keyCodec, keyComparator, valueCodec, maximumSize, maximumBytes, false);
+    }
+
+    @Override
+    protected Map<HeapKey,V> newHeapMap() {
+        return new TreeMap<>();
+    }
+
+    @Override
+    public BigSortedMap<K,V> getSpilledMap() {
+        return (BigSortedMap<K,V>)super.getSpilledMap();
+    }
+
+    int compareKeys(K a, K b) {
+        return Bytes.compare(this.getKeyCodec().serialize(a), this.getKeyCodec().serialize(b));
+    }
+
+    /**
+     * The range of the on-heap map, or null if the map has spilled.
+     * @param fromKey the lower bound (inclusive) or null if unbounded
+     * @param toKey the upper bound (exclusive) or null if unbounded
+     */
+    NavigableMap<HeapKey,V> heapRange(K fromKey, K toKey) {
+        final TreeMap<HeapKey,V> heapMap = (TreeMap<HeapKey,V>)this.heapMap();
+        if (heapMap == null) {
+            return null;
+        }
+        if (fromKey != null && toKey != null) {
+            return heapMap.subMap(this.heapKey(fromKey), true, this.heapKey(toKey), false);
+        } else if (fromKey != null) {
+            return heapMap.tailMap(this.heapKey(fromKey), true);
+        } else if (toKey != null) {
+            return heapMap.headMap(this.heapKey(toKey), false);
+        }
+        return heapMap;
+    }
+
+    /**
+     * The range of the spilled map (only once the map has spilled).
+     */
+    SortedMap<K,V> spilledRange(K fromKey, K toKey) {
+        final BigSortedMap<K,V> spilledMap = this.getSpilledMap();
+        if (fromKey != null && toKey != null) {
+            return spilledMap.subMap(fromKey, toKey);
+        } else if (fromKey != null) {
+            return spilledMap.tailMap(fromKey);
+        } else if (toKey != null) {
+            return spilledMap.headMap(toKey);
+        }
+        return spilledMap;
+    }
+
+    @Override
+    public CloseableIterator<Entry<K,V>> reverseIterator() {
+        final NavigableMap<HeapKey,V> heapMap = this.heapRange(null, null);
+        if (heapMap != null) {
+            return this.heapIterator(heapMap.descendingMap().entrySet().iterator());
+        }
+        return this.getSpilledMap().reverseIterator();
+    }
+
+    @Override
+    public K firstKey() {
+        final NavigableMap<HeapKey,V> heapMap = this.heapRange(null, null);
+        return heapMap != null ? (K)heapMap.firstKey().key : this.getSpilledMap().firstKey();
+    }
+
+    @Override
+    public K lastKey() {
+        final NavigableMap<HeapKey,V> heapMap = this.heapRange(null, null);
+        return heapMap != null ? (K)heapMap.lastKey().key : this.getSpilledMap().lastKey();
+    }
+
+    @Override
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        this.checkIfClosed();
+
+        Objects.requireNonNull(fromKey, "fromKey was null");
+        Objects.requireNonNull(toKey, "toKey was null");
+
+        if (this.compareKeys(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+
+        return new SpillingSortedSubMap<>(this, fromKey, toKey);
+    }
+
+    @Override
+    public SortedMap<K,V> headMap(K toKey) {
+        this.checkIfClosed();
+
+        Objects.requireNonNull(toKey, "toKey was null");
+
+        return new SpillingSortedSubMap<>(this, null, toKey);
+    }
+
+    @Override
+    public SortedMap<K,V> tailMap(K fromKey) {
+        this.checkIfClosed();
+
+        Objects.requireNonNull(fromKey, "fromKey was null");
+
+        return new SpillingSortedSubMap<>(this, fromKey, null);
+    }
+
+}
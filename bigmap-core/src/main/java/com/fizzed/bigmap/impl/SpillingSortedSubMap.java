@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import java.util.*;
+
+/**
+ * A range view of a {@link SpillingBigSortedMap}, which reads the same range of whichever map the entries currently
+ * live in (on-heap or spilled), and writes thru the spilling map itself.
+ */
+public class SpillingSortedSubMap<K,V> extends AbstractMap<K,V> implements SortedMap<K,V> {
+
+    private final SpillingBigSortedMap<K,V> map;
+    private final K fromKey;                // inclusive, null if unbounded
+    private final K toKey;                  // exclusive, null if unbounded
+
+    public SpillingSortedSubMap(SpillingBigSortedMap<K,V> map, K fromKey, K toKey) {
+        this.map = map;
+        this.fromKey = fromKey;
+        this.toKey = toKey;
+    }
+
+    private NavigableMap<SpillingBigMap.HeapKey,V> heapRange() {
+        return this.map.heapRange(this.fromKey, this.toKey);
+    }
+
+    private SortedMap<K,V> spilledRange() {
+        return this.map.spilledRange(this.fromKey, this.toKey);
+    }
+
+    private boolean inRange(K key) {
+        return (this.fromKey == null || this.map.compareKeys(key, this.fromKey) >= 0)
+            && (this.toKey == null || this.map.compareKeys(key, this.toKey) < 0);
+    }
+
+    private boolean inClosedRange(K key) {
+        return (this.fromKey == null || this.map.compareKeys(key, this.fromKey) >= 0)
+            && (this.toKey == null || this.map.compareKeys(key, this.toKey) <= 0);
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return this.map.comparator();
+    }
+
+    @Override
+    public int size() {
+        final NavigableMap<SpillingBigMap.HeapKey,V> heapRange = this.heapRange();
+        return heapRange != null ? heapRange.size() : this.spilledRange().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final NavigableMap<SpillingBigMap.HeapKey,V> heapRange = this.heapRange();
+        return heapRange != null ? heapRange.isEmpty() : this.spilledRange().isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Objects.requireNonNull(key, "key was null");
+
+        return this.inRange((K)key) && this.map.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        Objects.requireNonNull(key, "key was null");
+
+        return this.inRange((K)key) ? this.map.get(key) : null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key, "key was null");
+
+        if (!this.inRange(key)) {
+            throw new IllegalArgumentException("key out of range");
+        }
+
+        return this.map.put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        Objects.requireNonNull(key, "key was null");
+
+        return this.inRange((K)key) ? this.map.remove(key) : null;
+    }
+
+    @Override
+    public void clear() {
+        final NavigableMap<SpillingBigMap.HeapKey,V> heapRange = this.heapRange();
+        if (heapRange == null) {
+            // the range view of the engine deletes the keys in one batch
+            this.spilledRange().clear();
+            return;
+        }
+        for (SpillingBigMap.HeapKey key : new ArrayList<>(heapRange.keySet())) {
+            this.map.delete((K)key.key);
+        }
+    }
+
+    @Override
+    public Set<Entry<K,V>> entrySet() {
+        return new AbstractSet<Entry<K,V>>() {
+            @Override
+            public Iterator<Entry<K,V>> iterator() {
+                final NavigableMap<SpillingBigMap.HeapKey,V> heapRange = SpillingSortedSubMap.this.heapRange();
+                if (heapRange != null) {
+                    return SpillingSortedSubMap.this.map.heapIterator(heapRange.entrySet().iterator());
+                }
+                return SpillingSortedSubMap.this.spilledRange().entrySet().iterator();
+            }
+
+            @Override
+            public int size() {
+                return SpillingSortedSubMap.this.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return SpillingSortedSubMap.this.isEmpty();
+            }
+
+            @Override
+            public void clear() {
+                SpillingSortedSubMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public K firstKey() {
+        final NavigableMap<SpillingBigMap.HeapKey,V> heapRange = this.heapRange();
+        return heapRange != null ? (K)heapRange.firstKey().key : this.spilledRange().firstKey();
+    }
+
+    @Override
+    public K lastKey() {
+        final NavigableMap<SpillingBigMap.HeapKey,V> heapRange = this.heapRange();
+        return heapRange != null ? (K)heapRange.lastKey().key : this.spilledRange().lastKey();
+    }
+
+    @Override
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        Objects.requireNonNull(fromKey, "fromKey was null");
+        Objects.requireNonNull(toKey, "toKey was null");
+
+        if (this.map.compareKeys(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        if (!this.inClosedRange(fromKey)) {
+            throw new IllegalArgumentException("fromKey out of range");
+        }
+        if (!this.inClosedRange(toKey)) {
+            throw new IllegalArgumentException("toKey out of range");
+        }
+
+        return new SpillingSortedSubMap<>(this.map, fromKey, toKey);
+    }
+
+    @Override
+    public SortedMap<K,V> headMap(K toKey) {
+        Objects.requireNonNull(toKey, "toKey was null");
+
+        if (!this.inClosedRange(toKey)) {
+            throw new IllegalArgumentException("toKey out of range");
+        }
+
+        return new SpillingSortedSubMap<>(this.map, this.fromKey, toKey);
+    }
+
+    @Override
+    public SortedMap<K,V> tailMap(K fromKey) {
+        Objects.requireNonNull(fromKey, "fromKey was null");
+
+        if (!this.inClosedRange(fromKey)) {
+            throw new IllegalArgumentException("fromKey out of range");
+        }
+
+        return new SpillingSortedSubMap<>(this.map, fromKey, this.toKey);
+    }
+
+}
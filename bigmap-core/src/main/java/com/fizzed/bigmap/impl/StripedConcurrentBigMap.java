@@ -0,0 +1,614 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Makes any BigMap safe to share across threads by guarding every write with a lock picked by the hash of its key
+ * (lock striping).  Writers of different keys rarely contend with each other, while all the check-then-act operations
+ * for a single key are atomic.  Reads do not take a stripe, since every engine supports concurrent reads while it's
+ * open and the size of the map is tracked with a LongAdder.
+ *
+ * Operations across many keys (a batch commit, putAll) acquire every stripe (always in the same order), so they are
+ * atomic with respect to all other writers.
+ *
+ * Every operation also holds the read side of a lock over the lifetime of the engine, while open, close and clear
+ * (which closes and reopens the engine) hold its write side.  So no thread ever calls into an engine whose native
+ * handle is being (or has been) released.  Iterators take it for each call to hasNext/next, and once the map is
+ * cleared, closed or reopened they report no more elements (without touching the engine again).
+ */
+public class StripedConcurrentBigMap<K,V> implements ConcurrentBigMap<K,V> {
+
+    static public final int DEFAULT_CONCURRENCY_LEVEL = 64;
+
+    private final BigMap<K,V> map;
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final ReentrantReadWriteLock lifecycle;
+    private long generation;                            // bumped (under the write lock) whenever the engine is reopened
+
+    public StripedConcurrentBigMap(BigMap<K,V> map) {
+        this(map, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public StripedConcurrentBigMap(BigMap<K,V> map, int concurrencyLevel) {
+        Objects.requireNonNull(map, "map was null");
+
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be > 0");
+        }
+
+        // round up to a power of 2 so a stripe can be picked with a mask
+        int stripeCount = 1;
+        while (stripeCount < concurrencyLevel) {
+            stripeCount <<= 1;
+        }
+
+        this.map = map;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = stripeCount - 1;
+        this.lifecycle = new ReentrantReadWriteLock();
+    }
+
+    public BigMap<K,V> getMap() {
+        return this.map;
+    }
+
+    public int getConcurrencyLevel() {
+        return this.stripes.length;
+    }
+
+    private ReentrantLock stripe(Object key) {
+        Objects.requireNonNull(key, "key was null");
+
+        // byte arrays do not have a hashCode based on their contents
+        int h = key instanceof byte[] ? Arrays.hashCode((byte[])key) : key.hashCode();
+
+        // spread the higher bits down, since many hashCodes only vary in their upper bits
+        h ^= (h >>> 16);
+
+        return this.stripes[h & this.mask];
+    }
+
+    private ReentrantLock lockKey(Object key) {
+        final ReentrantLock stripe = this.stripe(key);
+        this.lifecycle.readLock().lock();
+        stripe.lock();
+        return stripe;
+    }
+
+    private void unlockKey(ReentrantLock stripe) {
+        stripe.unlock();
+        this.lifecycle.readLock().unlock();
+    }
+
+    private void lockAll() {
+        this.lifecycle.readLock().lock();
+        for (ReentrantLock stripe : this.stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = this.stripes.length - 1; i >= 0; i--) {
+            this.stripes[i].unlock();
+        }
+        this.lifecycle.readLock().unlock();
+    }
+
+    private void lockLifecycle() {
+        // the read lock cannot be upgraded, so e.g. clearing the map from inside compute() would deadlock
+        if (this.lifecycle.getReadHoldCount() > 0) {
+            throw new IllegalStateException("Map cannot be opened, closed or cleared while this thread is using it");
+        }
+        this.lifecycle.writeLock().lock();
+    }
+
+    private void unlockLifecycle() {
+        this.generation++;
+        this.lifecycle.writeLock().unlock();
+    }
+
+    //
+    // BigObject
+    //
+
+    @Override
+    public UUID getId() {
+        return this.map.getId();
+    }
+
+    @Override
+    public Path getPath() {
+        return this.map.getPath();
+    }
+
+    @Override
+    public void setListener(BigObjectListener listener) {
+        this.map.setListener(listener);
+    }
+
+    @Override
+    public BigObjectListener getListener() {
+        return this.map.getListener();
+    }
+
+    @Override
+    public void open() {
+        this.lockLifecycle();
+        try {
+            this.map.open();
+        } finally {
+            this.unlockLifecycle();
+        }
+    }
+
+    @Override
+    public BigObjectCloser getCloser() {
+        return this.map.getCloser();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.map.isClosed();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return this.map.isPersistent();
+    }
+
+    @Override
+    public BigObjectMetrics getMetrics() {
+        return this.map.getMetrics();
+    }
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        this.lifecycle.readLock().lock();
+        try {
+            return this.map.getEngineStats();
+        } finally {
+            this.lifecycle.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.lockLifecycle();
+        try {
+            this.map.close();
+        } finally {
+            this.unlockLifecycle();
+        }
+    }
+
+    //
+    // BigMap
+    //
+
+    @Override
+    public ByteCodec<K> getKeyCodec() {
+        return this.map.getKeyCodec();
+    }
+
+    @Override
+    public Comparator<K> getKeyComparator() {
+        return this.map.getKeyComparator();
+    }
+
+    @Override
+    public ByteCodec<V> getValueCodec() {
+        return this.map.getValueCodec();
+    }
+
+    @Override
+    public int size() {
+        this.lifecycle.readLock().lock();
+        try {
+            return this.map.size();
+        } finally {
+            this.lifecycle.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long estimatedSize() {
+        this.lifecycle.readLock().lock();
+        try {
+            return this.map.estimatedSize();
+        } finally {
+            this.lifecycle.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        this.lifecycle.readLock().lock();
+        try {
+            return this.map.isEmpty();
+        } finally {
+            this.lifecycle.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        this.lifecycle.readLock().lock();
+        try {
+            return this.map.containsKey(key);
+        } finally {
+            this.lifecycle.readLock().unlock();
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        this.lifecycle.readLock().lock();
+        try {
+            return this.map.get(key);
+        } finally {
+            this.lifecycle.readLock().unlock();
+        }
+    }
+
+    @Override
+    public V put(K key, V value) {
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            return this.map.put(key, value);
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public void set(K key, V value) {
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            this.map.set(key, value);
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            return this.map.remove(key);
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public void delete(K key) {
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            this.map.delete(key);
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public void clear() {
+        // the engine is closed and reopened, so every reader and writer must be excluded, not just other writers
+        this.lockLifecycle();
+        try {
+            this.map.clear();
+        } finally {
+            this.unlockLifecycle();
+        }
+    }
+
+    @Override
+    public WriteBatch<K,V> batch() {
+        final WriteBatch<K,V> batch;
+
+        this.lifecycle.readLock().lock();
+        try {
+            batch = this.map.batch();
+        } finally {
+            this.lifecycle.readLock().unlock();
+        }
+
+        return new WriteBatch<K,V>() {
+            @Override
+            public void set(K key, V value) {
+                batch.set(key, value);
+            }
+
+            @Override
+            public void delete(K key) {
+                batch.delete(key);
+            }
+
+            @Override
+            public int size() {
+                return batch.size();
+            }
+
+            @Override
+            public void commit() {
+                StripedConcurrentBigMap.this.lockAll();
+                try {
+                    batch.commit();
+                } finally {
+                    StripedConcurrentBigMap.this.unlockAll();
+                }
+            }
+
+            @Override
+            public void close() {
+                batch.close();
+            }
+        };
+    }
+
+    @Override
+    public CloseableIterator<Entry<K,V>> forwardIterator() {
+        final ReentrantReadWriteLock.ReadLock readLock = this.lifecycle.readLock();
+        final CloseableIterator<Entry<K,V>> iterator;
+        final long openedGeneration;
+
+        readLock.lock();
+        try {
+            iterator = this.map.forwardIterator();
+            openedGeneration = this.generation;
+        } finally {
+            readLock.unlock();
+        }
+
+        // the lifecycle lock is only held per call (not for the life of the iterator) so an abandoned iterator can
+        // never block a clear or close.  The next entry is read ahead by hasNext, so a clear in between hasNext and
+        // next cannot take back an entry that was promised.  Entries are re-wrapped so that setting a value is
+        // guarded by the lock of its key.
+        return new CloseableIterator<Entry<K,V>>() {
+            private Entry<K,V> nextEntry;
+
+            @Override
+            public boolean hasNext() {
+                if (this.nextEntry != null) {
+                    return true;
+                }
+                readLock.lock();
+                try {
+                    if (openedGeneration == StripedConcurrentBigMap.this.generation && iterator.hasNext()) {
+                        this.nextEntry = iterator.next();
+                    }
+                } finally {
+                    readLock.unlock();
+                }
+                return this.nextEntry != null;
+            }
+
+            @Override
+            public void close() {
+                this.nextEntry = null;
+                readLock.lock();
+                try {
+                    if (openedGeneration == StripedConcurrentBigMap.this.generation) {
+                        iterator.close();
+                    }
+                } finally {
+                    readLock.unlock();
+                }
+            }
+
+            @Override
+            public Entry<K,V> next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final Entry<K,V> entry = this.nextEntry;
+                this.nextEntry = null;
+
+                return new Entry<K,V>() {
+                    @Override
+                    public K getKey() {
+                        return entry.getKey();
+                    }
+
+                    @Override
+                    public V getValue() {
+                        return entry.getValue();
+                    }
+
+                    @Override
+                    public V setValue(V value) {
+                        return StripedConcurrentBigMap.this.put(entry.getKey(), value);
+                    }
+                };
+            }
+        };
+    }
+
+    //
+    // ConcurrentMap
+    //
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            final V oldValue = this.map.get(key);
+            if (oldValue == null) {
+                this.map.set(key, value);
+            }
+            return oldValue;
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            final V currentValue = this.map.get(key);
+            if (currentValue != null && currentValue.equals(value)) {
+                this.map.delete((K)key);
+                return true;
+            }
+            return false;
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(oldValue, "oldValue was null");
+        Objects.requireNonNull(newValue, "newValue was null");
+
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            final V currentValue = this.map.get(key);
+            if (currentValue != null && currentValue.equals(oldValue)) {
+                this.map.set(key, newValue);
+                return true;
+            }
+            return false;
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value, "value was null");
+
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            final V currentValue = this.map.get(key);
+            if (currentValue != null) {
+                this.map.set(key, value);
+            }
+            return currentValue;
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction, "mappingFunction was null");
+
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            final V currentValue = this.map.get(key);
+            if (currentValue != null) {
+                return currentValue;
+            }
+            final V newValue = mappingFunction.apply(key);
+            if (newValue != null) {
+                this.map.set(key, newValue);
+            }
+            return newValue;
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction, "remappingFunction was null");
+
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            final V currentValue = this.map.get(key);
+            if (currentValue == null) {
+                return null;
+            }
+            final V newValue = remappingFunction.apply(key, currentValue);
+            if (newValue != null) {
+                this.map.set(key, newValue);
+            } else {
+                this.map.delete(key);
+            }
+            return newValue;
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction, "remappingFunction was null");
+
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            final V currentValue = this.map.get(key);
+            final V newValue = remappingFunction.apply(key, currentValue);
+            if (newValue != null) {
+                this.map.set(key, newValue);
+            } else if (currentValue != null) {
+                this.map.delete(key);
+            }
+            return newValue;
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value, "value was null");
+        Objects.requireNonNull(remappingFunction, "remappingFunction was null");
+
+        final ReentrantLock lock = this.lockKey(key);
+        try {
+            final V currentValue = this.map.get(key);
+            final V newValue = currentValue == null ? value : remappingFunction.apply(currentValue, value);
+            if (newValue != null) {
+                this.map.set(key, newValue);
+            } else {
+                this.map.delete(key);
+            }
+            return newValue;
+        } finally {
+            this.unlockKey(lock);
+        }
+    }
+
+    @Override
+    public MutableValue<V> computeIfAbsentMutable(K key, Function<? super K, ? extends V> mappingFunction) {
+        final V value = this.computeIfAbsent(key, mappingFunction);
+        return new MapMutableValue<>(this, key, value);
+    }
+
+    @Override
+    public MutableValue<V> computeIfPresentMutable(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        final V value = this.computeIfPresent(key, remappingFunction);
+        return new MapMutableValue<>(this, key, value);
+    }
+
+}
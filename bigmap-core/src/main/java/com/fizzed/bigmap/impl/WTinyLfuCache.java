@@ -0,0 +1,332 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A bounded on-heap cache with the W-TinyLFU eviction policy.  New entries go into a small LRU "window" (1% of the
+ * maximum weight), and when they fall out of it they must be accessed more often (according to a frequency sketch)
+ * than the entry the main space would evict to be admitted.  The main space is a segmented LRU: entries on probation
+ * are promoted to the protected segment (80% of the main space) on their next access.  A burst of keys that are only
+ * read once never pushes out the keys that are read all the time, yet a new popular key is admitted quickly.
+ *
+ * Every method is synchronized on the cache itself, so callers can make compound operations atomic by synchronizing
+ * on it too.  An entry marked dirty is handed to the eviction listener before it is evicted.
+ */
+public class WTinyLfuCache<K,V> {
+
+    static private final int WINDOW = 0;
+    static private final int PROBATION = 1;
+    static private final int PROTECTED = 2;
+
+    static public class Node<K,V> {
+
+        private final K key;
+        private V value;
+        private long weight;
+        private boolean dirty;
+        private int queue;
+        private Node<K,V> prev;
+        private Node<K,V> next;
+
+        private Node(K key, V value, long weight, boolean dirty) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.dirty = dirty;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public boolean isDirty() {
+            return dirty;
+        }
+
+    }
+
+    static private class Queue<K,V> {
+
+        private final Node<K,V> head = new Node<>(null, null, 0L, false);
+        private long weight;
+
+        private Queue() {
+            this.head.prev = this.head;
+            this.head.next = this.head;
+        }
+
+        private Node<K,V> first() {
+            return this.head.next != this.head ? this.head.next : null;
+        }
+
+        private void addLast(Node<K,V> node) {
+            node.prev = this.head.prev;
+            node.next = this.head;
+            this.head.prev.next = node;
+            this.head.prev = node;
+            this.weight += node.weight;
+        }
+
+        private void remove(Node<K,V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            this.weight -= node.weight;
+        }
+
+        private void clear() {
+            this.head.prev = this.head;
+            this.head.next = this.head;
+            this.weight = 0L;
+        }
+
+    }
+
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final Consumer<Node<K,V>> evictionListener;
+    private final HashMap<Object,Node<K,V>> data;
+    private final List<Queue<K,V>> queues;
+    private final FrequencySketch sketch;
+    private long weight;
+    private long evictionCount;
+
+    public WTinyLfuCache(long maximumWeight, Consumer<Node<K,V>> evictionListener) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumWeight must be > 0");
+        }
+
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1L, maximumWeight / 100);
+        this.protectedMaximum = (maximumWeight - this.windowMaximum) * 8 / 10;
+        this.evictionListener = evictionListener;
+        this.data = new HashMap<>();
+        this.queues = new ArrayList<>(3);
+        for (int i = 0; i < 3; i++) {
+            this.queues.add(new Queue<>());
+        }
+        // sized for the number of entries as the cache fills up, so a large maximum weight costs nothing up front
+        this.sketch = new FrequencySketch(Math.min(maximumWeight, 1024L));
+    }
+
+    public long getMaximumWeight() {
+        return this.maximumWeight;
+    }
+
+    synchronized public int size() {
+        return this.data.size();
+    }
+
+    synchronized public long getWeight() {
+        return this.weight;
+    }
+
+    synchronized public long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    /**
+     * Gets the value of the key (recording the access) or null if it is not cached.
+     */
+    synchronized public V get(Object key) {
+        this.sketch.increment(key.hashCode());
+
+        final Node<K,V> node = this.data.get(key);
+        if (node == null) {
+            return null;
+        }
+
+        this.onAccess(node);
+        return node.value;
+    }
+
+    /**
+     * Whether the key is cached, without recording an access.
+     */
+    synchronized public boolean containsKey(Object key) {
+        return this.data.containsKey(key);
+    }
+
+    /**
+     * Caches the value, replacing any existing value for the key.
+     */
+    synchronized public void put(K key, V value, long weight, boolean dirty) {
+        this.sketch.increment(key.hashCode());
+
+        this.insert(key, value, weight, dirty);
+    }
+
+    /**
+     * Caches the value only if the key is not already cached (e.g. a value just loaded from the underlying map after
+     * a miss, whose access was already recorded by the get).
+     */
+    synchronized public void putIfAbsent(K key, V value, long weight) {
+        if (!this.data.containsKey(key)) {
+            this.insert(key, value, weight, false);
+        }
+    }
+
+    private void insert(K key, V value, long weight, boolean dirty) {
+        final Node<K,V> node = this.data.get(key);
+        if (node != null) {
+            this.queues.get(node.queue).remove(node);
+            this.weight -= node.weight;
+            node.value = value;
+            node.weight = weight;
+            node.dirty = dirty;
+            this.queues.get(node.queue).addLast(node);
+            this.weight += weight;
+            this.onAccess(node);
+        } else {
+            final Node<K,V> newNode = new Node<>(key, value, weight, dirty);
+            newNode.queue = WINDOW;
+            this.data.put(key, newNode);
+            this.queues.get(WINDOW).addLast(newNode);
+            this.weight += weight;
+            this.sketch.ensureCapacity(this.data.size());
+        }
+
+        this.evict();
+    }
+
+    /**
+     * Removes the key from the cache (without notifying the eviction listener).
+     * @return the removed node or null if the key was not cached
+     */
+    synchronized public Node<K,V> remove(Object key) {
+        final Node<K,V> node = this.data.remove(key);
+        if (node != null) {
+            this.queues.get(node.queue).remove(node);
+            this.weight -= node.weight;
+        }
+        return node;
+    }
+
+    /**
+     * Removes every entry (without notifying the eviction listener).
+     */
+    synchronized public void clear() {
+        this.data.clear();
+        for (Queue<K,V> queue : this.queues) {
+            queue.clear();
+        }
+        this.weight = 0L;
+    }
+
+    synchronized public List<Node<K,V>> getDirtyNodes() {
+        final List<Node<K,V>> nodes = new ArrayList<>();
+        for (Node<K,V> node : this.data.values()) {
+            if (node.dirty) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    synchronized public void markClean(Node<K,V> node) {
+        node.dirty = false;
+    }
+
+    private void onAccess(Node<K,V> node) {
+        switch (node.queue) {
+            case WINDOW:
+            case PROTECTED:
+                this.queues.get(node.queue).remove(node);
+                this.queues.get(node.queue).addLast(node);
+                break;
+            case PROBATION:
+                // a second access earns a place in the protected segment, which may push its oldest entry back
+                this.queues.get(PROBATION).remove(node);
+                node.queue = PROTECTED;
+                this.queues.get(PROTECTED).addLast(node);
+                while (this.queues.get(PROTECTED).weight > this.protectedMaximum) {
+                    final Node<K,V> demoted = this.queues.get(PROTECTED).first();
+                    this.queues.get(PROTECTED).remove(demoted);
+                    demoted.queue = PROBATION;
+                    this.queues.get(PROBATION).addLast(demoted);
+                }
+                break;
+        }
+    }
+
+    private void evict() {
+        // entries that fall out of the window must be accessed more often than the victim of the main space to be
+        // admitted, otherwise the candidate itself is evicted
+        while (this.queues.get(WINDOW).weight > this.windowMaximum) {
+            final Node<K,V> candidate = this.queues.get(WINDOW).first();
+            this.queues.get(WINDOW).remove(candidate);
+            candidate.queue = PROBATION;
+
+            if (this.weight > this.maximumWeight) {
+                final Node<K,V> victim = this.mainVictim();
+                if (victim != null) {
+                    final int candidateFrequency = this.sketch.frequency(candidate.key.hashCode());
+                    final int victimFrequency = this.sketch.frequency(victim.key.hashCode());
+                    if (candidateFrequency <= victimFrequency) {
+                        this.evictNode(candidate);
+                        continue;
+                    }
+                    this.evictNode(victim);
+                }
+            }
+
+            this.queues.get(PROBATION).addLast(candidate);
+        }
+
+        // an entry heavier than the window (or a victim lighter than its candidate) can still leave the cache too heavy
+        while (this.weight > this.maximumWeight) {
+            Node<K,V> victim = this.mainVictim();
+            if (victim == null) {
+                victim = this.queues.get(WINDOW).first();
+            }
+            if (victim == null) {
+                break;
+            }
+            this.evictNode(victim);
+        }
+    }
+
+    private Node<K,V> mainVictim() {
+        final Node<K,V> victim = this.queues.get(PROBATION).first();
+        return victim != null ? victim : this.queues.get(PROTECTED).first();
+    }
+
+    private void evictNode(Node<K,V> node) {
+        if (node.prev != null) {
+            this.queues.get(node.queue).remove(node);
+        }
+        this.data.remove(node.key);
+        this.weight -= node.weight;
+        this.evictionCount++;
+
+        if (node.dirty && this.evictionListener != null) {
+            this.evictionListener.accept(node);
+            node.dirty = false;
+        }
+    }
+
+}
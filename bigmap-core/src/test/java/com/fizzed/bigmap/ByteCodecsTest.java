@@ -15,19 +15,28 @@
  */
 package com.fizzed.bigmap;
 
+import com.fizzed.bigmap.impl.ByteBufferCodecAdapter;
+import com.fizzed.bigmap.impl.ScratchBuffer;
 import com.fizzed.crux.util.Base16;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 public class ByteCodecsTest {
  
@@ -127,5 +136,227 @@ public class ByteCodecsTest {
         assertThat(c.serialize(i1), is(Base16.decode("aced00057372000d6a6176612e74696d652e536572955d84ba1b2248b20c00007870770d02000000006360700b1b2e020078")));
         assertThat(c.deserialize(Base16.decode("aced00057372000d6a6176612e74696d652e536572955d84ba1b2248b20c00007870770d02000000006360700b1b2e020078")), is(i1));
     }
-    
-}
\ No newline at end of file
+
+    static private <T> void assertOrderPreserved(ByteCodec<T> c, T... values) {
+        assertThat(c.isOrderPreserving(), is(true));
+
+        for (int i = 0; i < values.length; i++) {
+            final byte[] bytes = c.serialize(values[i]);
+
+            assertThat(c.deserialize(bytes), is(values[i]));
+
+            if (i > 0) {
+                assertThat("expected " + values[i-1] + " < " + values[i],
+                    Bytes.compare(c.serialize(values[i-1]), bytes), lessThan(0));
+            }
+        }
+    }
+
+    @Test
+    public void resolveOrderPreservingCodec() {
+        assertThat(ByteCodecs.resolveOrderPreservingCodec(String.class).isOrderPreserving(), is(true));
+        assertThat(ByteCodecs.resolveOrderPreservingCodec(Integer.class).isOrderPreserving(), is(true));
+        assertThat(ByteCodecs.resolveOrderPreservingCodec(Long.class).isOrderPreserving(), is(true));
+        assertThat(ByteCodecs.resolveOrderPreservingCodec(Double.class).isOrderPreserving(), is(true));
+        assertThat(ByteCodecs.resolveOrderPreservingCodec(UUID.class).isOrderPreserving(), is(true));
+        assertThat(ByteCodecs.resolveOrderPreservingCodec(Instant.class).isOrderPreserving(), is(true));
+        assertThat(ByteCodecs.resolveCodec(String.class).isOrderPreserving(), is(false));
+        // the default codecs are unchanged
+        assertThat(ByteCodecs.resolveCodec(Integer.class).isOrderPreserving(), is(false));
+        assertThat(ByteCodecs.resolveCodec(Instant.class).isOrderPreserving(), is(false));
+    }
+
+    @Test
+    public void sortableIntegerCodecs() {
+        assertOrderPreserved(ByteCodecs.sortableByteCodec(), Byte.MIN_VALUE, (byte)-1, (byte)0, (byte)1, Byte.MAX_VALUE);
+        assertOrderPreserved(ByteCodecs.sortableShortCodec(), Short.MIN_VALUE, (short)-256, (short)-1, (short)0, (short)1, (short)256, Short.MAX_VALUE);
+        assertOrderPreserved(ByteCodecs.sortableIntegerCodec(), Integer.MIN_VALUE, -65536, -1, 0, 1, 65536, Integer.MAX_VALUE);
+        assertOrderPreserved(ByteCodecs.sortableLongCodec(), Long.MIN_VALUE, -4294967296L, -1L, 0L, 1L, 4294967296L, Long.MAX_VALUE);
+
+        assertThat(ByteCodecs.sortableIntegerCodec().serialize(0), is(Base16.decode("80000000")));
+        assertThat(ByteCodecs.sortableIntegerCodec().serialize(-1), is(Base16.decode("7FFFFFFF")));
+    }
+
+    @Test
+    public void sortableFloatingPointCodecs() {
+        assertOrderPreserved(ByteCodecs.sortableFloatCodec(),
+            Float.NEGATIVE_INFINITY, -Float.MAX_VALUE, -1.5f, -Float.MIN_VALUE, -0.0f, 0.0f, Float.MIN_VALUE, 1.5f,
+            Float.MAX_VALUE, Float.POSITIVE_INFINITY, Float.NaN);
+        assertOrderPreserved(ByteCodecs.sortableDoubleCodec(),
+            Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -1.5d, -Double.MIN_VALUE, -0.0d, 0.0d, Double.MIN_VALUE, 1.5d,
+            Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NaN);
+    }
+
+    @Test
+    public void sortableUuidCodec() {
+        final UUID[] uuids = new UUID[] {
+            new UUID(Long.MIN_VALUE, 5L),
+            new UUID(-1L, Long.MIN_VALUE),
+            new UUID(-1L, 0L),
+            new UUID(0L, -1L),
+            new UUID(0L, 0L),
+            UUID.fromString("5ad6fd2c-7a7f-4c6a-b6a1-8fd8f3b4ad10"),
+            new UUID(Long.MAX_VALUE, Long.MAX_VALUE),
+        };
+
+        // uuids compare their bits as signed longs
+        Arrays.sort(uuids);
+
+        assertOrderPreserved(ByteCodecs.sortableUuidCodec(), uuids);
+    }
+
+    @Test
+    public void sortableInstantCodec() {
+        assertOrderPreserved(ByteCodecs.sortableInstantCodec(),
+            Instant.parse("1900-01-01T00:00:00.000Z"),
+            Instant.parse("1969-12-31T23:59:59.999Z"),
+            Instant.EPOCH,
+            Instant.parse("2022-11-01T01:02:03.456Z"),
+            Instant.parse("2022-11-01T01:02:03.457Z"),
+            Instant.parse("2022-11-01T01:02:04Z"));
+    }
+
+    @Test
+    public void sortableStringCodec() {
+        assertOrderPreserved(ByteCodecs.sortableStringCodec(), "", "\u0000", "a", "ab", "b", "\u00e9", "€",
+            "\uD83D\uDE00", "\uE000", "\uFFFD");
+
+        // the same bytes as utf-8 unless there are surrogate pairs
+        assertThat(ByteCodecs.sortableStringCodec().serialize("hello €"), is("hello €".getBytes(StandardCharsets.UTF_8)));
+        assertThat(ByteCodecs.sortableStringCodec().serialize("\uD83D\uDE00"), is(Base16.decode("eda0bdedb880")));
+
+        // utf-8 sorts a surrogate pair after U+E000 to U+FFFF, unlike String.compareTo
+        assertThat("\uD83D\uDE00".compareTo("\uFFFD"), lessThan(0));
+        assertThat(Bytes.compare(ByteCodecs.utf8StringCodec().serialize("\uD83D\uDE00"),
+            ByteCodecs.utf8StringCodec().serialize("\uFFFD")), greaterThan(0));
+        assertThat(ByteCodecs.utf8StringCodec().isOrderPreserving(), is(false));
+
+        // a lone surrogate survives the round trip too
+        assertThat(ByteCodecs.sortableStringCodec().deserialize(ByteCodecs.sortableStringCodec().serialize("a\uD83D")), is("a\uD83D"));
+
+        assertByteBufferRoundTrip(ByteCodecs.sortableStringCodec(), "hello \uD83D\uDE00 €");
+    }
+
+    @Test
+    public void terminatedSortableStringCodec() {
+        assertOrderPreserved(ByteCodecs.terminatedSortableStringCodec(), "", "\u0000", "\u0000a", "a", "a\u0000", "ab", "b", "€",
+            "\uD83D\uDE00", "\uFFFD");
+
+        assertThat(ByteCodecs.terminatedSortableStringCodec().serialize("a"), is(Base16.decode("610001")));
+    }
+
+    @Test
+    public void tupleCodec() {
+        final ByteCodec<List<Object>> c = ByteCodecs.tupleCodec(
+            ByteCodecs.sortableStringCodec(), ByteCodecs.sortableLongCodec());
+
+        assertOrderPreserved(c,
+            Arrays.asList("", 5L),
+            Arrays.asList("a", -1L),
+            Arrays.asList("a", 0L),
+            Arrays.asList("a", 255L),
+            Arrays.asList("a\u0000", -5L),
+            Arrays.asList("ab", Long.MIN_VALUE),
+            Arrays.asList("b", 0L));
+
+        try {
+            c.serialize(Arrays.asList("a"));
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // a tuple is only order preserving if all its elements are
+        assertThat(ByteCodecs.tupleCodec(ByteCodecs.utf8StringCodec(), ByteCodecs.longCodec()).isOrderPreserving(), is(false));
+    }
+
+    static private <T> void assertByteBufferRoundTrip(ByteCodec<T> codec, T value) {
+        final ByteBufferCodec<T> c = ByteCodecs.toByteBufferCodec(codec);
+
+        final ByteBuffer buffer = ScratchBuffer.KEY.serialize(c, value);
+
+        // the buffer must contain exactly the same bytes as the byte array codec
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+
+        assertThat(bytes, is(codec.serialize(value)));
+        assertThat(c.deserialize(buffer), is(value));
+    }
+
+    @Test
+    public void toByteBufferCodec() {
+        assertThat(ByteCodecs.toByteBufferCodec(ByteCodecs.integerCodec()), instanceOf(ByteBufferCodec.class));
+        assertThat(ByteCodecs.toByteBufferCodec(ByteCodecs.integerCodec()), not(instanceOf(ByteBufferCodecAdapter.class)));
+        assertThat(ByteCodecs.toByteBufferCodec(ByteCodecs.shortCodec()), instanceOf(ByteBufferCodecAdapter.class));
+
+        assertByteBufferRoundTrip(ByteCodecs.integerCodec(), -5);
+        assertByteBufferRoundTrip(ByteCodecs.longCodec(), Long.MIN_VALUE);
+        assertByteBufferRoundTrip(ByteCodecs.sortableIntegerCodec(), -5);
+        assertByteBufferRoundTrip(ByteCodecs.sortableLongCodec(), 7L);
+        assertByteBufferRoundTrip(ByteCodecs.utf8StringCodec(), "hello €");
+        assertByteBufferRoundTrip(ByteCodecs.shortCodec(), (short)-2);
+        assertByteBufferRoundTrip(ByteCodecs.byteArrayCodec(), Base16.decode("0001020304050607"));
+        assertByteBufferRoundTrip(new SerializableByteCodec<>(), Instant.parse("2022-11-01T01:02:03.456Z"));
+    }
+
+    @Test
+    public void toByteBufferCodecRejectsWrongLength() {
+        final ByteBufferCodec<Integer> ints = (ByteBufferCodec<Integer>)ByteCodecs.integerCodec();
+        final ByteBufferCodec<Long> longs = (ByteBufferCodec<Long>)ByteCodecs.longCodec();
+
+        try {
+            ints.deserialize(ByteBuffer.wrap(Longs.toByteArray(1L)));
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            ints.deserialize(ByteBuffer.wrap(new byte[] { 1, 2 }));
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            ints.deserialize(new byte[] { 1, 2 });
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            longs.deserialize(ByteBuffer.wrap(Ints.toByteArray(1)));
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void scratchBufferGrows() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append((char)('a' + (i % 26)));
+        }
+        final String value = sb.toString();
+
+        // the initial key buffer is much smaller than this value
+        assertByteBufferRoundTrip(ByteCodecs.utf8StringCodec(), value);
+        assertByteBufferRoundTrip(ByteCodecs.byteArrayCodec(), value.getBytes(StandardCharsets.UTF_8));
+
+        // the default byte array serialize of a buffer codec goes through a scratch buffer too
+        final ByteBufferCodec<String> c = (ByteBufferCodec<String>)ByteCodecs.utf8StringCodec();
+        final ByteBuffer buffer = ByteBuffer.allocate(16);
+        c.serialize("abc", buffer);
+        buffer.flip();
+
+        assertThat(c.deserialize(buffer), is("abc"));
+    }
+
+}
@@ -22,6 +22,35 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 
 public class BytesTest {
+
+    @Test
+    public void compare() {
+        assertThat(Bytes.compare(Base16.decode(""), Base16.decode("")), is(0));
+        assertThat(Bytes.compare(Base16.decode("0102"), Base16.decode("0102")), is(0));
+        assertThat(Bytes.compare(Base16.decode("01"), Base16.decode("0102")) < 0, is(true));
+        assertThat(Bytes.compare(Base16.decode("0102"), Base16.decode("01")) > 0, is(true));
+        assertThat(Bytes.compare(Base16.decode("0103"), Base16.decode("0201")) < 0, is(true));
+        // bytes are compared as unsigned
+        assertThat(Bytes.compare(Base16.decode("7F"), Base16.decode("80")) < 0, is(true));
+        assertThat(Bytes.compare(Base16.decode("FF"), Base16.decode("00")) > 0, is(true));
+    }
+
+    @Test
+    public void midpoint() {
+        assertThat(Bytes.midpoint(Base16.decode("61"), Base16.decode("63")), is(Base16.decode("6200")));
+        assertThat(Bytes.midpoint(Base16.decode("61"), Base16.decode("62")), is(Base16.decode("6180")));
+        // a shorter array is padded with zeros
+        assertThat(Bytes.midpoint(Base16.decode("00"), Base16.decode("0102")), is(Base16.decode("008100")));
+        // carries across bytes
+        assertThat(Bytes.midpoint(Base16.decode("FF"), Base16.decode("FF")), is(Base16.decode("FF00")));
+        assertThat(Bytes.midpoint(Base16.decode("01FF"), Base16.decode("0201")), is(Base16.decode("020000")));
+
+        final byte[] a = Base16.decode("0A0B");
+        final byte[] b = Base16.decode("F0");
+        final byte[] midpoint = Bytes.midpoint(a, b);
+        assertThat(Bytes.compare(a, midpoint) < 0, is(true));
+        assertThat(Bytes.compare(midpoint, b) < 0, is(true));
+    }
  
     @Test
     public void startsWith() {
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class CompressingByteCodecTest {
+
+    static private String item(int i) {
+        return "{\"id\":" + i + ",\"name\":\"item-" + i + "\",\"description\":\"a description of item " + i
+            + " that is mostly the same text\",\"status\":\"ACTIVE\",\"tags\":[\"red\",\"green\",\"blue\"]}";
+    }
+
+    @Test
+    public void nulls() {
+        final CompressingByteCodec<String> codec = new CompressingByteCodec<>(ByteCodecs.utf8StringCodec());
+
+        assertThat(codec.serialize(null), is(ByteCodecs.ZERO_BYTES));
+        assertThat(codec.deserialize(null), is(nullValue()));
+        assertThat(codec.serialize(""), is(ByteCodecs.ZERO_BYTES));
+    }
+
+    @Test
+    public void smallValuesAreRaw() {
+        final CompressingByteCodec<String> codec = new CompressingByteCodec<>(ByteCodecs.utf8StringCodec());
+
+        final byte[] bytes = codec.serialize("hello");
+
+        assertThat(bytes.length, is(6));
+        assertThat(bytes[0], is(CompressingByteCodec.METHOD_RAW));
+        assertThat(codec.deserialize(bytes), is("hello"));
+    }
+
+    @Test
+    public void largeValuesAreDeflated() {
+        final CompressingByteCodec<String> codec = new CompressingByteCodec<>(ByteCodecs.utf8StringCodec());
+
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append(item(i));
+        }
+        final String value = sb.toString();
+        final byte[] bytes = codec.serialize(value);
+
+        assertThat(bytes[0], is(CompressingByteCodec.METHOD_DEFLATE));
+        assertThat(bytes.length, lessThan(value.length() / 5));
+        assertThat(codec.deserialize(bytes), is(value));
+    }
+
+    @Test
+    public void incompressibleValuesAreRaw() {
+        final CompressingByteCodec<byte[]> codec = new CompressingByteCodec<>(ByteCodecs.byteArrayCodec());
+
+        final byte[] value = new byte[1000];
+        new Random(1L).nextBytes(value);
+        final byte[] bytes = codec.serialize(value);
+
+        assertThat(bytes.length, is(value.length + 1));
+        assertThat(bytes[0], is(CompressingByteCodec.METHOD_RAW));
+        assertThat(codec.deserialize(bytes), is(value));
+    }
+
+    @Test
+    public void dictionary() {
+        final ByteCodec<String> stringCodec = ByteCodecs.utf8StringCodec();
+
+        final List<String> samples = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            samples.add(item(i));
+        }
+
+        final byte[] dictionary = CompressingByteCodec.trainDictionary(stringCodec, samples, 1000, 4096);
+
+        assertThat(dictionary.length, greaterThan(0));
+        assertThat(dictionary.length, lessThan(4097));
+
+        final CompressingByteCodec<String> codec = new CompressingByteCodec<>(stringCodec);
+        final CompressingByteCodec<String> dictionaryCodec = new CompressingByteCodec<>(stringCodec, dictionary);
+
+        final String value = item(1234);
+        final byte[] bytes = codec.serialize(value);
+        final byte[] dictionaryBytes = dictionaryCodec.serialize(value);
+
+        assertThat(dictionaryCodec.hasDictionary(), is(true));
+        assertThat(dictionaryBytes.length, lessThan(bytes.length / 2));
+        assertThat(dictionaryCodec.deserialize(dictionaryBytes), is(value));
+        // values without a dictionary are still readable
+        assertThat(dictionaryCodec.deserialize(bytes), is(value));
+
+        try {
+            codec.deserialize(dictionaryBytes);
+            fail();
+        } catch (BigMapDataException e) {
+            // expected
+        }
+
+        try {
+            new CompressingByteCodec<>(stringCodec, "another dictionary".getBytes()).deserialize(dictionaryBytes);
+            fail();
+        } catch (BigMapDataException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void nothingInCommon() {
+        final List<byte[]> samples = new ArrayList<>();
+        final Random random = new Random(1L);
+        for (int i = 0; i < 10; i++) {
+            final byte[] sample = new byte[100];
+            random.nextBytes(sample);
+            samples.add(sample);
+        }
+
+        assertThat(CompressingByteCodec.trainDictionary(samples, 1024).length, is(0));
+    }
+
+    @Test
+    public void unsupportedMethod() {
+        final CompressingByteCodec<String> codec = new CompressingByteCodec<>(ByteCodecs.utf8StringCodec());
+
+        try {
+            codec.deserialize(new byte[] { 9, 1, 2, 3 });
+            fail();
+        } catch (BigMapDataException e) {
+            // expected
+        }
+    }
+
+}
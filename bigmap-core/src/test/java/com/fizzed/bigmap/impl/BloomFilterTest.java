@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class BloomFilterTest {
+
+    @Test
+    public void sizing() {
+        final BloomFilter filter = new BloomFilter(1000, 0.01d);
+
+        // ~9.6 bits per key and ~7 hashes for a 1% false positive rate
+        assertThat(filter.getBitCount(), is(9600L));
+        assertThat(filter.getHashCount(), is(7));
+    }
+
+    @Test
+    public void neverFalseNegatives() {
+        final BloomFilter filter = new BloomFilter(10000, 0.01d);
+
+        for (int i = 0; i < 10000; i++) {
+            filter.put(("key" + i).getBytes(StandardCharsets.UTF_8));
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            assertThat(filter.mightContain(("key" + i).getBytes(StandardCharsets.UTF_8)), is(true));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain(("other" + i).getBytes(StandardCharsets.UTF_8))) {
+                falsePositives++;
+            }
+        }
+
+        // should be ~1%, but leave plenty of room
+        assertThat(falsePositives, lessThan(300));
+    }
+
+    @Test
+    public void byteBuffersMatchByteArrays() {
+        final BloomFilter filter = new BloomFilter(100, 0.01d);
+        final byte[] keyBytes = "hello".getBytes(StandardCharsets.UTF_8);
+
+        final ByteBuffer keyBuffer = ByteBuffer.allocateDirect(16);
+        keyBuffer.put((byte)0);
+        keyBuffer.put(keyBytes);
+        keyBuffer.flip();
+        keyBuffer.position(1);
+
+        assertThat(filter.mightContain(keyBuffer), is(false));
+
+        filter.put(keyBytes);
+
+        assertThat(filter.mightContain(keyBuffer), is(true));
+        // the buffer is left untouched
+        assertThat(keyBuffer.position(), is(1));
+
+        filter.clear();
+
+        assertThat(filter.mightContain(keyBytes), is(false));
+    }
+
+}
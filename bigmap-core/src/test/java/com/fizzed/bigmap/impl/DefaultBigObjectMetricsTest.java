@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.BigObjectMetrics.Operation;
+import com.fizzed.bigmap.OperationMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class DefaultBigObjectMetricsTest {
+
+    @Test
+    public void histogramPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.getPercentile(0.99d), is(0L));
+
+        for (int i = 0; i < 98; i++) {
+            histogram.record(100L);         // bucket [64, 127]
+        }
+        histogram.record(1000L);            // bucket [512, 1023]
+        histogram.record(5000L);            // bucket [4096, 8191]
+
+        assertThat(histogram.getCount(), is(100L));
+        assertThat(histogram.getPercentile(0.50d), is(127L));
+        assertThat(histogram.getPercentile(0.99d), is(1023L));
+        // never more than the max actually recorded
+        assertThat(histogram.getPercentile(1.0d), is(5000L));
+        assertThat(histogram.getMax(), is(5000L));
+
+        histogram.clear();
+
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMax(), is(0L));
+    }
+
+    @Test
+    public void recordsByOperation() {
+        final DefaultBigObjectMetrics metrics = new DefaultBigObjectMetrics();
+
+        metrics.record(Operation.GET, 100L, 40L, 0L, 10L);
+        metrics.record(Operation.GET, 300L, 60L, 0L, 0L);
+        metrics.record(Operation.SET, 200L, 50L, 25L, 0L);
+
+        final Map<Operation,OperationMetrics> operations = metrics.getOperations();
+
+        assertThat(operations.size(), is(2));
+
+        final OperationMetrics get = operations.get(Operation.GET);
+        assertThat(get.getCount(), is(2L));
+        assertThat(get.getTotalNanos(), is(400L));
+        assertThat(get.getCodecNanos(), is(100L));
+        assertThat(get.getEngineNanos(), is(300L));
+        assertThat(get.getMeanNanos(), is(200L));
+        assertThat(get.getBytesRead(), is(10L));
+        assertThat(get.getMaxNanos(), is(300L));
+
+        final OperationMetrics set = operations.get(Operation.SET);
+        assertThat(set.getCount(), is(1L));
+        assertThat(set.getBytesWritten(), is(25L));
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ResourceCleanerTest {
+
+    @Test
+    public void cleanRunsOnce() {
+        final ResourceCleaner cleaner = new ResourceCleaner("ResourceCleanerTest-cleanRunsOnce");
+        final AtomicInteger released = new AtomicInteger();
+        final Object owner = new Object();
+
+        final ResourceCleaner.Cleanable cleanable = cleaner.register(owner, released::incrementAndGet);
+
+        assertThat(cleaner.getRegisteredCount(), is(1));
+
+        cleanable.clean();
+        cleanable.clean();
+
+        assertThat(released.get(), is(1));
+        assertThat(cleaner.getRegisteredCount(), is(0));
+    }
+
+    @Test
+    public void cleanOnceUnreachable() throws Exception {
+        final ResourceCleaner cleaner = new ResourceCleaner("ResourceCleanerTest-cleanOnceUnreachable");
+        final AtomicInteger released = new AtomicInteger();
+
+        cleaner.register(new Object(), released::incrementAndGet);
+
+        // the gc is only a hint, so give it a few chances
+        for (int i = 0; i < 50 && released.get() == 0; i++) {
+            System.gc();
+            Thread.sleep(20L);
+        }
+
+        assertThat(released.get(), is(1));
+        assertThat(cleaner.getRegisteredCount(), is(0));
+    }
+
+}
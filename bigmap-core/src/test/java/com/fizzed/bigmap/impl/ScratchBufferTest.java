@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import com.fizzed.bigmap.ByteBufferCodec;
+import com.fizzed.bigmap.ByteCodec;
+import com.fizzed.bigmap.ByteCodecs;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ScratchBufferTest {
+
+    @Test
+    public void adaptedCodecSerializesOnce() {
+        final ScratchBuffer scratch = new ScratchBuffer(16);
+        final AtomicInteger serializations = new AtomicInteger();
+        final ByteCodec<byte[]> codec = new ByteCodec<byte[]>() {
+            @Override
+            public byte[] serialize(byte[] value) {
+                serializations.incrementAndGet();
+                return value;
+            }
+
+            @Override
+            public byte[] deserialize(byte[] bytes) {
+                return bytes;
+            }
+        };
+
+        final byte[] value = new byte[1000];
+        value[999] = 7;
+
+        final ByteBuffer buffer = scratch.serialize(ByteCodecs.toByteBufferCodec(codec), value);
+
+        assertThat(serializations.get(), is(1));
+        assertThat(buffer.remaining(), is(1000));
+        assertThat(buffer.get(999), is((byte)7));
+    }
+
+    @Test
+    public void nativeCodecGrowsUntilValueFits() {
+        final ScratchBuffer scratch = new ScratchBuffer(2);
+        final ByteBufferCodec<Long> codec = ByteCodecs.toByteBufferCodec(ByteCodecs.longCodec());
+
+        final ByteBuffer buffer = scratch.serialize(codec, 5L);
+
+        assertThat(buffer.remaining(), is(8));
+        assertThat(codec.deserialize(buffer), is(5L));
+        // the grown buffer is kept for the next call
+        assertThat(scratch.get(), sameInstance(buffer));
+    }
+
+    @Test
+    public void largeBufferNotRetained() {
+        final ScratchBuffer scratch = new ScratchBuffer(16, 64);
+        final ByteBuffer initial = scratch.get();
+
+        final ByteBuffer large = scratch.serialize(new byte[100]);
+
+        assertThat(large.remaining(), is(100));
+        assertThat(large, not(sameInstance(initial)));
+        assertThat(scratch.get(), sameInstance(initial));
+
+        // a buffer that's within the maximum replaces the thread's buffer
+        final ByteBuffer grown = scratch.grow(40);
+
+        assertThat(grown.capacity(), is(64));
+        assertThat(scratch.get(), sameInstance(grown));
+    }
+
+}
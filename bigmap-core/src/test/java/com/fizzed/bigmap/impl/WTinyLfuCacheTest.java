@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class WTinyLfuCacheTest {
+
+    @Test
+    public void boundedByWeight() {
+        final WTinyLfuCache<Integer,String> cache = new WTinyLfuCache<>(100L, null);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "v" + i, 1L, false);
+        }
+
+        assertThat(cache.size(), is(100));
+        assertThat(cache.getWeight(), is(100L));
+        assertThat(cache.getEvictionCount(), is(900L));
+
+        // an entry heavier than the cache never stays
+        cache.put(-1, "heavy", 101L, false);
+
+        assertThat(cache.get(-1), is(nullValue()));
+        assertThat(cache.getWeight() <= 100L, is(true));
+    }
+
+    @Test
+    public void scanResistant() {
+        final WTinyLfuCache<Integer,String> cache = new WTinyLfuCache<>(100L, null);
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 20; i++) {
+                if (cache.get(i) == null) {
+                    cache.putIfAbsent(i, "hot" + i, 1L);
+                }
+            }
+        }
+
+        // a scan of keys that are each read once
+        for (int i = 1000; i < 1500; i++) {
+            if (cache.get(i) == null) {
+                cache.putIfAbsent(i, "cold" + i, 1L);
+            }
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(cache.containsKey(i), is(true));
+        }
+    }
+
+    @Test
+    public void dirtyEntriesHandedToListenerOnEviction() {
+        final List<Integer> evicted = new ArrayList<>();
+        final WTinyLfuCache<Integer,String> cache = new WTinyLfuCache<>(2L, node -> evicted.add(node.getKey()));
+
+        for (int i = 0; i < 10; i++) {
+            // only the dirty (even) entries are handed over
+            cache.put(i, "v" + i, 1L, i % 2 == 0);
+        }
+
+        assertThat(cache.size(), is(2));
+
+        final Set<Integer> dirtyKeys = new HashSet<>(evicted);
+        for (WTinyLfuCache.Node<Integer,String> node : cache.getDirtyNodes()) {
+            dirtyKeys.add(node.getKey());
+        }
+
+        assertThat(evicted.size(), is(10 / 2 - cache.getDirtyNodes().size()));
+        assertThat(dirtyKeys, containsInAnyOrder(0, 2, 4, 6, 8));
+    }
+
+}
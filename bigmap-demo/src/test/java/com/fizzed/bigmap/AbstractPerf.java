@@ -19,6 +19,7 @@ import com.fizzed.bigmap.kryo.KryoByteCodec;
 import com.fizzed.bigmap.leveldb.LevelBigMapBuilder;
 import com.fizzed.bigmap.rocksdb.RocksBigLinkedMapBuilder;
 import com.fizzed.bigmap.rocksdb.RocksBigMapBuilder;
+import com.fizzed.bigmap.rocksdb.RocksSharedDatabase;
 import com.fizzed.bigmap.tokyocabinet.TokyoBigMapBuilder;
 import com.fizzed.crux.util.StopWatch;
 import org.jetbrains.annotations.NotNull;
@@ -65,6 +66,17 @@ public class AbstractPerf {
                     .setKeyType(String.class, stringByteCodec)
                     .setValueType(Item.class, itemByteCodec)
                     .build();
+            case "RocksSharedBigMap": {
+                // every map is a column family of one database
+                RocksSharedDatabase sharedDatabase = (RocksSharedDatabase) ENGINE_STATICS.computeIfAbsent("rocks-shared",
+                    k -> new RocksSharedDatabase(Paths.get("target")));
+                return new RocksBigMapBuilder<String,Item>()
+                    .setScratchDirectory(Paths.get("target"))
+                    .setKeyType(String.class, stringByteCodec)
+                    .setValueType(Item.class, itemByteCodec)
+                    .setSharedDatabase(sharedDatabase)
+                    .build();
+            }
             case "RocksBigLinkedMap":
                 return new RocksBigLinkedMapBuilder<String,Item>()
                     .setScratchDirectory(Paths.get("target"))
@@ -48,6 +48,7 @@ public class PerfManyMaps extends AbstractPerf {
 //        String type = "LevelBigMap";
 //        String type = "RocksBigLinkedMap";
 //        String type = "RocksBigMap";
+//        String type = "RocksSharedBigMap";
 //        String type = "MVStoreMap";
 //        String type = "TokyoCabinetMap";
 //        String type = "KyotoCabinetMap";
@@ -15,6 +15,7 @@
  */
 package com.fizzed.bigmap;
 
+import com.fizzed.bigmap.impl.AbstractBigLinkedMap;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
@@ -25,6 +26,7 @@ import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 abstract public class AbstractBigLinkedMapTest extends AbstractBigMapTest {
 
@@ -207,4 +209,93 @@ abstract public class AbstractBigLinkedMapTest extends AbstractBigMapTest {
         assertThat(toKeyList(map), hasItems(2, 1));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void renumberKeepsOrder() {
+        final Map<Integer,String> map = this.newMap(Integer.class, String.class);
+
+        assumeTrue(map instanceof AbstractBigLinkedMap);
+
+        // more than one renumbering batch, inserted out of key order
+        final List<Integer> expectedKeys = new ArrayList<>();
+        for (int i = 3000; i > 0; i--) {
+            map.put(i, "v" + i);
+        }
+        for (int i = 3000; i > 0; i--) {
+            if (i % 3 == 0) {
+                map.remove(i);
+            } else {
+                expectedKeys.add(i);
+            }
+        }
+
+        final AbstractBigLinkedMap<Integer,String> linkedMap = (AbstractBigLinkedMap<Integer,String>)map;
+
+        assertThat(linkedMap.getInsertCounter(), is(3000L));
+
+        linkedMap.renumber();
+
+        assertThat(linkedMap.getInsertCounter(), is(2000L));
+        assertThat(map, aMapWithSize(2000));
+        assertThat(toIteratedList(map.keySet().iterator(), map.size()), is(expectedKeys));
+        assertThat(map.get(2000), is("v2000"));
+        assertThat(map.get(2997), is(nullValue()));
+
+        // a new key still goes last, and a replaced value keeps its place
+        map.put(0, "v0");
+        map.put(2999, "replaced");
+        expectedKeys.add(0);
+
+        assertThat(toIteratedList(map.keySet().iterator(), map.size()), is(expectedKeys));
+        assertThat(map.get(2998), is("v2998"));
+        assertThat(map.get(2999), is("replaced"));
+    }
+
+    @Test
+    public void renumberIncrementallyWhileDeleting() {
+        final Map<Integer,String> map = this.newMap(Integer.class, String.class);
+
+        assumeTrue(map instanceof AbstractBigLinkedMap);
+
+        final AbstractBigLinkedMap<Integer,String> linkedMap = (AbstractBigLinkedMap<Integer,String>)map;
+
+        for (int i = 0; i < 70000; i++) {
+            linkedMap.set(i, "v" + i);
+        }
+
+        // the 65536th delete leaves enough of a gap to start renumbering, a batch per delete from then on
+        for (int i = 0; i <= 65536; i++) {
+            linkedMap.delete(i);
+        }
+
+        // new keys are appended while the renumbering is part way
+        for (int i = 100000; i < 100100; i++) {
+            linkedMap.set(i, "v" + i);
+        }
+
+        for (int i = 65537; i < 65600; i++) {
+            linkedMap.delete(i);
+        }
+
+        final List<Integer> expectedKeys = new ArrayList<>();
+        for (int i = 65600; i < 70000; i++) {
+            expectedKeys.add(i);
+        }
+        for (int i = 100000; i < 100100; i++) {
+            expectedKeys.add(i);
+        }
+
+        // deletes of entries that were already renumbered leave holes behind the resume point
+        assertThat(linkedMap.getInsertCounter(), is(lessThanOrEqualTo(4500L + 64L)));
+        assertThat(map, aMapWithSize(4500));
+        assertThat(toIteratedList(map.keySet().iterator(), map.size()), is(expectedKeys));
+        assertThat(map.get(65600), is("v65600"));
+        assertThat(map.get(100099), is("v100099"));
+        assertThat(map.get(65599), is(nullValue()));
+
+        linkedMap.renumber();
+
+        assertThat(linkedMap.getInsertCounter(), is(4500L));
+        assertThat(toIteratedList(map.keySet().iterator(), map.size()), is(expectedKeys));
+    }
+
+}
@@ -15,14 +15,18 @@
  */
 package com.fizzed.bigmap;
 
+import com.fizzed.bigmap.impl.AbstractBigObjectCloser;
+import com.fizzed.bigmap.impl.KeyRangeSpliterator;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.stream.Stream;
 
 import static com.fizzed.bigmap.impl.BigMapHelper.*;
+import static java.util.stream.Collectors.toSet;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -481,6 +485,177 @@ abstract public class AbstractBigMapTest {
         assertThat(toValueList(map), hasItems("0", "1", "2", "3", "5", "123456789"));
     }
 
+    @Test
+    public void sortedOrderingWithNegativeKeys() {
+        final Map<Integer,String> _map = this.newMap(Integer.class, String.class);
+
+        assumeTrue(_map instanceof SortedMap);
+
+        final SortedMap<Integer,String> map = (SortedMap<Integer,String>)_map;
+
+        // the default key codec of a sorted map must sort negative keys before positive ones
+        for (int key : Arrays.asList(3, -1, 10, -10, 0, -5, 5, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+            map.put(key, Integer.toString(key));
+        }
+
+        assertThat(toKeyList(map), contains(Integer.MIN_VALUE, -10, -5, -1, 0, 3, 5, 10, Integer.MAX_VALUE));
+        assertThat(map.firstKey(), is(Integer.MIN_VALUE));
+        assertThat(map.lastKey(), is(Integer.MAX_VALUE));
+        assertThat(toKeyList(map.subMap(-5, 5)), contains(-5, -1, 0, 3));
+        assertThat(toKeyList(map.headMap(0)), contains(Integer.MIN_VALUE, -10, -5, -1));
+        assertThat(toKeyList(map.tailMap(-1)), contains(-1, 0, 3, 5, 10, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void sortedOrderingWithSurrogatePairKeys() {
+        final Map<String,String> _map = this.newMap(String.class, String.class);
+
+        assumeTrue(_map instanceof SortedMap);
+
+        final SortedMap<String,String> map = (SortedMap<String,String>)_map;
+
+        // String.compareTo sorts a surrogate pair (U+1F600) before U+FFFD, which utf-8 bytes do not
+        map.put("\uFFFD", "replacement");
+        map.put("\uD83D\uDE00", "emoji");
+        map.put("a", "a");
+
+        assertThat(toKeyList(map), contains("a", "\uD83D\uDE00", "\uFFFD"));
+        assertThat(map.firstKey(), is("a"));
+        assertThat(map.lastKey(), is("\uFFFD"));
+        assertThat(toKeyList(map.subMap("b", "\uFFFD")), contains("\uD83D\uDE00"));
+        assertThat(toKeyList(map.tailMap("\uD83D\uDE00")), contains("\uD83D\uDE00", "\uFFFD"));
+    }
+
+    @Test
+    public void lastKey() {
+        final Map<String,String> _map = this.newMap(String.class, String.class);
+
+        assumeTrue(_map instanceof SortedMap);
+
+        final SortedMap<String,String> map = (SortedMap<String,String>)_map;
+
+        try {
+            map.lastKey(); // java map throws a NoSuchElementException
+            fail();
+        }
+        catch (NoSuchElementException e) {
+            // expected
+        }
+
+        map.put("a", "1");
+        map.put("c", "3");
+        map.put("b", "2");
+
+        assertThat(map.lastKey(), is("c"));
+
+        map.remove("c");
+
+        assertThat(map.lastKey(), is("b"));
+    }
+
+    @Test
+    public void subMapHeadMapTailMap() {
+        final Map<String,String> _map = this.newMap(String.class, String.class);
+
+        assumeTrue(_map instanceof SortedMap);
+
+        final SortedMap<String,String> map = (SortedMap<String,String>)_map;
+
+        for (String key : Arrays.asList("f", "a", "e", "c", "b", "d")) {
+            map.put(key, key.toUpperCase());
+        }
+
+        final SortedMap<String,String> subMap = map.subMap("b", "e");
+
+        assertThat(toKeyList(subMap), contains("b", "c", "d"));
+        assertThat(toValueList(subMap), contains("B", "C", "D"));
+        assertThat(subMap.size(), is(3));
+        assertThat(subMap.isEmpty(), is(false));
+        assertThat(subMap.firstKey(), is("b"));
+        assertThat(subMap.lastKey(), is("d"));
+        assertThat(subMap.containsKey("a"), is(false));
+        assertThat(subMap.containsKey("c"), is(true));
+        assertThat(subMap.get("e"), is(nullValue()));
+        assertThat(subMap.get("d"), is("D"));
+
+        assertThat(toKeyList(map.headMap("c")), contains("a", "b"));
+        assertThat(toKeyList(map.tailMap("d")), contains("d", "e", "f"));
+        assertThat(toKeyList(map.tailMap("bb")), contains("c", "d", "e", "f"));
+        assertThat(toKeyList(subMap.subMap("c", "d")), contains("c"));
+        assertThat(toKeyList(subMap.tailMap("c")), contains("c", "d"));
+        assertThat(toKeyList(subMap.headMap("c")), contains("b"));
+
+        try {
+            subMap.put("z", "Z");
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            map.subMap("e", "b");
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // changes to the view are reflected in the map and vice versa
+        subMap.put("cc", "CC");
+        map.remove("d");
+
+        assertThat(map.get("cc"), is("CC"));
+        assertThat(toKeyList(subMap), contains("b", "c", "cc"));
+
+        subMap.clear();
+
+        assertThat(subMap.isEmpty(), is(true));
+        assertThat(map.size(), is(3));
+        assertThat(toKeyList(map), contains("a", "e", "f"));
+
+        try {
+            subMap.firstKey();
+            fail();
+        }
+        catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void reverseIterator() {
+        final Map<String,String> _map = this.newMap(String.class, String.class);
+
+        assumeTrue(_map instanceof BigSortedMap);
+
+        final BigSortedMap<String,String> map = (BigSortedMap<String,String>)_map;
+
+        assertThat(map.reverseIterator().hasNext(), is(false));
+
+        map.put("b", "2");
+        map.put("a", "1");
+        map.put("c", "3");
+
+        final List<String> keys = new ArrayList<>();
+        final Iterator<Entry<String,String>> it = map.reverseIterator();
+        while (it.hasNext()) {
+            final Entry<String,String> entry = it.next();
+            keys.add(entry.getKey());
+            assertThat(entry.getValue(), is(map.get(entry.getKey())));
+        }
+
+        assertThat(keys, contains("c", "b", "a"));
+
+        try {
+            it.next();
+            fail();
+        }
+        catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
     //
     // BigMap tests
     //
@@ -519,6 +694,192 @@ abstract public class AbstractBigMapTest {
         assertThat(map.size(), is(1));
     }
 
+    @Test
+    public void batch() {
+        final Map<String,String> _map = this.newMap(String.class, String.class);
+
+        assumeTrue(_map instanceof BigMap);
+
+        final BigMap<String,String> map = (BigMap<String,String>)_map;
+
+        map.set("a", "1");
+        map.set("b", "2");
+
+        try (WriteBatch<String,String> batch = map.batch()) {
+            batch.set("c", "3");
+            batch.set("d", "4");
+            batch.set("a", "5");        // overwrite existing
+            batch.delete("b");
+            batch.delete("e");          // does not exist
+            batch.set("f", "6");
+            batch.delete("f");          // last operation wins
+
+            assertThat(batch.size(), is(6));
+
+            // nothing is applied until committed
+            assertThat(map.size(), is(2));
+            assertThat(map.get("c"), is(nullValue()));
+
+            batch.commit();
+
+            assertThat(batch.isEmpty(), is(true));
+        }
+
+        assertThat(map.size(), is(3));
+        assertThat(map.get("a"), is("5"));
+        assertThat(map.get("b"), is(nullValue()));
+        assertThat(map.get("c"), is("3"));
+        assertThat(map.get("d"), is("4"));
+        assertThat(map.get("f"), is(nullValue()));
+
+        // uncommitted operations are discarded on close
+        try (WriteBatch<String,String> batch = map.batch()) {
+            batch.set("g", "7");
+        }
+
+        assertThat(map.size(), is(3));
+        assertThat(map.get("g"), is(nullValue()));
+    }
+
+    @Test
+    public void closeIterators() {
+        final Map<String,String> _map = this.newMap(String.class, String.class);
+
+        assumeTrue(_map instanceof BigMap);
+
+        final BigMap<String,String> map = (BigMap<String,String>)_map;
+
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+
+        // closed before it's read to the end
+        final CloseableIterator<Entry<String,String>> it = map.forwardIterator();
+        assertThat(it.hasNext(), is(true));
+        it.next();
+        it.close();
+        assertThat(it.hasNext(), is(false));
+        it.close();
+
+        try (Stream<Entry<String,String>> stream = map.stream()) {
+            assertThat(stream.map(Entry::getKey).collect(toSet()), containsInAnyOrder("a", "b", "c"));
+        }
+
+        final Set<String> values = new HashSet<>();
+        map.forEach((key, value) -> values.add(value));
+        assertThat(values, containsInAnyOrder("1", "2", "3"));
+
+        try (Stream<String> keys = map.keySet().stream()) {
+            assertThat(keys.filter(key -> key.compareTo("a") > 0).count(), is(2L));
+        }
+
+        // nothing above should still be holding onto a native iterator
+        if (map.getCloser() instanceof AbstractBigObjectCloser) {
+            assertThat(((AbstractBigObjectCloser)map.getCloser()).getOpenResourceCount(), is(0));
+        }
+    }
+
+    @Test
+    public void parallelStream() {
+        final Map<Integer,String> _map = this.newMap(Integer.class, String.class);
+
+        assumeTrue(_map instanceof BigMap);
+
+        final BigMap<Integer,String> map = (BigMap<Integer,String>)_map;
+
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, "v" + i);
+        }
+
+        try (Stream<Entry<Integer,String>> stream = map.parallelStream()) {
+            assertThat(stream.mapToLong(Entry::getKey).sum(), is(499500L));
+        }
+
+        try (Stream<Integer> keys = map.keySet().parallelStream()) {
+            assertThat(keys.collect(toSet()).size(), is(1000));
+        }
+
+        try (Stream<String> values = map.values().parallelStream()) {
+            assertThat(values.filter(v -> v.endsWith("7")).count(), is(100L));
+        }
+
+        // the splits cover every entry exactly once, and ranges of keys are split in order
+        try (CloseableSpliterator<Entry<Integer,String>> spliterator = map.spliterator()) {
+            final CloseableSpliterator<Entry<Integer,String>> prefix = spliterator.trySplit();
+            final List<Integer> prefixKeys = new ArrayList<>();
+            final List<Integer> suffixKeys = new ArrayList<>();
+            if (prefix != null) {
+                prefix.forEachRemaining(entry -> prefixKeys.add(entry.getKey()));
+            }
+            spliterator.forEachRemaining(entry -> suffixKeys.add(entry.getKey()));
+
+            final Set<Integer> keys = new HashSet<>(prefixKeys);
+            keys.addAll(suffixKeys);
+            assertThat(prefixKeys.size() + suffixKeys.size(), is(1000));
+            assertThat(keys.size(), is(1000));
+
+            // splits by ranges of keys leave both ranges non-empty
+            if (spliterator instanceof KeyRangeSpliterator && !prefixKeys.isEmpty()) {
+                assertThat(suffixKeys.isEmpty(), is(false));
+                final byte[] lastPrefixKeyBytes = map.getKeyCodec().serialize(prefixKeys.get(prefixKeys.size() - 1));
+                final byte[] firstSuffixKeyBytes = map.getKeyCodec().serialize(suffixKeys.get(0));
+                assertThat(Bytes.compare(lastPrefixKeyBytes, firstSuffixKeyBytes), lessThan(0));
+            }
+        }
+    }
+
+    @Test
+    public void closeMapWithOpenIterators() throws IOException {
+        final Map<String,String> _map = this.newMap(String.class, String.class);
+
+        assumeTrue(_map instanceof BigMap);
+
+        final BigMap<String,String> map = (BigMap<String,String>)_map;
+
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+
+        final CloseableIterator<Entry<String,String>> forward = map.forwardIterator();
+        forward.next();
+
+        final CloseableIterator<Entry<String,String>> other = map.forwardIterator();
+        other.next();
+        other.next();
+
+        // the iterators are released before the engine is closed, and closing them afterwards is harmless
+        map.close();
+
+        forward.close();
+        other.close();
+
+        assertThat(forward.hasNext(), is(false));
+        assertThat(other.hasNext(), is(false));
+    }
+
+    @Test
+    public void putAll() {
+        final Map<String,String> map = this.newMap(String.class, String.class);
+
+        map.put("a", "1");
+
+        final Map<String,String> other = new HashMap<>();
+        other.put("a", "2");
+        other.put("b", "3");
+        other.put("c", "4");
+
+        map.putAll(other);
+
+        assertThat(map.size(), is(3));
+        assertThat(map.get("a"), is("2"));
+        assertThat(map.get("b"), is("3"));
+        assertThat(map.get("c"), is("4"));
+
+        map.putAll(new HashMap<>());
+
+        assertThat(map.size(), is(3));
+    }
+
     @Test
     public void getMutable() {
         final Map<String,String> _map = this.newMap(String.class, String.class);
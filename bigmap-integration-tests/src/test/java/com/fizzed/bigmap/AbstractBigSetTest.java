@@ -15,6 +15,7 @@
  */
 package com.fizzed.bigmap;
 
+import com.fizzed.bigmap.impl.AbstractBigObjectCloser;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -279,6 +280,28 @@ abstract public class AbstractBigSetTest {
         assertThat(toValueList(set), hasItems(-10L, 1L, 2L, 3L, 5L, 123456789L));
     }
 
+    @Test
+    public void sortedSetFirstClosesIterator() {
+        final Set<String> _set = this.newSet(String.class);
+
+        assumeTrue(_set instanceof BigSortedSet);
+
+        final BigSortedSet<String> set = (BigSortedSet<String>)_set;
+
+        set.add("b");
+        set.add("a");
+        set.add("c");
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(set.first(), is("a"));
+        }
+
+        // first() only reads one value, but must not leave its native iterator open
+        if (set.getCloser() instanceof AbstractBigObjectCloser) {
+            assertThat(((AbstractBigObjectCloser)set.getCloser()).getOpenResourceCount(), is(0));
+        }
+    }
+
     //
     // BigSets
     //
@@ -320,6 +343,29 @@ abstract public class AbstractBigSetTest {
         assertThat(set.size(), is(1));
     }
 
+    @Test
+    public void addAllAndRemoveAll() {
+        final Set<String> set = this.newSet(String.class);
+
+        set.add("a");
+
+        assertThat(set.addAll(Arrays.asList("a", "b", "c")), is(true));
+        assertThat(set.size(), is(3));
+        assertThat(set, hasItems("a", "b", "c"));
+
+        assertThat(set.addAll(Arrays.asList("a", "b")), is(false));
+        assertThat(set.addAll(Collections.emptyList()), is(false));
+        assertThat(set.size(), is(3));
+
+        assertThat(set.removeAll(Arrays.asList("a", "d")), is(true));
+        assertThat(set.size(), is(2));
+        assertThat(set.contains("a"), is(false));
+        assertThat(set, hasItems("b", "c"));
+
+        assertThat(set.removeAll(Arrays.asList("a", "d")), is(false));
+        assertThat(set.size(), is(2));
+    }
+
     @Test
     public void close() throws IOException {
         final Set<String> _set = this.newSet(String.class);
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import com.fizzed.bigmap.impl.CachedBigMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the entire map contract against a cached map, along with tests that the cache never returns a stale value.
+ */
+abstract public class AbstractCachedBigMapTest extends AbstractBigMapTest {
+
+    abstract public <K,V> CachedBigMap<K,V> newCachedMap(Class<K> keyType, Class<V> valueType, long maximumSize);
+
+    @Override
+    public <K,V> Map<K,V> newMap(Class<K> keyType, Class<V> valueType) {
+        return this.newCachedMap(keyType, valueType, 1000L);
+    }
+
+    @Test
+    public void hitsAndMisses() {
+        final CachedBigMap<String,String> map = this.newCachedMap(String.class, String.class, 1000L);
+
+        map.set("a", "1");
+        map.set("b", "2");
+
+        assertThat(map.get("a"), is("1"));
+        assertThat(map.get("a"), is("1"));
+        assertThat(map.get("b"), is("2"));
+        assertThat(map.get("c"), is(nullValue()));
+
+        // write-back entries are cached as soon as they are set, while write-through entries are loaded on a miss
+        if (map.isWriteBack()) {
+            assertThat(map.getHitCount(), is(3L));
+            assertThat(map.getMissCount(), is(1L));
+        } else {
+            assertThat(map.getHitCount(), is(1L));
+            assertThat(map.getMissCount(), is(3L));
+        }
+        assertThat(map.getCachedSize(), is(2));
+    }
+
+    @Test
+    public void neverStaleAfterWrites() {
+        final CachedBigMap<String,String> map = this.newCachedMap(String.class, String.class, 1000L);
+
+        map.put("a", "1");
+        assertThat(map.get("a"), is("1"));
+
+        map.set("a", "2");
+        assertThat(map.get("a"), is("2"));
+
+        assertThat(map.put("a", "3"), is("2"));
+        assertThat(map.get("a"), is("3"));
+
+        map.delete("a");
+        assertThat(map.get("a"), is(nullValue()));
+        assertThat(map.containsKey("a"), is(false));
+
+        map.set("a", "4");
+        assertThat(map.get("a"), is("4"));
+        assertThat(map.remove("a"), is("4"));
+        assertThat(map.get("a"), is(nullValue()));
+
+        map.set("b", "5");
+        assertThat(map.get("b"), is("5"));
+        map.clear();
+        assertThat(map.get("b"), is(nullValue()));
+        assertThat(map.getCachedSize(), is(0));
+
+        try (WriteBatch<String,String> batch = map.batch()) {
+            map.set("c", "6");
+            assertThat(map.get("c"), is("6"));
+            batch.set("c", "7");
+            batch.commit();
+        }
+        assertThat(map.get("c"), is("7"));
+
+        map.entrySet().iterator().next().setValue("8");
+        assertThat(map.get("c"), is("8"));
+    }
+
+    @Test
+    public void neverStaleAfterMutableValueClosed() {
+        final CachedBigMap<String,Integer> map = this.newCachedMap(String.class, Integer.class, 1000L);
+
+        map.set("a", 1);
+        assertThat(map.get("a"), is(1));
+
+        try (MutableValue<Integer> value = map.getMutable("a")) {
+            value.set(value.get() + 1);
+        }
+        assertThat(map.get("a"), is(2));
+
+        try (MutableValue<Integer> value = map.getMutable("a")) {
+            value.set(null);
+        }
+        assertThat(map.get("a"), is(nullValue()));
+    }
+
+    @Test
+    public void neverStaleAfterWritesThruRangeViews() {
+        final CachedBigMap<String,String> _map = this.newCachedMap(String.class, String.class, 1000L);
+
+        assumeTrue(_map instanceof SortedMap);
+
+        final SortedMap<String,String> map = (SortedMap<String,String>)_map;
+
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+        assertThat(map.get("b"), is("2"));
+
+        map.subMap("b", "c").put("b", "4");
+        assertThat(map.get("b"), is("4"));
+
+        map.tailMap("b").remove("c");
+        assertThat(map.get("c"), is(nullValue()));
+
+        map.headMap("c").clear();
+        assertThat(map.get("a"), is(nullValue()));
+        assertThat(map.get("b"), is(nullValue()));
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void boundedByMaximumSize() {
+        final CachedBigMap<Integer,String> map = this.newCachedMap(Integer.class, String.class, 100L);
+
+        for (int i = 0; i < 1000; i++) {
+            map.set(i, "value" + i);
+            map.get(i);
+        }
+
+        assertThat(map.getCachedSize(), lessThanOrEqualTo(100));
+        assertThat(map.getEvictionCount(), greaterThan(0L));
+
+        // even evicted (and written back) entries are still in the map
+        assertThat(map.size(), is(1000));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(map.get(i), is("value" + i));
+        }
+    }
+
+    @Test
+    public void frequentKeysStayCached() {
+        final CachedBigMap<Integer,String> map = this.newCachedMap(Integer.class, String.class, 100L);
+
+        for (int i = 0; i < 2000; i++) {
+            map.set(i, "value" + i);
+        }
+
+        // a few hot keys read over and over, while a scan of cold keys reads each of them once
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 10; i++) {
+                map.get(i);
+            }
+        }
+        for (int i = 1000; i < 1500; i++) {
+            map.get(i);
+        }
+
+        final long hitsBefore = map.getHitCount();
+        for (int i = 0; i < 10; i++) {
+            map.get(i);
+        }
+
+        assertThat(map.getHitCount() - hitsBefore, is(10L));
+    }
+
+    @Test
+    public void writeBackFlush() throws Exception {
+        final CachedBigMap<String,String> map = this.newCachedMap(String.class, String.class, 1000L);
+
+        assumeTrue(map.isWriteBack());
+
+        map.set("a", "1");
+
+        // only cached so far
+        assertThat(map.getMap().get("a"), is(nullValue()));
+
+        map.flush();
+
+        assertThat(map.getMap().get("a"), is("1"));
+        assertThat(map.get("a"), is("1"));
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Runs the entire map contract against a concurrent map, along with the extra ConcurrentMap methods and a few
+ * tests where many threads race to update the same keys.
+ */
+abstract public class AbstractConcurrentBigMapTest extends AbstractBigMapTest {
+
+    static private final int THREADS = 8;
+
+    public <K,V> ConcurrentMap<K,V> newConcurrentMap(Class<K> keyType, Class<V> valueType) {
+        return (ConcurrentMap<K,V>)this.newMap(keyType, valueType);
+    }
+
+    private void runConcurrently(Runnable task) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void putIfAbsentAndReplace() {
+        final ConcurrentMap<String,String> map = this.newConcurrentMap(String.class, String.class);
+
+        assertThat(map.putIfAbsent("a", "1"), is(nullValue()));
+        assertThat(map.putIfAbsent("a", "2"), is("1"));
+        assertThat(map.get("a"), is("1"));
+        assertThat(map.size(), is(1));
+
+        assertThat(map.replace("b", "1"), is(nullValue()));
+        assertThat(map.containsKey("b"), is(false));
+        assertThat(map.replace("a", "2"), is("1"));
+        assertThat(map.replace("a", "1", "3"), is(false));
+        assertThat(map.replace("a", "2", "3"), is(true));
+        assertThat(map.get("a"), is("3"));
+
+        assertThat(map.remove("a", "2"), is(false));
+        assertThat(map.remove("a", "3"), is(true));
+        assertThat(map.containsKey("a"), is(false));
+        assertThat(map.size(), is(0));
+    }
+
+    @Test
+    public void computeAndMerge() {
+        final ConcurrentMap<String,Integer> map = this.newConcurrentMap(String.class, Integer.class);
+
+        assertThat(map.computeIfAbsent("a", k -> 1), is(1));
+        assertThat(map.computeIfAbsent("a", k -> 2), is(1));
+        assertThat(map.computeIfPresent("a", (k, v) -> v + 10), is(11));
+        assertThat(map.computeIfPresent("b", (k, v) -> v + 10), is(nullValue()));
+        assertThat(map.containsKey("b"), is(false));
+        assertThat(map.compute("b", (k, v) -> v == null ? 5 : v + 1), is(5));
+        assertThat(map.compute("b", (k, v) -> v == null ? 5 : v + 1), is(6));
+        assertThat(map.merge("c", 1, Integer::sum), is(1));
+        assertThat(map.merge("c", 1, Integer::sum), is(2));
+        assertThat(map.size(), is(3));
+
+        // null results remove the key
+        assertThat(map.compute("b", (k, v) -> null), is(nullValue()));
+        assertThat(map.merge("c", 1, (a, b) -> null), is(nullValue()));
+        assertThat(map.computeIfPresent("a", (k, v) -> null), is(nullValue()));
+        assertThat(map.size(), is(0));
+    }
+
+    @Test
+    public void putIfAbsentFromManyThreads() throws Exception {
+        final ConcurrentMap<Integer,Integer> map = this.newConcurrentMap(Integer.class, Integer.class);
+        final AtomicInteger inserted = new AtomicInteger();
+
+        this.runConcurrently(() -> {
+            for (int i = 0; i < 500; i++) {
+                if (map.putIfAbsent(i, i) == null) {
+                    inserted.incrementAndGet();
+                }
+            }
+        });
+
+        // each key must have been inserted by exactly one thread
+        assertThat(inserted.get(), is(500));
+        assertThat(map.size(), is(500));
+    }
+
+    @Test
+    public void mergeFromManyThreads() throws Exception {
+        final ConcurrentMap<Integer,Integer> map = this.newConcurrentMap(Integer.class, Integer.class);
+
+        this.runConcurrently(() -> {
+            for (int i = 0; i < 1000; i++) {
+                map.merge(i % 50, 1, Integer::sum);
+            }
+        });
+
+        assertThat(map.size(), is(50));
+        for (int i = 0; i < 50; i++) {
+            assertThat(map.get(i), is(THREADS * 1000 / 50));
+        }
+    }
+
+    @Test
+    public void setAndDeleteFromManyThreads() throws Exception {
+        final ConcurrentMap<Integer,String> map = this.newConcurrentMap(Integer.class, String.class);
+        final AtomicInteger threadIds = new AtomicInteger();
+
+        this.runConcurrently(() -> {
+            final int threadId = threadIds.getAndIncrement();
+            // every thread adds its own keys, and removes every other one
+            for (int i = 0; i < 200; i++) {
+                final int key = threadId * 1000 + i;
+                map.put(key, "v" + key);
+                if (i % 2 == 0) {
+                    map.remove(key);
+                }
+            }
+        });
+
+        assertThat(map.size(), is(THREADS * 100));
+        assertThat(map.get(1), is("v1"));
+        assertThat(map.containsKey(2), is(false));
+    }
+
+    @Test
+    public void clearWhileReading() throws Exception {
+        final ConcurrentMap<Integer,String> map = this.newConcurrentMap(Integer.class, String.class);
+        for (int i = 0; i < 100; i++) {
+            map.put(i, "v" + i);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final AtomicBoolean stop = new AtomicBoolean();
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    // every read must either see the entry or not, but never fail (or crash the jvm) mid clear
+                    while (!stop.get()) {
+                        for (int i = 0; i < 100; i++) {
+                            final String value = map.get(i);
+                            assertThat(value, anyOf(nullValue(), is("v" + i)));
+                            map.containsKey(i);
+                        }
+                        assertThat(map.size(), lessThanOrEqualTo(100));
+                        try {
+                            map.forEach((key, value) -> assertThat(value, is("v" + key)));
+                        } catch (ConcurrentModificationException e) {
+                            // hash engines may refuse to keep iterating once they grow, just like a java HashMap
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (int round = 0; round < 20; round++) {
+                map.clear();
+                for (int i = 0; i < 100; i++) {
+                    map.put(i, "v" + i);
+                }
+            }
+
+            stop.set(true);
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(map.size(), is(100));
+        assertThat(map.get(7), is("v7"));
+    }
+
+}
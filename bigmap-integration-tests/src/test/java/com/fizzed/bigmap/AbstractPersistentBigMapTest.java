@@ -0,0 +1,227 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import com.fizzed.bigmap.impl.AbstractBigLinkedMap;
+import com.fizzed.bigmap.impl.BigMapHelper;
+import com.fizzed.bigmap.impl.BigObjectMetadata;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static com.fizzed.bigmap.impl.BigMapHelper.toIteratedList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+abstract public class AbstractPersistentBigMapTest {
+
+    protected Path scratchDirectory;
+
+    /**
+     * Opens (or reopens) a persistent map with an on-heap or native Bloom filter enabled.
+     */
+    abstract public <K,V> BigMap<K,V> openMap(Path scratchDirectory, String name, Class<K> keyType, Class<V> valueType);
+
+    abstract public <K,V> BigMap<K,V> openLinkedMap(Path scratchDirectory, String name, Class<K> keyType, Class<V> valueType);
+
+    @BeforeEach
+    public void before() throws IOException {
+        this.scratchDirectory = Paths.get("target", "persistent-" + UUID.randomUUID());
+        Files.createDirectories(this.scratchDirectory);
+    }
+
+    @AfterEach
+    public void after() {
+        try {
+            Files.walk(this.scratchDirectory)
+                .sorted((a, b) -> b.compareTo(a))
+                .forEach(BigMapHelper::recursivelyDelete);
+        } catch (IOException e) {
+            // do nothing
+        }
+    }
+
+    @Test
+    public void reopenRecoversEntriesAndSize() throws IOException {
+        BigMap<Integer,String> map = this.openMap(this.scratchDirectory, "test", Integer.class, String.class);
+
+        for (int i = 0; i < 100; i++) {
+            map.set(i, "v" + i);
+        }
+        map.delete(50);
+        final Path path = map.getPath();
+        final UUID id = map.getId();
+
+        map.close();
+
+        assertThat(Files.exists(path), is(true));
+        assertThat(Files.isRegularFile(BigObjectMetadata.resolvePath(path, ".meta")), is(true));
+
+        map = this.openMap(this.scratchDirectory, "test", Integer.class, String.class);
+        try {
+            assertThat(map.getId(), is(id));
+            assertThat(map.isPersistent(), is(true));
+            assertThat(map, aMapWithSize(99));
+            assertThat(map.get(0), is("v0"));
+            assertThat(map.get(99), is("v99"));
+            assertThat(map.get(50), is(nullValue()));
+            assertThat(map.containsKey(49), is(true));
+
+            // the metadata is only trusted until the map is modified again
+            assertThat(Files.exists(BigObjectMetadata.resolvePath(path, ".meta")), is(false));
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void reopenWithoutMetadataCountsEntries() throws IOException {
+        BigMap<Integer,String> map = this.openMap(this.scratchDirectory, "test", Integer.class, String.class);
+
+        for (int i = 0; i < 10; i++) {
+            map.set(i, "v" + i);
+        }
+        final Path path = map.getPath();
+
+        map.close();
+
+        // as if the process died before the map was closed
+        Files.delete(BigObjectMetadata.resolvePath(path, ".meta"));
+
+        map = this.openMap(this.scratchDirectory, "test", Integer.class, String.class);
+        try {
+            assertThat(map, aMapWithSize(10));
+            assertThat(map.get(9), is("v9"));
+            assertThat(map.containsKey(5), is(true));
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void clearDeletesPersistedEntries() throws IOException {
+        BigMap<Integer,String> map = this.openMap(this.scratchDirectory, "test", Integer.class, String.class);
+
+        map.set(1, "v1");
+        map.clear();
+        map.set(2, "v2");
+        map.close();
+
+        map = this.openMap(this.scratchDirectory, "test", Integer.class, String.class);
+        try {
+            assertThat(map, aMapWithSize(1));
+            assertThat(map.get(1), is(nullValue()));
+            assertThat(map.get(2), is("v2"));
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void reopenLinkedMapKeepsOrder() throws IOException {
+        BigMap<Integer,String> map = this.openLinkedMap(this.scratchDirectory, "linked", Integer.class, String.class);
+
+        map.set(3, "v3");
+        map.set(1, "v1");
+        map.set(2, "v2");
+        map.delete(1);
+        map.close();
+
+        map = this.openLinkedMap(this.scratchDirectory, "linked", Integer.class, String.class);
+        try {
+            assertThat(map, aMapWithSize(2));
+            assertThat(map.get(2), is("v2"));
+
+            // a new key is still inserted last
+            map.set(0, "v0");
+
+            assertThat(toIteratedList(map.keySet().iterator(), 3), contains(3, 2, 0));
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void reopenLinkedMapRecoversInsertCounter() throws IOException {
+        BigMap<Integer,String> map = this.openLinkedMap(this.scratchDirectory, "linked", Integer.class, String.class);
+
+        for (int i = 5; i > 0; i--) {
+            map.set(i, "v" + i);
+        }
+        // the last entries are deleted, so the insert counter is past the last entry record
+        map.delete(2);
+        map.delete(1);
+        map.close();
+
+        map = this.openLinkedMap(this.scratchDirectory, "linked", Integer.class, String.class);
+        try {
+            assertThat(((AbstractBigLinkedMap<Integer,String>)map).getInsertCounter(), is(5L));
+
+            map.set(9, "v9");
+            map.set(8, "v8");
+
+            assertThat(toIteratedList(map.keySet().iterator(), 5), contains(5, 4, 3, 9, 8));
+        } finally {
+            map.close();
+        }
+
+        map = this.openLinkedMap(this.scratchDirectory, "linked", Integer.class, String.class);
+        try {
+            map.set(7, "v7");
+            map.set(4, "v4replaced");
+
+            assertThat(((AbstractBigLinkedMap<Integer,String>)map).getInsertCounter(), is(8L));
+            assertThat(toIteratedList(map.keySet().iterator(), 6), contains(5, 4, 3, 9, 8, 7));
+            assertThat(map.get(4), is("v4replaced"));
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void reopenLinkedMapWithoutMetadataRecoversInsertCounter() throws IOException {
+        BigMap<Integer,String> map = this.openLinkedMap(this.scratchDirectory, "linked", Integer.class, String.class);
+
+        for (int i = 5; i > 0; i--) {
+            map.set(i, "v" + i);
+        }
+        map.delete(1);
+        final Path path = map.getPath();
+        map.close();
+
+        // as if the process died before the map was closed, so the counter comes from the last entry record
+        Files.delete(BigObjectMetadata.resolvePath(path, ".linked.meta"));
+
+        map = this.openLinkedMap(this.scratchDirectory, "linked", Integer.class, String.class);
+        try {
+            assertThat(map, aMapWithSize(4));
+            assertThat(((AbstractBigLinkedMap<Integer,String>)map).getInsertCounter(), is(4L));
+
+            map.set(0, "v0");
+
+            assertThat(toIteratedList(map.keySet().iterator(), 5), contains(5, 4, 3, 2, 0));
+        } finally {
+            map.close();
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * The primitive methods of long and int keyed maps (and sets) must agree with their boxed equivalents, whether or not
+ * the key codec preserves order.
+ */
+abstract public class AbstractPrimitiveBigMapTest {
+
+    static private final long[] LONG_KEYS = { 0L, 1L, -1L, 42L, -5000L, Long.MAX_VALUE, Long.MIN_VALUE };
+    static private final int[] INT_KEYS = { 0, 1, -1, 42, -5000, Integer.MAX_VALUE, Integer.MIN_VALUE };
+
+    abstract public <V> BigLongMap<V> newLongMap(Class<V> valueType, boolean orderPreserving);
+
+    abstract public <V> BigIntMap<V> newIntMap(Class<V> valueType, boolean orderPreserving);
+
+    abstract public BigLongSet newLongSet();
+
+    abstract public BigIntSet newIntSet();
+
+    private void longMapAgreesWithBoxed(boolean orderPreserving) {
+        final BigLongMap<String> map = this.newLongMap(String.class, orderPreserving);
+
+        for (long key : LONG_KEYS) {
+            map.set(key, "v" + key);
+        }
+
+        assertThat(map.size(), is(LONG_KEYS.length));
+
+        for (long key : LONG_KEYS) {
+            assertThat(map.get(key), is("v" + key));
+            assertThat(map.get(Long.valueOf(key)), is("v" + key));
+            assertThat(map.containsKey(key), is(true));
+            assertThat(map.containsKey(Long.valueOf(key)), is(true));
+        }
+
+        assertThat(map.get(7L), is(nullValue()));
+        assertThat(map.containsKey(7L), is(false));
+
+        // boxed writes are visible to primitive reads (and vice versa)
+        map.put(Long.valueOf(7L), "seven");
+        assertThat(map.get(7L), is("seven"));
+        map.delete(7L);
+        assertThat(map.containsKey(Long.valueOf(7L)), is(false));
+
+        map.delete(-1L);
+        map.delete(-1L);
+        assertThat(map.containsKey(-1L), is(false));
+        assertThat(map.size(), is(LONG_KEYS.length - 1));
+
+        // every key is visited in the same order the map iterates them
+        final List<Long> keys = new ArrayList<>();
+        map.forEachKey(keys::add);
+        final List<Long> iteratedKeys = new ArrayList<>();
+        map.keySet().forEach(iteratedKeys::add);
+        assertThat(keys, is(iteratedKeys));
+        assertThat(keys, hasSize(LONG_KEYS.length - 1));
+        assertThat(keys, hasItems(0L, 1L, 42L, -5000L, Long.MAX_VALUE, Long.MIN_VALUE));
+    }
+
+    private void intMapAgreesWithBoxed(boolean orderPreserving) {
+        final BigIntMap<String> map = this.newIntMap(String.class, orderPreserving);
+
+        for (int key : INT_KEYS) {
+            map.set(key, "v" + key);
+        }
+
+        assertThat(map.size(), is(INT_KEYS.length));
+
+        for (int key : INT_KEYS) {
+            assertThat(map.get(key), is("v" + key));
+            assertThat(map.get(Integer.valueOf(key)), is("v" + key));
+            assertThat(map.containsKey(key), is(true));
+            assertThat(map.containsKey(Integer.valueOf(key)), is(true));
+        }
+
+        assertThat(map.get(7), is(nullValue()));
+        assertThat(map.containsKey(7), is(false));
+
+        map.put(Integer.valueOf(7), "seven");
+        assertThat(map.get(7), is("seven"));
+        map.delete(7);
+        assertThat(map.containsKey(Integer.valueOf(7)), is(false));
+
+        map.delete(-1);
+        assertThat(map.containsKey(-1), is(false));
+        assertThat(map.size(), is(INT_KEYS.length - 1));
+
+        final List<Integer> keys = new ArrayList<>();
+        map.forEachKey(keys::add);
+        final List<Integer> iteratedKeys = new ArrayList<>();
+        map.keySet().forEach(iteratedKeys::add);
+        assertThat(keys, is(iteratedKeys));
+        assertThat(keys, hasSize(INT_KEYS.length - 1));
+        assertThat(keys, hasItems(0, 1, 42, -5000, Integer.MAX_VALUE, Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void longMap() {
+        this.longMapAgreesWithBoxed(false);
+    }
+
+    @Test
+    public void longMapWithOrderPreservingKeys() {
+        this.longMapAgreesWithBoxed(true);
+    }
+
+    @Test
+    public void intMap() {
+        this.intMapAgreesWithBoxed(false);
+    }
+
+    @Test
+    public void intMapWithOrderPreservingKeys() {
+        this.intMapAgreesWithBoxed(true);
+    }
+
+    @Test
+    public void longSet() {
+        final BigLongSet set = this.newLongSet();
+
+        assertThat(set.add(5L), is(true));
+        assertThat(set.add(5L), is(false));
+        assertThat(set.add(Long.valueOf(-3L)), is(true));
+        assertThat(set.contains(-3L), is(true));
+        assertThat(set.contains(Long.valueOf(5L)), is(true));
+        assertThat(set.contains(6L), is(false));
+        assertThat(set.size(), is(2));
+
+        final List<Long> values = new ArrayList<>();
+        set.forEachValue(values::add);
+        assertThat(values, containsInAnyOrder(5L, -3L));
+
+        set.delete(5L);
+        assertThat(set.contains(5L), is(false));
+        assertThat(set.size(), is(1));
+    }
+
+    @Test
+    public void intSet() {
+        final BigIntSet set = this.newIntSet();
+
+        assertThat(set.add(5), is(true));
+        assertThat(set.add(5), is(false));
+        assertThat(set.add(Integer.valueOf(-3)), is(true));
+        assertThat(set.contains(-3), is(true));
+        assertThat(set.contains(Integer.valueOf(5)), is(true));
+        assertThat(set.contains(6), is(false));
+        assertThat(set.size(), is(2));
+
+        final List<Integer> values = new ArrayList<>();
+        set.forEachValue(values::add);
+        assertThat(values, containsInAnyOrder(5, -3));
+
+        set.delete(5);
+        assertThat(set.contains(5), is(false));
+        assertThat(set.size(), is(1));
+    }
+
+    @Test
+    public void primitiveMethodsOnClosedMap() throws IOException {
+        final BigLongMap<String> map = this.newLongMap(String.class, false);
+
+        map.close();
+
+        try {
+            map.get(1L);
+            fail();
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+}
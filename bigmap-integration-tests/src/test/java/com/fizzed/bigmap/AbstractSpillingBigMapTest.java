@@ -0,0 +1,236 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import com.fizzed.bigmap.impl.SpillingBigMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.Map.Entry;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the entire map contract against a spilling map with a tiny maximum (so most tests cross over to the engine),
+ * along with tests of the transition itself.  The tests of closing and the registry are replaced, since a spilling
+ * map has no path and is not registered until it spills.
+ */
+abstract public class AbstractSpillingBigMapTest extends AbstractBigMapTest {
+
+    abstract public <K,V> SpillingBigMap<K,V> newSpillingMap(Class<K> keyType, Class<V> valueType, long maximumSize);
+
+    @Override
+    public <K,V> Map<K,V> newMap(Class<K> keyType, Class<V> valueType) {
+        return this.newSpillingMap(keyType, valueType, 3L);
+    }
+
+    static private List<String> keys(Iterator<Entry<String,String>> iterator) {
+        final List<String> keys = new ArrayList<>();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next().getKey());
+        }
+        return keys;
+    }
+
+    @Test
+    public void spillsPastMaximumSize() {
+        final SpillingBigMap<String,String> map = this.newSpillingMap(String.class, String.class, 10L);
+
+        for (int i = 0; i < 10; i++) {
+            map.set("k" + i, "v" + i);
+        }
+
+        assertThat(map.isSpilled(), is(false));
+        assertThat(map.getPath(), is(nullValue()));
+        assertThat(map.getEngineStats().isEmpty(), is(true));
+
+        // the same order is kept across the transition
+        final List<String> heapKeys = keys(map.forwardIterator());
+
+        map.set("k10", "v10");
+
+        assertThat(map.isSpilled(), is(true));
+        assertThat(Files.exists(map.getPath()), is(true));
+        assertThat(map.size(), is(11));
+        for (int i = 0; i <= 10; i++) {
+            assertThat(map.get("k" + i), is("v" + i));
+        }
+
+        final List<String> spilledKeys = keys(map.forwardIterator());
+        spilledKeys.remove("k10");
+        if (map instanceof SortedMap || map.getSpilledMap() instanceof SortedMap) {
+            assertThat(spilledKeys, is(heapKeys));
+        } else {
+            assertThat(new HashSet<>(spilledKeys), is(new HashSet<>(heapKeys)));
+        }
+    }
+
+    @Test
+    public void putAllSpillsInOneBatch() {
+        final SpillingBigMap<Integer,String> map = this.newSpillingMap(Integer.class, String.class, 100L);
+
+        final Map<Integer,String> entries = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.put(i, "v" + i);
+        }
+        map.put(-1, "first");
+        map.putAll(entries);
+
+        assertThat(map.isSpilled(), is(true));
+        assertThat(map.size(), is(1001));
+        assertThat(map.get(-1), is("first"));
+        assertThat(map.get(999), is("v999"));
+    }
+
+    @Test
+    public void clearReturnsToHeap() {
+        final SpillingBigMap<String,String> map = this.newSpillingMap(String.class, String.class, 1L);
+
+        map.set("a", "1");
+        map.set("b", "2");
+
+        assertThat(map.isSpilled(), is(true));
+        final Path path = map.getPath();
+
+        map.clear();
+
+        assertThat(map.isSpilled(), is(false));
+        assertThat(Files.exists(path), is(false));
+        assertThat(map.size(), is(0));
+
+        map.set("c", "3");
+
+        assertThat(map.get("c"), is("3"));
+        assertThat(map.get("a"), is(nullValue()));
+    }
+
+    @Test
+    public void rangeViewAcrossSpill() {
+        final SpillingBigMap<String,String> _map = this.newSpillingMap(String.class, String.class, 5L);
+
+        assumeTrue(_map instanceof BigSortedMap);
+
+        final BigSortedMap<String,String> map = (BigSortedMap<String,String>)_map;
+
+        map.put("b", "2");
+        map.put("d", "4");
+        map.put("f", "6");
+
+        final SortedMap<String,String> view = map.subMap("c", "g");
+
+        assertThat(view.keySet(), contains("d", "f"));
+        assertThat(view.firstKey(), is("d"));
+
+        // written thru the view, which spills the map
+        view.put("e", "5");
+        map.put("a", "1");
+        map.put("c", "3");
+
+        assertThat(_map.isSpilled(), is(true));
+        assertThat(view.keySet(), contains("c", "d", "e", "f"));
+        assertThat(view.lastKey(), is("f"));
+        assertThat(map.firstKey(), is("a"));
+
+        view.clear();
+
+        assertThat(map.keySet(), contains("a", "b"));
+    }
+
+    @Test @Override
+    public void close() throws IOException {
+        final SpillingBigMap<String,String> map = this.newSpillingMap(String.class, String.class, 1L);
+
+        map.put("1", "123456789");
+
+        assertThat(map.getPath(), is(nullValue()));
+
+        map.put("2", "-10");
+
+        assertThat(map, aMapWithSize(2));
+
+        final Path path = map.getPath();
+
+        assertThat(Files.exists(path), is(true));
+
+        map.close();
+
+        // the engine's directory and everything should be cleaned up now
+        assertThat(Files.exists(path), is(false));
+        assertThat(map.isClosed(), is(true));
+
+        // map.close() should be able to succeed again and not throw an exception
+        map.close();
+
+        try {
+            map.checkIfClosed();
+            fail();
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    @Test @Override
+    public void closeRemovesFromRegistry() throws IOException {
+        final SpillingBigMap<String,String> map = this.newSpillingMap(String.class, String.class, 1L);
+
+        map.spill();
+
+        final UUID id = map.getSpilledMap().getId();
+
+        assertThat(BigObjectRegistry.getDefault().isRegistered(id), is(true));
+
+        map.close();
+
+        assertThat(BigObjectRegistry.getDefault().isRegistered(id), is(false));
+
+        // we should be able to re-open it again, back on-heap
+        map.open();
+        map.put("a", "1");
+
+        assertThat(map.isSpilled(), is(false));
+        assertThat(map.get("a"), is("1"));
+    }
+
+    @Test @Override
+    public void dereferenceAutomaticallyGarbageCollectsFromRegistry() throws Exception {
+        SpillingBigMap<String,String> map = this.newSpillingMap(String.class, String.class, 1L);
+
+        map.spill();
+
+        final UUID id = map.getSpilledMap().getId();
+
+        assertThat(BigObjectRegistry.getDefault().isRegistered(id), is(true));
+
+        map = null;
+        System.gc();
+
+        // wait for garbage collector to run
+        final long now = System.currentTimeMillis();
+        while (BigObjectRegistry.getDefault().isRegistered(id)) {
+            if (System.currentTimeMillis() - now > 10000L) {
+                fail("Garbage not collected within 10secs");
+            }
+            Thread.sleep(100L);
+        }
+    }
+
+}
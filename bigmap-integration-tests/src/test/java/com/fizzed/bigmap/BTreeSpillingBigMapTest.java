@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import com.fizzed.bigmap.impl.SpillingBigMap;
+import com.fizzed.bigmap.impl.SpillingBigSortedMap;
+import com.fizzed.bigmap.offheap.BTreeBigMapBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+public class BTreeSpillingBigMapTest extends AbstractSpillingBigMapTest {
+
+    @Override
+    public <K,V> SpillingBigMap<K,V> newSpillingMap(Class<K> keyType, Class<V> valueType, long maximumSize) {
+        return new BTreeBigMapBuilder<K,V>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(keyType)
+            .setValueType(valueType)
+            .setSpillMaximumSize(maximumSize)
+            .autoCloseObjects()
+            .buildSpilling();
+    }
+
+    @Test
+    public void spillsWithSettingsOfBuilderWhenBuilt() {
+        final BTreeBigMapBuilder<Integer,String> builder = new BTreeBigMapBuilder<Integer,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(Integer.class)
+            .setValueType(String.class)
+            .setSpillMaximumSize(2L)
+            .autoCloseObjects();
+
+        final SpillingBigMap<Integer,String> map = builder.buildSpilling();
+
+        assertThat(map, instanceOf(SpillingBigSortedMap.class));
+
+        // a persistent map would need a name, so building it when the map spills would fail
+        builder.setPersistent(true);
+
+        for (int i = 0; i < 3; i++) {
+            map.set(i, "v" + i);
+        }
+
+        assertThat(map.isSpilled(), is(true));
+        assertThat(map.isPersistent(), is(false));
+        assertThat(map.get(2), is("v2"));
+    }
+
+}
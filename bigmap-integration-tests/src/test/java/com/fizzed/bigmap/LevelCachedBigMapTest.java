@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import com.fizzed.bigmap.impl.CachedBigMap;
+import com.fizzed.bigmap.leveldb.LevelBigMapBuilder;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+
+public class LevelCachedBigMapTest extends AbstractCachedBigMapTest {
+
+    @Override
+    public <K,V> CachedBigMap<K,V> newCachedMap(Class<K> keyType, Class<V> valueType, long maximumSize) {
+        return new LevelBigMapBuilder<K,V>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(keyType)
+            .setValueType(valueType)
+            .setCacheMaximumSize(maximumSize)
+            .setCacheWriteBack(false)
+            .autoCloseObjects()
+            .buildCached();
+    }
+
+    @Test @Disabled("iq80 leveldb does not support reverse iteration")
+    public void reverseIterator() {}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import com.fizzed.bigmap.leveldb.LevelBigMapBuilder;
+import com.fizzed.bigmap.leveldb.LevelBigSetBuilder;
+
+import java.nio.file.Paths;
+
+public class LevelPrimitiveBigMapTest extends AbstractPrimitiveBigMapTest {
+
+    @Override
+    public <V> BigLongMap<V> newLongMap(Class<V> valueType, boolean orderPreserving) {
+        final LevelBigMapBuilder<Long,V> builder = new LevelBigMapBuilder<Long,V>()
+            .setScratchDirectory(Paths.get("target"))
+            .setValueType(valueType)
+            .autoCloseObjects();
+        if (orderPreserving) {
+            builder.setOrderPreservingKeyType(Long.class);
+        } else {
+            builder.setKeyType(Long.class);
+        }
+        return builder.buildLongMap();
+    }
+
+    @Override
+    public <V> BigIntMap<V> newIntMap(Class<V> valueType, boolean orderPreserving) {
+        final LevelBigMapBuilder<Integer,V> builder = new LevelBigMapBuilder<Integer,V>()
+            .setScratchDirectory(Paths.get("target"))
+            .setValueType(valueType)
+            .autoCloseObjects();
+        if (orderPreserving) {
+            builder.setOrderPreservingKeyType(Integer.class);
+        } else {
+            builder.setKeyType(Integer.class);
+        }
+        return builder.buildIntMap();
+    }
+
+    @Override
+    public BigLongSet newLongSet() {
+        return new LevelBigSetBuilder<Long>()
+            .setScratchDirectory(Paths.get("target"))
+            .setValueType(Long.class)
+            .autoCloseObjects()
+            .buildLongSet();
+    }
+
+    @Override
+    public BigIntSet newIntSet() {
+        return new LevelBigSetBuilder<Integer>()
+            .setScratchDirectory(Paths.get("target"))
+            .setValueType(Integer.class)
+            .autoCloseObjects()
+            .buildIntSet();
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import com.fizzed.bigmap.impl.SpillingBigMap;
+import com.fizzed.bigmap.offheap.OffHeapBigMapBuilder;
+
+import java.nio.file.Paths;
+
+public class OffHeapSpillingBigMapTest extends AbstractSpillingBigMapTest {
+
+    @Override
+    public <K,V> SpillingBigMap<K,V> newSpillingMap(Class<K> keyType, Class<V> valueType, long maximumSize) {
+        return new OffHeapBigMapBuilder<K,V>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(keyType)
+            .setValueType(valueType)
+            .setSpillMaximumSize(maximumSize)
+            .autoCloseObjects()
+            .buildSpilling();
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import com.fizzed.bigmap.impl.CachedBigMap;
+import com.fizzed.bigmap.rocksdb.RocksBigMapBuilder;
+import com.fizzed.jne.HardwareArchitecture;
+import com.fizzed.jne.NativeTarget;
+import com.fizzed.jne.OperatingSystem;
+import org.junit.jupiter.api.condition.DisabledIf;
+
+import java.nio.file.Paths;
+
+@DisabledIf("isUnsupportedOs")
+public class RocksWriteBackCachedBigMapTest extends AbstractCachedBigMapTest {
+
+    static public boolean isUnsupportedOs() {
+        return RocksBigMapTest.isUnsupportedOs();
+    }
+
+    @Override
+    public <K,V> CachedBigMap<K,V> newCachedMap(Class<K> keyType, Class<V> valueType, long maximumSize) {
+        return new RocksBigMapBuilder<K,V>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(keyType)
+            .setValueType(valueType)
+            .setCacheMaximumSize(maximumSize)
+            .setCacheWriteBack(true)
+            .autoCloseObjects()
+            .buildCached();
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import com.fizzed.bigmap.tokyocabinet.TokyoBigLinkedMapBuilder;
+import com.fizzed.bigmap.tokyocabinet.TokyoBigMapBuilder;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.nio.file.Path;
+
+@DisabledOnOs({ OS.WINDOWS })
+public class TokyoPersistentBigMapTest extends AbstractPersistentBigMapTest {
+
+    @Override
+    public <K,V> BigMap<K,V> openMap(Path scratchDirectory, String name, Class<K> keyType, Class<V> valueType) {
+        return new TokyoBigMapBuilder<K,V>()
+            .setScratchDirectory(scratchDirectory)
+            .setName(name)
+            .setPersistent(true)
+            .setKeyType(keyType)
+            .setValueType(valueType)
+            .setBloomFilter(1000, 0.01d)
+            .build();
+    }
+
+    @Override
+    public <K,V> BigMap<K,V> openLinkedMap(Path scratchDirectory, String name, Class<K> keyType, Class<V> valueType) {
+        return new TokyoBigLinkedMapBuilder<K,V>()
+            .setScratchDirectory(scratchDirectory)
+            .setName(name)
+            .setPersistent(true)
+            .setKeyType(keyType)
+            .setValueType(valueType)
+            .build();
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap;
+
+import com.fizzed.bigmap.tokyocabinet.TokyoBigMapBuilder;
+import com.fizzed.bigmap.tokyocabinet.TokyoBigSetBuilder;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.nio.file.Paths;
+
+@DisabledOnOs({ OS.WINDOWS })
+public class TokyoPrimitiveBigMapTest extends AbstractPrimitiveBigMapTest {
+
+    @Override
+    public <V> BigLongMap<V> newLongMap(Class<V> valueType, boolean orderPreserving) {
+        final TokyoBigMapBuilder<Long,V> builder = new TokyoBigMapBuilder<Long,V>()
+            .setScratchDirectory(Paths.get("target"))
+            .setValueType(valueType)
+            .autoCloseObjects();
+        if (orderPreserving) {
+            builder.setOrderPreservingKeyType(Long.class);
+        } else {
+            builder.setKeyType(Long.class);
+        }
+        return builder.buildLongMap();
+    }
+
+    @Override
+    public <V> BigIntMap<V> newIntMap(Class<V> valueType, boolean orderPreserving) {
+        final TokyoBigMapBuilder<Integer,V> builder = new TokyoBigMapBuilder<Integer,V>()
+            .setScratchDirectory(Paths.get("target"))
+            .setValueType(valueType)
+            .autoCloseObjects();
+        if (orderPreserving) {
+            builder.setOrderPreservingKeyType(Integer.class);
+        } else {
+            builder.setKeyType(Integer.class);
+        }
+        return builder.buildIntMap();
+    }
+
+    @Override
+    public BigLongSet newLongSet() {
+        return new TokyoBigSetBuilder<Long>()
+            .setScratchDirectory(Paths.get("target"))
+            .setValueType(Long.class)
+            .autoCloseObjects()
+            .buildLongSet();
+    }
+
+    @Override
+    public BigIntSet newIntSet() {
+        return new TokyoBigSetBuilder<Integer>()
+            .setScratchDirectory(Paths.get("target"))
+            .setValueType(Integer.class)
+            .autoCloseObjects()
+            .buildIntSet();
+    }
+
+}
@@ -1,25 +1,72 @@
 package com.fizzed.bigmap.jackson;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fizzed.bigmap.ByteCodec;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedOutputStream;
+import com.fizzed.bigmap.ByteBufferCodec;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.Objects;
 
 import static com.fizzed.bigmap.ByteCodecs.ZERO_BYTES;
 
-public class JacksonByteCodec<K> implements ByteCodec<K> {
+/**
+ * A codec of values in whatever format the ObjectMapper (or rather its JsonFactory) writes.  Plain JSON is the
+ * default, but a binary format is typically much smaller and faster to parse, e.g. with jackson-dataformat-smile or
+ * jackson-dataformat-cbor on the classpath:
+ *
+ * <code>
+ * new JacksonByteCodec&lt;&gt;(MyObject.class, new SmileFactory());
+ * new JacksonByteCodec&lt;&gt;(MyObject.class, new ObjectMapper(new CBORFactory()).registerModule(new AfterburnerModule()));
+ * </code>
+ *
+ * The ObjectReader and ObjectWriter of the type are resolved once, so every call skips looking them up.  Modules such
+ * as Afterburner or Blackbird are registered on the ObjectMapper before it's passed in.  Values are parsed straight
+ * from a ByteBuffer (without copying it into an array), and the codec is safe to share across threads.
+ */
+public class JacksonByteCodec<K> implements ByteBufferCodec<K> {
 
     private final ObjectMapper objectMapper;
     private final Class<K> type;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
 
     public JacksonByteCodec(Class<K> type) {
         this(type, new ObjectMapper());
     }
 
+    /**
+     * @param type the type of the values
+     * @param jsonFactory the factory of the format to read and write (e.g. a SmileFactory or CBORFactory)
+     */
+    public JacksonByteCodec(Class<K> type, JsonFactory jsonFactory) {
+        this(type, new ObjectMapper(jsonFactory));
+    }
+
     public JacksonByteCodec(Class<K> type, ObjectMapper objectMapper) {
+        Objects.requireNonNull(type, "type was null");
+        Objects.requireNonNull(objectMapper, "objectMapper was null");
+
         this.objectMapper = objectMapper;
         this.type = type;
+        this.reader = objectMapper.readerFor(type);
+        // values of a type that can be extended are written by their runtime type, so no properties of a subclass
+        // are lost (just like ObjectMapper.writeValueAsBytes)
+        this.writer = Modifier.isFinal(type.getModifiers()) ? objectMapper.writerFor(type) : objectMapper.writer();
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return this.objectMapper;
+    }
+
+    public Class<K> getType() {
+        return this.type;
     }
 
     @Override
@@ -28,7 +75,20 @@ public class JacksonByteCodec<K> implements ByteCodec<K> {
             return ZERO_BYTES;
         }
         try {
-            return this.objectMapper.writeValueAsBytes(value);
+            return this.writer.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void serialize(K value, ByteBuffer buffer) {
+        if (value == null) {
+            return;
+        }
+        try {
+            // a buffer without enough room throws a BufferOverflowException, so the caller retries with a larger one
+            this.writer.writeValue(new ByteBufferBackedOutputStream(buffer), value);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -40,10 +100,29 @@ public class JacksonByteCodec<K> implements ByteCodec<K> {
             return null;
         }
         try {
-            return this.objectMapper.readValue(bytes, type);
+            return this.reader.readValue(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public K deserialize(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        try {
+            final K value;
+            if (buffer.hasArray()) {
+                value = this.reader.readValue(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+                value = this.reader.readValue(new ByteBufferBackedInputStream(buffer));
+            }
+            buffer.position(buffer.limit());
+            return value;
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.fizzed.bigmap.jackson;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -14,6 +15,8 @@ import com.fizzed.crux.jackson.JavaTimePlusModule;
 import com.fizzed.crux.util.Base16;
 import org.junit.jupiter.api.Test;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.Objects;
@@ -21,6 +24,7 @@ import java.util.TimeZone;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.fail;
 
 public class JacksonByteCodecTest {
 
@@ -59,7 +63,7 @@ public class JacksonByteCodecTest {
         assertThat(byteCodec.serialize(null), is(ByteCodecs.ZERO_BYTES));
         assertThat(byteCodec.serialize(""), is(new byte[] {(byte)34, (byte)34}));
 
-        assertThat(byteCodec.deserialize(null), is(nullValue()));
+        assertThat(byteCodec.deserialize((byte[])null), is(nullValue()));
         assertThat(byteCodec.deserialize(ByteCodecs.ZERO_BYTES), is(nullValue()));
         assertThat(byteCodec.deserialize(new byte[] {(byte)34, (byte)34}), is(""));
     }
@@ -92,6 +96,62 @@ public class JacksonByteCodecTest {
         assertThat(w2, is(w1));
     }
 
+    @Test
+    public void byteBuffers() {
+        final JacksonByteCodec<Widget> byteCodec = new JacksonByteCodec<>(Widget.class, new JsonFactory());
+
+        final Widget w1 = new Widget()
+            .setS("a")
+            .setI(5)
+            .setType(WidgetType.A);
+
+        final byte[] bytes = byteCodec.serialize(w1);
+
+        for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(256), ByteBuffer.allocateDirect(256) }) {
+            // not at the start of the buffer
+            buffer.position(3);
+            byteCodec.serialize(w1, buffer);
+            buffer.flip();
+            buffer.position(3);
+
+            assertThat(buffer.remaining(), is(bytes.length));
+            assertThat(byteCodec.deserialize(buffer), is(w1));
+            assertThat(buffer.hasRemaining(), is(false));
+        }
+
+        try {
+            byteCodec.serialize(w1, ByteBuffer.allocate(4));
+            fail();
+        }
+        catch (BufferOverflowException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void subclassesKeepTheirProperties() {
+        final JacksonByteCodec<Widget> byteCodec = new JacksonByteCodec<>(Widget.class, OM1);
+
+        final Widget w1 = new ColoredWidget().setColor("red").setS("a");
+
+        assertThat(new String(byteCodec.serialize(w1)), is("{\"s\":\"a\",\"i\":null,\"type\":null,\"createdAt\":null,\"color\":\"red\"}"));
+    }
+
+    static public class ColoredWidget extends Widget {
+
+        private String color;
+
+        public String getColor() {
+            return color;
+        }
+
+        public ColoredWidget setColor(String color) {
+            this.color = color;
+            return this;
+        }
+
+    }
+
     static public enum WidgetType {
         A,
         B,
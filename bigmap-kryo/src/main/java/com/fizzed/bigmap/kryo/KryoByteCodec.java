@@ -7,6 +7,10 @@ import com.fizzed.bigmap.ByteCodec;
 
 import static com.fizzed.bigmap.ByteCodecs.ZERO_BYTES;
 
+/**
+ * A codec backed by a single Kryo instance, which is NOT safe to share across threads (see
+ * {@link PooledKryoByteCodec}).
+ */
 public class KryoByteCodec<K> implements ByteCodec<K> {
 
     private final Kryo kryo;
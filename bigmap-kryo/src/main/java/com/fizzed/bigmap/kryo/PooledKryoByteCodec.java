@@ -0,0 +1,226 @@
+package com.fizzed.bigmap.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.unsafe.UnsafeInput;
+import com.esotericsoftware.kryo.unsafe.UnsafeOutput;
+import com.esotericsoftware.kryo.util.Pool;
+import com.fizzed.bigmap.ByteBufferCodec;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import static com.fizzed.bigmap.ByteCodecs.ZERO_BYTES;
+
+/**
+ * A kryo codec that is safe to share across threads, since every call borrows a Kryo instance (and the Output or Input
+ * it reads and writes with) from a pool, rather than sharing one Kryo or allocating a new Output on every call.
+ *
+ * With the default Kryo the values are exactly the same bytes as {@link KryoByteCodec}.  Building the Kryo instances
+ * with {@link #registeredKryo(Class[])} writes a small id for each class instead of its fully qualified name, which
+ * makes values with fields of non-final types much smaller.  The ids are assigned in the order the classes are
+ * registered, so that order must never change once values are stored.
+ *
+ * The unsafe variant reads and writes with Kryo's Unsafe inputs and outputs, which are faster for values with many
+ * primitive fields, but write them in the native byte order, so the values can only be read by an unsafe codec on a
+ * platform of the same byte order.
+ */
+public class PooledKryoByteCodec<V> implements ByteBufferCodec<V> {
+
+    static public final int DEFAULT_POOL_SIZE = 64;
+
+    // outputs (and inputs) that grew larger than this are not kept around in the pool
+    static private final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+    private final Class<V> type;
+    private final boolean unsafe;
+    private final Pool<Kryo> kryos;
+    private final Pool<Output> outputs;
+    private final Pool<Input> inputs;
+    private final Pool<Input> copyingInputs;       // inputs that own their buffer (for direct ByteBuffers)
+
+    public PooledKryoByteCodec(Class<V> type) {
+        this(type, KryoByteCodec::buildDefaultKryo);
+    }
+
+    public PooledKryoByteCodec(Class<V> type, Supplier<Kryo> kryoFactory) {
+        this(type, kryoFactory, false, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * @param type the type of the values
+     * @param kryoFactory creates each Kryo instance of the pool, which must all be configured the same
+     * @param unsafe whether to read and write with Kryo's Unsafe inputs and outputs
+     * @param poolSize the maximum number of idle instances kept in each pool (more are created under contention)
+     */
+    public PooledKryoByteCodec(Class<V> type, Supplier<Kryo> kryoFactory, boolean unsafe, int poolSize) {
+        Objects.requireNonNull(type, "type was null");
+        Objects.requireNonNull(kryoFactory, "kryoFactory was null");
+
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize must be > 0");
+        }
+
+        this.type = type;
+        this.unsafe = unsafe;
+        this.kryos = new Pool<Kryo>(true, false, poolSize) {
+            @Override
+            protected Kryo create() {
+                return kryoFactory.get();
+            }
+        };
+        this.outputs = new Pool<Output>(true, false, poolSize) {
+            @Override
+            protected Output create() {
+                return unsafe ? new UnsafeOutput(1024, -1) : new Output(1024, -1);
+            }
+        };
+        this.inputs = new Pool<Input>(true, false, poolSize) {
+            @Override
+            protected Input create() {
+                return unsafe ? new UnsafeInput() : new Input();
+            }
+        };
+        this.copyingInputs = new Pool<Input>(true, false, poolSize) {
+            @Override
+            protected Input create() {
+                return unsafe ? new UnsafeInput(1024) : new Input(1024);
+            }
+        };
+    }
+
+    /**
+     * Builds a Kryo that requires every class to be registered, with the classes registered in order.
+     */
+    static public Kryo registeredKryo(Class<?>... classes) {
+        final Kryo kryo = new Kryo();
+        kryo.setRegistrationRequired(true);
+        for (Class<?> c : classes) {
+            kryo.register(c);
+        }
+        return kryo;
+    }
+
+    public Class<V> getType() {
+        return this.type;
+    }
+
+    public boolean isUnsafe() {
+        return this.unsafe;
+    }
+
+    private Output write(Kryo kryo, V value) {
+        final Output output = this.outputs.obtain();
+        output.reset();
+        try {
+            kryo.writeObjectOrNull(output, value, this.type);
+            return output;
+        } catch (RuntimeException e) {
+            this.release(output);
+            throw e;
+        }
+    }
+
+    private void release(Output output) {
+        if (output.getBuffer().length > MAX_POOLED_BUFFER_SIZE) {
+            output.setBuffer(new byte[1024], -1);
+        }
+        this.outputs.free(output);
+    }
+
+    @Override
+    public byte[] serialize(V value) {
+        if (value == null) {
+            return ZERO_BYTES;
+        }
+        final Kryo kryo = this.kryos.obtain();
+        try {
+            final Output output = this.write(kryo, value);
+            try {
+                return output.toBytes();
+            } finally {
+                this.release(output);
+            }
+        } finally {
+            this.kryos.free(kryo);
+        }
+    }
+
+    @Override
+    public void serialize(V value, ByteBuffer buffer) {
+        if (value == null) {
+            return;
+        }
+        final Kryo kryo = this.kryos.obtain();
+        try {
+            final Output output = this.write(kryo, value);
+            try {
+                // throws a BufferOverflowException (without writing anything) if the buffer does not have room
+                buffer.put(output.getBuffer(), 0, output.position());
+            } finally {
+                this.release(output);
+            }
+        } finally {
+            this.kryos.free(kryo);
+        }
+    }
+
+    @Override
+    public V deserialize(byte[] bytes) {
+        // kryo does not allow zero byte arrays to be deserialized, so its null
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        return this.read(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public V deserialize(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+
+        if (buffer.hasArray()) {
+            final V value = this.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return value;
+        }
+
+        // a direct buffer is copied into a pooled array, since Kryo's (unsafe) ByteBuffer inputs need internal JDK
+        // packages exported on Java 9+
+        final int length = buffer.remaining();
+        final Kryo kryo = this.kryos.obtain();
+        final Input input = this.copyingInputs.obtain();
+        try {
+            byte[] bytes = input.getBuffer();
+            if (bytes.length < length) {
+                bytes = new byte[length];
+            }
+            buffer.get(bytes, 0, length);
+            input.setBuffer(bytes, 0, length);
+            return kryo.readObjectOrNull(input, this.type);
+        } finally {
+            if (input.getBuffer().length > MAX_POOLED_BUFFER_SIZE) {
+                input.setBuffer(new byte[1024]);
+            }
+            this.copyingInputs.free(input);
+            this.kryos.free(kryo);
+        }
+    }
+
+    private V read(byte[] bytes, int offset, int length) {
+        final Kryo kryo = this.kryos.obtain();
+        final Input input = this.inputs.obtain();
+        try {
+            input.setBuffer(bytes, offset, length);
+            return kryo.readObjectOrNull(input, this.type);
+        } finally {
+            input.setBuffer(ZERO_BYTES);
+            this.inputs.free(input);
+            this.kryos.free(kryo);
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.fizzed.bigmap.kryo;
+
+import com.fizzed.bigmap.ByteCodecs;
+import com.fizzed.bigmap.kryo.KryoByteCodecTest.Widget;
+import com.fizzed.bigmap.kryo.KryoByteCodecTest.WidgetType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class PooledKryoByteCodecTest {
+
+    static public class Box {
+
+        public Object content;
+
+    }
+
+    static private Widget widget(int i) {
+        return new Widget()
+            .setS("widget-" + i)
+            .setI(i)
+            .setType(WidgetType.B)
+            .setCreatedAt(Instant.parse("2022-11-12T01:02:03.456Z").plusSeconds(i));
+    }
+
+    @Test
+    public void nulls() {
+        final PooledKryoByteCodec<String> byteCodec = new PooledKryoByteCodec<>(String.class);
+
+        assertThat(byteCodec.serialize(null), is(ByteCodecs.ZERO_BYTES));
+        assertThat(byteCodec.deserialize((byte[])null), is(nullValue()));
+        assertThat(byteCodec.deserialize(ByteCodecs.ZERO_BYTES), is(nullValue()));
+        assertThat(byteCodec.deserialize(ByteBuffer.allocate(0)), is(nullValue()));
+    }
+
+    @Test
+    public void sameBytesAsKryoByteCodec() {
+        final PooledKryoByteCodec<Widget> byteCodec = new PooledKryoByteCodec<>(Widget.class);
+        final KryoByteCodec<Widget> kryoByteCodec = new KryoByteCodec<>(Widget.class);
+
+        final Widget w1 = widget(1);
+
+        assertThat(byteCodec.serialize(w1), is(kryoByteCodec.serialize(w1)));
+        assertThat(byteCodec.deserialize(kryoByteCodec.serialize(w1)), is(w1));
+    }
+
+    @Test
+    public void registeredClassesAreSmaller() {
+        final PooledKryoByteCodec<Box> unregistered = new PooledKryoByteCodec<>(Box.class);
+        final PooledKryoByteCodec<Box> registered = new PooledKryoByteCodec<>(Box.class,
+            () -> PooledKryoByteCodec.registeredKryo(Box.class, Widget.class, WidgetType.class, Instant.class));
+
+        final Box box = new Box();
+        box.content = widget(1);
+
+        final byte[] bytes = registered.serialize(box);
+
+        assertThat(bytes.length, lessThan(unregistered.serialize(box).length));
+        assertThat(registered.deserialize(bytes).content, is(box.content));
+    }
+
+    @Test
+    public void byteBuffers() {
+        final PooledKryoByteCodec<Widget> byteCodec = new PooledKryoByteCodec<>(Widget.class);
+        final Widget w1 = widget(1);
+        final byte[] bytes = byteCodec.serialize(w1);
+
+        for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(256), ByteBuffer.allocateDirect(256) }) {
+            // not at the start of the buffer
+            buffer.position(7);
+            byteCodec.serialize(w1, buffer);
+            buffer.flip();
+            buffer.position(7);
+
+            assertThat(buffer.remaining(), is(bytes.length));
+            assertThat(byteCodec.deserialize(buffer), is(w1));
+            assertThat(buffer.hasRemaining(), is(false));
+        }
+
+        try {
+            byteCodec.serialize(w1, ByteBuffer.allocate(4));
+            fail();
+        }
+        catch (BufferOverflowException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void unsafe() {
+        final PooledKryoByteCodec<Widget> byteCodec = new PooledKryoByteCodec<>(Widget.class,
+            () -> PooledKryoByteCodec.registeredKryo(Widget.class, WidgetType.class, Instant.class), true, 4);
+
+        final Widget w1 = widget(1);
+
+        assertThat(byteCodec.isUnsafe(), is(true));
+        assertThat(byteCodec.deserialize(byteCodec.serialize(w1)), is(w1));
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        byteCodec.serialize(w1, buffer);
+        buffer.flip();
+        assertThat(byteCodec.deserialize(buffer), is(w1));
+    }
+
+    @Test
+    public void concurrentUse() throws Exception {
+        final PooledKryoByteCodec<Widget> byteCodec = new PooledKryoByteCodec<>(Widget.class,
+            () -> PooledKryoByteCodec.registeredKryo(Widget.class, WidgetType.class, Instant.class), false, 2);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        final Widget w = widget(i);
+                        assertThat(byteCodec.deserialize(byteCodec.serialize(w)), is(w));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -17,30 +17,31 @@ package com.fizzed.bigmap.leveldb;
 
 import com.fizzed.bigmap.*;
 import com.fizzed.bigmap.impl.AbstractBigMapBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 
 import java.nio.file.Path;
-import java.util.Comparator;
 import java.util.UUID;
 
 public class LevelBigLinkedMapBuilder<K,V> extends AbstractBigMapBuilder<K,V,LevelBigLinkedMapBuilder<K,V>> {
 
+    @Override
+    protected boolean isLinkedEngine() {
+        return true;
+    }
+
     public LevelBigLinkedMap<K,V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path dir = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "biglinkedmap-level");
+        final UUID id = this.resolveId();
+        final Path dir = this.resolvePath(id, "biglinkedmap-level");
+
+        // the keys, values and their insert order all live in a single sorted store, see AbstractBigLinkedMap
+        final LevelBigMap<byte[],byte[]> store = new LevelBigMap<>(UUID.randomUUID(), dir, this.persistent, ByteCodecs.byteArrayCodec(), Bytes::compare, ByteCodecs.byteArrayCodec());
 
-        // we need 3 subdir paths
-        final Path dataDir = dir.resolve("data");
-        final Path i2kDir = dir.resolve("i2k");
-        final Path k2iDir = dir.resolve("k2i");
+        // the linked map always knows whether a key is new (it needs its insert order) so its size is always tracked
+        store.setSizeTracked(false);
+        this.applyBloomFilter(store);
 
-        final ByteCodec<Integer> integerByteCodec = ByteCodecs.integerCodec();
-        final Comparator<Integer> integerComparator = Comparators.autoComparator(Integer.class);
-        final LevelBigMap<K,V> dataMap = new LevelBigMap<>(UUID.randomUUID(), dataDir, this.keyCodec, this.keyComparator, this.valueCodec);
-        final LevelBigMap<Integer,K> insertOrderToKeyMap = new LevelBigMap<>(UUID.randomUUID(), i2kDir, integerByteCodec, integerComparator, this.keyCodec);
-        final LevelBigMap<K,Integer> keyToInsertOrderMap = new LevelBigMap<>(UUID.randomUUID(), k2iDir, this.keyCodec, this.keyComparator, integerByteCodec);
+        final LevelBigLinkedMap<K,V> map = new LevelBigLinkedMap<>(id, dir, this.persistent, store, this.keyCodec, this.keyComparator, this.valueCodec);
 
-        final LevelBigLinkedMap<K,V> map = new LevelBigLinkedMap<>(id, dir, false, dataMap, insertOrderToKeyMap, keyToInsertOrderMap);
+        map.setMetrics(this.buildMetrics());
         map.setListener(this.registry);
         map.open();
         return map;
@@ -15,35 +15,30 @@
  */
 package com.fizzed.bigmap.leveldb;
 
-import com.fizzed.bigmap.ByteCodec;
 import com.fizzed.bigmap.ByteCodecs;
-import com.fizzed.bigmap.Comparators;
+import com.fizzed.bigmap.Bytes;
 import com.fizzed.bigmap.impl.AbstractBigSetBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 import com.fizzed.bigmap.impl.None;
 
 import java.nio.file.Path;
-import java.util.Comparator;
 import java.util.UUID;
 
 public class LevelBigLinkedSetBuilder<V> extends AbstractBigSetBuilder<V,LevelBigLinkedSetBuilder<V>> {
 
     public LevelBigLinkedSet<V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path dir = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "biglinkedset-level");
+        final UUID id = this.resolveId();
+        final Path dir = this.resolvePath(id, "biglinkedset-level");
 
-        // we need 3 subdir paths
-        final Path dataDir = dir.resolve("data");
-        final Path i2kDir = dir.resolve("i2k");
-        final Path k2iDir = dir.resolve("k2i");
+        // the keys, values and their insert order all live in a single sorted store, see AbstractBigLinkedMap
+        final LevelBigMap<byte[],byte[]> store = new LevelBigMap<>(UUID.randomUUID(), dir, this.persistent, ByteCodecs.byteArrayCodec(), Bytes::compare, ByteCodecs.byteArrayCodec());
 
-        final ByteCodec<Integer> integerByteCodec = ByteCodecs.integerCodec();
-        final Comparator<Integer> integerComparator = Comparators.autoComparator(Integer.class);
-        final LevelBigMap<V,None> dataMap = new LevelBigMap<>(UUID.randomUUID(), dataDir, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
-        final LevelBigMap<Integer,V> insertOrderToKeyMap = new LevelBigMap<>(UUID.randomUUID(), i2kDir, integerByteCodec, integerComparator, this.valueCodec);
-        final LevelBigMap<V,Integer> keyToInsertOrderMap = new LevelBigMap<>(UUID.randomUUID(), k2iDir, this.valueCodec, this.valueComparator, integerByteCodec);
+        // the linked map always knows whether a key is new (it needs its insert order) so its size is always tracked
+        store.setSizeTracked(false);
+        this.applyBloomFilter(store);
 
-        final LevelBigLinkedMap<V,None> map = new LevelBigLinkedMap<>(id, dir, false, dataMap, insertOrderToKeyMap, keyToInsertOrderMap);
+        final LevelBigLinkedMap<V,None> map = new LevelBigLinkedMap<>(id, dir, this.persistent, store, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+
+        map.setMetrics(this.buildMetrics());
 
         final LevelBigLinkedSet<V> set = new LevelBigLinkedSet<>(map);
         set.setListener(this.registry);
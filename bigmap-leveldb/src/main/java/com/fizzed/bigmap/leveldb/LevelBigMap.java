@@ -17,21 +17,25 @@ package com.fizzed.bigmap.leveldb;
 
 import com.fizzed.bigmap.*;
 import com.fizzed.bigmap.impl.AbstractBigMap;
-import com.fizzed.bigmap.impl.ByteArrayBigMap;
+import com.fizzed.bigmap.impl.ByteArrayBigSortedMap;
 import com.fizzed.bigmap.impl.KeyValueBytes;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBException;
 import org.iq80.leveldb.Options;
+import org.iq80.leveldb.WriteBatch;
 import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
-public class LevelBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBigMap<K,V>, BigSortedMap<K,V> {
+public class LevelBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBigSortedMap<K,V> {
 
     protected Options options;
     protected DB db;
@@ -39,11 +43,12 @@ public class LevelBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
     protected LevelBigMap(
             UUID id,
             Path directory,
+            boolean persistent,
             ByteCodec<K> keyCodec,
             Comparator<K> keyComparator,
             ByteCodec<V> valueCodec) {
         
-        super(id, directory, false, keyCodec, keyComparator, valueCodec);
+        super(id, directory, persistent, keyCodec, keyComparator, valueCodec);
         
         Objects.requireNonNull(valueCodec, "valueCodec was null");
     }
@@ -138,8 +143,63 @@ public class LevelBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
     }
 
     @Override
-    public Iterator<KeyValueBytes> _forwardIterator() {
-        return LevelForwardIterator.build(this.db);
+    public void _writeBatch(List<KeyValueBytes> sets, List<byte[]> deletes) {
+        try (WriteBatch batch = this.db.createWriteBatch()) {
+            for (KeyValueBytes kvb : sets) {
+                batch.put(kvb.getKey(), kvb.getValue());
+            }
+            for (byte[] keyBytes : deletes) {
+                batch.delete(keyBytes);
+            }
+            this.db.write(batch);
+        }
+        catch (IOException | DBException e) {
+            throw new BigMapDataException(e);
+        }
+    }
+
+    @Override
+    public CloseableIterator<KeyValueBytes> _forwardIterator(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return LevelForwardIterator.build(this.closer, this.db, fromKeyBytes, toKeyBytes);
+    }
+
+    @Override
+    public CloseableIterator<KeyValueBytes> _reverseIterator(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        // iq80 leveldb throws an UnsupportedOperationException on seekToLast() and prev()
+        throw new BigMapNonScalableException("LevelDB (iq80) does not support reverse iteration. Method unsupported.");
+    }
+
+    @Override
+    public byte[] _lastKey(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        // without reverse iteration, the only way to find the last key is to scan forward thru the range
+        try (CloseableIterator<KeyValueBytes> iterator = this._forwardIterator(fromKeyBytes, toKeyBytes)) {
+            byte[] lastKeyBytes = null;
+            while (iterator.hasNext()) {
+                lastKeyBytes = iterator.next().getKey();
+            }
+            return lastKeyBytes;
+        }
+    }
+
+    @Override
+    public byte[] _splitKey(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        // without reverse iteration, finding the end of the range to bisect is a scan of the whole range, which costs
+        // more than a parallel stream would save, so ranges are never split
+        return null;
+    }
+
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        this.checkIfClosed();
+
+        final Map<String,Object> stats = new LinkedHashMap<>();
+        // a human readable table of the files and compactions at each level
+        final String levelStats = this.db.getProperty("leveldb.stats");
+        if (levelStats != null) {
+            stats.put("leveldb.stats", levelStats);
+        }
+        return stats;
     }
 
 }
\ No newline at end of file
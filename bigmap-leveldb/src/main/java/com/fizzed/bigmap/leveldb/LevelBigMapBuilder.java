@@ -16,18 +16,25 @@
 package com.fizzed.bigmap.leveldb;
 
 import com.fizzed.bigmap.impl.AbstractBigMapBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 
 import java.nio.file.Path;
 import java.util.UUID;
 
 public class LevelBigMapBuilder<K,V> extends AbstractBigMapBuilder<K,V,LevelBigMapBuilder<K,V>> {
 
+    @Override
+    protected boolean isSortedEngine() {
+        return true;
+    }
+
     public LevelBigMap<K,V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path dir = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "bigmap-level");
+        final UUID id = this.resolveId();
+        final Path dir = this.resolvePath(id, "bigmap-level");
 
-        final LevelBigMap<K,V> map = new LevelBigMap<>(id, dir, this.keyCodec, this.keyComparator, this.valueCodec);
+        final LevelBigMap<K,V> map = new LevelBigMap<>(id, dir, this.persistent, this.keyCodec, this.keyComparator, this.valueCodec);
+        map.setSizeTracked(this.sizeTracked);
+        this.applyBloomFilter(map);
+        map.setMetrics(this.buildMetrics());
         map.setListener(this.registry);
         map.open();
         return map;
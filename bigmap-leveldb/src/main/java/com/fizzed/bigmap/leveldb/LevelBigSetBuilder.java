@@ -17,7 +17,6 @@ package com.fizzed.bigmap.leveldb;
 
 import com.fizzed.bigmap.ByteCodecs;
 import com.fizzed.bigmap.impl.AbstractBigSetBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 import com.fizzed.bigmap.impl.None;
 
 import java.nio.file.Path;
@@ -25,11 +24,20 @@ import java.util.UUID;
 
 public class LevelBigSetBuilder<V> extends AbstractBigSetBuilder<V,LevelBigSetBuilder<V>> {
 
+    @Override
+    protected boolean isSortedEngine() {
+        return true;
+    }
+
     public LevelBigSet<V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path dir = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "bigset-level");
+        final UUID id = this.resolveId();
+        final Path dir = this.resolvePath(id, "bigset-level");
+
+        final LevelBigMap<V,None> map = new LevelBigMap<>(id, dir, this.persistent, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+
+        this.applyBloomFilter(map);
 
-        final LevelBigMap<V,None> map = new LevelBigMap<>(id, dir, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+        map.setMetrics(this.buildMetrics());
 
         final LevelBigSet<V> set = new LevelBigSet<>(map);
         set.setListener(this.registry);
@@ -1,34 +1,90 @@
 package com.fizzed.bigmap.leveldb;
 
+import com.fizzed.bigmap.BigObjectCloser;
+import com.fizzed.bigmap.Bytes;
+import com.fizzed.bigmap.CloseableIterator;
 import com.fizzed.bigmap.impl.KeyValueBytes;
+import com.fizzed.bigmap.impl.ResourceCleaner;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
 
-import java.util.Iterator;
+import java.io.IOException;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class LevelForwardIterator implements Iterator<KeyValueBytes> {
+public class LevelForwardIterator implements CloseableIterator<KeyValueBytes> {
 
     static public LevelForwardIterator build(DB db) {
+        return build(db, null, null);
+    }
+
+    static public LevelForwardIterator build(DB db, byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return build(null, db, fromKeyBytes, toKeyBytes);
+    }
+
+    static public LevelForwardIterator build(BigObjectCloser closer, DB db, byte[] fromKeyBytes, byte[] toKeyBytes) {
         final DBIterator iter = db.iterator();
-        iter.seekToFirst();
-        return new LevelForwardIterator(iter);
+        if (fromKeyBytes != null) {
+            iter.seek(fromKeyBytes);
+        } else {
+            iter.seekToFirst();
+        }
+        return new LevelForwardIterator(closer, iter, toKeyBytes);
     }
 
     private final DBIterator it;
+    private final byte[] toKeyBytes;        // exclusive, null if unbounded
+    private final AtomicBoolean released;
+    private final ResourceCleaner.Cleanable cleanable;
+    private boolean hasNext;
 
-    public LevelForwardIterator(DBIterator it) {
+    /**
+     * @param closer the closer of the map, which releases the iterator before the database is closed (or null if the
+     *      iterator is only released once closed or garbage collected)
+     */
+    public LevelForwardIterator(BigObjectCloser closer, DBIterator it, byte[] toKeyBytes) {
         this.it = it;
+        this.toKeyBytes = toKeyBytes;
+        final AtomicBoolean released = new AtomicBoolean();
+        this.released = released;
+        // the iterator pins a snapshot of the memtables and files, which leveldb can't drop until it's released
+        this.cleanable = ResourceCleaner.register(closer, this, () -> {
+            released.set(true);
+            try {
+                it.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        });
+        this.hasNext = this.probeNext();
+    }
+
+    private boolean probeNext() {
+        // iq80 iterators do not support an upper bound, so we peek at the next key ourselves
+        final boolean hasNext = this.it.hasNext()
+            && (this.toKeyBytes == null || Bytes.compare(this.it.peekNext().getKey(), this.toKeyBytes) < 0);
+
+        // CRITICAL: if there's no "next" value, this iterator is done, and we can clean up resources
+        if (!hasNext) {
+            this.close();
+        }
+
+        return hasNext;
+    }
+
+    @Override
+    public void close() {
+        this.cleanable.clean();
     }
 
     public boolean hasNext() {
-        return it.hasNext();
+        return this.hasNext && !this.released.get();
     }
 
     public KeyValueBytes next() {
         // NOTE: this throws a NoSuchElementException is no element exists
-        if (!it.hasNext()) {
+        if (!this.hasNext()) {
             throw new NoSuchElementException();
         }
 
@@ -37,7 +93,9 @@ public class LevelForwardIterator implements Iterator<KeyValueBytes> {
 
         final KeyValueBytes kvb = new KeyValueBytes(entry.getKey(), entry.getValue());
 
+        this.hasNext = this.probeNext();
+
         return kvb;
     }
 
-}
\ No newline at end of file
+}
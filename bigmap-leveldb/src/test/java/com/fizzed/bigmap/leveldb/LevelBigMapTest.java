@@ -15,13 +15,17 @@
  */
 package com.fizzed.bigmap.leveldb;
 
+import com.fizzed.bigmap.ByteCodecs;
 import org.junit.jupiter.api.Test;
 
 import java.nio.file.Paths;
 import java.util.Map;
+import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.fail;
 
 public class LevelBigMapTest {
  
@@ -57,4 +61,94 @@ public class LevelBigMapTest {
         assertThat(map.size(), is(1));
     }
 
+    @Test
+    public void rangeWithKeyCodecNotOrderPreserving() {
+        final LevelBigMap<Integer,String> map = new LevelBigMapBuilder<Integer,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(Integer.class, ByteCodecs.integerCodec())
+            .setValueType(String.class)
+            .autoCloseObjects()
+            .build();
+
+        // the bytes of -5 sort after 5, which is reported as a codec problem rather than a backwards range
+        try {
+            map.subMap(-5, 5);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("not order preserving"));
+        }
+    }
+
+    @Test
+    public void sizeNotTracked() {
+        final LevelBigMap<String,String> map = new LevelBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .setSizeTracked(false)
+            .autoCloseObjects()
+            .build();
+
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.size(), is(0));
+
+        map.set("a", "1");
+        map.set("b", "2");
+        map.set("a", "3");
+        map.delete("c");
+
+        assertThat(map.get("a"), is("3"));
+        assertThat(map.size(), is(2));
+        assertThat(map.isEmpty(), is(false));
+
+        map.delete("a");
+        map.delete("a");
+
+        assertThat(map.size(), is(1));
+
+        // the size is unknown (rather than counted) for streams
+        assertThat(map.estimatedSize(), is(Long.MAX_VALUE));
+        try (Stream<Map.Entry<String,String>> stream = map.stream()) {
+            assertThat(stream.map(Map.Entry::getKey).collect(toList()), contains("b"));
+        }
+
+        map.delete("b");
+
+        assertThat(map.size(), is(0));
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void bloomFilter() {
+        final LevelBigMap<String,String> map = new LevelBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .setBloomFilter(1000, 0.01d)
+            .autoCloseObjects()
+            .build();
+
+        assertThat(map.get("a"), is(nullValue()));
+        assertThat(map.containsKey("a"), is(false));
+
+        map.put("a", "1");
+        map.set("b", "2");
+
+        assertThat(map.get("a"), is("1"));
+        assertThat(map.containsKey("b"), is(true));
+        assertThat(map.containsKey("c"), is(false));
+        assertThat(map.remove("c"), is(nullValue()));
+        assertThat(map.size(), is(2));
+
+        map.delete("a");
+
+        assertThat(map.containsKey("a"), is(false));
+        assertThat(map.size(), is(1));
+
+        map.clear();
+
+        assertThat(map.containsKey("b"), is(false));
+        assertThat(map.size(), is(0));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import com.fizzed.bigmap.ByteCodec;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.impl.AbstractBigMap;
+import com.fizzed.bigmap.impl.ByteArrayBigSortedMap;
+import com.fizzed.bigmap.impl.KeyValueBytes;
+import com.fizzed.bigmap.impl.ScratchBuffer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A sorted map stored in pure java (no natives) as a copy-on-write B+tree in a memory-mapped file.  Reads never lock
+ * and come straight from the page cache, range seeks descend the tree directly to their bounds, and writes copy the
+ * pages they change so readers and iterators are never blocked by them.  A persistent map is re-opened from the last
+ * snapshot that was synced (on close, or every so often while writing).
+ */
+public class BTreeBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBigSortedMap<K,V> {
+
+    protected int pageSize = BTreeStore.DEFAULT_PAGE_SIZE;
+    protected BTreeStore store;
+
+    protected BTreeBigMap(
+            UUID id,
+            Path file,
+            boolean persistent,
+            ByteCodec<K> keyCodec,
+            Comparator<K> keyComparator,
+            ByteCodec<V> valueCodec) {
+
+        super(id, file, persistent, keyCodec, keyComparator, valueCodec);
+
+        Objects.requireNonNull(valueCodec, "valueCodec was null");
+    }
+
+    public int getPageSize() {
+        return this.pageSize;
+    }
+
+    /**
+     * The size of the pages of the tree, which limits the size of a key to a bit less than a quarter of it (larger
+     * values overflow into pages of their own).  Must be set before the map is opened, and be the same every time a
+     * persistent map is opened.
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Flushes the map to disk, so a persistent map would re-open with everything written so far (even after a crash).
+     */
+    public void sync() {
+        this.checkIfClosed();
+
+        this.store.sync();
+    }
+
+    @Override
+    protected void _open() {
+        try {
+            Files.createDirectories(this.path.getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.store = new BTreeStore(this.path, this.persistent, this.pageSize);
+
+        this.closer = new BTreeBigObjectCloser(this.id, this.persistent, this.path, this.store);
+    }
+
+    @Override
+    public long _count() {
+        return this.store.count();
+    }
+
+    @Override
+    public byte[] _get(byte[] keyBytes) {
+        return this.store.get(ByteBuffer.wrap(keyBytes), 0, keyBytes.length);
+    }
+
+    @Override
+    public byte[] _put(byte[] keyBytes, byte[] valueBytes) {
+        return this.store.put(ByteBuffer.wrap(keyBytes), 0, keyBytes.length, ByteBuffer.wrap(valueBytes), 0, valueBytes.length, true);
+    }
+
+    @Override
+    public void _set(byte[] keyBytes, byte[] valueBytes) {
+        this.store.put(ByteBuffer.wrap(keyBytes), 0, keyBytes.length, ByteBuffer.wrap(valueBytes), 0, valueBytes.length, false);
+    }
+
+    @Override
+    public boolean _containsKey(byte[] keyBytes) {
+        return this.store.containsKey(ByteBuffer.wrap(keyBytes), 0, keyBytes.length);
+    }
+
+    @Override
+    public byte[] _remove(byte[] keyBytes) {
+        return this.store.remove(ByteBuffer.wrap(keyBytes), 0, keyBytes.length, true);
+    }
+
+    @Override
+    public void _delete(byte[] keyBytes) {
+        this.store.remove(ByteBuffer.wrap(keyBytes), 0, keyBytes.length, false);
+    }
+
+    @Override
+    public boolean _isByteBufferSupported() {
+        return true;
+    }
+
+    @Override
+    public ByteBuffer _get(ByteBuffer keyBuffer) {
+        // copied out of the page, since a writer may re-use it once no reader is pinning it
+        return this.store.get(keyBuffer, keyBuffer.position(), keyBuffer.remaining(), ScratchBuffer.VALUE::grow);
+    }
+
+    @Override
+    public void _set(ByteBuffer keyBuffer, ByteBuffer valueBuffer) {
+        this.store.put(keyBuffer, keyBuffer.position(), keyBuffer.remaining(), valueBuffer, valueBuffer.position(), valueBuffer.remaining(), false);
+    }
+
+    @Override
+    public boolean _containsKey(ByteBuffer keyBuffer) {
+        return this.store.containsKey(keyBuffer, keyBuffer.position(), keyBuffer.remaining());
+    }
+
+    @Override
+    public void _delete(ByteBuffer keyBuffer) {
+        this.store.remove(keyBuffer, keyBuffer.position(), keyBuffer.remaining(), false);
+    }
+
+    @Override
+    public void _writeBatch(List<KeyValueBytes> sets, List<byte[]> deletes) {
+        // one copy-on-write transaction, so readers see all of the batch or none of it
+        this.store.write(sets, deletes);
+    }
+
+    @Override
+    public CloseableIterator<KeyValueBytes> _forwardIterator(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return this.store.iterator(fromKeyBytes, toKeyBytes, false);
+    }
+
+    @Override
+    public CloseableIterator<KeyValueBytes> _reverseIterator(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return this.store.iterator(fromKeyBytes, toKeyBytes, true);
+    }
+
+    @Override
+    public byte[] _firstKey(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return this.store.firstKey(fromKeyBytes, toKeyBytes, false);
+    }
+
+    @Override
+    public byte[] _lastKey(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return this.store.firstKey(fromKeyBytes, toKeyBytes, true);
+    }
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        this.checkIfClosed();
+
+        final Map<String,Object> stats = new LinkedHashMap<>();
+        stats.put("btree.page-size", this.store.getPageSize());
+        stats.put("btree.pages", this.store.getPageCount());
+        stats.put("btree.free-pages", this.store.getFreePageCount());
+        stats.put("btree.depth", this.store.getDepth());
+        stats.put("btree.txn", this.store.getTxn());
+        return stats;
+    }
+
+}
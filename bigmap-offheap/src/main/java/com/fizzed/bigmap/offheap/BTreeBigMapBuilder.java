@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import com.fizzed.bigmap.impl.AbstractBigMapBuilder;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+public class BTreeBigMapBuilder<K,V> extends AbstractBigMapBuilder<K,V,BTreeBigMapBuilder<K,V>> {
+
+    protected int pageSize = BTreeStore.DEFAULT_PAGE_SIZE;
+
+    /**
+     * The size of the pages of the tree (a power of 2 from 1KB to 32KB), which limits keys to a bit less than a
+     * quarter of it.  A persistent map must always be opened with the same page size.
+     */
+    public BTreeBigMapBuilder<K,V> setPageSize(int pageSize) {
+        if (Integer.bitCount(pageSize) != 1 || pageSize < BTreeStore.MIN_PAGE_SIZE || pageSize > BTreeStore.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be a power of 2 between " + BTreeStore.MIN_PAGE_SIZE + " and " + BTreeStore.MAX_PAGE_SIZE);
+        }
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    @Override
+    protected boolean isSortedEngine() {
+        return true;
+    }
+
+    public BTreeBigMap<K,V> build() {
+        final UUID id = this.resolveId();
+        final Path file = this.resolveFile(id, "bigmap-btree", ".btree");
+
+        final BTreeBigMap<K,V> map = new BTreeBigMap<>(id, file, this.persistent, this.keyCodec, this.keyComparator, this.valueCodec);
+        map.setPageSize(this.pageSize);
+        map.setSizeTracked(this.sizeTracked);
+        this.applyBloomFilter(map);
+        map.setMetrics(this.buildMetrics());
+        map.setListener(this.registry);
+        map.open();
+        return map;
+    }
+
+}
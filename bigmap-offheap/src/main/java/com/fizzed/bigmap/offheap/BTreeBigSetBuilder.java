@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import com.fizzed.bigmap.ByteCodecs;
+import com.fizzed.bigmap.impl.AbstractBigSetBuilder;
+import com.fizzed.bigmap.impl.None;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+public class BTreeBigSetBuilder<V> extends AbstractBigSetBuilder<V,BTreeBigSetBuilder<V>> {
+
+    protected int pageSize = BTreeStore.DEFAULT_PAGE_SIZE;
+
+    public BTreeBigSetBuilder<V> setPageSize(int pageSize) {
+        if (Integer.bitCount(pageSize) != 1 || pageSize < BTreeStore.MIN_PAGE_SIZE || pageSize > BTreeStore.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be a power of 2 between " + BTreeStore.MIN_PAGE_SIZE + " and " + BTreeStore.MAX_PAGE_SIZE);
+        }
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    @Override
+    protected boolean isSortedEngine() {
+        return true;
+    }
+
+    public BTreeBigSet<V> build() {
+        final UUID id = this.resolveId();
+        final Path file = this.resolveFile(id, "bigset-btree", ".btree");
+
+        final BTreeBigMap<V,None> map = new BTreeBigMap<>(id, file, this.persistent, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+        map.setPageSize(this.pageSize);
+
+        this.applyBloomFilter(map);
+
+        map.setMetrics(this.buildMetrics());
+
+        final BTreeBigSet<V> set = new BTreeBigSet<>(map);
+        set.setListener(this.registry);
+        set.open();
+        return set;
+    }
+
+}
@@ -0,0 +1,1428 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import com.fizzed.bigmap.BigMapDataException;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.impl.KeyValueBytes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * The engine of a BTreeBigMap: a copy-on-write B+tree of pages in a memory-mapped file.  A page is never changed once
+ * it is reachable from a published root, instead every write copies the pages from the leaf up to the root and then
+ * publishes the new root.  Readers never lock: they pin the current snapshot (root) and read straight from the mapped
+ * pages, which are only re-used once no reader has a snapshot they were reachable from.
+ *
+ * Page layout: [byte type][byte unused][ushort count][int unused][long extra], followed by a ushort offset for each
+ * cell and then the cells themselves.  A leaf cell is [ushort keyLength][int valueLength][key][value] (or, if the
+ * value is too large to fit, ~valueLength and the long page of a chain of overflow pages).  A branch cell is
+ * [ushort keyLength][long child][key], with the extra of the page being the leftmost child.  Cells are at most a
+ * quarter of a page, so a page always splits into two that fit.  Pages 0 and 1 hold the alternating metadata of the
+ * last durable snapshot of a persistent tree.
+ *
+ * Only one writer at a time.
+ */
+class BTreeStore {
+
+    static public final int DEFAULT_PAGE_SIZE = 4096;
+    static public final int MIN_PAGE_SIZE = 1024;
+    static public final int MAX_PAGE_SIZE = 32768;
+
+    static private final int MAGIC = 0x42545245;
+    static private final int VERSION = 1;
+    static private final int HEADER_BYTES = 16;
+    static private final byte LEAF = 1;
+    static private final byte BRANCH = 2;
+    static private final byte OVERFLOW = 3;
+    static private final int PAGES_PER_REGION = 4096;
+    static private final int FIRST_DATA_PAGE = 2;
+    static private final int MAX_DEPTH = 48;
+    static private final int ITERATOR_BATCH_SIZE = 64;
+    static private final int SYNC_AFTER_FREED_PAGES = 4096;
+
+    /**
+     * The root of the tree at one point in time, along with how many readers are using it.
+     */
+    static private class Snapshot {
+        final long txn;
+        final long root;            // zero if the tree is empty
+        final long count;
+        final AtomicInteger readers;
+
+        Snapshot(long txn, long root, long count) {
+            this.txn = txn;
+            this.root = root;
+            this.count = count;
+            this.readers = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Pages that were replaced when the snapshot was superseded, so they can be re-used once it has no readers.
+     */
+    static private class Retired {
+        final Snapshot snapshot;
+        final List<Long> pages;
+
+        Retired(Snapshot snapshot, List<Long> pages) {
+            this.snapshot = snapshot;
+            this.pages = pages;
+        }
+    }
+
+    /**
+     * Bytes somewhere in a buffer (e.g. an encoded cell or a key).
+     */
+    static private class Slice {
+        final ByteBuffer buffer;
+        final int offset;
+        final int length;
+
+        Slice(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A page built by a write, along with the first key in it (if not the leftmost page of a split).
+     */
+    static private class Node {
+        final Slice separator;
+        final long page;
+
+        Node(Slice separator, long page) {
+            this.separator = separator;
+            this.page = page;
+        }
+    }
+
+    private final Path file;
+    private final boolean persistent;
+    private final int pageSize;
+    private final int regionBytes;
+    private final int maxCellBytes;
+    private final int maxKeyBytes;
+    private final ReentrantLock writeLock;
+    private final FileChannel channel;
+    private volatile ByteBuffer[] regions;
+    private volatile Snapshot current;          // null once closed
+    // only used by the writer
+    private long pageCount;
+    private final ArrayDeque<Long> freePages;
+    private final List<Long> unsyncedFreePages;  // of a persistent tree, re-usable once a newer snapshot is durable
+    private final ArrayDeque<Retired> retired;
+    private long txnRoot;
+    private long txnCount;
+    private Set<Long> txnPages;                 // allocated by the transaction, so not yet visible to any reader
+    private List<Long> txnFreedPages;
+    private final List<Long> opFreedPages;      // only re-used once the operation is done with their bytes
+    private long syncedTxn;
+
+    BTreeStore(Path file, boolean persistent, int pageSize) {
+        if (Integer.bitCount(pageSize) != 1 || pageSize < MIN_PAGE_SIZE || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be a power of 2 between " + MIN_PAGE_SIZE + " and " + MAX_PAGE_SIZE);
+        }
+
+        this.file = file;
+        this.persistent = persistent;
+        this.pageSize = pageSize;
+        this.regionBytes = pageSize * PAGES_PER_REGION;
+        // at least 4 cells fit in a page, and a key plus a pointer to its overflowed value always fits in a cell
+        this.maxCellBytes = (pageSize - HEADER_BYTES) / 4 - 2;
+        this.maxKeyBytes = this.maxCellBytes - 14;
+        this.writeLock = new ReentrantLock();
+        this.regions = new ByteBuffer[0];
+        this.freePages = new ArrayDeque<>();
+        this.unsyncedFreePages = new ArrayList<>();
+        this.retired = new ArrayDeque<>();
+        this.opFreedPages = new ArrayList<>();
+
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (persistent && this.channel.size() > 0) {
+                this.load();
+            } else {
+                this.channel.truncate(0);
+                this.pageCount = FIRST_DATA_PAGE;
+                this.mapRegions(this.pageCount);
+                this.current = new Snapshot(0L, 0L, 0L);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int getPageSize() {
+        return this.pageSize;
+    }
+
+    int getMaxKeyBytes() {
+        return this.maxKeyBytes;
+    }
+
+    //
+    // reads (lock-free)
+    //
+
+    private Snapshot pin() {
+        while (true) {
+            final Snapshot snapshot = this.current;
+            if (snapshot == null) {
+                throw new IllegalStateException("B-tree store is closed");
+            }
+            snapshot.readers.incrementAndGet();
+            // if it was superseded in between, its pages may already be re-used
+            if (this.current == snapshot) {
+                return snapshot;
+            }
+            snapshot.readers.decrementAndGet();
+        }
+    }
+
+    private void unpin(Snapshot snapshot) {
+        snapshot.readers.decrementAndGet();
+    }
+
+    long count() {
+        final Snapshot snapshot = this.current;
+        if (snapshot == null) {
+            throw new IllegalStateException("B-tree store is closed");
+        }
+        return snapshot.count;
+    }
+
+    boolean containsKey(ByteBuffer key, int keyOffset, int keyLength) {
+        key = bigEndian(key);
+        final Snapshot snapshot = this.pin();
+        try {
+            return this.findCell(snapshot.root, key, keyOffset, keyLength) >= 0;
+        } finally {
+            this.unpin(snapshot);
+        }
+    }
+
+    byte[] get(ByteBuffer key, int keyOffset, int keyLength) {
+        key = bigEndian(key);
+        final Snapshot snapshot = this.pin();
+        try {
+            final long cell = this.findCell(snapshot.root, key, keyOffset, keyLength);
+            return cell >= 0 ? this.readValue(cell) : null;
+        } finally {
+            this.unpin(snapshot);
+        }
+    }
+
+    /**
+     * Copies the value into the target buffer (growing it via the supplier if needed), since the pages of the value
+     * may be re-used once the snapshot is no longer pinned.
+     */
+    ByteBuffer get(ByteBuffer key, int keyOffset, int keyLength, IntFunction<ByteBuffer> target) {
+        key = bigEndian(key);
+        final Snapshot snapshot = this.pin();
+        try {
+            final long cell = this.findCell(snapshot.root, key, keyOffset, keyLength);
+            if (cell < 0) {
+                return null;
+            }
+            final ByteBuffer value = target.apply(this.valueLength(cell));
+            this.copyValue(cell, value);
+            value.flip();
+            return value;
+        } finally {
+            this.unpin(snapshot);
+        }
+    }
+
+    /**
+     * The first (or last) key in the range, or null if none.
+     */
+    byte[] firstKey(byte[] fromKeyBytes, byte[] toKeyBytes, boolean last) {
+        final Snapshot snapshot = this.pin();
+        try {
+            final Cursor cursor = new Cursor(snapshot.root);
+            if (!last) {
+                if (fromKeyBytes != null) {
+                    cursor.seekGE(fromKeyBytes);
+                } else {
+                    cursor.first();
+                }
+                if (cursor.valid && (toKeyBytes == null || cursor.compareKey(toKeyBytes) < 0)) {
+                    return cursor.key();
+                }
+            } else {
+                if (toKeyBytes != null) {
+                    cursor.seekLT(toKeyBytes);
+                } else {
+                    cursor.last();
+                }
+                if (cursor.valid && (fromKeyBytes == null || cursor.compareKey(fromKeyBytes) >= 0)) {
+                    return cursor.key();
+                }
+            }
+            return null;
+        } finally {
+            this.unpin(snapshot);
+        }
+    }
+
+    /**
+     * Iterates the keys between fromKeyBytes (inclusive) and toKeyBytes (exclusive), in ascending or descending order.
+     * Entries are read a batch at a time, each from the latest snapshot, so the iterator never holds back pages from
+     * being re-used and sees writes made while iterating (past where it is).
+     */
+    CloseableIterator<KeyValueBytes> iterator(byte[] fromKeyBytes, byte[] toKeyBytes, boolean reverse) {
+        return new RangeIterator(fromKeyBytes, toKeyBytes, reverse);
+    }
+
+    private long findCell(long root, ByteBuffer key, int keyOffset, int keyLength) {
+        if (root == 0L) {
+            return -1L;
+        }
+        long page = root;
+        while (true) {
+            final ByteBuffer buffer = this.buffer(page);
+            final int base = this.base(page);
+            if (buffer.get(base) == BRANCH) {
+                page = branchChild(buffer, base, upperBound(buffer, base, key, keyOffset, keyLength));
+            } else {
+                final int count = count(buffer, base);
+                final int i = this.lowerBound(buffer, base, key, keyOffset, keyLength);
+                if (i < count) {
+                    final int cell = cellOffset(buffer, base, i);
+                    if (compare(buffer, cell + 6, ushort(buffer, cell), key, keyOffset, keyLength) == 0) {
+                        return address(page, cell - base);
+                    }
+                }
+                return -1L;
+            }
+        }
+    }
+
+    //
+    // writes
+    //
+
+    /**
+     * @return the old value if requested and the key existed, otherwise null
+     */
+    byte[] put(ByteBuffer key, int keyOffset, int keyLength, ByteBuffer value, int valueOffset, int valueLength, boolean returnOld) {
+        this.writeLock.lock();
+        try {
+            this.begin();
+            final byte[] oldValue = this.doPut(bigEndian(key), keyOffset, keyLength, value, valueOffset, valueLength, returnOld);
+            this.commit();
+            return oldValue;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the old value if requested and the key existed, otherwise null
+     */
+    byte[] remove(ByteBuffer key, int keyOffset, int keyLength, boolean returnOld) {
+        this.writeLock.lock();
+        try {
+            this.begin();
+            final byte[] oldValue = this.doRemove(bigEndian(key), keyOffset, keyLength, returnOld);
+            this.commit();
+            return oldValue;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Applies all the sets and deletes in one transaction, so readers see all or none of them.
+     */
+    void write(List<KeyValueBytes> sets, List<byte[]> deletes) {
+        this.writeLock.lock();
+        try {
+            this.begin();
+            for (KeyValueBytes kvb : sets) {
+                this.doPut(ByteBuffer.wrap(kvb.getKey()), 0, kvb.getKey().length,
+                    ByteBuffer.wrap(kvb.getValue()), 0, kvb.getValue().length, false);
+            }
+            for (byte[] keyBytes : deletes) {
+                this.doRemove(ByteBuffer.wrap(keyBytes), 0, keyBytes.length, false);
+            }
+            this.commit();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private void begin() {
+        final Snapshot snapshot = this.current;
+        if (snapshot == null) {
+            throw new IllegalStateException("B-tree store is closed");
+        }
+        this.txnRoot = snapshot.root;
+        this.txnCount = snapshot.count;
+        this.txnPages = new HashSet<>();
+        this.txnFreedPages = new ArrayList<>();
+    }
+
+    private void commit() {
+        final Snapshot previous = this.current;
+        if (this.txnPages.isEmpty() && this.txnFreedPages.isEmpty()) {
+            return;         // nothing changed
+        }
+
+        this.current = new Snapshot(previous.txn + 1L, this.txnRoot, this.txnCount);
+        this.retired.addLast(new Retired(previous, this.txnFreedPages));
+        this.txnPages = null;
+        this.txnFreedPages = null;
+
+        this.reclaim();
+
+        if (this.persistent && this.unsyncedFreePages.size() >= SYNC_AFTER_FREED_PAGES) {
+            this.sync();
+        }
+    }
+
+    /**
+     * Re-uses the pages replaced by snapshots that no reader is using anymore (and neither any older snapshot, which
+     * may share the very same pages).
+     */
+    private void reclaim() {
+        while (!this.retired.isEmpty() && this.retired.peekFirst().snapshot.readers.get() == 0) {
+            final Retired r = this.retired.removeFirst();
+            if (this.persistent) {
+                // the last durable snapshot may still need them after a crash
+                this.unsyncedFreePages.addAll(r.pages);
+            } else {
+                this.freePages.addAll(r.pages);
+            }
+        }
+    }
+
+    private byte[] doPut(ByteBuffer key, int keyOffset, int keyLength, ByteBuffer value, int valueOffset, int valueLength, boolean returnOld) {
+        if (keyLength > this.maxKeyBytes) {
+            throw new BigMapDataException("Key of " + keyLength + " bytes too large (max " + this.maxKeyBytes + " bytes with a page size of " + this.pageSize + ")");
+        }
+
+        final long[] pathPages = new long[MAX_DEPTH];
+        final int[] pathIndexes = new int[MAX_DEPTH];
+        final int depth = this.descend(key, keyOffset, keyLength, pathPages, pathIndexes);
+
+        // the new cell, with its value inline or in overflow pages
+        final boolean inline = 6 + keyLength + valueLength <= this.maxCellBytes;
+        final ByteBuffer cell = ByteBuffer.allocate(6 + keyLength + (inline ? valueLength : 8));
+        cell.putShort((short)keyLength);
+        cell.putInt(inline ? valueLength : ~valueLength);
+        cell.put(slice(key, keyOffset, keyLength));
+        if (inline) {
+            cell.put(slice(value, valueOffset, valueLength));
+        } else {
+            cell.putLong(this.writeOverflow(value, valueOffset, valueLength));
+        }
+        final Slice newCell = new Slice(cell, 0, cell.capacity());
+
+        final List<Slice> cells = new ArrayList<>();
+        byte[] oldValue = null;
+
+        if (depth == 0) {
+            cells.add(newCell);
+            this.txnCount++;
+        } else {
+            final long leaf = pathPages[depth - 1];
+            final ByteBuffer buffer = this.buffer(leaf);
+            final int base = this.base(leaf);
+            final int count = count(buffer, base);
+            final int i = pathIndexes[depth - 1];
+            boolean found = false;
+            if (i < count) {
+                final int existing = cellOffset(buffer, base, i);
+                found = compare(buffer, existing + 6, ushort(buffer, existing), key, keyOffset, keyLength) == 0;
+                if (found) {
+                    final long existingAddress = address(leaf, existing - base);
+                    if (returnOld) {
+                        oldValue = this.readValue(existingAddress);
+                    }
+                    this.freeOverflow(existingAddress);
+                }
+            }
+            for (int j = 0; j < count; j++) {
+                if (j == i) {
+                    cells.add(newCell);
+                    if (found) {
+                        continue;
+                    }
+                }
+                cells.add(this.leafCell(buffer, base, j));
+            }
+            if (i >= count) {
+                cells.add(newCell);
+            }
+            if (!found) {
+                this.txnCount++;
+            }
+            this.freePage(leaf);
+        }
+
+        this.txnRoot = this.propagate(this.writeLeaves(cells), pathPages, pathIndexes, depth - 2);
+        this.endOperation();
+        return oldValue;
+    }
+
+    private byte[] doRemove(ByteBuffer key, int keyOffset, int keyLength, boolean returnOld) {
+        final long[] pathPages = new long[MAX_DEPTH];
+        final int[] pathIndexes = new int[MAX_DEPTH];
+        final int depth = this.descend(key, keyOffset, keyLength, pathPages, pathIndexes);
+        if (depth == 0) {
+            return null;
+        }
+
+        final long leaf = pathPages[depth - 1];
+        final ByteBuffer buffer = this.buffer(leaf);
+        final int base = this.base(leaf);
+        final int count = count(buffer, base);
+        final int i = pathIndexes[depth - 1];
+        if (i >= count) {
+            return null;
+        }
+        final int existing = cellOffset(buffer, base, i);
+        if (compare(buffer, existing + 6, ushort(buffer, existing), key, keyOffset, keyLength) != 0) {
+            return null;
+        }
+
+        final long existingAddress = address(leaf, existing - base);
+        final byte[] oldValue = returnOld ? this.readValue(existingAddress) : null;
+        this.freeOverflow(existingAddress);
+
+        final List<Slice> cells = new ArrayList<>(count - 1);
+        for (int j = 0; j < count; j++) {
+            if (j != i) {
+                cells.add(this.leafCell(buffer, base, j));
+            }
+        }
+        this.freePage(leaf);
+        this.txnCount--;
+
+        // an empty leaf is removed from its parent entirely
+        final List<Node> nodes = cells.isEmpty() ? new ArrayList<>() : this.writeLeaves(cells);
+        this.txnRoot = this.propagate(nodes, pathPages, pathIndexes, depth - 2);
+        this.endOperation();
+        return oldValue;
+    }
+
+    /**
+     * Descends from the root of the transaction to the leaf the key belongs in, recording the page and index of the
+     * child (or cell in the leaf) taken at each level.
+     * @return the depth of the path (zero if the tree is empty)
+     */
+    private int descend(ByteBuffer key, int keyOffset, int keyLength, long[] pathPages, int[] pathIndexes) {
+        int depth = 0;
+        long page = this.txnRoot;
+        while (page != 0L) {
+            final ByteBuffer buffer = this.buffer(page);
+            final int base = this.base(page);
+            pathPages[depth] = page;
+            if (buffer.get(base) == BRANCH) {
+                final int i = upperBound(buffer, base, key, keyOffset, keyLength);
+                pathIndexes[depth++] = i;
+                page = branchChild(buffer, base, i);
+            } else {
+                pathIndexes[depth++] = this.lowerBound(buffer, base, key, keyOffset, keyLength);
+                page = 0L;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Replaces the child at each level of the path above the leaf (from the bottom up) with the nodes built below it.
+     * @return the new root
+     */
+    private long propagate(List<Node> nodes, long[] pathPages, int[] pathIndexes, int level) {
+        for (; level >= 0; level--) {
+            final long page = pathPages[level];
+            final ByteBuffer buffer = this.buffer(page);
+            final int base = this.base(page);
+            final int count = count(buffer, base);
+            final int i = pathIndexes[level];
+
+            final List<Long> children = new ArrayList<>(count + 2);
+            final List<Slice> keys = new ArrayList<>(count + 1);
+            children.add(buffer.getLong(base + 8));
+            for (int j = 0; j < count; j++) {
+                final int cell = cellOffset(buffer, base, j);
+                keys.add(new Slice(buffer, cell + 10, ushort(buffer, cell)));
+                children.add(buffer.getLong(cell + 2));
+            }
+
+            if (nodes.isEmpty()) {
+                // the child is gone, along with the key separating it from its left sibling (or right one, if leftmost)
+                children.remove(i);
+                if (!keys.isEmpty()) {
+                    keys.remove(i > 0 ? i - 1 : 0);
+                }
+            } else {
+                children.set(i, nodes.get(0).page);
+                if (nodes.size() > 1) {
+                    children.add(i + 1, nodes.get(1).page);
+                    keys.add(i, nodes.get(1).separator);
+                }
+            }
+
+            this.freePage(page);
+            nodes = children.isEmpty() ? new ArrayList<>() : this.writeBranches(children, keys);
+        }
+
+        if (nodes.isEmpty()) {
+            return 0L;
+        }
+
+        long root;
+        if (nodes.size() == 1) {
+            root = nodes.get(0).page;
+        } else {
+            final List<Long> children = new ArrayList<>(2);
+            children.add(nodes.get(0).page);
+            children.add(nodes.get(1).page);
+            final List<Slice> keys = new ArrayList<>(1);
+            keys.add(nodes.get(1).separator);
+            root = this.writeBranches(children, keys).get(0).page;
+        }
+
+        // a root with a single child is not needed
+        while (true) {
+            final ByteBuffer buffer = this.buffer(root);
+            final int base = this.base(root);
+            if (buffer.get(base) != BRANCH || count(buffer, base) > 0) {
+                return root;
+            }
+            final long child = buffer.getLong(base + 8);
+            this.freePage(root);
+            root = child;
+        }
+    }
+
+    private List<Node> writeLeaves(List<Slice> cells) {
+        int total = HEADER_BYTES;
+        for (Slice cell : cells) {
+            total += 2 + cell.length;
+        }
+
+        final List<Node> nodes = new ArrayList<>(2);
+        if (total <= this.pageSize) {
+            nodes.add(new Node(null, this.writeLeaf(cells, 0, cells.size())));
+            return nodes;
+        }
+
+        // split in two by size
+        final int half = total / 2;
+        int size = HEADER_BYTES;
+        int split = 0;
+        while (size < half) {
+            size += 2 + cells.get(split++).length;
+        }
+        final long left = this.writeLeaf(cells, 0, split);
+        final long right = this.writeLeaf(cells, split, cells.size());
+        nodes.add(new Node(null, left));
+        final ByteBuffer buffer = this.buffer(right);
+        final int cell = cellOffset(buffer, this.base(right), 0);
+        nodes.add(new Node(new Slice(buffer, cell + 6, ushort(buffer, cell)), right));
+        return nodes;
+    }
+
+    private long writeLeaf(List<Slice> cells, int from, int to) {
+        final long page = this.allocatePage();
+        final ByteBuffer buffer = this.buffer(page);
+        final int base = this.base(page);
+        final ByteBuffer writer = buffer.duplicate();
+        buffer.put(base, LEAF);
+        buffer.put(base + 1, (byte)0);
+        buffer.putShort(base + 2, (short)(to - from));
+        buffer.putInt(base + 4, 0);
+        buffer.putLong(base + 8, 0L);
+        int offset = HEADER_BYTES + (to - from) * 2;
+        for (int i = from; i < to; i++) {
+            final Slice cell = cells.get(i);
+            buffer.putShort(base + HEADER_BYTES + (i - from) * 2, (short)offset);
+            writer.position(base + offset);
+            writer.put(slice(cell.buffer, cell.offset, cell.length));
+            offset += cell.length;
+        }
+        return page;
+    }
+
+    private List<Node> writeBranches(List<Long> children, List<Slice> keys) {
+        int total = HEADER_BYTES;
+        for (Slice key : keys) {
+            total += 2 + 10 + key.length;
+        }
+
+        final List<Node> nodes = new ArrayList<>(2);
+        if (total <= this.pageSize) {
+            nodes.add(new Node(null, this.writeBranch(children, keys, 0, keys.size())));
+            return nodes;
+        }
+
+        // split in two by size, with the middle key moving up to the parent
+        final int half = total / 2;
+        int size = HEADER_BYTES;
+        int middle = 0;
+        while (size < half) {
+            size += 2 + 10 + keys.get(middle++).length;
+        }
+        middle = Math.min(middle, keys.size() - 1);
+        final long left = this.writeBranch(children, keys, 0, middle);
+        final long right = this.writeBranch(children, keys, middle + 1, keys.size());
+        nodes.add(new Node(null, left));
+        nodes.add(new Node(keys.get(middle), right));
+        return nodes;
+    }
+
+    /**
+     * Writes the keys from (inclusive) to (exclusive), with the children on either side of them.
+     */
+    private long writeBranch(List<Long> children, List<Slice> keys, int from, int to) {
+        final long page = this.allocatePage();
+        final ByteBuffer buffer = this.buffer(page);
+        final int base = this.base(page);
+        final ByteBuffer writer = buffer.duplicate();
+        buffer.put(base, BRANCH);
+        buffer.put(base + 1, (byte)0);
+        buffer.putShort(base + 2, (short)(to - from));
+        buffer.putInt(base + 4, 0);
+        buffer.putLong(base + 8, children.get(from));
+        int offset = HEADER_BYTES + (to - from) * 2;
+        for (int i = from; i < to; i++) {
+            final Slice key = keys.get(i);
+            buffer.putShort(base + HEADER_BYTES + (i - from) * 2, (short)offset);
+            buffer.putShort(base + offset, (short)key.length);
+            buffer.putLong(base + offset + 2, children.get(i + 1));
+            writer.position(base + offset + 10);
+            writer.put(slice(key.buffer, key.offset, key.length));
+            offset += 10 + key.length;
+        }
+        return page;
+    }
+
+    private long writeOverflow(ByteBuffer value, int valueOffset, int valueLength) {
+        final int dataBytes = this.pageSize - HEADER_BYTES;
+        final int pageCount = (valueLength + dataBytes - 1) / dataBytes;
+        final long[] pages = new long[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            pages[i] = this.allocatePage();
+        }
+        for (int i = 0; i < pageCount; i++) {
+            final ByteBuffer buffer = this.buffer(pages[i]);
+            final int base = this.base(pages[i]);
+            buffer.put(base, OVERFLOW);
+            buffer.putLong(base + 8, i + 1 < pageCount ? pages[i + 1] : 0L);
+            final ByteBuffer writer = buffer.duplicate();
+            writer.position(base + HEADER_BYTES);
+            final int length = Math.min(dataBytes, valueLength - i * dataBytes);
+            writer.put(slice(value, valueOffset + i * dataBytes, length));
+        }
+        return pages[0];
+    }
+
+    private void freeOverflow(long cellAddress) {
+        final ByteBuffer buffer = this.buffer(pageOf(cellAddress));
+        final int cell = this.base(pageOf(cellAddress)) + offsetOf(cellAddress);
+        if (buffer.getInt(cell + 2) >= 0) {
+            return;
+        }
+        long page = buffer.getLong(cell + 6 + ushort(buffer, cell));
+        while (page != 0L) {
+            final long next = this.buffer(page).getLong(this.base(page) + 8);
+            this.freePage(page);
+            page = next;
+        }
+    }
+
+    private long allocatePage() {
+        Long page = this.freePages.pollFirst();
+        if (page == null) {
+            page = this.pageCount++;
+            this.mapRegions(this.pageCount);
+        }
+        this.txnPages.add(page);
+        return page;
+    }
+
+    private void freePage(long page) {
+        if (this.txnPages.remove(page)) {
+            // never visible to a reader
+            this.opFreedPages.add(page);
+        } else {
+            this.txnFreedPages.add(page);
+        }
+    }
+
+    private void endOperation() {
+        this.freePages.addAll(this.opFreedPages);
+        this.opFreedPages.clear();
+    }
+
+    //
+    // lifecycle
+    //
+
+    /**
+     * Flushes every page to disk and then makes the current snapshot the durable one, which is what a persistent tree
+     * re-opens with (even after a crash).
+     */
+    void sync() {
+        this.writeLock.lock();
+        try {
+            final Snapshot snapshot = this.current;
+            if (snapshot == null || !this.persistent) {
+                return;
+            }
+            final ByteBuffer[] regions = this.regions;
+            for (ByteBuffer region : regions) {
+                ((MappedByteBuffer)region).force();
+            }
+            // the metadata pages alternate, so a torn write leaves the previous one intact
+            final ByteBuffer buffer = regions[0];
+            final int base = (int)(snapshot.txn % 2L) * this.pageSize;
+            buffer.putInt(base, MAGIC);
+            buffer.putInt(base + 4, VERSION);
+            buffer.putInt(base + 8, this.pageSize);
+            buffer.putLong(base + 16, snapshot.txn);
+            buffer.putLong(base + 24, snapshot.root);
+            buffer.putLong(base + 32, this.pageCount);
+            buffer.putLong(base + 40, snapshot.count);
+            buffer.putLong(base + 48, checksum(snapshot.txn, snapshot.root, this.pageCount, snapshot.count, this.pageSize));
+            ((MappedByteBuffer)buffer).force();
+            this.syncedTxn = snapshot.txn;
+            this.freePages.addAll(this.unsyncedFreePages);
+            this.unsyncedFreePages.clear();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    void close() {
+        this.writeLock.lock();
+        try {
+            if (this.current == null) {
+                return;
+            }
+            if (this.persistent) {
+                this.sync();
+            }
+            // the mappings are released by the GC once unreferenced, since a reader may still be using a page
+            this.current = null;
+            this.retired.clear();
+            this.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        this.mapRegions(FIRST_DATA_PAGE);
+
+        // the newest valid metadata
+        final ByteBuffer buffer = this.regions[0];
+        int best = -1;
+        for (int i = 0; i < 2; i++) {
+            final int base = i * this.pageSize;
+            if (buffer.getInt(base) == MAGIC && buffer.getInt(base + 4) == VERSION
+                    && buffer.getLong(base + 48) == checksum(buffer.getLong(base + 16), buffer.getLong(base + 24),
+                        buffer.getLong(base + 32), buffer.getLong(base + 40), buffer.getInt(base + 8))
+                    && (best < 0 || buffer.getLong(base + 16) > buffer.getLong(best * this.pageSize + 16))) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            throw new BigMapDataException("B-tree file " + this.file + " has no valid metadata");
+        }
+
+        final int base = best * this.pageSize;
+        if (buffer.getInt(base + 8) != this.pageSize) {
+            throw new BigMapDataException("B-tree file " + this.file + " has a page size of " + buffer.getInt(base + 8)
+                + " (not " + this.pageSize + ")");
+        }
+        final long txn = buffer.getLong(base + 16);
+        final long root = buffer.getLong(base + 24);
+        this.pageCount = buffer.getLong(base + 32);
+        this.mapRegions(this.pageCount);
+        this.current = new Snapshot(txn, root, buffer.getLong(base + 40));
+        this.syncedTxn = txn;
+
+        // any page not reachable from the root is free (the list of free pages itself is not stored)
+        final BitSet used = new BitSet();
+        final ArrayDeque<Long> pages = new ArrayDeque<>();
+        if (root != 0L) {
+            pages.add(root);
+        }
+        while (!pages.isEmpty()) {
+            final long page = pages.removeLast();
+            used.set((int)page);
+            final ByteBuffer pageBuffer = this.buffer(page);
+            final int pageBase = this.base(page);
+            final int count = count(pageBuffer, pageBase);
+            final byte type = pageBuffer.get(pageBase);
+            if (type == BRANCH) {
+                for (int i = 0; i <= count; i++) {
+                    pages.add(branchChild(pageBuffer, pageBase, i));
+                }
+            } else if (type == LEAF) {
+                for (int i = 0; i < count; i++) {
+                    final int cell = cellOffset(pageBuffer, pageBase, i);
+                    if (pageBuffer.getInt(cell + 2) < 0) {
+                        pages.add(pageBuffer.getLong(cell + 6 + ushort(pageBuffer, cell)));
+                    }
+                }
+            } else if (type == OVERFLOW) {
+                final long next = pageBuffer.getLong(pageBase + 8);
+                if (next != 0L) {
+                    pages.add(next);
+                }
+            }
+        }
+        for (long page = FIRST_DATA_PAGE; page < this.pageCount; page++) {
+            if (!used.get((int)page)) {
+                this.freePages.add(page);
+            }
+        }
+    }
+
+    private void mapRegions(long pageCount) {
+        final int regionCount = (int)((pageCount + PAGES_PER_REGION - 1) / PAGES_PER_REGION);
+        if (regionCount <= this.regions.length) {
+            return;
+        }
+        final ByteBuffer[] regions = Arrays.copyOf(this.regions, regionCount);
+        try {
+            for (int i = this.regions.length; i < regionCount; i++) {
+                // mapping past the end of the file grows it
+                regions[i] = this.channel.map(FileChannel.MapMode.READ_WRITE, (long)i * this.regionBytes, this.regionBytes);
+            }
+        } catch (IOException e) {
+            throw new BigMapDataException("Unable to map b-tree file " + this.file, e);
+        }
+        this.regions = regions;
+    }
+
+    //
+    // stats
+    //
+
+    long getPageCount() {
+        return this.pageCount;
+    }
+
+    int getFreePageCount() {
+        this.writeLock.lock();
+        try {
+            return this.freePages.size() + this.unsyncedFreePages.size();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    long getTxn() {
+        final Snapshot snapshot = this.current;
+        return snapshot != null ? snapshot.txn : 0L;
+    }
+
+    int getDepth() {
+        final Snapshot snapshot = this.pin();
+        try {
+            int depth = 0;
+            long page = snapshot.root;
+            while (page != 0L) {
+                depth++;
+                final ByteBuffer buffer = this.buffer(page);
+                final int base = this.base(page);
+                page = buffer.get(base) == BRANCH ? buffer.getLong(base + 8) : 0L;
+            }
+            return depth;
+        } finally {
+            this.unpin(snapshot);
+        }
+    }
+
+    //
+    // page helpers
+    //
+
+    private ByteBuffer buffer(long page) {
+        return this.regions[(int)(page / PAGES_PER_REGION)];
+    }
+
+    private int base(long page) {
+        return (int)(page % PAGES_PER_REGION) * this.pageSize;
+    }
+
+    static private long address(long page, int offsetInPage) {
+        return (page << 16) | offsetInPage;
+    }
+
+    static private long pageOf(long address) {
+        return address >>> 16;
+    }
+
+    static private int offsetOf(long address) {
+        return (int)(address & 0xFFFFL);
+    }
+
+    static private int ushort(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+
+    static private int count(ByteBuffer buffer, int base) {
+        return ushort(buffer, base + 2);
+    }
+
+    static private int cellOffset(ByteBuffer buffer, int base, int i) {
+        return base + ushort(buffer, base + HEADER_BYTES + i * 2);
+    }
+
+    static private long branchChild(ByteBuffer buffer, int base, int i) {
+        return i == 0 ? buffer.getLong(base + 8) : buffer.getLong(cellOffset(buffer, base, i - 1) + 2);
+    }
+
+    private Slice leafCell(ByteBuffer buffer, int base, int i) {
+        final int cell = cellOffset(buffer, base, i);
+        final int keyLength = ushort(buffer, cell);
+        final int valueLength = buffer.getInt(cell + 2);
+        return new Slice(buffer, cell, 6 + keyLength + (valueLength >= 0 ? valueLength : 8));
+    }
+
+    /**
+     * The index of the first cell of the leaf with a key >= the key.
+     */
+    private int lowerBound(ByteBuffer buffer, int base, ByteBuffer key, int keyOffset, int keyLength) {
+        int low = 0;
+        int high = count(buffer, base);
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            final int cell = cellOffset(buffer, base, mid);
+            if (compare(buffer, cell + 6, ushort(buffer, cell), key, keyOffset, keyLength) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The index of the child of the branch the key belongs in (the number of keys <= the key).
+     */
+    static private int upperBound(ByteBuffer buffer, int base, ByteBuffer key, int keyOffset, int keyLength) {
+        int low = 0;
+        int high = count(buffer, base);
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            final int cell = cellOffset(buffer, base, mid);
+            if (compare(buffer, cell + 10, ushort(buffer, cell), key, keyOffset, keyLength) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int valueLength(long cellAddress) {
+        final ByteBuffer buffer = this.buffer(pageOf(cellAddress));
+        final int cell = this.base(pageOf(cellAddress)) + offsetOf(cellAddress);
+        final int valueLength = buffer.getInt(cell + 2);
+        return valueLength >= 0 ? valueLength : ~valueLength;
+    }
+
+    private byte[] readValue(long cellAddress) {
+        final ByteBuffer value = ByteBuffer.wrap(new byte[this.valueLength(cellAddress)]);
+        this.copyValue(cellAddress, value);
+        return value.array();
+    }
+
+    private void copyValue(long cellAddress, ByteBuffer target) {
+        final ByteBuffer buffer = this.buffer(pageOf(cellAddress));
+        final int cell = this.base(pageOf(cellAddress)) + offsetOf(cellAddress);
+        final int keyLength = ushort(buffer, cell);
+        final int valueLength = buffer.getInt(cell + 2);
+        if (valueLength >= 0) {
+            target.put(slice(buffer, cell + 6 + keyLength, valueLength));
+            return;
+        }
+        final int dataBytes = this.pageSize - HEADER_BYTES;
+        int remaining = ~valueLength;
+        long page = buffer.getLong(cell + 6 + keyLength);
+        while (remaining > 0) {
+            final ByteBuffer pageBuffer = this.buffer(page);
+            final int base = this.base(page);
+            final int length = Math.min(dataBytes, remaining);
+            target.put(slice(pageBuffer, base + HEADER_BYTES, length));
+            remaining -= length;
+            page = pageBuffer.getLong(base + 8);
+        }
+    }
+
+    static private ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        final ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length).position(offset);
+        return slice;
+    }
+
+    static private ByteBuffer bigEndian(ByteBuffer buffer) {
+        // keys are compared 8 bytes at a time, which must be in the same order as the pages
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? buffer : buffer.duplicate();
+    }
+
+    /**
+     * Compares bytes as unsigned, lexicographically (just like Bytes.compare).
+     */
+    static int compare(ByteBuffer a, int aOffset, int aLength, ByteBuffer b, int bOffset, int bLength) {
+        final int length = Math.min(aLength, bLength);
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            final long x = a.getLong(aOffset + i);
+            final long y = b.getLong(bOffset + i);
+            if (x != y) {
+                return Long.compareUnsigned(x, y);
+            }
+        }
+        for (; i < length; i++) {
+            final int x = a.get(aOffset + i) & 0xFF;
+            final int y = b.get(bOffset + i) & 0xFF;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    static private long checksum(long txn, long root, long pageCount, long count, int pageSize) {
+        long h = MAGIC;
+        h = h * 0x100000001B3L ^ txn;
+        h = h * 0x100000001B3L ^ root;
+        h = h * 0x100000001B3L ^ pageCount;
+        h = h * 0x100000001B3L ^ count;
+        h = h * 0x100000001B3L ^ pageSize;
+        return h ^ (h >>> 29);
+    }
+
+    //
+    // iteration
+    //
+
+    /**
+     * A position in a snapshot of the tree, as the path of pages (and the index taken in each) down to a leaf cell.
+     */
+    private class Cursor {
+
+        private final long root;
+        private final long[] pages;
+        private final int[] indexes;
+        private int depth;
+        boolean valid;
+
+        Cursor(long root) {
+            this.root = root;
+            this.pages = new long[MAX_DEPTH];
+            this.indexes = new int[MAX_DEPTH];
+        }
+
+        void first() {
+            this.depth = 0;
+            if (this.root == 0L) {
+                this.valid = false;
+                return;
+            }
+            this.pushLeftmost(this.root);
+            this.settleForward();
+        }
+
+        void last() {
+            this.depth = 0;
+            if (this.root == 0L) {
+                this.valid = false;
+                return;
+            }
+            this.pushRightmost(this.root);
+            this.settleBackward();
+        }
+
+        void seekGE(byte[] keyBytes) {
+            this.depth = 0;
+            if (this.root == 0L) {
+                this.valid = false;
+                return;
+            }
+            final ByteBuffer key = ByteBuffer.wrap(keyBytes);
+            long page = this.root;
+            while (true) {
+                final ByteBuffer buffer = BTreeStore.this.buffer(page);
+                final int base = BTreeStore.this.base(page);
+                this.pages[this.depth] = page;
+                if (buffer.get(base) == BRANCH) {
+                    final int i = upperBound(buffer, base, key, 0, keyBytes.length);
+                    this.indexes[this.depth++] = i;
+                    page = branchChild(buffer, base, i);
+                } else {
+                    this.indexes[this.depth++] = BTreeStore.this.lowerBound(buffer, base, key, 0, keyBytes.length);
+                    break;
+                }
+            }
+            this.settleForward();
+        }
+
+        void seekLT(byte[] keyBytes) {
+            this.seekGE(keyBytes);
+            if (this.valid) {
+                this.prev();
+            } else {
+                this.last();
+            }
+        }
+
+        void next() {
+            this.indexes[this.depth - 1]++;
+            this.settleForward();
+        }
+
+        void prev() {
+            this.indexes[this.depth - 1]--;
+            this.settleBackward();
+        }
+
+        int compareKey(byte[] keyBytes) {
+            final long page = this.pages[this.depth - 1];
+            final ByteBuffer buffer = BTreeStore.this.buffer(page);
+            final int cell = cellOffset(buffer, BTreeStore.this.base(page), this.indexes[this.depth - 1]);
+            return compare(buffer, cell + 6, ushort(buffer, cell), ByteBuffer.wrap(keyBytes), 0, keyBytes.length);
+        }
+
+        byte[] key() {
+            final long page = this.pages[this.depth - 1];
+            final ByteBuffer buffer = BTreeStore.this.buffer(page);
+            final int cell = cellOffset(buffer, BTreeStore.this.base(page), this.indexes[this.depth - 1]);
+            final byte[] key = new byte[ushort(buffer, cell)];
+            slice(buffer, cell + 6, key.length).get(key);
+            return key;
+        }
+
+        byte[] value() {
+            final long page = this.pages[this.depth - 1];
+            final int base = BTreeStore.this.base(page);
+            final int cell = cellOffset(BTreeStore.this.buffer(page), base, this.indexes[this.depth - 1]);
+            return BTreeStore.this.readValue(address(page, cell - base));
+        }
+
+        private void pushLeftmost(long page) {
+            while (true) {
+                this.pages[this.depth] = page;
+                this.indexes[this.depth++] = 0;
+                final ByteBuffer buffer = BTreeStore.this.buffer(page);
+                final int base = BTreeStore.this.base(page);
+                if (buffer.get(base) != BRANCH) {
+                    return;
+                }
+                page = buffer.getLong(base + 8);
+            }
+        }
+
+        private void pushRightmost(long page) {
+            while (true) {
+                final ByteBuffer buffer = BTreeStore.this.buffer(page);
+                final int base = BTreeStore.this.base(page);
+                final int count = count(buffer, base);
+                this.pages[this.depth] = page;
+                if (buffer.get(base) != BRANCH) {
+                    this.indexes[this.depth++] = count - 1;
+                    return;
+                }
+                this.indexes[this.depth++] = count;
+                page = branchChild(buffer, base, count);
+            }
+        }
+
+        /**
+         * Moves forward to the next leaf if past the end of the current one.
+         */
+        private void settleForward() {
+            while (true) {
+                final long leaf = this.pages[this.depth - 1];
+                if (this.indexes[this.depth - 1] < count(BTreeStore.this.buffer(leaf), BTreeStore.this.base(leaf))) {
+                    this.valid = true;
+                    return;
+                }
+                // climb to the first branch with a child to the right
+                this.depth--;
+                while (this.depth > 0 && this.indexes[this.depth - 1] >= this.branchCount(this.depth - 1)) {
+                    this.depth--;
+                }
+                if (this.depth == 0) {
+                    this.valid = false;
+                    return;
+                }
+                final int i = ++this.indexes[this.depth - 1];
+                final long branch = this.pages[this.depth - 1];
+                this.pushLeftmost(branchChild(BTreeStore.this.buffer(branch), BTreeStore.this.base(branch), i));
+            }
+        }
+
+        /**
+         * Moves back to the previous leaf if before the start of the current one.
+         */
+        private void settleBackward() {
+            while (true) {
+                final long leaf = this.pages[this.depth - 1];
+                final int i = this.indexes[this.depth - 1];
+                if (i >= 0 && i < count(BTreeStore.this.buffer(leaf), BTreeStore.this.base(leaf))) {
+                    this.valid = true;
+                    return;
+                }
+                // climb to the first branch with a child to the left
+                this.depth--;
+                while (this.depth > 0 && this.indexes[this.depth - 1] <= 0) {
+                    this.depth--;
+                }
+                if (this.depth == 0) {
+                    this.valid = false;
+                    return;
+                }
+                final int j = --this.indexes[this.depth - 1];
+                final long branch = this.pages[this.depth - 1];
+                this.pushRightmost(branchChild(BTreeStore.this.buffer(branch), BTreeStore.this.base(branch), j));
+            }
+        }
+
+        private int branchCount(int level) {
+            final long page = this.pages[level];
+            return count(BTreeStore.this.buffer(page), BTreeStore.this.base(page));
+        }
+
+    }
+
+    private class RangeIterator implements CloseableIterator<KeyValueBytes> {
+
+        private final byte[] fromKeyBytes;
+        private final byte[] toKeyBytes;
+        private final boolean reverse;
+        private final ArrayDeque<KeyValueBytes> batch;
+        private byte[] lastKeyBytes;
+        private boolean done;
+
+        RangeIterator(byte[] fromKeyBytes, byte[] toKeyBytes, boolean reverse) {
+            this.fromKeyBytes = fromKeyBytes;
+            this.toKeyBytes = toKeyBytes;
+            this.reverse = reverse;
+            this.batch = new ArrayDeque<>(ITERATOR_BATCH_SIZE);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.batch.isEmpty() && !this.done) {
+                this.fill();
+            }
+            return !this.batch.isEmpty();
+        }
+
+        @Override
+        public KeyValueBytes next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.batch.removeFirst();
+        }
+
+        @Override
+        public void close() {
+            // nothing is pinned between batches, so there's only the current batch to let go of
+            this.done = true;
+            this.batch.clear();
+        }
+
+        private void fill() {
+            final Snapshot snapshot = BTreeStore.this.pin();
+            try {
+                final Cursor cursor = new Cursor(snapshot.root);
+                if (!this.reverse) {
+                    // resume just past the last key returned
+                    if (this.lastKeyBytes != null) {
+                        cursor.seekGE(this.lastKeyBytes);
+                        if (cursor.valid && cursor.compareKey(this.lastKeyBytes) == 0) {
+                            cursor.next();
+                        }
+                    } else if (this.fromKeyBytes != null) {
+                        cursor.seekGE(this.fromKeyBytes);
+                    } else {
+                        cursor.first();
+                    }
+                    while (cursor.valid && this.batch.size() < ITERATOR_BATCH_SIZE) {
+                        if (this.toKeyBytes != null && cursor.compareKey(this.toKeyBytes) >= 0) {
+                            this.done = true;
+                            break;
+                        }
+                        this.batch.addLast(new KeyValueBytes(cursor.key(), cursor.value()));
+                        cursor.next();
+                    }
+                } else {
+                    if (this.lastKeyBytes != null) {
+                        cursor.seekLT(this.lastKeyBytes);
+                    } else if (this.toKeyBytes != null) {
+                        cursor.seekLT(this.toKeyBytes);
+                    } else {
+                        cursor.last();
+                    }
+                    while (cursor.valid && this.batch.size() < ITERATOR_BATCH_SIZE) {
+                        if (this.fromKeyBytes != null && cursor.compareKey(this.fromKeyBytes) < 0) {
+                            this.done = true;
+                            break;
+                        }
+                        this.batch.addLast(new KeyValueBytes(cursor.key(), cursor.value()));
+                        cursor.prev();
+                    }
+                }
+                if (!cursor.valid) {
+                    this.done = true;
+                }
+                if (!this.batch.isEmpty()) {
+                    this.lastKeyBytes = this.batch.peekLast().getKey();
+                }
+            } finally {
+                BTreeStore.this.unpin(snapshot);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import com.fizzed.bigmap.ByteCodec;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.impl.AbstractBigMap;
+import com.fizzed.bigmap.impl.ByteArrayBigMap;
+import com.fizzed.bigmap.impl.KeyValueBytes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A map stored entirely off-heap in pure java (no natives), as a hash index of entries appended to direct buffers,
+ * spilling to memory-mapped scratch files once its memory budget is used up.  Lookups are a hash probe and a compare
+ * of the key bytes, without any JNI or the garbage collector having to trace the entries.  The entries are not
+ * sorted and iterate in an effectively random order, just like a java HashMap.  A map holds at most about 3.2 billion
+ * (3/4 of 2^32) entries.
+ */
+public class OffHeapBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBigMap<K,V> {
+
+    static public final long DEFAULT_MAX_MEMORY_BYTES = 256L * 1024L * 1024L;
+    static public final int DEFAULT_MAX_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+    protected long maxMemoryBytes = DEFAULT_MAX_MEMORY_BYTES;
+    protected int maxSegmentBytes = DEFAULT_MAX_SEGMENT_BYTES;
+    protected OffHeapStore store;
+
+    protected OffHeapBigMap(
+            UUID id,
+            Path directory,
+            boolean persistent,
+            ByteCodec<K> keyCodec,
+            Comparator<K> keyComparator,
+            ByteCodec<V> valueCodec) {
+
+        super(id, directory, persistent, keyCodec, keyComparator, valueCodec);
+
+        Objects.requireNonNull(valueCodec, "valueCodec was null");
+    }
+
+    public long getMaxMemoryBytes() {
+        return this.maxMemoryBytes;
+    }
+
+    /**
+     * The direct memory used for entries and the hash index before spilling to memory-mapped scratch files.  Must be
+     * set before the map is opened.
+     */
+    public void setMaxMemoryBytes(long maxMemoryBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    public int getMaxSegmentBytes() {
+        return this.maxSegmentBytes;
+    }
+
+    /**
+     * The largest chunk of memory (or scratch file) entries are appended to.  Segments start small and double up to
+     * this size.  Must be set before the map is opened.
+     */
+    public void setMaxSegmentBytes(int maxSegmentBytes) {
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    @Override
+    protected void _open() {
+        try {
+            // the scratch directory stays empty unless the memory budget is used up
+            Files.createDirectories(this.path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.store = new OffHeapStore(this.path, this.maxMemoryBytes, this.maxSegmentBytes);
+
+        this.closer = new OffHeapBigObjectCloser(this.id, this.persistent, this.path, this.store);
+    }
+
+    @Override
+    public long _count() {
+        return this.store.count();
+    }
+
+    @Override
+    public byte[] _get(byte[] keyBytes) {
+        return this.store.get(ByteBuffer.wrap(keyBytes), 0, keyBytes.length);
+    }
+
+    @Override
+    public byte[] _put(byte[] keyBytes, byte[] valueBytes) {
+        return this.store.put(ByteBuffer.wrap(keyBytes), 0, keyBytes.length, ByteBuffer.wrap(valueBytes), 0, valueBytes.length, true);
+    }
+
+    @Override
+    public void _set(byte[] keyBytes, byte[] valueBytes) {
+        this.store.put(ByteBuffer.wrap(keyBytes), 0, keyBytes.length, ByteBuffer.wrap(valueBytes), 0, valueBytes.length, false);
+    }
+
+    @Override
+    public boolean _containsKey(byte[] keyBytes) {
+        return this.store.containsKey(ByteBuffer.wrap(keyBytes), 0, keyBytes.length);
+    }
+
+    @Override
+    public byte[] _remove(byte[] keyBytes) {
+        return this.store.remove(ByteBuffer.wrap(keyBytes), 0, keyBytes.length, true);
+    }
+
+    @Override
+    public void _delete(byte[] keyBytes) {
+        this.store.remove(ByteBuffer.wrap(keyBytes), 0, keyBytes.length, false);
+    }
+
+    @Override
+    public boolean _isByteBufferSupported() {
+        return true;
+    }
+
+    @Override
+    public ByteBuffer _get(ByteBuffer keyBuffer) {
+        // a view of the value straight from off-heap memory, nothing is copied
+        return this.store.getBuffer(keyBuffer, keyBuffer.position(), keyBuffer.remaining());
+    }
+
+    @Override
+    public void _set(ByteBuffer keyBuffer, ByteBuffer valueBuffer) {
+        this.store.put(keyBuffer, keyBuffer.position(), keyBuffer.remaining(), valueBuffer, valueBuffer.position(), valueBuffer.remaining(), false);
+    }
+
+    @Override
+    public boolean _containsKey(ByteBuffer keyBuffer) {
+        return this.store.containsKey(keyBuffer, keyBuffer.position(), keyBuffer.remaining());
+    }
+
+    @Override
+    public void _delete(ByteBuffer keyBuffer) {
+        this.store.remove(keyBuffer, keyBuffer.position(), keyBuffer.remaining(), false);
+    }
+
+    @Override
+    public void _writeBatch(List<KeyValueBytes> sets, List<byte[]> deletes) {
+        this.store.write(sets, deletes);
+    }
+
+    @Override
+    public CloseableIterator<KeyValueBytes> _forwardIterator() {
+        return this.store.iterator();
+    }
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        this.checkIfClosed();
+
+        final Map<String,Object> stats = new LinkedHashMap<>();
+        final Lock readLock = this.store.readLock();
+        readLock.lock();
+        try {
+            stats.put("offheap.memory-bytes", this.store.getMemoryBytes());
+            stats.put("offheap.mapped-bytes", this.store.getMappedBytes());
+            stats.put("offheap.written-bytes", this.store.getWrittenBytes());
+            stats.put("offheap.live-bytes", this.store.getLiveBytes());
+            stats.put("offheap.segments", this.store.getSegmentCount());
+            stats.put("offheap.index-capacity", this.store.getIndexCapacity());
+            stats.put("offheap.compactions", this.store.getCompactions());
+        } finally {
+            readLock.unlock();
+        }
+        return stats;
+    }
+
+}
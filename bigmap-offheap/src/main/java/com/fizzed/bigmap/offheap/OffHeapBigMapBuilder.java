@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import com.fizzed.bigmap.impl.AbstractBigMapBuilder;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+public class OffHeapBigMapBuilder<K,V> extends AbstractBigMapBuilder<K,V,OffHeapBigMapBuilder<K,V>> {
+
+    protected long maxMemoryBytes = OffHeapBigMap.DEFAULT_MAX_MEMORY_BYTES;
+    protected int maxSegmentBytes = OffHeapBigMap.DEFAULT_MAX_SEGMENT_BYTES;
+
+    /**
+     * The direct memory used for entries and their hash index before spilling to memory-mapped scratch files.  The direct memory of the
+     * whole JVM is capped by -XX:MaxDirectMemorySize (the max heap size by default), beyond which maps spill too.
+     */
+    public OffHeapBigMapBuilder<K,V> setMaxMemoryBytes(long maxMemoryBytes) {
+        if (maxMemoryBytes < 0) {
+            throw new IllegalArgumentException("maxMemoryBytes must be >= 0");
+        }
+        this.maxMemoryBytes = maxMemoryBytes;
+        return this;
+    }
+
+    public OffHeapBigMapBuilder<K,V> setMaxSegmentBytes(int maxSegmentBytes) {
+        if (maxSegmentBytes <= 0) {
+            throw new IllegalArgumentException("maxSegmentBytes must be > 0");
+        }
+        this.maxSegmentBytes = maxSegmentBytes;
+        return this;
+    }
+
+    public OffHeapBigMap<K,V> build() {
+        if (this.persistent) {
+            throw new IllegalArgumentException("An off-heap map cannot be persistent");
+        }
+
+        final UUID id = this.resolveId();
+        final Path dir = this.resolvePath(id, "bigmap-offheap");
+
+        final OffHeapBigMap<K,V> map = new OffHeapBigMap<>(id, dir, this.persistent, this.keyCodec, this.keyComparator, this.valueCodec);
+        map.setMaxMemoryBytes(this.maxMemoryBytes);
+        map.setMaxSegmentBytes(this.maxSegmentBytes);
+        map.setSizeTracked(this.sizeTracked);
+        this.applyBloomFilter(map);
+        map.setMetrics(this.buildMetrics());
+        map.setListener(this.registry);
+        map.open();
+        return map;
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import com.fizzed.bigmap.ByteCodecs;
+import com.fizzed.bigmap.impl.AbstractBigSetBuilder;
+import com.fizzed.bigmap.impl.None;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+public class OffHeapBigSetBuilder<V> extends AbstractBigSetBuilder<V,OffHeapBigSetBuilder<V>> {
+
+    protected long maxMemoryBytes = OffHeapBigMap.DEFAULT_MAX_MEMORY_BYTES;
+
+    /**
+     * The direct memory used for values and their hash index before spilling to memory-mapped scratch files.
+     */
+    public OffHeapBigSetBuilder<V> setMaxMemoryBytes(long maxMemoryBytes) {
+        if (maxMemoryBytes < 0) {
+            throw new IllegalArgumentException("maxMemoryBytes must be >= 0");
+        }
+        this.maxMemoryBytes = maxMemoryBytes;
+        return this;
+    }
+
+    public OffHeapBigSet<V> build() {
+        if (this.persistent) {
+            throw new IllegalArgumentException("An off-heap set cannot be persistent");
+        }
+
+        final UUID id = this.resolveId();
+        final Path dir = this.resolvePath(id, "bigset-offheap");
+
+        final OffHeapBigMap<V,None> map = new OffHeapBigMap<>(id, dir, this.persistent, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+        map.setMaxMemoryBytes(this.maxMemoryBytes);
+
+        this.applyBloomFilter(map);
+
+        map.setMetrics(this.buildMetrics());
+
+        final OffHeapBigSet<V> set = new OffHeapBigSet<>(map);
+        set.setListener(this.registry);
+        set.open();
+        return set;
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import com.fizzed.bigmap.BigMapDataException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+
+/**
+ * The slots of the hash index of an OffHeapStore, split across pages so the index is not limited to what fits in one
+ * buffer.  Like segments, pages are direct buffers while they fit in the memory budget and memory-mapped scratch files
+ * after that.  A slot is [long address + 1][int hash of the key], addressed by its (long) number.
+ */
+class OffHeapIndex {
+
+    static final int SLOT_BYTES = 12;
+    static final int DEFAULT_PAGE_SHIFT = 20;               // 1M slots (12MB) per page
+
+    private final long capacity;
+    private final int pageShift;
+    private final long pageMask;
+    private final ByteBuffer[] pages;
+    private final Path[] files;                             // null where the page is in memory
+    private long memoryBytes;
+    private long mappedBytes;
+
+    /**
+     * @param capacity the number of slots, a power of two
+     * @param pageShift the log2 of the most slots per page
+     * @param availableMemoryBytes how much of the memory budget the pages may use, the rest are mapped files
+     * @param fileSupplier the next scratch file a page can be mapped to
+     */
+    OffHeapIndex(long capacity, int pageShift, long availableMemoryBytes, Supplier<Path> fileSupplier) {
+        final long pageSlots = Math.min(capacity, 1L << pageShift);
+        this.capacity = capacity;
+        this.pageShift = pageShift;
+        this.pageMask = (1L << pageShift) - 1L;
+        final int pageCount = capacity > 0 ? (int)(capacity / pageSlots) : 0;
+        this.pages = new ByteBuffer[pageCount];
+        this.files = new Path[pageCount];
+
+        final int pageBytes = (int)(pageSlots * SLOT_BYTES);
+        try {
+            for (int i = 0; i < pageCount; i++) {
+                this.pages[i] = this.allocatePage(i, pageBytes, availableMemoryBytes, fileSupplier);
+            }
+        } catch (RuntimeException e) {
+            this.deleteFiles();
+            throw e;
+        }
+    }
+
+    private ByteBuffer allocatePage(int page, int pageBytes, long availableMemoryBytes, Supplier<Path> fileSupplier) {
+        if (this.memoryBytes + pageBytes <= availableMemoryBytes) {
+            try {
+                final ByteBuffer buffer = ByteBuffer.allocateDirect(pageBytes);
+                this.memoryBytes += pageBytes;
+                return buffer;
+            } catch (OutOfMemoryError e) {
+                // the direct memory of the jvm (-XX:MaxDirectMemorySize) is used up, so spill to a file instead
+            }
+        }
+
+        try {
+            final Path file = fileSupplier.get();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // a new file reads as zeros, which are empty slots
+                final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, pageBytes);
+                this.files[page] = file;
+                this.mappedBytes += pageBytes;
+                return buffer;
+            }
+        } catch (IOException e) {
+            throw new BigMapDataException("Unable to map off-heap index", e);
+        }
+    }
+
+    long capacity() {
+        return this.capacity;
+    }
+
+    long getAddress(long slot) {
+        return this.pages[(int)(slot >>> this.pageShift)].getLong(this.offsetOf(slot));
+    }
+
+    void putAddress(long slot, long address) {
+        this.pages[(int)(slot >>> this.pageShift)].putLong(this.offsetOf(slot), address);
+    }
+
+    int getHash(long slot) {
+        return this.pages[(int)(slot >>> this.pageShift)].getInt(this.offsetOf(slot) + 8);
+    }
+
+    void putHash(long slot, int hash) {
+        this.pages[(int)(slot >>> this.pageShift)].putInt(this.offsetOf(slot) + 8, hash);
+    }
+
+    private int offsetOf(long slot) {
+        return (int)(slot & this.pageMask) * SLOT_BYTES;
+    }
+
+    long getMemoryBytes() {
+        return this.memoryBytes;
+    }
+
+    long getMappedBytes() {
+        return this.mappedBytes;
+    }
+
+    void deleteFiles() {
+        for (Path file : this.files) {
+            if (file != null) {
+                try {
+                    // on some OSes a file can't be deleted while mapped, it'll then go with the directory on close
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+}
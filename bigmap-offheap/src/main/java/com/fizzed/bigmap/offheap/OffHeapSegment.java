@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * An append-only region of off-heap memory that records are written to, either a direct buffer or a memory-mapped
+ * scratch file.  Records are never changed once written, so readers can safely keep using a buffer of the segment.
+ */
+class OffHeapSegment {
+
+    final ByteBuffer buffer;
+    final Path file;                // null if in memory
+    private final ByteBuffer writer;
+    private int position;
+
+    OffHeapSegment(ByteBuffer buffer, Path file) {
+        this.buffer = buffer;
+        this.file = file;
+        this.writer = buffer.duplicate();
+    }
+
+    int capacity() {
+        return this.buffer.capacity();
+    }
+
+    int position() {
+        return this.position;
+    }
+
+    int remaining() {
+        return this.buffer.capacity() - this.position;
+    }
+
+    /**
+     * Appends the bytes between the offset and offset + length of the source (which is left unchanged).
+     */
+    void append(ByteBuffer source, int offset, int length) {
+        final ByteBuffer src = source.duplicate();
+        src.limit(offset + length).position(offset);
+        this.writer.position(this.position);
+        this.writer.put(src);
+        this.position += length;
+    }
+
+    void appendInt(int value) {
+        this.buffer.putInt(this.position, value);
+        this.position += 4;
+    }
+
+}
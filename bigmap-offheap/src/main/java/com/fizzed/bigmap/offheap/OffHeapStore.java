@@ -0,0 +1,692 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import com.fizzed.bigmap.BigMapDataException;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.impl.KeyValueBytes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The engine of an OffHeapBigMap: an open-addressing hash index (linear probing) of records appended to off-heap
+ * segments.  Segments and the pages of the index share one memory budget: they are direct buffers until it is used up,
+ * after which they are memory-mapped scratch files, so the OS pages them in and out as needed.
+ *
+ * A record is [int keyLength][int valueLength][key][value] and is never changed once written: overwriting or deleting a
+ * key leaves its old record as garbage, which is reclaimed by compacting the live records into new segments once it
+ * is more than half of the bytes written.  A slot of the index (see OffHeapIndex) holds the address + 1 of a record,
+ * where the address is the segment in the upper 32 bits and the offset in the lower ones (zero is an empty slot and -1
+ * a deleted one, which is skipped by lookups and re-used by inserts).
+ *
+ * Safe to use from many threads: reads share a lock and writes are exclusive.
+ */
+class OffHeapStore {
+
+    static private final long EMPTY = 0L;
+    static private final long DELETED = -1L;
+    static private final int RECORD_HEADER_BYTES = 8;
+    static private final int MIN_CAPACITY = 64;
+    static private final long MAX_CAPACITY = 1L << 32;              // every slot the 32-bit hash of a key can pick
+    static private final int MIN_SEGMENT_BYTES = 64 * 1024;
+    static private final int ITERATOR_BATCH_SIZE = 128;
+
+    private final Path directory;
+    private final long maxMemoryBytes;
+    private final int maxSegmentBytes;
+    private final int indexPageShift;
+    private final ReentrantReadWriteLock lock;
+    private OffHeapIndex index;
+    private long count;                 // live slots
+    private long deleted;               // deleted slots
+    private int rehashes;               // any iterators of the index before a rehash are invalid
+    private List<OffHeapSegment> segments;
+    private OffHeapSegment current;     // the segment being appended to
+    private long memoryBytes;           // of the segments in direct buffers (the index keeps track of its own)
+    private long mappedBytes;           // of the segments in memory-mapped files
+    private long writtenBytes;          // of every record in the segments
+    private long liveBytes;             // of the records still in the index
+    private int fileCounter;
+    private long compactions;
+    private boolean closed;
+
+    OffHeapStore(Path directory, long maxMemoryBytes, int maxSegmentBytes) {
+        this(directory, maxMemoryBytes, maxSegmentBytes, OffHeapIndex.DEFAULT_PAGE_SHIFT);
+    }
+
+    OffHeapStore(Path directory, long maxMemoryBytes, int maxSegmentBytes, int indexPageShift) {
+        this.directory = directory;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.indexPageShift = indexPageShift;
+        this.lock = new ReentrantReadWriteLock();
+        this.segments = new ArrayList<>();
+        this.index = this.allocateIndex(MIN_CAPACITY);
+    }
+
+    //
+    // reads
+    //
+
+    long count() {
+        final Lock readLock = this.lock.readLock();
+        readLock.lock();
+        try {
+            return this.count;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    boolean containsKey(ByteBuffer key, int keyOffset, int keyLength) {
+        key = bigEndian(key);
+        final Lock readLock = this.lock.readLock();
+        readLock.lock();
+        try {
+            this.checkIfClosed();
+            return this.find(key, keyOffset, keyLength, hash(key, keyOffset, keyLength)) >= 0;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    byte[] get(ByteBuffer key, int keyOffset, int keyLength) {
+        key = bigEndian(key);
+        final Lock readLock = this.lock.readLock();
+        readLock.lock();
+        try {
+            this.checkIfClosed();
+            final long slot = this.find(key, keyOffset, keyLength, hash(key, keyOffset, keyLength));
+            return slot >= 0 ? this.readValue(this.address(slot)) : null;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Gets a read-only view of the value, straight from its segment.  Records are never changed once written, so the
+     * view stays valid even if the key is overwritten (or the map compacted) afterwards.
+     */
+    ByteBuffer getBuffer(ByteBuffer key, int keyOffset, int keyLength) {
+        key = bigEndian(key);
+        final Lock readLock = this.lock.readLock();
+        readLock.lock();
+        try {
+            this.checkIfClosed();
+            final long slot = this.find(key, keyOffset, keyLength, hash(key, keyOffset, keyLength));
+            if (slot < 0) {
+                return null;
+            }
+            final long address = this.address(slot);
+            final ByteBuffer segment = this.segments.get(segmentOf(address)).buffer;
+            final int offset = offsetOf(address);
+            final int valueOffset = offset + RECORD_HEADER_BYTES + segment.getInt(offset);
+            final ByteBuffer value = segment.asReadOnlyBuffer();
+            value.limit(valueOffset + segment.getInt(offset + 4)).position(valueOffset);
+            return value;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //
+    // writes
+    //
+
+    /**
+     * @return the old value if requested and the key existed, otherwise null
+     */
+    byte[] put(ByteBuffer key, int keyOffset, int keyLength, ByteBuffer value, int valueOffset, int valueLength, boolean returnOld) {
+        final Lock writeLock = this.lock.writeLock();
+        writeLock.lock();
+        try {
+            this.checkIfClosed();
+            final byte[] oldValue = this.doPut(bigEndian(key), keyOffset, keyLength, value, valueOffset, valueLength, returnOld);
+            this.compactIfNeeded();
+            return oldValue;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the old value if requested and the key existed, otherwise null
+     */
+    byte[] remove(ByteBuffer key, int keyOffset, int keyLength, boolean returnOld) {
+        final Lock writeLock = this.lock.writeLock();
+        writeLock.lock();
+        try {
+            this.checkIfClosed();
+            return this.doRemove(bigEndian(key), keyOffset, keyLength, returnOld);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Applies all the sets and deletes at once, so no reader sees only some of them.
+     */
+    void write(List<KeyValueBytes> sets, List<byte[]> deletes) {
+        final Lock writeLock = this.lock.writeLock();
+        writeLock.lock();
+        try {
+            this.checkIfClosed();
+            for (KeyValueBytes kvb : sets) {
+                final ByteBuffer key = ByteBuffer.wrap(kvb.getKey());
+                final ByteBuffer value = ByteBuffer.wrap(kvb.getValue());
+                this.doPut(key, 0, kvb.getKey().length, value, 0, kvb.getValue().length, false);
+            }
+            for (byte[] keyBytes : deletes) {
+                this.doRemove(ByteBuffer.wrap(keyBytes), 0, keyBytes.length, false);
+            }
+            this.compactIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private byte[] doPut(ByteBuffer key, int keyOffset, int keyLength, ByteBuffer value, int valueOffset, int valueLength, boolean returnOld) {
+        final int hash = hash(key, keyOffset, keyLength);
+
+        // find the key, or where it would be inserted (preferring the first deleted slot along the way)
+        final long mask = this.index.capacity() - 1L;
+        long slot = slotOf(hash) & mask;
+        long freeSlot = -1L;
+        long slotValue;
+        while ((slotValue = this.index.getAddress(slot)) != EMPTY) {
+            if (slotValue == DELETED) {
+                if (freeSlot < 0) {
+                    freeSlot = slot;
+                }
+            } else if (this.index.getHash(slot) == hash && this.keyEquals(slotValue - 1L, key, keyOffset, keyLength)) {
+                break;
+            }
+            slot = (slot + 1L) & mask;
+        }
+
+        final long address = this.append(key, keyOffset, keyLength, value, valueOffset, valueLength);
+        this.liveBytes += RECORD_HEADER_BYTES + keyLength + valueLength;
+
+        if (slotValue != EMPTY) {
+            // an existing key, whose old record is now garbage
+            final long oldAddress = slotValue - 1L;
+            final byte[] oldValue = returnOld ? this.readValue(oldAddress) : null;
+            this.liveBytes -= this.recordBytes(oldAddress);
+            this.index.putAddress(slot, address + 1L);
+            return oldValue;
+        }
+
+        if (freeSlot >= 0) {
+            slot = freeSlot;
+            this.deleted--;
+        }
+        this.index.putAddress(slot, address + 1L);
+        this.index.putHash(slot, hash);
+        this.count++;
+
+        // keep the index at most 3/4 full (counting deleted slots), so probing stays short and always ends
+        if ((this.count + this.deleted) * 4L > this.index.capacity() * 3L) {
+            this.rehash();
+        }
+
+        return null;
+    }
+
+    private byte[] doRemove(ByteBuffer key, int keyOffset, int keyLength, boolean returnOld) {
+        final long slot = this.find(key, keyOffset, keyLength, hash(key, keyOffset, keyLength));
+        if (slot < 0) {
+            return null;
+        }
+
+        final long address = this.address(slot);
+        final byte[] oldValue = returnOld ? this.readValue(address) : null;
+        this.liveBytes -= this.recordBytes(address);
+        this.count--;
+
+        final long mask = this.index.capacity() - 1L;
+        if (this.index.getAddress((slot + 1L) & mask) == EMPTY) {
+            // nothing probes past this slot, so it (and any deleted slots just before it) can simply be empty
+            long s = slot;
+            this.index.putAddress(s, EMPTY);
+            s = (s - 1L) & mask;
+            while (this.index.getAddress(s) == DELETED) {
+                this.index.putAddress(s, EMPTY);
+                this.deleted--;
+                s = (s - 1L) & mask;
+            }
+        } else {
+            this.index.putAddress(slot, DELETED);
+            this.deleted++;
+        }
+
+        return oldValue;
+    }
+
+    private void rehash() {
+        // at most half full afterwards
+        long newCapacity = MIN_CAPACITY;
+        while ((this.count + 1L) * 2L > newCapacity) {
+            newCapacity <<= 1;
+        }
+        if (newCapacity > MAX_CAPACITY) {
+            throw new BigMapDataException("Too many entries for an off-heap map (max " + (MAX_CAPACITY / 4L * 3L) + ")");
+        }
+
+        final OffHeapIndex oldIndex = this.index;
+        final OffHeapIndex newIndex = this.allocateIndex(newCapacity);
+        final long mask = newCapacity - 1L;
+
+        for (long i = 0; i < oldIndex.capacity(); i++) {
+            final long slotValue = oldIndex.getAddress(i);
+            if (slotValue != EMPTY && slotValue != DELETED) {
+                // the keys are already unique, so only an empty slot needs to be found
+                final int hash = oldIndex.getHash(i);
+                long slot = slotOf(hash) & mask;
+                while (newIndex.getAddress(slot) != EMPTY) {
+                    slot = (slot + 1L) & mask;
+                }
+                newIndex.putAddress(slot, slotValue);
+                newIndex.putHash(slot, hash);
+            }
+        }
+
+        this.index = newIndex;
+        oldIndex.deleteFiles();
+        this.deleted = 0L;
+        this.rehashes++;
+    }
+
+    /**
+     * An empty index, whose pages use whatever is left of the memory budget after the segments (an index it replaces
+     * is about to be freed, so it does not count).
+     */
+    private OffHeapIndex allocateIndex(long capacity) {
+        return new OffHeapIndex(capacity, this.indexPageShift, this.maxMemoryBytes - this.memoryBytes,
+            () -> this.directory.resolve("index-" + (this.fileCounter++) + ".dat"));
+    }
+
+    private void compactIfNeeded() {
+        final long garbageBytes = this.writtenBytes - this.liveBytes;
+        if (garbageBytes > this.maxSegmentBytes && garbageBytes > this.liveBytes) {
+            this.compact();
+        }
+    }
+
+    /**
+     * Copies the live records into new segments, so the space of overwritten and deleted records is reclaimed.  The
+     * slots of the index stay where they are, so iterators are not affected.
+     */
+    private void compact() {
+        final List<OffHeapSegment> oldSegments = this.segments;
+
+        // the old direct buffers are freed once no longer referenced (e.g. by a value a reader still has)
+        this.segments = new ArrayList<>();
+        this.current = null;
+        this.memoryBytes = 0L;
+        this.mappedBytes = 0L;
+        this.writtenBytes = 0L;
+
+        for (long slot = 0; slot < this.index.capacity(); slot++) {
+            final long slotValue = this.index.getAddress(slot);
+            if (slotValue != EMPTY && slotValue != DELETED) {
+                final long oldAddress = slotValue - 1L;
+                final OffHeapSegment oldSegment = oldSegments.get(segmentOf(oldAddress));
+                final int offset = offsetOf(oldAddress);
+                final int recordBytes = RECORD_HEADER_BYTES + oldSegment.buffer.getInt(offset) + oldSegment.buffer.getInt(offset + 4);
+                final long address = this.reserve(recordBytes);
+                this.current.append(oldSegment.buffer, offset, recordBytes);
+                this.index.putAddress(slot, address + 1L);
+            }
+        }
+
+        deleteFiles(oldSegments);
+        this.liveBytes = this.writtenBytes;
+        this.compactions++;
+    }
+
+    private long append(ByteBuffer key, int keyOffset, int keyLength, ByteBuffer value, int valueOffset, int valueLength) {
+        final long address = this.reserve(RECORD_HEADER_BYTES + keyLength + valueLength);
+        this.current.appendInt(keyLength);
+        this.current.appendInt(valueLength);
+        this.current.append(key, keyOffset, keyLength);
+        this.current.append(value, valueOffset, valueLength);
+        return address;
+    }
+
+    /**
+     * Makes sure the current segment has room for the record, returning the address it'll be written to.
+     */
+    private long reserve(int recordBytes) {
+        if (recordBytes < 0) {
+            throw new BigMapDataException("Entry too large for an off-heap map");
+        }
+
+        if (this.current == null || this.current.remaining() < recordBytes) {
+            // segments grow from small, so that small maps only use a little memory
+            int segmentBytes = this.current == null ? MIN_SEGMENT_BYTES : (int)Math.min((long)this.current.capacity() * 2L, this.maxSegmentBytes);
+            segmentBytes = Math.max(Math.min(segmentBytes, this.maxSegmentBytes), recordBytes);
+            this.current = this.allocateSegment(segmentBytes);
+            this.segments.add(this.current);
+        }
+
+        this.writtenBytes += recordBytes;
+        return ((long)(this.segments.size() - 1) << 32) | this.current.position();
+    }
+
+    private OffHeapSegment allocateSegment(int segmentBytes) {
+        if (this.memoryBytes + this.index.getMemoryBytes() + segmentBytes <= this.maxMemoryBytes) {
+            try {
+                final ByteBuffer buffer = ByteBuffer.allocateDirect(segmentBytes);
+                this.memoryBytes += segmentBytes;
+                return new OffHeapSegment(buffer, null);
+            } catch (OutOfMemoryError e) {
+                // the direct memory of the jvm (-XX:MaxDirectMemorySize) is used up, so spill to a file instead
+            }
+        }
+
+        try {
+            final Path file = this.directory.resolve("segment-" + (this.fileCounter++) + ".dat");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // the mapping stays valid after the channel is closed
+                final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+                this.mappedBytes += segmentBytes;
+                return new OffHeapSegment(buffer, file);
+            }
+        } catch (IOException e) {
+            throw new BigMapDataException("Unable to map off-heap segment", e);
+        }
+    }
+
+    //
+    // helpers (caller must hold a lock)
+    //
+
+    private long find(ByteBuffer key, int keyOffset, int keyLength, int hash) {
+        final long mask = this.index.capacity() - 1L;
+        long slot = slotOf(hash) & mask;
+        long slotValue;
+        while ((slotValue = this.index.getAddress(slot)) != EMPTY) {
+            if (slotValue != DELETED && this.index.getHash(slot) == hash
+                    && this.keyEquals(slotValue - 1L, key, keyOffset, keyLength)) {
+                return slot;
+            }
+            slot = (slot + 1L) & mask;
+        }
+        return -1L;
+    }
+
+    private long address(long slot) {
+        return this.index.getAddress(slot) - 1L;
+    }
+
+    private boolean keyEquals(long address, ByteBuffer key, int keyOffset, int keyLength) {
+        final ByteBuffer segment = this.segments.get(segmentOf(address)).buffer;
+        final int offset = offsetOf(address);
+        if (segment.getInt(offset) != keyLength) {
+            return false;
+        }
+
+        // 8 bytes at a time, then whatever is left
+        final int recordKeyOffset = offset + RECORD_HEADER_BYTES;
+        int i = 0;
+        for (; i + 8 <= keyLength; i += 8) {
+            if (segment.getLong(recordKeyOffset + i) != key.getLong(keyOffset + i)) {
+                return false;
+            }
+        }
+        for (; i < keyLength; i++) {
+            if (segment.get(recordKeyOffset + i) != key.get(keyOffset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int recordBytes(long address) {
+        final ByteBuffer segment = this.segments.get(segmentOf(address)).buffer;
+        final int offset = offsetOf(address);
+        return RECORD_HEADER_BYTES + segment.getInt(offset) + segment.getInt(offset + 4);
+    }
+
+    private byte[] readKey(long address) {
+        final ByteBuffer segment = this.segments.get(segmentOf(address)).buffer;
+        final int offset = offsetOf(address);
+        return read(segment, offset + RECORD_HEADER_BYTES, segment.getInt(offset));
+    }
+
+    private byte[] readValue(long address) {
+        final ByteBuffer segment = this.segments.get(segmentOf(address)).buffer;
+        final int offset = offsetOf(address);
+        return read(segment, offset + RECORD_HEADER_BYTES + segment.getInt(offset), segment.getInt(offset + 4));
+    }
+
+    private void checkIfClosed() {
+        if (this.closed) {
+            throw new IllegalStateException("Off-heap store is closed");
+        }
+    }
+
+    static private long slotOf(int hash) {
+        // unsigned, so an index of more than 2^31 slots is filled evenly
+        return hash & 0xFFFFFFFFL;
+    }
+
+    static private int segmentOf(long address) {
+        return (int)(address >>> 32);
+    }
+
+    static private int offsetOf(long address) {
+        return (int)address;
+    }
+
+    static private byte[] read(ByteBuffer buffer, int offset, int length) {
+        final byte[] bytes = new byte[length];
+        final ByteBuffer src = buffer.duplicate();
+        src.position(offset);
+        src.get(bytes);
+        return bytes;
+    }
+
+    static private ByteBuffer bigEndian(ByteBuffer buffer) {
+        // keys are compared and hashed 8 bytes at a time, which must be in the same order as the segments
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? buffer : buffer.duplicate();
+    }
+
+    static int hash(ByteBuffer key, int keyOffset, int keyLength) {
+        long h = 0x9E3779B97F4A7C15L ^ keyLength;
+        int i = 0;
+        for (; i + 8 <= keyLength; i += 8) {
+            h = Long.rotateLeft((h ^ key.getLong(keyOffset + i)) * 0xC2B2AE3D27D4EB4FL, 31);
+        }
+        for (; i < keyLength; i++) {
+            h = (h ^ (key.get(keyOffset + i) & 0xFF)) * 0x100000001B3L;
+        }
+        // the finalizer of murmur3, so every input bit affects the bits used to pick a slot
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int)h;
+    }
+
+    static private void deleteFiles(List<OffHeapSegment> segments) {
+        for (OffHeapSegment segment : segments) {
+            if (segment.file != null) {
+                try {
+                    // on some OSes a file can't be deleted while mapped, it'll then go with the directory on close
+                    Files.deleteIfExists(segment.file);
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    //
+    // iteration
+    //
+
+    /**
+     * Iterates the entries in the order of the index, which is effectively random.  Entries may be overwritten or
+     * removed while iterating, but adding a new key may grow the index, in which case the iterator throws a
+     * ConcurrentModificationException (just like a java HashMap).
+     */
+    CloseableIterator<KeyValueBytes> iterator() {
+        final Lock readLock = this.lock.readLock();
+        readLock.lock();
+        try {
+            this.checkIfClosed();
+            return new IndexIterator(this.rehashes);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private class IndexIterator implements CloseableIterator<KeyValueBytes> {
+
+        private final int expectedRehashes;
+        private final ArrayDeque<KeyValueBytes> batch;
+        private long slot;
+
+        IndexIterator(int expectedRehashes) {
+            this.expectedRehashes = expectedRehashes;
+            this.batch = new ArrayDeque<>(ITERATOR_BATCH_SIZE);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.batch.isEmpty()) {
+                this.fill();
+            }
+            return !this.batch.isEmpty();
+        }
+
+        @Override
+        public KeyValueBytes next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.batch.removeFirst();
+        }
+
+        @Override
+        public void close() {
+            // the lock is only held while filling a batch, so there's only the current batch to let go of
+            this.slot = Long.MAX_VALUE;
+            this.batch.clear();
+        }
+
+        private void fill() {
+            // a batch of entries per lock, rather than one
+            final Lock readLock = OffHeapStore.this.lock.readLock();
+            readLock.lock();
+            try {
+                if (OffHeapStore.this.closed || this.slot >= OffHeapStore.this.index.capacity()) {
+                    return;
+                }
+                if (OffHeapStore.this.rehashes != this.expectedRehashes) {
+                    throw new ConcurrentModificationException();
+                }
+                while (this.slot < OffHeapStore.this.index.capacity() && this.batch.size() < ITERATOR_BATCH_SIZE) {
+                    final long slotValue = OffHeapStore.this.index.getAddress(this.slot);
+                    this.slot++;
+                    if (slotValue != EMPTY && slotValue != DELETED) {
+                        final long address = slotValue - 1L;
+                        this.batch.addLast(new KeyValueBytes(OffHeapStore.this.readKey(address), OffHeapStore.this.readValue(address)));
+                    }
+                }
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+    }
+
+    //
+    // lifecycle & stats
+    //
+
+    long getMemoryBytes() {
+        return this.memoryBytes + this.index.getMemoryBytes();
+    }
+
+    long getMappedBytes() {
+        return this.mappedBytes + this.index.getMappedBytes();
+    }
+
+    long getWrittenBytes() {
+        return this.writtenBytes;
+    }
+
+    long getLiveBytes() {
+        return this.liveBytes;
+    }
+
+    int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    long getIndexCapacity() {
+        return this.index.capacity();
+    }
+
+    long getCompactions() {
+        return this.compactions;
+    }
+
+    /**
+     * Takes the read lock, so a consistent set of stats can be read.
+     */
+    Lock readLock() {
+        return this.lock.readLock();
+    }
+
+    void close() {
+        final Lock writeLock = this.lock.writeLock();
+        writeLock.lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            // the direct buffers are freed by the GC once unreferenced, since a reader may still be holding a value
+            deleteFiles(this.segments);
+            this.index.deleteFiles();
+            this.segments = new ArrayList<>();
+            this.current = null;
+            this.index = new OffHeapIndex(0L, this.indexPageShift, 0L, null);
+            this.count = 0L;
+            this.deleted = 0L;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import com.fizzed.bigmap.BigMapDataException;
+import com.fizzed.bigmap.WriteBatch;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BTreeBigMapTest {
+
+    static private String key(int i) {
+        return String.format("key-%08d", i);
+    }
+
+    static private List<String> keys(Iterator<? extends Map.Entry<String,?>> iterator) {
+        final List<String> keys = new ArrayList<>();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next().getKey());
+        }
+        return keys;
+    }
+
+    private BTreeBigMap<String,String> newMap() {
+        return new BTreeBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .setPageSize(1024)
+            .autoCloseObjects()
+            .build();
+    }
+
+    @Test
+    public void randomWritesMatchTreeMap() {
+        final BTreeBigMap<String,String> map = this.newMap();
+        final TreeMap<String,String> expected = new TreeMap<>();
+        final Random random = new Random(1L);
+
+        // small pages, so the tree splits (and shrinks) many times over
+        for (int i = 0; i < 50000; i++) {
+            final String key = key(random.nextInt(10000));
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key), is(expected.remove(key)));
+            } else {
+                final String value = "value-" + i;
+                assertThat(map.put(key, value), is(expected.put(key, value)));
+            }
+        }
+
+        assertThat(map.size(), is(expected.size()));
+        assertThat(keys(map.forwardIterator()), is(new ArrayList<>(expected.keySet())));
+        assertThat(keys(map.reverseIterator()), is(new ArrayList<>(expected.descendingKeySet())));
+        for (Map.Entry<String,String> entry : expected.entrySet()) {
+            assertThat(map.get(entry.getKey()), is(entry.getValue()));
+        }
+        assertThat(map.firstKey(), is(expected.firstKey()));
+        assertThat(map.lastKey(), is(expected.lastKey()));
+        assertThat((Integer)map.getEngineStats().get("btree.depth"), greaterThan(2));
+
+        // everything removed frees every page for re-use
+        for (String key : expected.keySet()) {
+            map.delete(key);
+        }
+        assertThat(map.size(), is(0));
+        assertThat(map.getEngineStats().get("btree.depth"), is(0));
+        assertThat(map.forwardIterator().hasNext(), is(false));
+    }
+
+    @Test
+    public void rangeSeeks() {
+        final BTreeBigMap<String,String> map = this.newMap();
+        for (int i = 0; i < 5000; i += 2) {
+            map.set(key(i), "v" + i);
+        }
+
+        // bounds between keys and on keys
+        assertThat(map.subMap(key(101), key(107)).keySet(), is(new TreeSet<>(Arrays.asList(key(102), key(104), key(106)))));
+        assertThat(map.subMap(key(100), key(106)).firstKey(), is(key(100)));
+        assertThat(map.subMap(key(100), key(106)).lastKey(), is(key(104)));
+        assertThat(map.headMap(key(3)).size(), is(2));
+        assertThat(map.tailMap(key(4997)).firstKey(), is(key(4998)));
+        assertThat(map.tailMap(key(4999)).isEmpty(), is(true));
+        assertThat(map.headMap(key(0)).isEmpty(), is(true));
+
+        final List<String> reverse = keys(map._entryIterator(map._reverseIterator(
+            map.getKeyCodec().serialize(key(1001)), map.getKeyCodec().serialize(key(2001)))));
+        assertThat(reverse.size(), is(500));
+        assertThat(reverse.get(0), is(key(2000)));
+        assertThat(reverse.get(499), is(key(1002)));
+    }
+
+    @Test
+    public void largeValuesOverflow() {
+        final BTreeBigMap<String,String> map = this.newMap();
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append((char)('a' + i % 26));
+        }
+        final String large = sb.toString();
+
+        map.put("a", large);
+        map.put("b", "small");
+        assertThat(map.get("a"), is(large));
+        assertThat(map.put("a", large + "!"), is(large));
+        assertThat(map.remove("a"), is(large + "!"));
+        assertThat(map.get("b"), is("small"));
+
+        // a key that cannot fit in a quarter of a page
+        assertThrows(BigMapDataException.class, () -> map.put(large, "x"));
+    }
+
+    @Test
+    public void iteratorSeesSnapshotBatches() {
+        final BTreeBigMap<String,String> map = this.newMap();
+        for (int i = 0; i < 1000; i++) {
+            map.set(key(i), "v");
+        }
+
+        // writes while iterating are neither blocked nor break the iterator
+        final Iterator<Map.Entry<String,String>> iterator = map.forwardIterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            if (count++ == 10) {
+                map.delete(key(999));
+                map.set(key(1000), "v");
+            }
+        }
+        assertThat(count, is(1000));
+    }
+
+    @Test
+    public void batchCommit() {
+        final BTreeBigMap<String,String> map = this.newMap();
+        map.set(key(0), "v");
+
+        try (WriteBatch<String,String> batch = map.batch()) {
+            for (int i = 1; i < 2000; i++) {
+                batch.set(key(i), "v" + i);
+            }
+            batch.delete(key(0));
+            batch.commit();
+        }
+
+        assertThat(map.size(), is(1999));
+        assertThat(map.get(key(0)), is(nullValue()));
+        assertThat(map.get(key(1999)), is("v1999"));
+    }
+
+    @Test
+    public void persistentReopens() throws Exception {
+        final Path dir = Paths.get("target", "btree-" + UUID.randomUUID());
+        Files.createDirectories(dir);
+
+        BTreeBigMap<String,String> map = new BTreeBigMapBuilder<String,String>()
+            .setScratchDirectory(dir)
+            .setName("persisted")
+            .setPersistent(true)
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .build();
+        for (int i = 0; i < 10000; i++) {
+            map.set(key(i), "v" + i);
+        }
+        for (int i = 0; i < 10000; i += 2) {
+            map.delete(key(i));
+        }
+        map.close();
+
+        map = new BTreeBigMapBuilder<String,String>()
+            .setScratchDirectory(dir)
+            .setName("persisted")
+            .setPersistent(true)
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .build();
+        try {
+            assertThat(map.size(), is(5000));
+            assertThat(map.get(key(1)), is("v1"));
+            assertThat(map.get(key(2)), is(nullValue()));
+            assertThat(map.firstKey(), is(key(1)));
+            assertThat(map.lastKey(), is(key(9999)));
+
+            // unreachable pages are found again and re-used
+            final long pages = (Long)map.getEngineStats().get("btree.pages");
+            for (int i = 0; i < 10000; i += 2) {
+                map.set(key(i), "v" + i);
+            }
+            assertThat((Long)map.getEngineStats().get("btree.pages") < pages * 2, is(true));
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void invalidPageSize() {
+        assertThrows(IllegalArgumentException.class, () -> new BTreeBigMapBuilder<String,String>().setPageSize(1000));
+        assertThrows(IllegalArgumentException.class, () -> new BTreeBigMapBuilder<String,String>().setPageSize(512));
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.offheap;
+
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.impl.BigMapHelper;
+import com.fizzed.bigmap.impl.KeyValueBytes;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OffHeapBigMapTest {
+
+    @Test
+    public void putGetRemove() throws Exception {
+        final OffHeapBigMap<String,String> map = new OffHeapBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .autoCloseObjects()
+            .build();
+
+        assertThat(map.get("a"), is(nullValue()));
+
+        map.put("a", "1");
+        map.set("b", "2");
+
+        assertThat(map.get("a"), is("1"));
+        assertThat(map.put("a", "3"), is("1"));
+        assertThat(map.get("a"), is("3"));
+        assertThat(map.containsKey("b"), is(true));
+        assertThat(map.size(), is(2));
+        assertThat(map.remove("a"), is("3"));
+        assertThat(map.get("a"), is(nullValue()));
+        assertThat(map.size(), is(1));
+
+        // nothing needed to be spilled to disk
+        try (Stream<Path> files = Files.list(map.getPath())) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void manyEntriesSpillAndCompact() throws Exception {
+        final OffHeapBigMap<Integer,String> map = new OffHeapBigMapBuilder<Integer,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(Integer.class)
+            .setValueType(String.class)
+            .setMaxMemoryBytes(256 * 1024)
+            .setMaxSegmentBytes(128 * 1024)
+            .autoCloseObjects()
+            .build();
+
+        // grows the index many times and spills beyond the memory budget
+        for (int i = 0; i < 20000; i++) {
+            map.set(i, "value-" + i);
+        }
+
+        assertThat(map.size(), is(20000));
+        assertThat((Long)map.getEngineStats().get("offheap.mapped-bytes"), greaterThan(0L));
+        try (Stream<Path> files = Files.list(map.getPath())) {
+            assertThat(files.count(), greaterThan(0L));
+        }
+
+        // overwriting & deleting leaves enough garbage behind to be compacted
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 20000; i++) {
+                map.set(i, "round-" + round + "-" + i);
+            }
+        }
+        for (int i = 0; i < 20000; i += 2) {
+            map.delete(i);
+        }
+
+        assertThat((Long)map.getEngineStats().get("offheap.compactions"), greaterThan(0L));
+        assertThat(map.size(), is(10000));
+
+        for (int i = 0; i < 20000; i++) {
+            assertThat(map.get(i), is(i % 2 == 0 ? null : "round-2-" + i));
+        }
+
+        final Set<Integer> keys = new HashSet<>();
+        map.forwardIterator().forEachRemaining(e -> keys.add(e.getKey()));
+
+        assertThat(keys.size(), is(10000));
+
+        // deleted slots are re-used by new keys
+        for (int i = 0; i < 20000; i += 2) {
+            map.set(i, "again-" + i);
+        }
+
+        assertThat(map.size(), is(20000));
+        assertThat(map.get(0), is("again-0"));
+
+        map.close();
+
+        assertThat(Files.exists(map.getPath()), is(false));
+    }
+
+    @Test
+    public void indexSplitIntoPagesThatSpill() throws Exception {
+        Files.createDirectories(Paths.get("target"));
+        final Path dir = Files.createTempDirectory(Paths.get("target"), "offheap-index");
+
+        // 64 slots per page and a budget too small for the whole index, so most of its pages are mapped files
+        final OffHeapStore store = new OffHeapStore(dir, 16 * 1024, 64 * 1024, 6);
+        try {
+            for (int i = 0; i < 20000; i++) {
+                final ByteBuffer key = ByteBuffer.allocate(4).putInt(0, i);
+                final ByteBuffer value = ByteBuffer.allocate(4).putInt(0, i * 2);
+                store.put(key, 0, 4, value, 0, 4, false);
+            }
+            for (int i = 0; i < 20000; i += 2) {
+                store.remove(ByteBuffer.allocate(4).putInt(0, i), 0, 4, false);
+            }
+
+            assertThat(store.count(), is(10000L));
+            assertThat(store.getIndexCapacity(), greaterThan(64L * 64L));
+            assertThat(store.getMappedBytes(), greaterThan(0L));
+            try (Stream<Path> files = Files.list(dir)) {
+                assertThat(files.anyMatch(f -> f.getFileName().toString().startsWith("index-")), is(true));
+            }
+
+            for (int i = 0; i < 20000; i++) {
+                final byte[] value = store.get(ByteBuffer.allocate(4).putInt(0, i), 0, 4);
+                if (i % 2 == 0) {
+                    assertThat(value, is(nullValue()));
+                } else {
+                    assertThat(ByteBuffer.wrap(value).getInt(), is(i * 2));
+                }
+            }
+
+            final Set<Integer> keys = new HashSet<>();
+            try (CloseableIterator<KeyValueBytes> it = store.iterator()) {
+                it.forEachRemaining(kvb -> keys.add(ByteBuffer.wrap(kvb.getKey()).getInt()));
+            }
+
+            assertThat(keys.size(), is(10000));
+        } finally {
+            store.close();
+            BigMapHelper.recursivelyDelete(dir);
+        }
+    }
+
+    @Test
+    public void removeWhileIterating() {
+        final OffHeapBigMap<Integer,Integer> map = new OffHeapBigMapBuilder<Integer,Integer>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(Integer.class)
+            .setValueType(Integer.class)
+            .autoCloseObjects()
+            .build();
+
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+
+        // removing and overwriting keys never moves other keys, so none are missed
+        final Iterator<Map.Entry<Integer,Integer>> it = map.forwardIterator();
+        int visited = 0;
+        while (it.hasNext()) {
+            final Map.Entry<Integer,Integer> entry = it.next();
+            visited++;
+            if (entry.getKey() % 2 == 0) {
+                map.delete(entry.getKey());
+            } else {
+                entry.setValue(entry.getValue() * 10);
+            }
+        }
+
+        assertThat(visited, is(1000));
+        assertThat(map.size(), is(500));
+        assertThat(map.get(3), is(30));
+    }
+
+    @Test
+    public void cannotBePersistent() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapBigMapBuilder<Integer,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(Integer.class)
+            .setValueType(String.class)
+            .setName("offheap")
+            .setPersistent(true)
+            .build());
+    }
+
+}
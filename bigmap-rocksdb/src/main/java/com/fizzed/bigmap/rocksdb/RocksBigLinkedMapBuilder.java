@@ -15,34 +15,34 @@
  */
 package com.fizzed.bigmap.rocksdb;
 
-import com.fizzed.bigmap.ByteCodec;
 import com.fizzed.bigmap.ByteCodecs;
-import com.fizzed.bigmap.Comparators;
+import com.fizzed.bigmap.Bytes;
 import com.fizzed.bigmap.impl.AbstractBigMapBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 
 import java.nio.file.Path;
-import java.util.Comparator;
 import java.util.UUID;
 
 public class RocksBigLinkedMapBuilder<K,V> extends AbstractBigMapBuilder<K,V,RocksBigLinkedMapBuilder<K,V>> {
 
+    @Override
+    protected boolean isLinkedEngine() {
+        return true;
+    }
+
     public RocksBigLinkedMap<K,V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path dir = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "biglinkedmap-rocks");
+        final UUID id = this.resolveId();
+        final Path dir = this.resolvePath(id, "biglinkedmap-rocks");
+
+        // the keys, values and their insert order all live in a single sorted store, see AbstractBigLinkedMap
+        final RocksBigMap<byte[],byte[]> store = new RocksBigMap<>(UUID.randomUUID(), dir, this.persistent, ByteCodecs.byteArrayCodec(), Bytes::compare, ByteCodecs.byteArrayCodec());
 
-        // we need 3 subdir paths
-        final Path dataDir = dir.resolve("data");
-        final Path i2kDir = dir.resolve("i2k");
-        final Path k2iDir = dir.resolve("k2i");
+        // the linked map always knows whether a key is new (it needs its insert order) so its size is always tracked
+        store.setSizeTracked(false);
+        this.applyBloomFilter(store);
 
-        final ByteCodec<Integer> integerByteCodec = ByteCodecs.integerCodec();
-        final Comparator<Integer> integerComparator = Comparators.autoComparator(Integer.class);
-        final RocksBigMap<K,V> dataMap = new RocksBigMap<>(UUID.randomUUID(), dataDir, this.keyCodec, this.keyComparator, this.valueCodec);
-        final RocksBigMap<Integer,K> insertOrderToKeyMap = new RocksBigMap<>(UUID.randomUUID(), i2kDir, integerByteCodec, integerComparator, this.keyCodec);
-        final RocksBigMap<K,Integer> keyToInsertOrderMap = new RocksBigMap<>(UUID.randomUUID(), k2iDir, this.keyCodec, this.keyComparator, integerByteCodec);
+        final RocksBigLinkedMap<K,V> map = new RocksBigLinkedMap<>(id, dir, this.persistent, store, this.keyCodec, this.keyComparator, this.valueCodec);
 
-        final RocksBigLinkedMap<K,V> map = new RocksBigLinkedMap<>(id, dir, false, dataMap, insertOrderToKeyMap, keyToInsertOrderMap);
+        map.setMetrics(this.buildMetrics());
         map.setListener(this.registry);
         map.open();
         return map;
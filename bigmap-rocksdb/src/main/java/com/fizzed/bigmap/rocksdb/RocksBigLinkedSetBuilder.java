@@ -15,35 +15,30 @@
  */
 package com.fizzed.bigmap.rocksdb;
 
-import com.fizzed.bigmap.ByteCodec;
 import com.fizzed.bigmap.ByteCodecs;
-import com.fizzed.bigmap.Comparators;
+import com.fizzed.bigmap.Bytes;
 import com.fizzed.bigmap.impl.AbstractBigSetBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 import com.fizzed.bigmap.impl.None;
 
 import java.nio.file.Path;
-import java.util.Comparator;
 import java.util.UUID;
 
 public class RocksBigLinkedSetBuilder<V> extends AbstractBigSetBuilder<V,RocksBigLinkedSetBuilder<V>> {
 
     public RocksBigLinkedSet<V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path dir = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "biglinkedset-rocks");
+        final UUID id = this.resolveId();
+        final Path dir = this.resolvePath(id, "biglinkedset-rocks");
 
-        // we need 3 subdir paths
-        final Path dataDir = dir.resolve("data");
-        final Path i2kDir = dir.resolve("i2k");
-        final Path k2iDir = dir.resolve("k2i");
+        // the keys, values and their insert order all live in a single sorted store, see AbstractBigLinkedMap
+        final RocksBigMap<byte[],byte[]> store = new RocksBigMap<>(UUID.randomUUID(), dir, this.persistent, ByteCodecs.byteArrayCodec(), Bytes::compare, ByteCodecs.byteArrayCodec());
 
-        final ByteCodec<Integer> integerByteCodec = ByteCodecs.integerCodec();
-        final Comparator<Integer> integerComparator = Comparators.autoComparator(Integer.class);
-        final RocksBigMap<V,None> dataMap = new RocksBigMap<>(UUID.randomUUID(), dataDir, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
-        final RocksBigMap<Integer,V> insertOrderToKeyMap = new RocksBigMap<>(UUID.randomUUID(), i2kDir, integerByteCodec, integerComparator, this.valueCodec);
-        final RocksBigMap<V,Integer> keyToInsertOrderMap = new RocksBigMap<>(UUID.randomUUID(), k2iDir, this.valueCodec, this.valueComparator, integerByteCodec);
+        // the linked map always knows whether a key is new (it needs its insert order) so its size is always tracked
+        store.setSizeTracked(false);
+        this.applyBloomFilter(store);
 
-        final RocksBigLinkedMap<V,None> map = new RocksBigLinkedMap<>(id, dir, false, dataMap, insertOrderToKeyMap, keyToInsertOrderMap);
+        final RocksBigLinkedMap<V,None> map = new RocksBigLinkedMap<>(id, dir, this.persistent, store, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+
+        map.setMetrics(this.buildMetrics());
 
         final RocksBigLinkedSet<V> set = new RocksBigLinkedSet<>(map);
         set.setListener(this.registry);
@@ -17,34 +17,110 @@ package com.fizzed.bigmap.rocksdb;
 
 import com.fizzed.bigmap.*;
 import com.fizzed.bigmap.impl.AbstractBigMap;
-import com.fizzed.bigmap.impl.ByteArrayBigMap;
+import com.fizzed.bigmap.impl.ByteArrayBigSortedMap;
 import com.fizzed.bigmap.impl.KeyValueBytes;
+import com.fizzed.bigmap.impl.ScratchBuffer;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
 import org.rocksdb.BuiltinComparator;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.LevelMetaData;
 import org.rocksdb.Options;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.SstFileMetaData;
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
 
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
 
-public class RocksBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBigMap<K,V>, BigSortedMap<K,V> {
+public class RocksBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBigSortedMap<K,V> {
 
     protected Options options;
+    protected BloomFilter filterPolicy;
+    protected Statistics statistics;            // null unless metrics are enabled
     protected RocksDB db;
+    protected ColumnFamilyHandle columnFamily;              // the default column family unless the database is shared
+    protected ColumnFamilyOptions columnFamilyOptions;      // null unless the database is shared
+    protected ReadOptions readOptions;
+    protected WriteOptions writeOptions;
+    protected RocksProfile profile;                         // null for the defaults
+    protected RocksSharedResources sharedResources;         // null if the map has its own cache and memtable budget
+    protected Consumer<Options> optionsCustomizer;
+    protected Consumer<BlockBasedTableConfig> tableConfigCustomizer;
+    protected RocksSharedDatabase sharedDatabase;           // null if the map has a database of its own
 
     protected RocksBigMap(
             UUID id,
             Path directory,
+            boolean persistent,
             ByteCodec<K> keyCodec,
             Comparator<K> keyComparator,
             ByteCodec<V> valueCodec) {
         
-        super(id, directory, false, keyCodec, keyComparator, valueCodec);
+        super(id, directory, persistent, keyCodec, keyComparator, valueCodec);
         
         Objects.requireNonNull(valueCodec, "valueCodec was null");
     }
 
+    public RocksProfile getProfile() {
+        return this.profile;
+    }
+
+    /**
+     * Must be set before the map is opened.
+     */
+    public void setProfile(RocksProfile profile) {
+        this.profile = profile;
+    }
+
+    public RocksSharedResources getSharedResources() {
+        return this.sharedResources;
+    }
+
+    /**
+     * Uses the block cache and write buffer manager shared with other maps.  Must be set before the map is opened.
+     */
+    public void setSharedResources(RocksSharedResources sharedResources) {
+        this.sharedResources = sharedResources;
+    }
+
+    public RocksSharedDatabase getSharedDatabase() {
+        return this.sharedDatabase;
+    }
+
+    /**
+     * Stores the map in a column family of a database shared with other maps, instead of a database of its own. Only
+     * the column family options (e.g. memtables, compression, table format) of the profile and customizers apply, and
+     * native statistics are not collected.  Must be set before the map is opened.
+     */
+    public void setSharedDatabase(RocksSharedDatabase sharedDatabase) {
+        this.sharedDatabase = sharedDatabase;
+    }
+
+    /**
+     * Customizes the raw options after the profile was applied.  Must be set before the map is opened.
+     */
+    public void setOptionsCustomizer(Consumer<Options> optionsCustomizer) {
+        this.optionsCustomizer = optionsCustomizer;
+    }
+
+    /**
+     * Customizes the raw table config after the profile, bloom filter and shared block cache were applied.  Must be set
+     * before the map is opened.
+     */
+    public void setTableConfigCustomizer(Consumer<BlockBasedTableConfig> tableConfigCustomizer) {
+        this.tableConfigCustomizer = tableConfigCustomizer;
+    }
+
     @Override
     protected void _open() {
         this.options = new Options();
@@ -55,23 +131,96 @@ public class RocksBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
         //this.options.setComparator(new RocksJavaComparator(this.keyCodec, this.keyComparator));
         this.options.setDisableAutoCompactions(true);
 
+        // re-used for the direct ByteBuffer get/put/delete calls (and every other write)
+        this.readOptions = new ReadOptions();
+        this.writeOptions = new WriteOptions();
+
+        final BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+
+        if (this.profile != null) {
+            this.profile.apply(this.options, tableConfig, this.writeOptions);
+        }
+
+        if (this.isBloomFilterEnabled()) {
+            // rocksdb sizes its filters per table file, so only the false positive rate matters (as bits per key)
+            final double bitsPerKey = -Math.log(this.bloomFilterFalsePositiveRate) / (Math.log(2) * Math.log(2));
+            this.filterPolicy = new BloomFilter(bitsPerKey, false);
+            tableConfig.setFilterPolicy(this.filterPolicy);
+        }
+
+        if (this.sharedResources != null) {
+            // released by the closer once the database is closed
+            this.sharedResources.retain();
+            tableConfig.setBlockCache(this.sharedResources.getBlockCache());
+            this.options.setWriteBufferManager(this.sharedResources.getWriteBufferManager());
+        }
+
+        if (this.tableConfigCustomizer != null) {
+            this.tableConfigCustomizer.accept(tableConfig);
+        }
+
+        this.options.setTableFormatConfig(tableConfig);
+
+        if (this.optionsCustomizer != null) {
+            this.optionsCustomizer.accept(this.options);
+        }
+
+        // statistics are per database, so they are only collected for a database of our own
+        if (this.metrics != null && this.sharedDatabase == null) {
+            this.statistics = new Statistics();
+            this.options.setStatistics(this.statistics);
+        }
+
         try {
-            if (this.path != null) {
-                Files.createDirectories(this.path);
+            if (this.sharedDatabase != null) {
+                // released by the closer once the column family is dropped
+                this.sharedDatabase.retain();
+                this.db = this.sharedDatabase.getDb();
+                this.columnFamilyOptions = new ColumnFamilyOptions(this.options);
+                this.columnFamily = this.sharedDatabase.createColumnFamily(this.id, this.columnFamilyOptions);
+            } else {
+                if (this.path != null) {
+                    Files.createDirectories(this.path);
+                }
+                // build database, initialize stats we track
+                this.db = RocksDB.open(this.options, this.path.toAbsolutePath().toString());
+                this.columnFamily = this.db.getDefaultColumnFamily();
             }
-            // build database, initialize stats we track
-            this.db = RocksDB.open(this.options, this.path.toAbsolutePath().toString());
         } catch (Exception e) {
+            if (this.sharedDatabase != null) {
+                this.sharedDatabase.release();
+            }
+            if (this.sharedResources != null) {
+                this.sharedResources.release();
+            }
             throw new RuntimeException(e);
         }
 
-        this.closer = new RocksBigObjectCloser(this.id, this.persistent, this.path, this.db);
+        this.closer = new RocksBigObjectCloser(this.id, this.persistent, this.path, this.db, this.options, this.filterPolicy,
+            this.statistics, this.readOptions, this.writeOptions, this.sharedResources, this.sharedDatabase,
+            this.columnFamily, this.columnFamilyOptions);
+    }
+
+    @Override
+    public void clear() {
+        if (this.sharedDatabase == null) {
+            super.clear();
+            return;
+        }
+
+        // the map is closed and re-opened, which must not release the last reference to the database in between
+        this.sharedDatabase.retain();
+        try {
+            super.clear();
+        } finally {
+            this.sharedDatabase.release();
+        }
     }
 
     @Override
     public byte[] _get(byte[] keyBytes) {
         try {
-            return this.db.get(keyBytes);
+            return this.db.get(this.columnFamily, keyBytes);
         }
         catch (RocksDBException e) {
             throw new BigMapDataException(e);
@@ -81,9 +230,9 @@ public class RocksBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
     @Override
     public byte[] _put(byte[] keyBytes, byte[] valueBytes) {
         try {
-            byte[] oldValueBytes = this.db.get(keyBytes);
+            byte[] oldValueBytes = this.db.get(this.columnFamily, keyBytes);
 
-            this.db.put(keyBytes, valueBytes);
+            this.db.put(this.columnFamily, this.writeOptions, keyBytes, valueBytes);
 
             return oldValueBytes;
         }
@@ -95,7 +244,7 @@ public class RocksBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
     @Override
     public void _set(byte[] keyBytes, byte[] valueBytes) {
         try {
-            this.db.put(keyBytes, valueBytes);
+            this.db.put(this.columnFamily, this.writeOptions, keyBytes, valueBytes);
         }
         catch (RocksDBException e) {
             throw new BigMapDataException(e);
@@ -104,8 +253,19 @@ public class RocksBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
 
     @Override
     public boolean _containsKey(byte[] keyBytes) {
+        // keyExists first asks keyMayExist (memtables, bloom filters, block cache) and only then falls back to reading
+        // the key, but either way the value is never copied back to us
+        return this.db.keyExists(this.columnFamily, keyBytes);
+    }
+
+    @Override
+    public byte[] _remove(byte[] keyBytes) {
+        byte[] valueBytes = this._get(keyBytes);
+
         try {
-            return this.db.get(keyBytes) != null;
+            this.db.delete(this.columnFamily, this.writeOptions, keyBytes);
+
+            return valueBytes;
         }
         catch (RocksDBException e) {
             throw new BigMapDataException(e);
@@ -113,13 +273,48 @@ public class RocksBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
     }
 
     @Override
-    public byte[] _remove(byte[] keyBytes) {
-        byte[] valueBytes = this._get(keyBytes);
+    public void _delete(byte[] keyBytes) {
+        try {
+            this.db.delete(this.columnFamily, this.writeOptions, keyBytes);
+        }
+        catch (RocksDBException e) {
+            throw new BigMapDataException(e);
+        }
+    }
+
+    @Override
+    protected boolean isBloomFilterNative() {
+        return true;
+    }
 
+    @Override
+    public boolean _isByteBufferSupported() {
+        return true;
+    }
+
+    @Override
+    public ByteBuffer _get(ByteBuffer keyBuffer) {
         try {
-            this.db.delete(keyBytes);
+            final int keyPosition = keyBuffer.position();
+            ByteBuffer valueBuffer = ScratchBuffer.VALUE.get();
 
-            return valueBytes;
+            int size = this.db.get(this.columnFamily, this.readOptions, keyBuffer, valueBuffer);
+
+            if (size == RocksDB.NOT_FOUND) {
+                return null;
+            }
+
+            // the value was truncated, so we need a bigger buffer and to get it again
+            if (size > valueBuffer.capacity()) {
+                valueBuffer = ScratchBuffer.VALUE.grow(size);
+                keyBuffer.position(keyPosition);
+                size = this.db.get(this.columnFamily, this.readOptions, keyBuffer, valueBuffer);
+                if (size == RocksDB.NOT_FOUND) {
+                    return null;        // deleted by another thread in between
+                }
+            }
+
+            return valueBuffer;
         }
         catch (RocksDBException e) {
             throw new BigMapDataException(e);
@@ -127,9 +322,9 @@ public class RocksBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
     }
 
     @Override
-    public void _delete(byte[] keyBytes) {
+    public void _set(ByteBuffer keyBuffer, ByteBuffer valueBuffer) {
         try {
-            this.db.delete(keyBytes);
+            this.db.put(this.columnFamily, this.writeOptions, keyBuffer, valueBuffer);
         }
         catch (RocksDBException e) {
             throw new BigMapDataException(e);
@@ -137,8 +332,180 @@ public class RocksBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
     }
 
     @Override
-    public Iterator<KeyValueBytes> _forwardIterator() {
-        return RocksForwardIterator.build(this.db);
+    public boolean _containsKey(ByteBuffer keyBuffer) {
+        // unlike keyMayExist, this is an exact answer, but it does not copy the value back to us
+        final int keyPosition = keyBuffer.position();
+        final boolean exists = this.db.keyExists(this.columnFamily, this.readOptions, keyBuffer);
+        // leave the key ready for the next operation on it (e.g. set after checking if it exists)
+        keyBuffer.position(keyPosition);
+        return exists;
+    }
+
+    @Override
+    public void _delete(ByteBuffer keyBuffer) {
+        try {
+            this.db.delete(this.columnFamily, this.writeOptions, keyBuffer);
+        }
+        catch (RocksDBException e) {
+            throw new BigMapDataException(e);
+        }
+    }
+
+    @Override
+    public int _countExistingKeys(List<byte[]> keyBytesList) {
+        try {
+            // a single native call for all the keys
+            final List<byte[]> valueBytesList = this.db.multiGetAsList(
+                Collections.nCopies(keyBytesList.size(), this.columnFamily), keyBytesList);
+            int count = 0;
+            for (byte[] valueBytes : valueBytesList) {
+                if (valueBytes != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        catch (RocksDBException e) {
+            throw new BigMapDataException(e);
+        }
+    }
+
+    @Override
+    public void _writeBatch(List<KeyValueBytes> sets, List<byte[]> deletes) {
+        try (WriteBatch batch = new WriteBatch()) {
+            for (KeyValueBytes kvb : sets) {
+                batch.put(this.columnFamily, kvb.getKey(), kvb.getValue());
+            }
+            for (byte[] keyBytes : deletes) {
+                batch.delete(this.columnFamily, keyBytes);
+            }
+            this.db.write(this.writeOptions, batch);
+        }
+        catch (RocksDBException e) {
+            throw new BigMapDataException(e);
+        }
+    }
+
+    @Override
+    public CloseableIterator<KeyValueBytes> _forwardIterator(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return RocksForwardIterator.build(this.closer, this.db, this.columnFamily, fromKeyBytes, toKeyBytes);
+    }
+
+    @Override
+    public CloseableIterator<KeyValueBytes> _reverseIterator(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return RocksReverseIterator.build(this.closer, this.db, this.columnFamily, fromKeyBytes, toKeyBytes);
+    }
+
+    @Override
+    public byte[] _splitKey(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        final byte[] firstKeyBytes = this._firstKey(fromKeyBytes, toKeyBytes);
+        if (firstKeyBytes == null) {
+            return null;
+        }
+
+        final byte[] lastKeyBytes = this._lastKey(fromKeyBytes, toKeyBytes);
+        if (lastKeyBytes == null || Bytes.compare(firstKeyBytes, lastKeyBytes) >= 0) {
+            return null;
+        }
+
+        // the smallest key of each sst file is a point where the data on disk is already split, so the median of them
+        // splits the range into two with about the same number of files.  if the range is still all in the memtable,
+        // we fall back to bisecting the first and last keys
+        final List<byte[]> boundaries = new ArrayList<>();
+        for (LevelMetaData level : this.db.getColumnFamilyMetaData(this.columnFamily).levels()) {
+            for (SstFileMetaData file : level.files()) {
+                final byte[] smallestKeyBytes = file.smallestKey();
+                if (Bytes.compare(smallestKeyBytes, firstKeyBytes) > 0 && Bytes.compare(smallestKeyBytes, lastKeyBytes) <= 0) {
+                    boundaries.add(smallestKeyBytes);
+                }
+            }
+        }
+
+        final byte[] candidateKeyBytes;
+        if (!boundaries.isEmpty()) {
+            boundaries.sort(Bytes::compare);
+            candidateKeyBytes = boundaries.get(boundaries.size() / 2);
+        } else {
+            candidateKeyBytes = Bytes.midpoint(firstKeyBytes, lastKeyBytes);
+        }
+
+        return this._splitKeyAtOrAfter(candidateKeyBytes, firstKeyBytes, toKeyBytes);
+    }
+
+    /**
+     * Creates a loader for the initial load of many entries, which are written directly to sorted table files and
+     * ingested by RocksDB, instead of going through the memtable, write-ahead log and compaction.
+     */
+    public RocksBulkLoader<K,V> bulkLoader() {
+        return this.bulkLoader(RocksBulkLoader.DEFAULT_MAX_BUFFER_BYTES);
+    }
+
+    /**
+     * @param maxBufferBytes the memory used to sort entries before they are spilled to a run file on disk
+     */
+    public RocksBulkLoader<K,V> bulkLoader(long maxBufferBytes) {
+        this.checkIfClosed();
+
+        return new RocksBulkLoader<>(this, maxBufferBytes, RocksBulkLoader.DEFAULT_TARGET_FILE_BYTES);
+    }
+
+    /**
+     * An estimate of the number of keys, which RocksDB tracks itself and is very cheap to get, but it may be off
+     * (e.g. keys overwritten or deleted but not yet compacted). Useful when the size of the map is not tracked, since
+     * an exact size() then requires iterating every entry.
+     */
+    public long getEstimatedSize() {
+        this.checkIfClosed();
+
+        try {
+            return this.db.getLongProperty(this.columnFamily, "rocksdb.estimate-num-keys");
+        }
+        catch (RocksDBException e) {
+            throw new BigMapDataException(e);
+        }
+    }
+
+    @Override
+    public long estimatedSize() {
+        // the native estimate is good enough to size the splits of a stream, and far cheaper than counting
+        return this.isSizeTracked() ? super.estimatedSize() : this.getEstimatedSize();
+    }
+
+    static private final TickerType[] STATS_TICKERS = {
+        TickerType.BLOCK_CACHE_HIT,
+        TickerType.BLOCK_CACHE_MISS,
+        TickerType.BLOOM_FILTER_USEFUL,
+        TickerType.MEMTABLE_HIT,
+        TickerType.MEMTABLE_MISS,
+        TickerType.NUMBER_KEYS_READ,
+        TickerType.NUMBER_KEYS_WRITTEN,
+        TickerType.BYTES_READ,
+        TickerType.BYTES_WRITTEN,
+        TickerType.STALL_MICROS
+    };
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        this.checkIfClosed();
+
+        final Map<String,Object> stats = new LinkedHashMap<>();
+        try {
+            stats.put("rocksdb.estimate-num-keys", this.db.getLongProperty(this.columnFamily, "rocksdb.estimate-num-keys"));
+            stats.put("rocksdb.total-sst-files-size", this.db.getLongProperty(this.columnFamily, "rocksdb.total-sst-files-size"));
+            stats.put("rocksdb.cur-size-all-mem-tables", this.db.getLongProperty(this.columnFamily, "rocksdb.cur-size-all-mem-tables"));
+        }
+        catch (RocksDBException e) {
+            throw new BigMapDataException(e);
+        }
+
+        // the tickers are only collected if metrics were enabled when the map was opened
+        if (this.statistics != null) {
+            for (TickerType ticker : STATS_TICKERS) {
+                stats.put("rocksdb." + ticker.name().toLowerCase().replace('_', '.'), this.statistics.getTickerCount(ticker));
+            }
+        }
+
+        return stats;
     }
 
 }
\ No newline at end of file
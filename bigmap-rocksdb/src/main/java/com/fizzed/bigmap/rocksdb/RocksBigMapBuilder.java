@@ -16,21 +16,127 @@
 package com.fizzed.bigmap.rocksdb;
 
 import com.fizzed.bigmap.impl.AbstractBigMapBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.Options;
 
 import java.nio.file.Path;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public class RocksBigMapBuilder<K,V> extends AbstractBigMapBuilder<K,V,RocksBigMapBuilder<K,V>> {
 
+    protected RocksProfile profile;
+    protected RocksSharedResources sharedResources;
+    protected long sharedBlockCacheBytes;                   // zero if the builder does not share its own resources
+    protected long sharedWriteBufferBytes;
+    protected RocksSharedResources builderSharedResources;  // shared by the maps built, while any are still open
+    protected Consumer<Options> optionsCustomizer;
+    protected Consumer<BlockBasedTableConfig> tableConfigCustomizer;
+    protected RocksSharedDatabase sharedDatabase;
+
+    /**
+     * Tunes every map built for how it'll be used (see RocksProfile).
+     */
+    public RocksBigMapBuilder<K,V> setProfile(RocksProfile profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    /**
+     * Shares a block cache and write buffer manager across every map built (e.g. with the same resources passed to
+     * other builders too).  You are responsible for closing them once the maps are no longer needed.
+     */
+    public RocksBigMapBuilder<K,V> setSharedResources(RocksSharedResources sharedResources) {
+        this.sharedResources = sharedResources;
+        return this;
+    }
+
+    /**
+     * Shares a block cache (of blockCacheBytes) and a write buffer manager (up to writeBufferBytes of memtables,
+     * charged against the block cache) across every map built by this builder.  They are freed once every map using
+     * them is closed.
+     */
+    public RocksBigMapBuilder<K,V> setSharedMemory(long blockCacheBytes, long writeBufferBytes) {
+        if (blockCacheBytes <= 0) {
+            throw new IllegalArgumentException("blockCacheBytes must be > 0");
+        }
+        if (writeBufferBytes <= 0 || writeBufferBytes > blockCacheBytes) {
+            throw new IllegalArgumentException("writeBufferBytes must be > 0 and <= blockCacheBytes");
+        }
+        this.sharedBlockCacheBytes = blockCacheBytes;
+        this.sharedWriteBufferBytes = writeBufferBytes;
+        return this;
+    }
+
+    /**
+     * Customizes the raw options of every map built, after its profile was applied (e.g. to set max_open_files).
+     */
+    public RocksBigMapBuilder<K,V> customizeOptions(Consumer<Options> optionsCustomizer) {
+        this.optionsCustomizer = optionsCustomizer;
+        return this;
+    }
+
+    /**
+     * Customizes the raw table config of every map built, after its profile, bloom filter and shared block cache were
+     * applied.
+     */
+    public RocksBigMapBuilder<K,V> customizeTableConfig(Consumer<BlockBasedTableConfig> tableConfigCustomizer) {
+        this.tableConfigCustomizer = tableConfigCustomizer;
+        return this;
+    }
+
+    /**
+     * Stores every map built in a column family of its own in the shared database, instead of opening a database per
+     * map, so that many small maps are cheap (see RocksSharedDatabase).  The maps cannot be persistent.
+     */
+    public RocksBigMapBuilder<K,V> setSharedDatabase(RocksSharedDatabase sharedDatabase) {
+        this.sharedDatabase = sharedDatabase;
+        return this;
+    }
+
+    @Override
+    protected boolean isSortedEngine() {
+        return true;
+    }
+
     public RocksBigMap<K,V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path dir = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "bigmap-rocks");
+        if (this.sharedDatabase != null && this.persistent) {
+            throw new IllegalArgumentException("A map in a shared database cannot be persistent");
+        }
+
+        final UUID id = this.resolveId();
+        final Path dir = this.resolvePath(id, "bigmap-rocks");
+
+        final RocksBigMap<K,V> map = new RocksBigMap<>(id, dir, this.persistent, this.keyCodec, this.keyComparator, this.valueCodec);
+        map.setSizeTracked(this.sizeTracked);
+        this.applyBloomFilter(map);
+        map.setProfile(this.profile);
+        map.setOptionsCustomizer(this.optionsCustomizer);
+        map.setTableConfigCustomizer(this.tableConfigCustomizer);
+        map.setSharedDatabase(this.sharedDatabase);
+
+        // the resources of the builder are only referenced by its maps, so a new one is needed once they're all closed
+        boolean createdSharedResources = false;
+        if (this.sharedResources != null) {
+            map.setSharedResources(this.sharedResources);
+        } else if (this.sharedBlockCacheBytes > 0) {
+            if (this.builderSharedResources == null || this.builderSharedResources.isReleased()) {
+                this.builderSharedResources = new RocksSharedResources(this.sharedBlockCacheBytes, this.sharedWriteBufferBytes);
+                createdSharedResources = true;
+            }
+            map.setSharedResources(this.builderSharedResources);
+        }
 
-        final RocksBigMap<K,V> map = new RocksBigMap<>(id, dir, this.keyCodec, this.keyComparator, this.valueCodec);
+        map.setMetrics(this.buildMetrics());
         map.setListener(this.registry);
-        map.open();
+        try {
+            map.open();
+        } finally {
+            if (createdSharedResources) {
+                this.builderSharedResources.close();
+            }
+        }
         return map;
     }
 
-}
\ No newline at end of file
+}
@@ -16,7 +16,14 @@
 package com.fizzed.bigmap.rocksdb;
 
 import com.fizzed.bigmap.impl.AbstractBigObjectCloser;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.Filter;
+import org.rocksdb.Options;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
+import org.rocksdb.Statistics;
+import org.rocksdb.WriteOptions;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -25,20 +32,70 @@ import java.util.UUID;
 public class RocksBigObjectCloser extends AbstractBigObjectCloser {
 
     private final RocksDB db;
+    private final Options options;
+    private final Filter filterPolicy;
+    private final Statistics statistics;
+    private final ReadOptions readOptions;
+    private final WriteOptions writeOptions;
+    private final RocksSharedResources sharedResources;
+    private final RocksSharedDatabase sharedDatabase;
+    private final ColumnFamilyHandle columnFamily;
+    private final ColumnFamilyOptions columnFamilyOptions;
 
     public RocksBigObjectCloser(
             UUID id,
             boolean persistent,
             Path directory,
-            RocksDB db) {
+            RocksDB db,
+            Options options,
+            Filter filterPolicy,
+            Statistics statistics,
+            ReadOptions readOptions,
+            WriteOptions writeOptions,
+            RocksSharedResources sharedResources,
+            RocksSharedDatabase sharedDatabase,
+            ColumnFamilyHandle columnFamily,
+            ColumnFamilyOptions columnFamilyOptions) {
         
         super(id, persistent, directory);
         this.db = db;
+        this.options = options;
+        this.filterPolicy = filterPolicy;
+        this.statistics = statistics;
+        this.readOptions = readOptions;
+        this.writeOptions = writeOptions;
+        this.sharedResources = sharedResources;
+        this.sharedDatabase = sharedDatabase;
+        this.columnFamily = columnFamily;
+        this.columnFamilyOptions = columnFamilyOptions;
     }
 
     @Override
     public void doClose() throws IOException {
-        this.db.close();
+        if (this.sharedDatabase != null) {
+            // only the column family of the map goes away, the database is closed once no map uses it
+            try {
+                this.sharedDatabase.dropColumnFamily(this.columnFamily);
+            } finally {
+                this.columnFamilyOptions.close();
+                this.sharedDatabase.release();
+            }
+        } else {
+            this.db.close();
+        }
+        this.readOptions.close();
+        this.writeOptions.close();
+        this.options.close();
+        if (this.filterPolicy != null) {
+            this.filterPolicy.close();
+        }
+        if (this.statistics != null) {
+            this.statistics.close();
+        }
+        // only once the database no longer uses them
+        if (this.sharedResources != null) {
+            this.sharedResources.release();
+        }
     }
 
 }
\ No newline at end of file
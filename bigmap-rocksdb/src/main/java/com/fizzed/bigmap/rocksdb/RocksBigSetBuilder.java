@@ -17,7 +17,6 @@ package com.fizzed.bigmap.rocksdb;
 
 import com.fizzed.bigmap.ByteCodecs;
 import com.fizzed.bigmap.impl.AbstractBigSetBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 import com.fizzed.bigmap.impl.None;
 
 import java.nio.file.Path;
@@ -25,11 +24,36 @@ import java.util.UUID;
 
 public class RocksBigSetBuilder<V> extends AbstractBigSetBuilder<V,RocksBigSetBuilder<V>> {
 
+    protected RocksSharedDatabase sharedDatabase;
+
+    /**
+     * Stores every set built in a column family of its own in the shared database, instead of opening a database per
+     * set (see RocksSharedDatabase).  The sets cannot be persistent.
+     */
+    public RocksBigSetBuilder<V> setSharedDatabase(RocksSharedDatabase sharedDatabase) {
+        this.sharedDatabase = sharedDatabase;
+        return this;
+    }
+
+    @Override
+    protected boolean isSortedEngine() {
+        return true;
+    }
+
     public RocksBigSet<V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path dir = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "bigset-rocks");
+        if (this.sharedDatabase != null && this.persistent) {
+            throw new IllegalArgumentException("A set in a shared database cannot be persistent");
+        }
+
+        final UUID id = this.resolveId();
+        final Path dir = this.resolvePath(id, "bigset-rocks");
+
+        final RocksBigMap<V,None> map = new RocksBigMap<>(id, dir, this.persistent, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+
+        this.applyBloomFilter(map);
+        map.setSharedDatabase(this.sharedDatabase);
 
-        final RocksBigMap<V,None> map = new RocksBigMap<>(id, dir, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+        map.setMetrics(this.buildMetrics());
 
         final RocksBigSet<V> set = new RocksBigSet<>(map);
         set.setListener(this.registry);
@@ -0,0 +1,426 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.rocksdb;
+
+import com.fizzed.bigmap.BigMapDataException;
+import com.fizzed.bigmap.Bytes;
+import com.fizzed.bigmap.impl.BigMapHelper;
+import com.fizzed.bigmap.impl.KeyValueBytes;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.IngestExternalFileOptions;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.SstFileWriter;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Loads many entries into a RocksBigMap by writing them directly to sorted table (SST) files, which are then ingested
+ * by RocksDB in a single call.  Unlike a set or batch, nothing goes through the memtable or write-ahead log, and since
+ * the files do not overlap, RocksDB places them straight into the bottom level where no compaction is needed.
+ *
+ * Entries are sorted in memory until the buffer is full, then spilled to a sorted run file on disk.  On commit the runs
+ * are merged into the SST files, so any number of entries can be loaded in bounded memory.  If a key is set more than
+ * once, the value set last wins, and ingested values replace any values already in the map.
+ *
+ * The loader is not thread safe, and the map should not be written to by anything else until the loader is committed.
+ */
+public class RocksBulkLoader<K,V> implements Closeable {
+
+    static public final long DEFAULT_MAX_BUFFER_BYTES = 64L * 1024L * 1024L;
+    static public final long DEFAULT_TARGET_FILE_BYTES = 256L * 1024L * 1024L;
+    static private final int ENTRY_OVERHEAD_BYTES = 64;          // the rough on-heap cost of an entry beyond its bytes
+    static private final int EXISTING_KEYS_CHUNK_SIZE = 1024;
+
+    private final RocksBigMap<K,V> map;
+    private final long maxBufferBytes;
+    private final long targetFileBytes;
+    private final Path workDirectory;
+    private final List<KeyValueBytes> buffer;
+    private final List<Path> runFiles;
+    private long bufferBytes;
+    private long size;
+    private boolean closed;
+
+    public RocksBulkLoader(RocksBigMap<K,V> map, long maxBufferBytes, long targetFileBytes) {
+        Objects.requireNonNull(map, "map was null");
+
+        if (maxBufferBytes <= 0) {
+            throw new IllegalArgumentException("maxBufferBytes must be > 0");
+        }
+        if (targetFileBytes <= 0) {
+            throw new IllegalArgumentException("targetFileBytes must be > 0");
+        }
+
+        map.checkIfClosed();
+
+        this.map = map;
+        this.maxBufferBytes = maxBufferBytes;
+        this.targetFileBytes = targetFileBytes;
+        this.workDirectory = BigMapHelper.appendFileName(map.getPath(), "bulk", UUID.randomUUID().toString());
+        this.buffer = new ArrayList<>();
+        this.runFiles = new ArrayList<>();
+    }
+
+    private void checkIfClosed() {
+        if (this.closed) {
+            throw new IllegalStateException("Bulk loader is closed");
+        }
+    }
+
+    /**
+     * The number of entries set so far (including keys set more than once).
+     */
+    public long size() {
+        return this.size;
+    }
+
+    public void set(K key, V value) {
+        this.checkIfClosed();
+
+        Objects.requireNonNull(key, "key was null");
+        Objects.requireNonNull(value, "value was null");
+
+        final byte[] keyBytes = this.map.getKeyCodec().serialize(key);
+        final byte[] valueBytes = this.map.getValueCodec().serialize(value);
+
+        this.buffer.add(new KeyValueBytes(keyBytes, valueBytes));
+        this.bufferBytes += keyBytes.length + valueBytes.length + ENTRY_OVERHEAD_BYTES;
+        this.size++;
+
+        if (this.bufferBytes >= this.maxBufferBytes) {
+            this.spill();
+        }
+    }
+
+    /**
+     * Sorts the buffer by key (bytewise, as RocksDB orders them) keeping only the last value set for each key.
+     */
+    private List<KeyValueBytes> sortBuffer() {
+        // the sort is stable, so entries of the same key stay in the order they were set
+        this.buffer.sort((a, b) -> Bytes.compare(a.getKey(), b.getKey()));
+
+        final List<KeyValueBytes> sorted = new ArrayList<>(this.buffer.size());
+        for (int i = 0; i < this.buffer.size(); i++) {
+            final KeyValueBytes kvb = this.buffer.get(i);
+            if (i + 1 < this.buffer.size() && Bytes.compare(kvb.getKey(), this.buffer.get(i + 1).getKey()) == 0) {
+                continue;
+            }
+            sorted.add(kvb);
+        }
+
+        this.buffer.clear();
+        this.bufferBytes = 0L;
+        return sorted;
+    }
+
+    private void spill() {
+        final List<KeyValueBytes> sorted = this.sortBuffer();
+        final Path runFile = this.workDirectory.resolve("run-" + this.runFiles.size());
+
+        try {
+            Files.createDirectories(this.workDirectory);
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile), 1 << 16))) {
+                for (KeyValueBytes kvb : sorted) {
+                    output.writeInt(kvb.getKey().length);
+                    output.write(kvb.getKey());
+                    output.writeInt(kvb.getValue().length);
+                    output.write(kvb.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.runFiles.add(runFile);
+    }
+
+    /**
+     * Merges every sorted run, writes them to SST files, and ingests them into the map.  The loader is closed
+     * afterwards, even if the commit fails.
+     */
+    public void commit() {
+        this.checkIfClosed();
+        this.map.checkIfClosed();
+
+        try {
+            if (this.size == 0) {
+                return;
+            }
+
+            // a single run that fit entirely in memory never needs to be spilled
+            final List<Iterator<KeyValueBytes>> runs = new ArrayList<>();
+            if (this.runFiles.isEmpty()) {
+                runs.add(this.sortBuffer().iterator());
+            } else {
+                if (!this.buffer.isEmpty()) {
+                    this.spill();
+                }
+                for (Path runFile : this.runFiles) {
+                    runs.add(new RunFileIterator(runFile));
+                }
+            }
+
+            try {
+                final SstFiles sstFiles = this.writeSstFiles(new MergingIterator(runs));
+
+                this.ingest(sstFiles.paths);
+
+                // only once the keys are in the map, so a failed commit does not leave its size counting them
+                if (sstFiles.addedCount > 0) {
+                    this.map._entriesAdded(sstFiles.addedCount);
+                }
+            } finally {
+                for (Iterator<KeyValueBytes> run : runs) {
+                    if (run instanceof RunFileIterator) {
+                        ((RunFileIterator)run).close();
+                    }
+                }
+            }
+        } catch (RocksDBException e) {
+            throw new BigMapDataException(e);
+        } finally {
+            this.close();
+        }
+    }
+
+    void ingest(List<String> sstFiles) throws RocksDBException {
+        try (IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions()) {
+            // the files are in our own work directory, so they can simply be moved into the database
+            ingestOptions.setMoveFiles(true);
+            this.map.db.ingestExternalFile(this.map.columnFamily, sstFiles, ingestOptions);
+        }
+    }
+
+    /**
+     * The SST files written, and how many of their keys are not already in the map.
+     */
+    static private class SstFiles {
+
+        private final List<String> paths = new ArrayList<>();
+        private long addedCount;
+
+    }
+
+    private SstFiles writeSstFiles(Iterator<KeyValueBytes> entries) throws RocksDBException {
+        final SstFiles sstFiles = new SstFiles();
+        final boolean sizeTracked = this.map.isSizeTracked();
+        // keys only need to be checked for existence if the map is not empty
+        final boolean checkExisting = sizeTracked && !this.map.isEmpty();
+        final List<byte[]> chunkKeys = new ArrayList<>(EXISTING_KEYS_CHUNK_SIZE);
+
+        try {
+            Files.createDirectories(this.workDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try (EnvOptions envOptions = new EnvOptions()) {
+            SstFileWriter writer = null;
+            long fileBytes = 0L;
+            try {
+                while (entries.hasNext()) {
+                    final KeyValueBytes kvb = entries.next();
+
+                    if (writer == null || fileBytes >= this.targetFileBytes) {
+                        if (writer != null) {
+                            writer.finish();
+                            writer.close();
+                        }
+                        final Path sstFile = this.workDirectory.resolve("bulk-" + sstFiles.paths.size() + ".sst");
+                        // the same options as the map, so the files are built with the same table format and filter
+                        writer = new SstFileWriter(envOptions, this.map.options);
+                        writer.open(sstFile.toAbsolutePath().toString());
+                        sstFiles.paths.add(sstFile.toAbsolutePath().toString());
+                        fileBytes = 0L;
+                    }
+
+                    writer.put(kvb.getKey(), kvb.getValue());
+                    fileBytes += kvb.getKey().length + kvb.getValue().length;
+
+                    if (sizeTracked) {
+                        chunkKeys.add(kvb.getKey());
+                        if (chunkKeys.size() >= EXISTING_KEYS_CHUNK_SIZE) {
+                            sstFiles.addedCount += this.countNewKeys(chunkKeys, checkExisting);
+                        }
+                    }
+                }
+
+                if (writer != null) {
+                    writer.finish();
+                }
+            } finally {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+
+        if (!chunkKeys.isEmpty()) {
+            sstFiles.addedCount += this.countNewKeys(chunkKeys, checkExisting);
+        }
+
+        return sstFiles;
+    }
+
+    private long countNewKeys(List<byte[]> keys, boolean checkExisting) {
+        final int existingCount = checkExisting ? this.map._countExistingKeys(keys) : 0;
+        final long newCount = keys.size() - existingCount;
+        keys.clear();
+        return newCount;
+    }
+
+    /**
+     * Discards anything not yet committed, including any spilled run files.
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.buffer.clear();
+
+        if (Files.exists(this.workDirectory)) {
+            BigMapHelper.recursivelyDelete(this.workDirectory);
+        }
+    }
+
+    /**
+     * Reads back the entries of a sorted run file.
+     */
+    static private class RunFileIterator implements Iterator<KeyValueBytes>, Closeable {
+
+        private final DataInputStream input;
+        private KeyValueBytes next;
+
+        public RunFileIterator(Path runFile) {
+            try {
+                this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(runFile), 1 << 16));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.next = this.read();
+        }
+
+        private KeyValueBytes read() {
+            try {
+                final int keyLength;
+                try {
+                    keyLength = this.input.readInt();
+                } catch (EOFException e) {
+                    return null;
+                }
+                final byte[] keyBytes = new byte[keyLength];
+                this.input.readFully(keyBytes);
+                final byte[] valueBytes = new byte[this.input.readInt()];
+                this.input.readFully(valueBytes);
+                return new KeyValueBytes(keyBytes, valueBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public KeyValueBytes next() {
+            if (this.next == null) {
+                throw new NoSuchElementException();
+            }
+            final KeyValueBytes kvb = this.next;
+            this.next = this.read();
+            return kvb;
+        }
+
+        @Override
+        public void close() {
+            try {
+                this.input.close();
+            } catch (IOException e) {
+                // do nothing
+            }
+        }
+    }
+
+    /**
+     * Merges sorted runs into a single sorted iterator with unique keys, where a key in a later run wins.
+     */
+    static private class MergingIterator implements Iterator<KeyValueBytes> {
+
+        static private class Head {
+            private final int runIndex;
+            private final Iterator<KeyValueBytes> run;
+            private KeyValueBytes current;
+
+            public Head(int runIndex, Iterator<KeyValueBytes> run) {
+                this.runIndex = runIndex;
+                this.run = run;
+                this.current = run.next();
+            }
+        }
+
+        private final PriorityQueue<Head> heads;
+
+        public MergingIterator(List<Iterator<KeyValueBytes>> runs) {
+            this.heads = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> {
+                final int c = Bytes.compare(a.current.getKey(), b.current.getKey());
+                // for the same key, the later run comes first
+                return c != 0 ? c : Integer.compare(b.runIndex, a.runIndex);
+            });
+            for (int i = 0; i < runs.size(); i++) {
+                if (runs.get(i).hasNext()) {
+                    this.heads.add(new Head(i, runs.get(i)));
+                }
+            }
+        }
+
+        private void advance(Head head) {
+            if (head.run.hasNext()) {
+                head.current = head.run.next();
+                this.heads.add(head);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.heads.isEmpty();
+        }
+
+        @Override
+        public KeyValueBytes next() {
+            final Head head = this.heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            final KeyValueBytes kvb = head.current;
+
+            // skip the same key in any earlier runs
+            while (!this.heads.isEmpty() && Bytes.compare(this.heads.peek().current.getKey(), kvb.getKey()) == 0) {
+                this.advance(this.heads.poll());
+            }
+
+            this.advance(head);
+            return kvb;
+        }
+    }
+
+}
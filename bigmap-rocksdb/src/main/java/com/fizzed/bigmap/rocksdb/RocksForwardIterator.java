@@ -1,33 +1,75 @@
 package com.fizzed.bigmap.rocksdb;
 
+import com.fizzed.bigmap.BigObjectCloser;
+import com.fizzed.bigmap.CloseableIterator;
 import com.fizzed.bigmap.impl.KeyValueBytes;
+import com.fizzed.bigmap.impl.ResourceCleaner;
+import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksIterator;
 
-import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class RocksForwardIterator implements Iterator<KeyValueBytes> {
+public class RocksForwardIterator implements CloseableIterator<KeyValueBytes> {
 
     static public RocksForwardIterator build(RocksDB db) {
-        final RocksIterator iter = db.newIterator();
-        iter.seekToFirst();
-        return new RocksForwardIterator(iter);
+        return build(db, null, null);
     }
 
-    private final org.rocksdb.RocksIterator it;
+    static public RocksForwardIterator build(RocksDB db, byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return build(null, db, db.getDefaultColumnFamily(), fromKeyBytes, toKeyBytes);
+    }
+
+    static public RocksForwardIterator build(BigObjectCloser closer, RocksDB db, ColumnFamilyHandle columnFamily, byte[] fromKeyBytes, byte[] toKeyBytes) {
+        // rocksdb will stop the iterator at the bounds for us, no need to compare keys in java
+        final RocksRangeReadOptions readOptions = new RocksRangeReadOptions(fromKeyBytes, toKeyBytes);
+        final RocksIterator iter = db.newIterator(columnFamily, readOptions.getReadOptions());
+        if (fromKeyBytes != null) {
+            iter.seek(fromKeyBytes);
+        } else {
+            iter.seekToFirst();
+        }
+        return new RocksForwardIterator(closer, iter, readOptions);
+    }
 
-    public RocksForwardIterator(RocksIterator it) {
+    private final RocksIterator it;
+    private final AtomicBoolean released;
+    private final ResourceCleaner.Cleanable cleanable;
+
+    /**
+     * @param closer the closer of the map, which releases the iterator before the database is closed (or null if the
+     *      iterator is only released once closed or garbage collected)
+     */
+    public RocksForwardIterator(BigObjectCloser closer, RocksIterator it, RocksRangeReadOptions readOptions) {
         this.it = it;
+        final AtomicBoolean released = new AtomicBoolean();
+        this.released = released;
+        // the native iterator pins memtables and sst files, so it's released as soon as it's closed, read to the end,
+        // or the map is closed, and only as a last resort once this iterator is garbage collected
+        this.cleanable = ResourceCleaner.register(closer, this, () -> {
+            released.set(true);
+            it.close();
+            readOptions.close();
+        });
+        // CRITICAL: if there isn't a first record, we can clean up native resources right away
+        if (!it.isValid()) {
+            this.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.cleanable.clean();
     }
 
     public boolean hasNext() {
-        return it.isValid();
+        return !this.released.get() && it.isValid();
     }
 
     public KeyValueBytes next() {
         // NOTE: this throws a NoSuchElementException is no element exists
-        if (!it.isValid()) {
+        if (!this.hasNext()) {
             throw new NoSuchElementException();
         }
 
@@ -37,7 +79,12 @@ public class RocksForwardIterator implements Iterator<KeyValueBytes> {
         // now we'll iterate to the next
         it.next();
 
+        // CRITICAL: if there's no "next" value, this iterator is done, and we can clean up resources
+        if (!it.isValid()) {
+            this.close();
+        }
+
         return kvb;
     }
 
-}
\ No newline at end of file
+}
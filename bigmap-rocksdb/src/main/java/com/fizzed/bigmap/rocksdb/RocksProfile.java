@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.rocksdb;
+
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.CompressionType;
+import org.rocksdb.Options;
+import org.rocksdb.WriteOptions;
+
+/**
+ * Tunes a RocksBigMap for how it'll be used.  Without a profile, a map keeps the RocksDB defaults (64 MB memtables,
+ * unbounded open files) other than auto compactions being disabled.  Any options customized on the builder are
+ * applied after the profile, so they always win.
+ */
+public enum RocksProfile {
+
+    /**
+     * A temporary map that is thrown away when closed: no write-ahead log, no compression and no auto compactions,
+     * since nothing needs to survive a crash and the map rarely lives long enough to benefit from compacting.
+     */
+    SCRATCH,
+
+    /**
+     * Mostly point lookups of keys that were already written: auto compactions keep the number of files to check low,
+     * and index and filter blocks are kept in the block cache (pinned for the newest files).
+     */
+    READ_HEAVY,
+
+    /**
+     * Mostly writes: larger and more memtables that are merged before being flushed, more background jobs, and a
+     * higher number of level 0 files before compacting.
+     */
+    WRITE_HEAVY,
+
+    /**
+     * Many small maps: small memtables, index and filter blocks in the block cache instead of on-heap, and a small
+     * number of open files.
+     */
+    LOW_MEMORY;
+
+    void apply(Options options, BlockBasedTableConfig tableConfig, WriteOptions writeOptions) {
+        switch (this) {
+            case SCRATCH:
+                writeOptions.setDisableWAL(true);
+                options.setCompressionType(CompressionType.NO_COMPRESSION);
+                options.setDisableAutoCompactions(true);
+                options.setMaxOpenFiles(256);
+                break;
+            case READ_HEAVY:
+                options.setDisableAutoCompactions(false);
+                options.setLevelCompactionDynamicLevelBytes(true);
+                options.setCompressionType(CompressionType.LZ4_COMPRESSION);
+                options.setBottommostCompressionType(CompressionType.ZSTD_COMPRESSION);
+                options.setMaxOpenFiles(1024);
+                tableConfig.setBlockSize(16 * 1024);
+                tableConfig.setCacheIndexAndFilterBlocks(true);
+                tableConfig.setPinL0FilterAndIndexBlocksInCache(true);
+                break;
+            case WRITE_HEAVY:
+                options.setDisableAutoCompactions(false);
+                options.setLevelCompactionDynamicLevelBytes(true);
+                options.setCompressionType(CompressionType.LZ4_COMPRESSION);
+                options.setWriteBufferSize(128L * 1024L * 1024L);
+                options.setMaxWriteBufferNumber(4);
+                options.setMinWriteBufferNumberToMerge(2);
+                options.setLevel0FileNumCompactionTrigger(8);
+                options.setMaxBackgroundJobs(4);
+                options.setMaxOpenFiles(512);
+                break;
+            case LOW_MEMORY:
+                options.setDisableAutoCompactions(false);
+                options.setCompressionType(CompressionType.LZ4_COMPRESSION);
+                options.setWriteBufferSize(4L * 1024L * 1024L);
+                options.setMaxWriteBufferNumber(2);
+                options.setMaxOpenFiles(64);
+                tableConfig.setCacheIndexAndFilterBlocks(true);
+                break;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.fizzed.bigmap.rocksdb;
+
+import org.rocksdb.ReadOptions;
+import org.rocksdb.Slice;
+
+import java.io.Closeable;
+
+/**
+ * ReadOptions with optional lower (inclusive) and upper (exclusive) iterate bounds. The slices for the bounds must
+ * live as long as the iterator using them, so they are all closed together.
+ */
+public class RocksRangeReadOptions implements Closeable {
+
+    private final ReadOptions readOptions;
+    private final Slice lowerBound;
+    private final Slice upperBound;
+
+    public RocksRangeReadOptions(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        this.readOptions = new ReadOptions();
+        this.lowerBound = fromKeyBytes != null ? new Slice(fromKeyBytes) : null;
+        this.upperBound = toKeyBytes != null ? new Slice(toKeyBytes) : null;
+        if (this.lowerBound != null) {
+            this.readOptions.setIterateLowerBound(this.lowerBound);
+        }
+        if (this.upperBound != null) {
+            this.readOptions.setIterateUpperBound(this.upperBound);
+        }
+    }
+
+    public ReadOptions getReadOptions() {
+        return this.readOptions;
+    }
+
+    @Override
+    public void close() {
+        this.readOptions.close();
+        if (this.lowerBound != null) {
+            this.lowerBound.close();
+        }
+        if (this.upperBound != null) {
+            this.upperBound.close();
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.fizzed.bigmap.rocksdb;
+
+import com.fizzed.bigmap.BigObjectCloser;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.impl.KeyValueBytes;
+import com.fizzed.bigmap.impl.ResourceCleaner;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksIterator;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RocksReverseIterator implements CloseableIterator<KeyValueBytes> {
+
+    static public RocksReverseIterator build(RocksDB db) {
+        return build(db, null, null);
+    }
+
+    static public RocksReverseIterator build(RocksDB db, byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return build(null, db, db.getDefaultColumnFamily(), fromKeyBytes, toKeyBytes);
+    }
+
+    static public RocksReverseIterator build(BigObjectCloser closer, RocksDB db, ColumnFamilyHandle columnFamily, byte[] fromKeyBytes, byte[] toKeyBytes) {
+        // rocksdb will stop the iterator at the bounds for us, no need to compare keys in java
+        final RocksRangeReadOptions readOptions = new RocksRangeReadOptions(fromKeyBytes, toKeyBytes);
+        final RocksIterator iter = db.newIterator(columnFamily, readOptions.getReadOptions());
+        if (toKeyBytes != null) {
+            iter.seekForPrev(toKeyBytes);
+            // seekForPrev lands on the key itself if it exists, but the upper bound is exclusive
+            if (iter.isValid() && Arrays.equals(iter.key(), toKeyBytes)) {
+                iter.prev();
+            }
+        } else {
+            iter.seekToLast();
+        }
+        return new RocksReverseIterator(closer, iter, readOptions);
+    }
+
+    private final RocksIterator it;
+    private final AtomicBoolean released;
+    private final ResourceCleaner.Cleanable cleanable;
+
+    /**
+     * @param closer the closer of the map, which releases the iterator before the database is closed (or null if the
+     *      iterator is only released once closed or garbage collected)
+     */
+    public RocksReverseIterator(BigObjectCloser closer, RocksIterator it, RocksRangeReadOptions readOptions) {
+        this.it = it;
+        final AtomicBoolean released = new AtomicBoolean();
+        this.released = released;
+        // same as the forward iterator, the native iterator is released as soon as possible
+        this.cleanable = ResourceCleaner.register(closer, this, () -> {
+            released.set(true);
+            it.close();
+            readOptions.close();
+        });
+        // CRITICAL: if there isn't a first record, we can clean up native resources right away
+        if (!it.isValid()) {
+            this.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.cleanable.clean();
+    }
+
+    public boolean hasNext() {
+        return !this.released.get() && it.isValid();
+    }
+
+    public KeyValueBytes next() {
+        // NOTE: this throws a NoSuchElementException is no element exists
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        // we are already on the item we want
+        final KeyValueBytes kvb = new KeyValueBytes(it.key(), it.value());
+
+        // now we'll iterate to the next
+        it.prev();
+
+        // CRITICAL: if there's no "next" value, this iterator is done, and we can clean up resources
+        if (!it.isValid()) {
+            this.close();
+        }
+
+        return kvb;
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.rocksdb;
+
+import com.fizzed.bigmap.BigMapDataException;
+import com.fizzed.bigmap.impl.BigMapHelper;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A single RocksDB shared by many RocksBigMaps (and sets), each stored in its own column family, so that tens of
+ * thousands of small maps only cost one database: one write-ahead log, one set of background threads and one pool of
+ * open files.  The column family of a map is dropped when the map is closed.
+ *
+ * The database is scratch space in a directory of its own under the scratch directory, so maps using it cannot be
+ * persistent.  Each map holds a reference while it is open.  The database is closed (and its directory deleted) once
+ * this object is closed and every map using it has been closed too.
+ */
+public class RocksSharedDatabase implements Closeable {
+
+    static public final int DEFAULT_MAX_OPEN_FILES = 1024;
+
+    private final Path directory;
+    private final RocksSharedResources sharedResources;     // null if not bounded by a shared write buffer manager
+    private final DBOptions options;
+    private final ColumnFamilyOptions defaultColumnFamilyOptions;
+    private final List<ColumnFamilyHandle> defaultColumnFamilyHandles;
+    private final RocksDB db;
+    private int references;
+    private boolean closed;
+
+    public RocksSharedDatabase(Path scratchDirectory) {
+        this(scratchDirectory, null);
+    }
+
+    /**
+     * @param sharedResources the block cache and write buffer manager the memtables of every column family are
+     *                        charged against, or null for the RocksDB defaults
+     */
+    public RocksSharedDatabase(Path scratchDirectory, RocksSharedResources sharedResources) {
+        this.directory = scratchDirectory.resolve("bigmap-rocks-shared-" + UUID.randomUUID());
+        this.sharedResources = sharedResources;
+
+        this.options = new DBOptions();
+        this.options.setCreateIfMissing(true);
+        this.options.setMaxOpenFiles(DEFAULT_MAX_OPEN_FILES);
+        // scratch data, so there's no point in flushing memtables when closing
+        this.options.setAvoidFlushDuringShutdown(true);
+        if (sharedResources != null) {
+            sharedResources.retain();
+            this.options.setWriteBufferManager(sharedResources.getWriteBufferManager());
+        }
+
+        this.defaultColumnFamilyOptions = new ColumnFamilyOptions();
+        this.defaultColumnFamilyHandles = new ArrayList<>(1);
+
+        try {
+            Files.createDirectories(this.directory);
+            this.db = RocksDB.open(this.options, this.directory.toAbsolutePath().toString(),
+                Collections.singletonList(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, this.defaultColumnFamilyOptions)),
+                this.defaultColumnFamilyHandles);
+        } catch (IOException e) {
+            this.closeOptions();
+            throw new UncheckedIOException(e);
+        } catch (RocksDBException e) {
+            this.closeOptions();
+            BigMapHelper.recursivelyDelete(this.directory);
+            throw new BigMapDataException(e);
+        }
+
+        this.references = 1;            // the reference of whoever created it, released by close()
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    public RocksSharedResources getSharedResources() {
+        return this.sharedResources;
+    }
+
+    RocksDB getDb() {
+        return this.db;
+    }
+
+    /**
+     * Whether the database has been closed.
+     */
+    synchronized public boolean isReleased() {
+        return this.references <= 0;
+    }
+
+    synchronized void retain() {
+        if (this.references <= 0) {
+            throw new IllegalStateException("Shared database was already released");
+        }
+        this.references++;
+    }
+
+    synchronized void release() {
+        if (this.references <= 0) {
+            return;
+        }
+        this.references--;
+        if (this.references == 0) {
+            for (ColumnFamilyHandle handle : this.defaultColumnFamilyHandles) {
+                handle.close();
+            }
+            this.db.close();
+            this.closeOptions();
+            BigMapHelper.recursivelyDelete(this.directory);
+        }
+    }
+
+    private void closeOptions() {
+        this.options.close();
+        this.defaultColumnFamilyOptions.close();
+        // only once the database no longer uses them
+        if (this.sharedResources != null) {
+            this.sharedResources.release();
+        }
+    }
+
+    ColumnFamilyHandle createColumnFamily(UUID id, ColumnFamilyOptions columnFamilyOptions) {
+        try {
+            return this.db.createColumnFamily(
+                new ColumnFamilyDescriptor(id.toString().getBytes(StandardCharsets.UTF_8), columnFamilyOptions));
+        } catch (RocksDBException e) {
+            throw new BigMapDataException(e);
+        }
+    }
+
+    void dropColumnFamily(ColumnFamilyHandle columnFamily) {
+        try {
+            this.db.dropColumnFamily(columnFamily);
+        } catch (RocksDBException e) {
+            throw new BigMapDataException(e);
+        } finally {
+            columnFamily.close();
+        }
+    }
+
+    @Override
+    synchronized public void close() {
+        // do nothing on multiple closes
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.release();
+    }
+
+}
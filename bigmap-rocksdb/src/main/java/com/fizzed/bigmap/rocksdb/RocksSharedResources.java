@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.bigmap.rocksdb;
+
+import org.rocksdb.Cache;
+import org.rocksdb.LRUCache;
+import org.rocksdb.WriteBufferManager;
+
+import java.io.Closeable;
+
+/**
+ * A block cache and write buffer manager shared by many RocksBigMaps, so the memory used by all of them stays bounded
+ * no matter how many maps are open.  The memory of every memtable is charged against the block cache, so the block
+ * cache bytes are the total budget, of which up to the write buffer bytes can be used by memtables.
+ *
+ * Each map holds a reference while it is open.  The native resources are freed once this object is closed and every
+ * map using it has been closed too.
+ */
+public class RocksSharedResources implements Closeable {
+
+    private final long blockCacheBytes;
+    private final long writeBufferBytes;
+    private final Cache blockCache;
+    private final WriteBufferManager writeBufferManager;
+    private int references;
+    private boolean closed;
+
+    public RocksSharedResources(long blockCacheBytes, long writeBufferBytes) {
+        if (blockCacheBytes <= 0) {
+            throw new IllegalArgumentException("blockCacheBytes must be > 0");
+        }
+        if (writeBufferBytes <= 0 || writeBufferBytes > blockCacheBytes) {
+            throw new IllegalArgumentException("writeBufferBytes must be > 0 and <= blockCacheBytes");
+        }
+
+        this.blockCacheBytes = blockCacheBytes;
+        this.writeBufferBytes = writeBufferBytes;
+        this.blockCache = new LRUCache(blockCacheBytes);
+        this.writeBufferManager = new WriteBufferManager(writeBufferBytes, this.blockCache);
+        this.references = 1;            // the reference of whoever created it, released by close()
+    }
+
+    public long getBlockCacheBytes() {
+        return this.blockCacheBytes;
+    }
+
+    public long getWriteBufferBytes() {
+        return this.writeBufferBytes;
+    }
+
+    public Cache getBlockCache() {
+        return this.blockCache;
+    }
+
+    public WriteBufferManager getWriteBufferManager() {
+        return this.writeBufferManager;
+    }
+
+    /**
+     * Whether the native resources have been freed.
+     */
+    synchronized public boolean isReleased() {
+        return this.references <= 0;
+    }
+
+    synchronized void retain() {
+        if (this.references <= 0) {
+            throw new IllegalStateException("Shared resources were already released");
+        }
+        this.references++;
+    }
+
+    synchronized void release() {
+        if (this.references <= 0) {
+            return;
+        }
+        this.references--;
+        if (this.references == 0) {
+            this.writeBufferManager.close();
+            this.blockCache.close();
+        }
+    }
+
+    @Override
+    synchronized public void close() {
+        // do nothing on multiple closes
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.release();
+    }
+
+}
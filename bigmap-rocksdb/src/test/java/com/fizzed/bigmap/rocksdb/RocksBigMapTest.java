@@ -15,6 +15,12 @@
  */
 package com.fizzed.bigmap.rocksdb;
 
+import com.fizzed.bigmap.BigMapDataException;
+import com.fizzed.bigmap.BigObjectMetrics.Operation;
+import com.fizzed.bigmap.BigObjectMetricsSnapshot;
+import com.fizzed.bigmap.BigObjectRegistry;
+import com.fizzed.bigmap.CloseableSpliterator;
+import com.fizzed.bigmap.OperationMetrics;
 import com.fizzed.jne.HardwareArchitecture;
 import com.fizzed.jne.NativeTarget;
 import com.fizzed.jne.OperatingSystem;
@@ -22,13 +28,28 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledIf;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
+import org.rocksdb.RocksDBException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @DisabledIf("isUnsupportedOs")
 public class RocksBigMapTest {
@@ -101,4 +122,391 @@ public class RocksBigMapTest {
         assertThat(removed1, is("2"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void orderPreservingKeys() {
+        final RocksBigMap<Long,String> map = new RocksBigMapBuilder<Long,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setOrderPreservingKeyType(Long.class)
+            .setValueType(String.class)
+            .build();
+
+        map.put(5L, "5");
+        map.put(-1L, "-1");
+        map.put(0L, "0");
+        map.put(Long.MIN_VALUE, "min");
+        map.put(-300L, "-300");
+
+        // negative keys must sort before positive keys
+        final ArrayList<Long> keys = new ArrayList<>();
+        map.forwardIterator().forEachRemaining(e -> keys.add(e.getKey()));
+
+        assertThat(keys, contains(Long.MIN_VALUE, -300L, -1L, 0L, 5L));
+        assertThat(map.firstKey(), is(Long.MIN_VALUE));
+        assertThat(map.lastKey(), is(5L));
+        assertThat(new ArrayList<>(map.headMap(0L).values()), contains("min", "-300", "-1"));
+    }
+
+    @Test
+    public void sizeNotTracked() {
+        final RocksBigMap<String,String> map = new RocksBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .setSizeTracked(false)
+            .autoCloseObjects()
+            .build();
+
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.size(), is(0));
+
+        map.set("a", "1");
+        map.set("b", "2");
+        map.set("a", "3");
+        map.delete("c");
+
+        assertThat(map.get("a"), is("3"));
+        assertThat(map.size(), is(2));
+        assertThat(map.isEmpty(), is(false));
+
+        map.delete("a");
+        map.delete("a");
+
+        assertThat(map.size(), is(1));
+
+        // rocksdb can only estimate its count, so just make sure it can be read
+        assertThat(map.getEstimatedSize() >= 0L, is(true));
+
+        map.delete("b");
+
+        assertThat(map.size(), is(0));
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void bloomFilter() {
+        final RocksBigMap<String,String> map = new RocksBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .setBloomFilter(1000, 0.01d)
+            .autoCloseObjects()
+            .build();
+
+        assertThat(map.get("a"), is(nullValue()));
+        assertThat(map.containsKey("a"), is(false));
+
+        map.put("a", "1");
+        map.set("b", "2");
+
+        assertThat(map.get("a"), is("1"));
+        assertThat(map.containsKey("b"), is(true));
+        assertThat(map.containsKey("c"), is(false));
+        assertThat(map.remove("c"), is(nullValue()));
+        assertThat(map.size(), is(2));
+
+        map.delete("a");
+
+        assertThat(map.containsKey("a"), is(false));
+        assertThat(map.size(), is(1));
+
+        map.clear();
+
+        assertThat(map.containsKey("b"), is(false));
+        assertThat(map.size(), is(0));
+    }
+
+    @Test
+    public void metrics() {
+        final RocksBigMap<String,String> map = new RocksBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .enableMetrics()
+            .autoCloseObjects()
+            .build();
+
+        map.put("a", "1");
+        map.set("b", "22");
+        map.get("a");
+        map.get("c");
+        map.containsKey("b");
+        map.delete("a");
+
+        final Map<Operation,OperationMetrics> operations = map.getMetrics().getOperations();
+
+        assertThat(operations.get(Operation.PUT).getCount(), is(1L));
+        assertThat(operations.get(Operation.PUT).getBytesWritten(), greaterThan(0L));
+        assertThat(operations.get(Operation.SET).getCount(), is(1L));
+        assertThat(operations.get(Operation.GET).getCount(), is(2L));
+        assertThat(operations.get(Operation.GET).getBytesRead(), greaterThan(0L));
+        assertThat(operations.get(Operation.CONTAINS_KEY).getCount(), is(1L));
+        assertThat(operations.get(Operation.DELETE).getCount(), is(1L));
+        assertThat(operations.containsKey(Operation.REMOVE), is(false));
+
+        // native statistics are collected too (rocksdb counts the delete as a key written)
+        assertThat((Long)map.getEngineStats().get("rocksdb.number.keys.written"), is(3L));
+
+        final BigObjectMetricsSnapshot snapshot = BigObjectRegistry.getDefault().snapshot().stream()
+            .filter(v -> v.getId().equals(map.getId()))
+            .findFirst()
+            .orElse(null);
+
+        assertThat(snapshot, is(notNullValue()));
+        assertThat(snapshot.getType(), is("RocksBigMap"));
+        assertThat(snapshot.getOperations().get(Operation.GET).getCount(), is(2L));
+    }
+
+    @Test
+    public void bulkLoader() {
+        final RocksBigMap<Integer,String> map = new RocksBigMapBuilder<Integer,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(Integer.class)
+            .setValueType(String.class)
+            .setBloomFilter(1000, 0.01d)
+            .autoCloseObjects()
+            .build();
+
+        map.put(5, "existing");
+        map.put(2000, "existing");
+
+        // a tiny buffer so the entries are spilled to many sorted runs that need to be merged
+        try (RocksBulkLoader<Integer,String> loader = map.bulkLoader(1024)) {
+            for (int i = 999; i >= 0; i--) {
+                loader.set(i, "v" + i);
+            }
+            // the last value set for a key wins, even across runs
+            loader.set(7, "last");
+
+            assertThat(loader.size(), is(1001L));
+
+            loader.commit();
+        }
+
+        assertThat(map.size(), is(1001));
+        assertThat(map.get(2000), is("existing"));
+        assertThat(map.get(5), is("v5"));
+        assertThat(map.get(7), is("last"));
+        assertThat(map.get(999), is("v999"));
+        assertThat(map.containsKey(1000), is(false));
+        assertThat(map.firstKey(), is(0));
+        assertThat(map.lastKey(), is(2000));
+
+        // still a normal map afterwards
+        map.put(1000, "v1000");
+
+        assertThat(map.size(), is(1002));
+        assertThat(map.get(1000), is("v1000"));
+    }
+
+    @Test
+    public void bulkLoaderFailedIngestLeavesSizeUnchanged() {
+        final RocksBigMap<Integer,String> map = new RocksBigMapBuilder<Integer,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(Integer.class)
+            .setValueType(String.class)
+            .autoCloseObjects()
+            .build();
+
+        map.put(5, "existing");
+
+        // the sst files vanish before they are ingested, so rocksdb fails to ingest them
+        final RocksBulkLoader<Integer,String> loader = new RocksBulkLoader<Integer,String>(map, 1024, 16 * 1024) {
+            @Override
+            void ingest(List<String> sstFiles) throws RocksDBException {
+                for (String sstFile : sstFiles) {
+                    try {
+                        Files.delete(Paths.get(sstFile));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                super.ingest(sstFiles);
+            }
+        };
+
+        for (int i = 0; i < 3000; i++) {
+            loader.set(i, "v" + i);
+        }
+
+        assertThrows(BigMapDataException.class, loader::commit);
+
+        assertThat(map.size(), is(1));
+        assertThat(map.get(5), is("existing"));
+        assertThat(map.containsKey(2999), is(false));
+    }
+
+    @Test
+    public void spliteratorSplitsAtSstFiles() {
+        final RocksBigMap<Integer,String> map = new RocksBigMapBuilder<Integer,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setOrderPreservingKeyType(Integer.class)
+            .setValueType(String.class)
+            .autoCloseObjects()
+            .build();
+
+        // tiny target files, so the entries are ingested as many sst files
+        try (RocksBulkLoader<Integer,String> loader = new RocksBulkLoader<>(map, 64 * 1024, 16 * 1024)) {
+            for (int i = 0; i < 10000; i++) {
+                loader.set(i, "v" + i);
+            }
+            loader.commit();
+        }
+
+        try (CloseableSpliterator<Entry<Integer,String>> spliterator = map.spliterator()) {
+            final List<CloseableSpliterator<Entry<Integer,String>>> splits = new ArrayList<>();
+            splits.add(spliterator);
+            // split every range in two, a few times over
+            for (int round = 0; round < 3; round++) {
+                for (int i = splits.size() - 1; i >= 0; i--) {
+                    final CloseableSpliterator<Entry<Integer,String>> prefix = splits.get(i).trySplit();
+                    assertThat(prefix, is(notNullValue()));
+                    splits.add(i, prefix);
+                }
+            }
+
+            assertThat(splits.size(), is(8));
+
+            // every split is a non-empty range, in order, with no entries missing
+            final List<Integer> keys = new ArrayList<>();
+            for (CloseableSpliterator<Entry<Integer,String>> split : splits) {
+                final int before = keys.size();
+                split.forEachRemaining(entry -> keys.add(entry.getKey()));
+                assertThat(keys.size(), greaterThan(before));
+            }
+
+            assertThat(keys.size(), is(10000));
+            for (int i = 0; i < 10000; i++) {
+                assertThat(keys.get(i), is(i));
+            }
+        }
+
+        try (Stream<Entry<Integer,String>> stream = map.parallelStream()) {
+            assertThat(stream.mapToLong(Entry::getKey).sum(), is(49995000L));
+        }
+    }
+
+    @Test
+    public void profileAndSharedMemory() throws Exception {
+        final AtomicInteger customized = new AtomicInteger();
+        final RocksBigMapBuilder<String,String> builder = new RocksBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .setProfile(RocksProfile.SCRATCH)
+            .setSharedMemory(8 * 1024 * 1024L, 4 * 1024 * 1024L)
+            .customizeOptions(options -> {
+                customized.incrementAndGet();
+                options.setMaxOpenFiles(128);
+            })
+            .customizeTableConfig(tableConfig -> customized.incrementAndGet());
+
+        final RocksBigMap<String,String> map1 = builder.build();
+        final RocksBigMap<String,String> map2 = builder.build();
+
+        assertThat(customized.get(), is(4));
+
+        final RocksSharedResources sharedResources = map1.getSharedResources();
+
+        assertThat(sharedResources, is(notNullValue()));
+        assertThat(map2.getSharedResources(), is(sameInstance(sharedResources)));
+
+        map1.put("a", "1");
+        map2.put("a", "2");
+
+        assertThat(map1.get("a"), is("1"));
+        assertThat(map2.get("a"), is("2"));
+
+        // freed only once the last map using them is closed
+        map1.close();
+
+        assertThat(sharedResources.isReleased(), is(false));
+        assertThat(map2.get("a"), is("2"));
+
+        map2.close();
+
+        assertThat(sharedResources.isReleased(), is(true));
+
+        // the builder creates new resources for any maps built afterwards
+        final RocksBigMap<String,String> map3 = builder.build();
+
+        assertThat(map3.getSharedResources(), is(not(sameInstance(sharedResources))));
+
+        map3.close();
+
+        assertThat(map3.getSharedResources().isReleased(), is(true));
+    }
+
+    @Test
+    public void sharedDatabase() throws Exception {
+        final RocksSharedDatabase sharedDatabase = new RocksSharedDatabase(Paths.get("target"));
+        final RocksBigMapBuilder<Integer,String> builder = new RocksBigMapBuilder<Integer,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(Integer.class)
+            .setValueType(String.class)
+            .setSharedDatabase(sharedDatabase);
+
+        final List<RocksBigMap<Integer,String>> maps = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final RocksBigMap<Integer,String> map = builder.build();
+            map.put(1, "a" + i);
+            map.put(2, "b" + i);
+            maps.add(map);
+        }
+
+        final RocksBigSet<String> set = new RocksBigSetBuilder<String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setValueType(String.class)
+            .setSharedDatabase(sharedDatabase)
+            .build();
+
+        set.add("x");
+
+        // every map only sees its own column family
+        for (int i = 0; i < maps.size(); i++) {
+            final RocksBigMap<Integer,String> map = maps.get(i);
+            assertThat(map.size(), is(2));
+            assertThat(map.get(1), is("a" + i));
+            final List<Integer> keys = new ArrayList<>();
+            map.forwardIterator().forEachRemaining(e -> keys.add(e.getKey()));
+            assertThat(keys, contains(1, 2));
+        }
+        assertThat(set.contains("x"), is(true));
+        assertThat(set.size(), is(1));
+
+        maps.get(0).clear();
+
+        assertThat(maps.get(0).isEmpty(), is(true));
+        assertThat(maps.get(0).get(1), is(nullValue()));
+        assertThat(maps.get(1).get(1), is("a1"));
+
+        // the database stays open while any map uses it
+        sharedDatabase.close();
+
+        for (RocksBigMap<Integer,String> map : maps) {
+            map.close();
+        }
+
+        assertThat(sharedDatabase.isReleased(), is(false));
+        assertThat(Files.exists(sharedDatabase.getDirectory()), is(true));
+
+        set.close();
+
+        assertThat(sharedDatabase.isReleased(), is(true));
+        assertThat(Files.exists(sharedDatabase.getDirectory()), is(false));
+    }
+
+    @Test
+    public void sharedDatabaseCannotBePersistent() {
+        try (RocksSharedDatabase sharedDatabase = new RocksSharedDatabase(Paths.get("target"))) {
+            assertThrows(IllegalArgumentException.class, () -> new RocksBigMapBuilder<Integer,String>()
+                .setScratchDirectory(Paths.get("target"))
+                .setKeyType(Integer.class)
+                .setValueType(String.class)
+                .setName("shared")
+                .setPersistent(true)
+                .setSharedDatabase(sharedDatabase)
+                .build());
+        }
+    }
+
+}
@@ -15,9 +15,11 @@
  */
 package com.fizzed.bigmap.tkrzw;
 
+import com.fizzed.bigmap.ByteCodec;
 import com.fizzed.bigmap.impl.AbstractBigLinkedMap;
 
 import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.UUID;
 
 public class TkrzwBigLinkedMap<K,V> extends AbstractBigLinkedMap<K,V> {
@@ -26,11 +28,12 @@ public class TkrzwBigLinkedMap<K,V> extends AbstractBigLinkedMap<K,V> {
             UUID id,
             Path directory,
             boolean persistent,
-            TkrzwBigMap<K,V> dataMap,
-            TkrzwBigMap<Integer,K> insertOrderToKeyMap,
-            TkrzwBigMap<K,Integer> keyToInsertOrderMap) {
+            TkrzwBigMap<byte[],byte[]> store,
+            ByteCodec<K> keyCodec,
+            Comparator<K> keyComparator,
+            ByteCodec<V> valueCodec) {
         
-        super(id, directory, persistent, dataMap, insertOrderToKeyMap, keyToInsertOrderMap);
+        super(id, directory, persistent, store, keyCodec, keyComparator, valueCodec);
     }
 
 }
\ No newline at end of file
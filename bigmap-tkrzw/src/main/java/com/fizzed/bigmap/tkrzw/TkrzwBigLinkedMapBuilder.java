@@ -17,29 +17,31 @@ package com.fizzed.bigmap.tkrzw;
 
 import com.fizzed.bigmap.*;
 import com.fizzed.bigmap.impl.AbstractBigMapBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 
 import java.nio.file.Path;
-import java.util.Comparator;
 import java.util.UUID;
 
 public class TkrzwBigLinkedMapBuilder<K,V> extends AbstractBigMapBuilder<K,V, TkrzwBigLinkedMapBuilder<K,V>> {
 
+    @Override
+    protected boolean isLinkedEngine() {
+        return true;
+    }
+
     public TkrzwBigLinkedMap<K,V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path path = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "biglinkedmap-tokyo");
+        final UUID id = this.resolveId();
         // take the path, append the map name, then the extension tokyo needs
-        final Path dataFile = BigMapHelper.appendFileName(path, this.name, ".tkt");
-        final Path i2kFile = BigMapHelper.appendFileName(path, this.name, "i2k", ".tkt");
-        final Path k2iFile = BigMapHelper.appendFileName(path, this.name, "k2i", ".tkt");
+        final Path dataFile = this.resolveFile(id, "biglinkedmap-tokyo", ".tkt");
+        // the keys, values and their insert order all live in a single sorted store, see AbstractBigLinkedMap
+        final TkrzwBigMap<byte[],byte[]> store = new TkrzwBigMap<>(UUID.randomUUID(), dataFile, this.persistent, ByteCodecs.byteArrayCodec(), Bytes::compare, ByteCodecs.byteArrayCodec());
+
+        // the linked map always knows whether a key is new (it needs its insert order) so its size is always tracked
+        store.setSizeTracked(false);
+        this.applyBloomFilter(store);
 
-        final ByteCodec<Integer> integerByteCodec = ByteCodecs.integerCodec();
-        final Comparator<Integer> integerComparator = Comparators.autoComparator(Integer.class);
-        final TkrzwBigMap<K,V> dataMap = new TkrzwBigMap<>(UUID.randomUUID(), dataFile, this.keyCodec, this.keyComparator, this.valueCodec);
-        final TkrzwBigMap<Integer,K> insertOrderToKeyMap = new TkrzwBigMap<>(UUID.randomUUID(), i2kFile, integerByteCodec, integerComparator, this.keyCodec);
-        final TkrzwBigMap<K,Integer> keyToInsertOrderMap = new TkrzwBigMap<>(UUID.randomUUID(), k2iFile, this.keyCodec, this.keyComparator, integerByteCodec);
+        final TkrzwBigLinkedMap<K,V> map = new TkrzwBigLinkedMap<>(id, dataFile, this.persistent, store, this.keyCodec, this.keyComparator, this.valueCodec);
 
-        final TkrzwBigLinkedMap<K,V> map = new TkrzwBigLinkedMap<>(id, dataFile, false, dataMap, insertOrderToKeyMap, keyToInsertOrderMap);
+        map.setMetrics(this.buildMetrics());
         map.setListener(this.registry);
         map.open();
         return map;
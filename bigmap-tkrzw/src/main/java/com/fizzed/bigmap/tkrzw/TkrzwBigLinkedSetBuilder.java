@@ -15,34 +15,30 @@
  */
 package com.fizzed.bigmap.tkrzw;
 
-import com.fizzed.bigmap.ByteCodec;
 import com.fizzed.bigmap.ByteCodecs;
-import com.fizzed.bigmap.Comparators;
+import com.fizzed.bigmap.Bytes;
 import com.fizzed.bigmap.impl.AbstractBigSetBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 import com.fizzed.bigmap.impl.None;
 
 import java.nio.file.Path;
-import java.util.Comparator;
 import java.util.UUID;
 
 public class TkrzwBigLinkedSetBuilder<V> extends AbstractBigSetBuilder<V, TkrzwBigLinkedSetBuilder<V>> {
 
     public TkrzwBigLinkedSet<V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path path = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "biglinkedset-tokyo");
+        final UUID id = this.resolveId();
         // take the path, append the map name, then the extension tokyo needs
-        final Path dataFile = BigMapHelper.appendFileName(path, this.name, ".tkt");
-        final Path i2kFile = BigMapHelper.appendFileName(path, this.name, "i2k", ".tkt");
-        final Path k2iFile = BigMapHelper.appendFileName(path, this.name, "k2i", ".tkt");
+        final Path dataFile = this.resolveFile(id, "biglinkedset-tokyo", ".tkt");
+        // the keys, values and their insert order all live in a single sorted store, see AbstractBigLinkedMap
+        final TkrzwBigMap<byte[],byte[]> store = new TkrzwBigMap<>(UUID.randomUUID(), dataFile, this.persistent, ByteCodecs.byteArrayCodec(), Bytes::compare, ByteCodecs.byteArrayCodec());
 
-        final ByteCodec<Integer> integerByteCodec = ByteCodecs.integerCodec();
-        final Comparator<Integer> integerComparator = Comparators.autoComparator(Integer.class);
-        final TkrzwBigMap<V,None> dataMap = new TkrzwBigMap<>(UUID.randomUUID(), dataFile, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
-        final TkrzwBigMap<Integer,V> insertOrderToKeyMap = new TkrzwBigMap<>(UUID.randomUUID(), i2kFile, integerByteCodec, integerComparator, this.valueCodec);
-        final TkrzwBigMap<V,Integer> keyToInsertOrderMap = new TkrzwBigMap<>(UUID.randomUUID(), k2iFile, this.valueCodec, this.valueComparator, integerByteCodec);
+        // the linked map always knows whether a key is new (it needs its insert order) so its size is always tracked
+        store.setSizeTracked(false);
+        this.applyBloomFilter(store);
 
-        final TkrzwBigLinkedMap<V,None> map = new TkrzwBigLinkedMap<>(id, dataFile, false, dataMap, insertOrderToKeyMap, keyToInsertOrderMap);
+        final TkrzwBigLinkedMap<V,None> map = new TkrzwBigLinkedMap<>(id, dataFile, this.persistent, store, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+
+        map.setMetrics(this.buildMetrics());
 
         final TkrzwBigLinkedSet<V> set = new TkrzwBigLinkedSet<>(map);
         set.setListener(this.registry);
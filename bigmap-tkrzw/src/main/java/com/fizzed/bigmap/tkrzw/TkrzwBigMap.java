@@ -17,7 +17,7 @@ package com.fizzed.bigmap.tkrzw;
 
 import com.fizzed.bigmap.*;
 import com.fizzed.bigmap.impl.AbstractBigMap;
-import com.fizzed.bigmap.impl.ByteArrayBigMap;
+import com.fizzed.bigmap.impl.ByteArrayBigSortedMap;
 import com.fizzed.bigmap.impl.KeyValueBytes;
 import tkrzw.DBM;
 import tkrzw.Status;
@@ -25,22 +25,26 @@ import tkrzw.Status;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
-public class TkrzwBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBigMap<K,V>, BigSortedMap<K,V> {
+public class TkrzwBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBigSortedMap<K,V> {
 
     protected DBM db;
 
     protected TkrzwBigMap(
             UUID id,
             Path file,
+            boolean persistent,
             ByteCodec<K> keyCodec,
             Comparator<K> keyComparator,
             ByteCodec<V> valueCodec) {
         
-        super(id, file, false, keyCodec, keyComparator, valueCodec);
+        super(id, file, persistent, keyCodec, keyComparator, valueCodec);
         
         Objects.requireNonNull(valueCodec, "valueCodec was null");
     }
@@ -91,7 +95,8 @@ public class TkrzwBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
 
     @Override
     public boolean _containsKey(byte[] keyBytes) {
-        return this.db.get(keyBytes) != null;
+        // checks the record without copying its value back to us
+        return this.db.contains(keyBytes);
     }
 
     @Override
@@ -121,8 +126,59 @@ public class TkrzwBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
     }
 
     @Override
-    public Iterator<KeyValueBytes> _forwardIterator() {
-        return TkrzwForwardIterator.build(this.db);
+    public int _countExistingKeys(List<byte[]> keyBytesList) {
+        // only the records that exist are returned
+        final Map<byte[],byte[]> records = this.db.getMulti(keyBytesList.toArray(new byte[0][]));
+
+        return records != null ? records.size() : 0;
+    }
+
+    @Override
+    public void _writeBatch(List<KeyValueBytes> sets, List<byte[]> deletes) {
+        if (!sets.isEmpty()) {
+            final Map<byte[],byte[]> records = new HashMap<>(sets.size() * 2);
+            for (KeyValueBytes kvb : sets) {
+                records.put(kvb.getKey(), kvb.getValue());
+            }
+
+            final Status status = this.db.setMulti(records, true);
+            if (!status.isOK()) {
+                throw new BigMapDataException("Set multi failed " + status.getMessage());
+            }
+        }
+
+        if (!deletes.isEmpty()) {
+            final Status status = this.db.removeMulti(deletes.toArray(new byte[0][]));
+
+            // if any record is not found, the rest are still removed
+            if (!status.isOK() && status.getCode() != Status.Code.NOT_FOUND_ERROR) {
+                throw new BigMapDataException("Remove multi failed " + status.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public CloseableIterator<KeyValueBytes> _forwardIterator(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return TkrzwForwardIterator.build(this.closer, this.db, fromKeyBytes, toKeyBytes);
+    }
+
+    @Override
+    public CloseableIterator<KeyValueBytes> _reverseIterator(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return TkrzwReverseIterator.build(this.closer, this.db, fromKeyBytes, toKeyBytes);
+    }
+
+    @Override
+    public long _count() {
+        // tkrzw keeps its own count of records
+        return this.db.count();
+    }
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        this.checkIfClosed();
+
+        // tkrzw reports everything it knows about the database (e.g. its class, record count and file size)
+        return new LinkedHashMap<>(this.db.inspect());
     }
 
 }
\ No newline at end of file
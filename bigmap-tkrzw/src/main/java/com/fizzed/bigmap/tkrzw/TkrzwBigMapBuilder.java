@@ -16,20 +16,26 @@
 package com.fizzed.bigmap.tkrzw;
 
 import com.fizzed.bigmap.impl.AbstractBigMapBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 
 import java.nio.file.Path;
 import java.util.UUID;
 
 public class TkrzwBigMapBuilder<K,V> extends AbstractBigMapBuilder<K,V, TkrzwBigMapBuilder<K,V>> {
 
+    @Override
+    protected boolean isSortedEngine() {
+        return true;
+    }
+
     public TkrzwBigMap<K,V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path path = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "bigmap-tokyo");
+        final UUID id = this.resolveId();
         // take the path, append the map name, then the extension tokyo needs
-        final Path file = BigMapHelper.appendFileName(path, this.name, ".tkt");
+        final Path file = this.resolveFile(id, "bigmap-tokyo", ".tkt");
 
-        final TkrzwBigMap<K,V> map = new TkrzwBigMap<>(id, file, this.keyCodec, this.keyComparator, this.valueCodec);
+        final TkrzwBigMap<K,V> map = new TkrzwBigMap<>(id, file, this.persistent, this.keyCodec, this.keyComparator, this.valueCodec);
+        map.setSizeTracked(this.sizeTracked);
+        this.applyBloomFilter(map);
+        map.setMetrics(this.buildMetrics());
         map.setListener(this.registry);
         map.open();
         return map;
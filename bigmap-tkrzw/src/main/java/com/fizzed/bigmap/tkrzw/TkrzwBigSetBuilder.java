@@ -17,7 +17,6 @@ package com.fizzed.bigmap.tkrzw;
 
 import com.fizzed.bigmap.*;
 import com.fizzed.bigmap.impl.AbstractBigSetBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 import com.fizzed.bigmap.impl.None;
 
 import java.nio.file.Path;
@@ -25,13 +24,21 @@ import java.util.UUID;
 
 public class TkrzwBigSetBuilder<V> extends AbstractBigSetBuilder<V, TkrzwBigSetBuilder<V>> {
 
+    @Override
+    protected boolean isSortedEngine() {
+        return true;
+    }
+
     public TkrzwBigSet<V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path path = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "bigset-tokyo");
+        final UUID id = this.resolveId();
         // take the path, append the map name, then the extension tokyo needs
-        final Path file = BigMapHelper.appendFileName(path, this.name, ".tkt");
+        final Path file = this.resolveFile(id, "bigset-tokyo", ".tkt");
+
+        final TkrzwBigMap<V,None> map = new TkrzwBigMap<>(id, file, this.persistent, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+
+        this.applyBloomFilter(map);
 
-        final TkrzwBigMap<V,None> map = new TkrzwBigMap<>(id, file, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+        map.setMetrics(this.buildMetrics());
 
         final TkrzwBigSet<V> set = new TkrzwBigSet<>(map);
         set.setListener(this.registry);
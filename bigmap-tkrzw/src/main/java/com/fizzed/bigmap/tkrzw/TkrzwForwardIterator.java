@@ -1,67 +1,93 @@
 package com.fizzed.bigmap.tkrzw;
 
+import com.fizzed.bigmap.BigObjectCloser;
+import com.fizzed.bigmap.Bytes;
+import com.fizzed.bigmap.CloseableIterator;
 import com.fizzed.bigmap.impl.KeyValueBytes;
+import com.fizzed.bigmap.impl.ResourceCleaner;
 import tkrzw.DBM;
 
-import java.io.Closeable;
-import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class TkrzwForwardIterator implements Closeable, Iterator<KeyValueBytes> {
+public class TkrzwForwardIterator implements CloseableIterator<KeyValueBytes> {
 
     static public TkrzwForwardIterator build(DBM db) {
-        final tkrzw.Iterator iterator = db.makeIterator();
-        iterator.first();
+        return build(db, null, null);
+    }
 
-        // probe if it has a "first" record
-        final boolean hasNext = iterator.getKey() != null;
+    static public TkrzwForwardIterator build(DBM db, byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return build(null, db, fromKeyBytes, toKeyBytes);
+    }
 
-        // CRITICAL: if there isn't a next record, we need to destruct the iterator
-        // so the native resources are cleaned up
-        if (!hasNext) {
-            iterator.destruct();
+    static public TkrzwForwardIterator build(BigObjectCloser closer, DBM db, byte[] fromKeyBytes, byte[] toKeyBytes) {
+        final tkrzw.Iterator iterator = db.makeIterator();
+        if (fromKeyBytes != null) {
+            // jump moves the iterator to the first record greater than or equal to the key
+            iterator.jump(fromKeyBytes);
+        } else {
+            iterator.first();
         }
 
-        return new TkrzwForwardIterator(iterator, hasNext);
+        return new TkrzwForwardIterator(closer, iterator, toKeyBytes);
     }
 
-    private tkrzw.Iterator iterator;
+    private final tkrzw.Iterator iterator;
+    private final byte[] toKeyBytes;        // exclusive, null if unbounded
+    private final AtomicBoolean released;
+    private final ResourceCleaner.Cleanable cleanable;
     private boolean hasNext;
     // since we need to forward look at the next key/value, we'll keep it
     // locally present so we don't need to get it fetched/allocated from the db again
     private byte[] nextKey;
     private byte[] nextValue;
 
-    public TkrzwForwardIterator(tkrzw.Iterator iterator, boolean hasNext) {
+    /**
+     * @param closer the closer of the map, which releases the iterator before the database is closed (or null if the
+     *      iterator is only released once closed or garbage collected)
+     */
+    public TkrzwForwardIterator(BigObjectCloser closer, tkrzw.Iterator iterator, byte[] toKeyBytes) {
         this.iterator = iterator;
-        this.hasNext = hasNext;
-        if (hasNext) {
-            this.nextKey = iterator.getKey();
-            this.nextValue = iterator.getValue();
-        }
+        this.toKeyBytes = toKeyBytes;
+        final AtomicBoolean released = new AtomicBoolean();
+        this.released = released;
+        // the native iterator is destructed as soon as it's closed, read to the end, or the map is closed, and only
+        // as a last resort once this iterator is garbage collected
+        this.cleanable = ResourceCleaner.register(closer, this, () -> {
+            released.set(true);
+            iterator.destruct();
+        });
+        this.probeNext();
     }
 
-    protected void finalize() {
-        // even though finalize is not encouraged, we need to clean up native resources
-        this.close();
+    @Override
+    public void close() {
+        this.cleanable.clean();
     }
 
-    public void close() {
-        if (this.iterator != null) {
-            this.iterator.destruct();
-            this.iterator = null;
+    private void probeNext() {
+        this.nextKey = this.iterator.getKey();
+        this.hasNext = this.nextKey != null
+            && (this.toKeyBytes == null || Bytes.compare(this.nextKey, this.toKeyBytes) < 0);
+
+        if (this.hasNext) {
+            this.nextValue = this.iterator.getValue();
+        } else {
+            // CRITICAL: if there's no "next" value, this iterator is done, and we can clean up resources
+            this.nextKey = null;
+            this.close();
         }
     }
 
     @Override
     public boolean hasNext() {
-        return this.hasNext;
+        return this.hasNext && !this.released.get();
     }
 
     @Override
     public KeyValueBytes next() {
         // NOTE: this throws a NoSuchElementException is no element exists
-        if (!hasNext) {
+        if (!this.hasNext()) {
             throw new NoSuchElementException();
         }
 
@@ -72,16 +98,9 @@ public class TkrzwForwardIterator implements Closeable, Iterator<KeyValueBytes>
         // NOTE: if the current record is missing this operation will fail.
         // if the current record exists, but the next record is missing, this doesn't fail
         this.iterator.next();
-        this.nextKey = this.iterator.getKey();
-        this.nextValue = this.iterator.getValue();
-        this.hasNext = this.nextKey != null;
-
-        // CRITICAL: if there's no "next" value, this iterator is done, and we can clean up resources
-        if (!this.hasNext) {
-            this.close();
-        }
+        this.probeNext();
 
         return kvb;
     }
 
-}
\ No newline at end of file
+}
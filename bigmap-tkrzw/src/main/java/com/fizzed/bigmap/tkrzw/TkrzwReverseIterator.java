@@ -0,0 +1,106 @@
+package com.fizzed.bigmap.tkrzw;
+
+import com.fizzed.bigmap.BigObjectCloser;
+import com.fizzed.bigmap.Bytes;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.impl.KeyValueBytes;
+import com.fizzed.bigmap.impl.ResourceCleaner;
+import tkrzw.DBM;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TkrzwReverseIterator implements CloseableIterator<KeyValueBytes> {
+
+    static public TkrzwReverseIterator build(DBM db) {
+        return build(db, null, null);
+    }
+
+    static public TkrzwReverseIterator build(DBM db, byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return build(null, db, fromKeyBytes, toKeyBytes);
+    }
+
+    static public TkrzwReverseIterator build(BigObjectCloser closer, DBM db, byte[] fromKeyBytes, byte[] toKeyBytes) {
+        final tkrzw.Iterator iterator = db.makeIterator();
+        if (toKeyBytes != null) {
+            // jumpLower moves the iterator to the last record less than the key
+            iterator.jumpLower(toKeyBytes, false);
+        } else {
+            iterator.last();
+        }
+
+        return new TkrzwReverseIterator(closer, iterator, fromKeyBytes);
+    }
+
+    private final tkrzw.Iterator iterator;
+    private final byte[] fromKeyBytes;      // inclusive, null if unbounded
+    private final AtomicBoolean released;
+    private final ResourceCleaner.Cleanable cleanable;
+    private boolean hasNext;
+    // since we need to look ahead at the next key/value, we'll keep it
+    // locally present so we don't need to get it fetched/allocated from the db again
+    private byte[] nextKey;
+    private byte[] nextValue;
+
+    /**
+     * @param closer the closer of the map, which releases the iterator before the database is closed (or null if the
+     *      iterator is only released once closed or garbage collected)
+     */
+    public TkrzwReverseIterator(BigObjectCloser closer, tkrzw.Iterator iterator, byte[] fromKeyBytes) {
+        this.iterator = iterator;
+        this.fromKeyBytes = fromKeyBytes;
+        final AtomicBoolean released = new AtomicBoolean();
+        this.released = released;
+        // the native iterator is destructed as soon as it's closed, read to the end, or the map is closed, and only
+        // as a last resort once this iterator is garbage collected
+        this.cleanable = ResourceCleaner.register(closer, this, () -> {
+            released.set(true);
+            iterator.destruct();
+        });
+        this.probeNext();
+    }
+
+    @Override
+    public void close() {
+        this.cleanable.clean();
+    }
+
+    private void probeNext() {
+        this.nextKey = this.iterator.getKey();
+        this.hasNext = this.nextKey != null
+            && (this.fromKeyBytes == null || Bytes.compare(this.nextKey, this.fromKeyBytes) >= 0);
+
+        if (this.hasNext) {
+            this.nextValue = this.iterator.getValue();
+        } else {
+            // CRITICAL: if there's no "next" value, this iterator is done, and we can clean up resources
+            this.nextKey = null;
+            this.close();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.hasNext && !this.released.get();
+    }
+
+    @Override
+    public KeyValueBytes next() {
+        // NOTE: this throws a NoSuchElementException is no element exists
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        // we are already on the item we want
+        final KeyValueBytes kvb = new KeyValueBytes(this.nextKey,  this.nextValue);
+
+        // now we'll iterate to the previous ahead of time
+        // NOTE: if the current record is missing this operation will fail.
+        // if the current record exists, but the previous record is missing, this doesn't fail
+        this.iterator.previous();
+        this.probeNext();
+
+        return kvb;
+    }
+
+}
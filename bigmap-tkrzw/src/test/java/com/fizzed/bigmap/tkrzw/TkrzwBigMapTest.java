@@ -1,6 +1,7 @@
 package com.fizzed.bigmap.tkrzw;
 
 import com.fizzed.bigmap.BigMap;
+import com.fizzed.bigmap.BigObjectMetrics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
@@ -65,4 +66,90 @@ public class TkrzwBigMapTest {
         assertThat(Files.exists(map.getPath()), is(false));
     }
 
+    @Test
+    public void sizeNotTracked() {
+        final TkrzwBigMap<String,String> map = new TkrzwBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .setSizeTracked(false)
+            .autoCloseObjects()
+            .build();
+
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.size(), is(0));
+
+        map.set("a", "1");
+        map.set("b", "2");
+        map.set("a", "3");
+        map.delete("c");
+
+        assertThat(map.get("a"), is("3"));
+        assertThat(map.size(), is(2));
+        assertThat(map.isEmpty(), is(false));
+
+        map.delete("a");
+        map.delete("a");
+
+        assertThat(map.size(), is(1));
+
+        map.delete("b");
+
+        assertThat(map.size(), is(0));
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void bloomFilter() {
+        final TkrzwBigMap<String,String> map = new TkrzwBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .setBloomFilter(1000, 0.01d)
+            .autoCloseObjects()
+            .build();
+
+        assertThat(map.get("a"), is(nullValue()));
+        assertThat(map.containsKey("a"), is(false));
+
+        map.put("a", "1");
+        map.set("b", "2");
+
+        assertThat(map.get("a"), is("1"));
+        assertThat(map.containsKey("b"), is(true));
+        assertThat(map.containsKey("c"), is(false));
+        assertThat(map.remove("c"), is(nullValue()));
+        assertThat(map.size(), is(2));
+
+        map.delete("a");
+
+        assertThat(map.containsKey("a"), is(false));
+        assertThat(map.size(), is(1));
+
+        map.clear();
+
+        assertThat(map.containsKey("b"), is(false));
+        assertThat(map.size(), is(0));
+    }
+
+    @Test
+    public void metrics() {
+        final TkrzwBigMap<String,String> map = new TkrzwBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .enableMetrics()
+            .autoCloseObjects()
+            .build();
+
+        map.put("a", "1");
+        map.get("a");
+        map.remove("a");
+
+        assertThat(map.getMetrics().getOperations().get(BigObjectMetrics.Operation.PUT).getCount(), is(1L));
+        assertThat(map.getMetrics().getOperations().get(BigObjectMetrics.Operation.GET).getCount(), is(1L));
+        assertThat(map.getMetrics().getOperations().get(BigObjectMetrics.Operation.REMOVE).getBytesRead(), is(1L));
+        assertThat(map.getEngineStats().get("num_records"), is("0"));
+    }
+
 }
\ No newline at end of file
@@ -17,30 +17,32 @@ package com.fizzed.bigmap.tokyocabinet;
 
 import com.fizzed.bigmap.*;
 import com.fizzed.bigmap.impl.AbstractBigMapBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 
 import java.nio.file.Path;
-import java.util.Comparator;
 import java.util.Objects;
 import java.util.UUID;
 
 public class TokyoBigLinkedMapBuilder<K,V> extends AbstractBigMapBuilder<K,V,TokyoBigLinkedMapBuilder<K,V>> {
 
+    @Override
+    protected boolean isLinkedEngine() {
+        return true;
+    }
+
     public TokyoBigLinkedMap<K,V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path path = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "biglinkedmap-tokyo");
+        final UUID id = this.resolveId();
         // take the path, append the map name, then the extension tokyo needs
-        final Path dataFile = BigMapHelper.appendFileName(path, this.name, ".tcb");
-        final Path i2kFile = BigMapHelper.appendFileName(path, this.name, "i2k", ".tcb");
-        final Path k2iFile = BigMapHelper.appendFileName(path, this.name, "k2i", ".tcb");
+        final Path dataFile = this.resolveFile(id, "biglinkedmap-tokyo", ".tcb");
+        // the keys, values and their insert order all live in a single sorted store, see AbstractBigLinkedMap
+        final TokyoBigMap<byte[],byte[]> store = new TokyoBigMap<>(UUID.randomUUID(), dataFile, this.persistent, ByteCodecs.byteArrayCodec(), Bytes::compare, ByteCodecs.byteArrayCodec());
+
+        // the linked map always knows whether a key is new (it needs its insert order) so its size is always tracked
+        store.setSizeTracked(false);
+        this.applyBloomFilter(store);
 
-        final ByteCodec<Integer> integerByteCodec = ByteCodecs.integerCodec();
-        final Comparator<Integer> integerComparator = Comparators.autoComparator(Integer.class);
-        final TokyoBigMap<K,V> dataMap = new TokyoBigMap<>(UUID.randomUUID(), dataFile, this.keyCodec, this.keyComparator, this.valueCodec);
-        final TokyoBigMap<Integer,K> insertOrderToKeyMap = new TokyoBigMap<>(UUID.randomUUID(), i2kFile, integerByteCodec, integerComparator, this.keyCodec);
-        final TokyoBigMap<K,Integer> keyToInsertOrderMap = new TokyoBigMap<>(UUID.randomUUID(), k2iFile, this.keyCodec, this.keyComparator, integerByteCodec);
+        final TokyoBigLinkedMap<K,V> map = new TokyoBigLinkedMap<>(id, dataFile, this.persistent, store, this.keyCodec, this.keyComparator, this.valueCodec);
 
-        final TokyoBigLinkedMap<K,V> map = new TokyoBigLinkedMap<>(id, dataFile, false, dataMap, insertOrderToKeyMap, keyToInsertOrderMap);
+        map.setMetrics(this.buildMetrics());
         map.setListener(this.registry);
         map.open();
         return map;
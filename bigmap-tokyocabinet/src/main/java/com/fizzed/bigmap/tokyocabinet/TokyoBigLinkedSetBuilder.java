@@ -15,35 +15,31 @@
  */
 package com.fizzed.bigmap.tokyocabinet;
 
-import com.fizzed.bigmap.ByteCodec;
 import com.fizzed.bigmap.ByteCodecs;
-import com.fizzed.bigmap.Comparators;
+import com.fizzed.bigmap.Bytes;
 import com.fizzed.bigmap.impl.AbstractBigSetBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 import com.fizzed.bigmap.impl.None;
 
 import java.nio.file.Path;
-import java.util.Comparator;
 import java.util.Objects;
 import java.util.UUID;
 
 public class TokyoBigLinkedSetBuilder<V> extends AbstractBigSetBuilder<V,TokyoBigLinkedSetBuilder<V>> {
 
     public TokyoBigLinkedSet<V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path path = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "biglinkedset-tokyo");
+        final UUID id = this.resolveId();
         // take the path, append the map name, then the extension tokyo needs
-        final Path dataFile = BigMapHelper.appendFileName(path, this.name, ".tcb");
-        final Path i2kFile = BigMapHelper.appendFileName(path, this.name, "i2k", ".tcb");
-        final Path k2iFile = BigMapHelper.appendFileName(path, this.name, "k2i", ".tcb");
+        final Path dataFile = this.resolveFile(id, "biglinkedset-tokyo", ".tcb");
+        // the keys, values and their insert order all live in a single sorted store, see AbstractBigLinkedMap
+        final TokyoBigMap<byte[],byte[]> store = new TokyoBigMap<>(UUID.randomUUID(), dataFile, this.persistent, ByteCodecs.byteArrayCodec(), Bytes::compare, ByteCodecs.byteArrayCodec());
 
-        final ByteCodec<Integer> integerByteCodec = ByteCodecs.integerCodec();
-        final Comparator<Integer> integerComparator = Comparators.autoComparator(Integer.class);
-        final TokyoBigMap<V,None> dataMap = new TokyoBigMap<>(UUID.randomUUID(), dataFile, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
-        final TokyoBigMap<Integer,V> insertOrderToKeyMap = new TokyoBigMap<>(UUID.randomUUID(), i2kFile, integerByteCodec, integerComparator, this.valueCodec);
-        final TokyoBigMap<V,Integer> keyToInsertOrderMap = new TokyoBigMap<>(UUID.randomUUID(), k2iFile, this.valueCodec, this.valueComparator, integerByteCodec);
+        // the linked map always knows whether a key is new (it needs its insert order) so its size is always tracked
+        store.setSizeTracked(false);
+        this.applyBloomFilter(store);
 
-        final TokyoBigLinkedMap<V,None> map = new TokyoBigLinkedMap<>(id, dataFile, false, dataMap, insertOrderToKeyMap, keyToInsertOrderMap);
+        final TokyoBigLinkedMap<V,None> map = new TokyoBigLinkedMap<>(id, dataFile, this.persistent, store, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+
+        map.setMetrics(this.buildMetrics());
 
         final TokyoBigLinkedSet<V> set = new TokyoBigLinkedSet<>(map);
         set.setListener(this.registry);
@@ -17,7 +17,7 @@ package com.fizzed.bigmap.tokyocabinet;
 
 import com.fizzed.bigmap.*;
 import com.fizzed.bigmap.impl.AbstractBigMap;
-import com.fizzed.bigmap.impl.ByteArrayBigMap;
+import com.fizzed.bigmap.impl.ByteArrayBigSortedMap;
 import com.fizzed.bigmap.impl.KeyValueBytes;
 import tokyocabinet.BDB;
 import tokyocabinet.HDB;
@@ -25,22 +25,25 @@ import tokyocabinet.HDB;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
-public class TokyoBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBigMap<K,V>, BigSortedMap<K,V> {
+public class TokyoBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBigSortedMap<K,V> {
 
     protected BDB db;
 
     protected TokyoBigMap(
             UUID id,
             Path file,
+            boolean persistent,
             ByteCodec<K> keyCodec,
             Comparator<K> keyComparator,
             ByteCodec<V> valueCodec) {
         
-        super(id, file, false, keyCodec, keyComparator, valueCodec);
+        super(id, file, persistent, keyCodec, keyComparator, valueCodec);
         
         Objects.requireNonNull(valueCodec, "valueCodec was null");
     }
@@ -86,7 +89,8 @@ public class TokyoBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
 
     @Override
     public boolean _containsKey(byte[] keyBytes) {
-        return this.db.get(keyBytes) != null;
+        // only the size of the value is returned (or -1 if the record does not exist), not the value itself
+        return this.db.vsiz(keyBytes) >= 0;
     }
 
     @Override
@@ -106,8 +110,60 @@ public class TokyoBigMap<K,V> extends AbstractBigMap<K,V> implements ByteArrayBi
     }
 
     @Override
-    public Iterator<KeyValueBytes> _forwardIterator() {
-        return TokyoForwardIterator.build(this.db);
+    public void _writeBatch(List<KeyValueBytes> sets, List<byte[]> deletes) {
+        // a transaction lets tokyo apply all the changes to its pages at once
+        if (!this.db.tranbegin()) {
+            throw new BigMapDataException("TokyoCabinet transaction begin error: " + this.db.errmsg(this.db.ecode()));
+        }
+
+        boolean committed = false;
+        try {
+            for (KeyValueBytes kvb : sets) {
+                if (!this.db.put(kvb.getKey(), kvb.getValue())) {
+                    throw new BigMapDataException("TokyoCabinet put error: " + this.db.errmsg(this.db.ecode()));
+                }
+            }
+            for (byte[] keyBytes : deletes) {
+                // out returns false if the record did not exist, which is not an error for us
+                if (!this.db.out(keyBytes) && this.db.ecode() != BDB.ENOREC) {
+                    throw new BigMapDataException("TokyoCabinet out error: " + this.db.errmsg(this.db.ecode()));
+                }
+            }
+            if (!this.db.trancommit()) {
+                throw new BigMapDataException("TokyoCabinet transaction commit error: " + this.db.errmsg(this.db.ecode()));
+            }
+            committed = true;
+        } finally {
+            if (!committed) {
+                this.db.tranabort();
+            }
+        }
+    }
+
+    @Override
+    public CloseableIterator<KeyValueBytes> _forwardIterator(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return TokyoForwardIterator.build(this.db, fromKeyBytes, toKeyBytes);
+    }
+
+    @Override
+    public CloseableIterator<KeyValueBytes> _reverseIterator(byte[] fromKeyBytes, byte[] toKeyBytes) {
+        return TokyoReverseIterator.build(this.db, fromKeyBytes, toKeyBytes);
+    }
+
+    @Override
+    public long _count() {
+        // tokyocabinet keeps its own count of records
+        return this.db.rnum();
+    }
+
+    @Override
+    public Map<String,Object> getEngineStats() {
+        this.checkIfClosed();
+
+        final Map<String,Object> stats = new LinkedHashMap<>();
+        stats.put("rnum", this.db.rnum());
+        stats.put("fsiz", this.db.fsiz());
+        return stats;
     }
 
 }
\ No newline at end of file
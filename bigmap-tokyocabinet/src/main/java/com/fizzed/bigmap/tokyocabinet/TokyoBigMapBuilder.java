@@ -16,7 +16,6 @@
 package com.fizzed.bigmap.tokyocabinet;
 
 import com.fizzed.bigmap.impl.AbstractBigMapBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 
 import java.nio.file.Path;
 import java.util.Objects;
@@ -24,13 +23,20 @@ import java.util.UUID;
 
 public class TokyoBigMapBuilder<K,V> extends AbstractBigMapBuilder<K,V,TokyoBigMapBuilder<K,V>> {
 
+    @Override
+    protected boolean isSortedEngine() {
+        return true;
+    }
+
     public TokyoBigMap<K,V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path path = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "bigmap-tokyo");
+        final UUID id = this.resolveId();
         // take the path, append the map name, then the extension tokyo needs
-        final Path file = BigMapHelper.appendFileName(path, this.name, ".tcb");
+        final Path file = this.resolveFile(id, "bigmap-tokyo", ".tcb");
 
-        final TokyoBigMap<K,V> map = new TokyoBigMap<>(id, file, this.keyCodec, this.keyComparator, this.valueCodec);
+        final TokyoBigMap<K,V> map = new TokyoBigMap<>(id, file, this.persistent, this.keyCodec, this.keyComparator, this.valueCodec);
+        map.setSizeTracked(this.sizeTracked);
+        this.applyBloomFilter(map);
+        map.setMetrics(this.buildMetrics());
         map.setListener(this.registry);
         map.open();
         return map;
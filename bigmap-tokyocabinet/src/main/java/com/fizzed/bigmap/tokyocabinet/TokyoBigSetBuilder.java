@@ -17,7 +17,6 @@ package com.fizzed.bigmap.tokyocabinet;
 
 import com.fizzed.bigmap.*;
 import com.fizzed.bigmap.impl.AbstractBigSetBuilder;
-import com.fizzed.bigmap.impl.BigMapHelper;
 import com.fizzed.bigmap.impl.None;
 
 import java.nio.file.Path;
@@ -26,13 +25,21 @@ import java.util.UUID;
 
 public class TokyoBigSetBuilder<V> extends AbstractBigSetBuilder<V,TokyoBigSetBuilder<V>> {
 
+    @Override
+    protected boolean isSortedEngine() {
+        return true;
+    }
+
     public TokyoBigSet<V> build() {
-        final UUID id = UUID.randomUUID();
-        final Path path = BigMapHelper.resolveScratchPath(this.scratchDirectory, false, id, "bigset-tokyo");
+        final UUID id = this.resolveId();
         // take the path, append the map name, then the extension tokyo needs
-        final Path file = BigMapHelper.appendFileName(path, this.name, ".tcb");
+        final Path file = this.resolveFile(id, "bigset-tokyo", ".tcb");
+
+        final TokyoBigMap<V,None> map = new TokyoBigMap<>(id, file, this.persistent, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+
+        this.applyBloomFilter(map);
 
-        final TokyoBigMap<V,None> map = new TokyoBigMap<>(id, file, this.valueCodec, this.valueComparator, ByteCodecs.noneCodec());
+        map.setMetrics(this.buildMetrics());
 
         final TokyoBigSet<V> set = new TokyoBigSet<>(map);
         set.setListener(this.registry);
@@ -1,26 +1,52 @@
 package com.fizzed.bigmap.tokyocabinet;
 
+import com.fizzed.bigmap.Bytes;
+import com.fizzed.bigmap.CloseableIterator;
 import com.fizzed.bigmap.impl.KeyValueBytes;
 import tokyocabinet.BDB;
 import tokyocabinet.BDBCUR;
 
-import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-public class TokyoForwardIterator implements Iterator<KeyValueBytes> {
+public class TokyoForwardIterator implements CloseableIterator<KeyValueBytes> {
 
     static public TokyoForwardIterator build(BDB db) {
+        return build(db, null, null);
+    }
+
+    static public TokyoForwardIterator build(BDB db, byte[] fromKeyBytes, byte[] toKeyBytes) {
         BDBCUR cursor = new BDBCUR(db);
-        boolean hasNext = cursor.first();
-        return new TokyoForwardIterator(cursor, hasNext);
+        // jump moves the cursor to the first record greater than or equal to the key
+        boolean hasNext = fromKeyBytes != null ? cursor.jump(fromKeyBytes) : cursor.first();
+        return new TokyoForwardIterator(cursor, hasNext, toKeyBytes);
     }
 
     private final BDBCUR cursor;
+    private final byte[] toKeyBytes;        // exclusive, null if unbounded
     private boolean hasNext;
+    private byte[] nextKey;
 
-    public TokyoForwardIterator(BDBCUR cursor, boolean hasNext) {
+    public TokyoForwardIterator(BDBCUR cursor, boolean hasNext, byte[] toKeyBytes) {
         this.cursor = cursor;
+        this.toKeyBytes = toKeyBytes;
         this.hasNext = hasNext;
+        this.probeNext();
+    }
+
+    private void probeNext() {
+        if (this.hasNext) {
+            this.nextKey = this.cursor.key();
+            this.hasNext = this.nextKey != null
+                && (this.toKeyBytes == null || Bytes.compare(this.nextKey, this.toKeyBytes) < 0);
+        }
+    }
+
+    @Override
+    public void close() {
+        // tokyocabinet does not expose a way to delete a cursor (its native memory is freed by the library once the
+        // cursor is garbage collected), so all we can do is let go of it
+        this.hasNext = false;
+        this.nextKey = null;
     }
 
     public boolean hasNext() {
@@ -34,12 +60,13 @@ public class TokyoForwardIterator implements Iterator<KeyValueBytes> {
         }
 
         // we are already on the item we want
-        final KeyValueBytes kvb = new KeyValueBytes(this.cursor.key(),  this.cursor.val());
+        final KeyValueBytes kvb = new KeyValueBytes(this.nextKey,  this.cursor.val());
 
         // now we'll iterate to the next
         this.hasNext = this.cursor.next();
+        this.probeNext();
 
         return kvb;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package com.fizzed.bigmap.tokyocabinet;
+
+import com.fizzed.bigmap.Bytes;
+import com.fizzed.bigmap.CloseableIterator;
+import com.fizzed.bigmap.impl.KeyValueBytes;
+import tokyocabinet.BDB;
+import tokyocabinet.BDBCUR;
+
+import java.util.NoSuchElementException;
+
+public class TokyoReverseIterator implements CloseableIterator<KeyValueBytes> {
+
+    static public TokyoReverseIterator build(BDB db) {
+        return build(db, null, null);
+    }
+
+    static public TokyoReverseIterator build(BDB db, byte[] fromKeyBytes, byte[] toKeyBytes) {
+        BDBCUR cursor = new BDBCUR(db);
+        boolean hasNext;
+        if (toKeyBytes != null) {
+            // jump moves the cursor to the first record greater than or equal to the key, so the record before it is
+            // the last one within the range. if there is no record after the key, then the last record is the one
+            if (cursor.jump(toKeyBytes)) {
+                hasNext = cursor.prev();
+            } else {
+                hasNext = cursor.last();
+            }
+        } else {
+            hasNext = cursor.last();
+        }
+        return new TokyoReverseIterator(cursor, hasNext, fromKeyBytes);
+    }
+
+    private final BDBCUR cursor;
+    private final byte[] fromKeyBytes;      // inclusive, null if unbounded
+    private boolean hasNext;
+    private byte[] nextKey;
+
+    public TokyoReverseIterator(BDBCUR cursor, boolean hasNext, byte[] fromKeyBytes) {
+        this.cursor = cursor;
+        this.fromKeyBytes = fromKeyBytes;
+        this.hasNext = hasNext;
+        this.probeNext();
+    }
+
+    private void probeNext() {
+        if (this.hasNext) {
+            this.nextKey = this.cursor.key();
+            this.hasNext = this.nextKey != null
+                && (this.fromKeyBytes == null || Bytes.compare(this.nextKey, this.fromKeyBytes) >= 0);
+        }
+    }
+
+    @Override
+    public void close() {
+        // tokyocabinet does not expose a way to delete a cursor (its native memory is freed by the library once the
+        // cursor is garbage collected), so all we can do is let go of it
+        this.hasNext = false;
+        this.nextKey = null;
+    }
+
+    public boolean hasNext() {
+        return this.hasNext;
+    }
+
+    public KeyValueBytes next() {
+        // NOTE: this throws a NoSuchElementException is no element exists
+        if (!hasNext) {
+            throw new NoSuchElementException();
+        }
+
+        // we are already on the item we want
+        final KeyValueBytes kvb = new KeyValueBytes(this.nextKey,  this.cursor.val());
+
+        // now we'll iterate to the previous
+        this.hasNext = this.cursor.prev();
+        this.probeNext();
+
+        return kvb;
+    }
+
+}
@@ -66,4 +66,70 @@ public class TokyoBigMapTest {
         assertThat(Files.exists(map.getPath()), is(false));
     }
 
+    @Test
+    public void sizeNotTracked() {
+        final TokyoBigMap<String,String> map = new TokyoBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .setSizeTracked(false)
+            .autoCloseObjects()
+            .build();
+
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.size(), is(0));
+
+        map.set("a", "1");
+        map.set("b", "2");
+        map.set("a", "3");
+        map.delete("c");
+
+        assertThat(map.get("a"), is("3"));
+        assertThat(map.size(), is(2));
+        assertThat(map.isEmpty(), is(false));
+
+        map.delete("a");
+        map.delete("a");
+
+        assertThat(map.size(), is(1));
+
+        map.delete("b");
+
+        assertThat(map.size(), is(0));
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void bloomFilter() {
+        final TokyoBigMap<String,String> map = new TokyoBigMapBuilder<String,String>()
+            .setScratchDirectory(Paths.get("target"))
+            .setKeyType(String.class)
+            .setValueType(String.class)
+            .setBloomFilter(1000, 0.01d)
+            .autoCloseObjects()
+            .build();
+
+        assertThat(map.get("a"), is(nullValue()));
+        assertThat(map.containsKey("a"), is(false));
+
+        map.put("a", "1");
+        map.set("b", "2");
+
+        assertThat(map.get("a"), is("1"));
+        assertThat(map.containsKey("b"), is(true));
+        assertThat(map.containsKey("c"), is(false));
+        assertThat(map.remove("c"), is(nullValue()));
+        assertThat(map.size(), is(2));
+
+        map.delete("a");
+
+        assertThat(map.containsKey("a"), is(false));
+        assertThat(map.size(), is(1));
+
+        map.clear();
+
+        assertThat(map.containsKey("b"), is(false));
+        assertThat(map.size(), is(0));
+    }
+
 }
\ No newline at end of file